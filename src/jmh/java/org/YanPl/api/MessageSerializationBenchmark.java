@@ -0,0 +1,63 @@
+package org.YanPl.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.YanPl.benchmark.Fixtures;
+import org.YanPl.model.DialogueSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求体构建：会话历史转为 messages 数组并序列化为 JSON，每次请求模型前都会执行一次。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MessageSerializationBenchmark {
+
+    /** 会话轮数，每轮 3 条消息 */
+    @Param({"5", "20", "60"})
+    public int rounds;
+
+    private final Gson gson = new Gson();
+    private LLMClient client;
+    private DialogueSession session;
+    private String systemPrompt;
+
+    @Setup
+    public void setup() {
+        client = new LLMClient(Fixtures.plugin(new File(System.getProperty("java.io.tmpdir"))));
+        session = Fixtures.session(rounds);
+        systemPrompt = Fixtures.longDocument();
+    }
+
+    @Benchmark
+    public JsonArray buildMessages() {
+        return client.buildMessagesArray(session, systemPrompt);
+    }
+
+    @Benchmark
+    public String buildAndSerialize() {
+        JsonObject body = new JsonObject();
+        body.addProperty("model", "gpt-4o-mini");
+        body.addProperty("stream", true);
+        body.add("messages", client.buildMessagesArray(session, systemPrompt));
+        return gson.toJson(body);
+    }
+}
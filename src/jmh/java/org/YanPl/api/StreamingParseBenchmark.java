@@ -0,0 +1,113 @@
+package org.YanPl.api;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.net.ssl.SSLSession;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式响应解析：把录制的 SSE 流完整喂给 StreamingHandler.processStream。
+ * <p>
+ * 覆盖逐行读取、JSON 解析、思考内容拆分、工具调用行扫描与 usage 统计。
+ * 每次调用都会新建 StreamingHandler（与线上每轮一个实例一致），包含其看门狗线程的启动成本。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class StreamingParseBenchmark {
+
+    @Param({"openai-chat", "openai-reasoning", "cloudflare-responses"})
+    public String fixture;
+
+    private FancyHelper plugin;
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        plugin = Fixtures.plugin(new File(System.getProperty("java.io.tmpdir")));
+        body = Fixtures.resource("sse/" + fixture + ".sse");
+    }
+
+    @Benchmark
+    public String processStream() throws IOException {
+        StreamingHandler handler = new StreamingHandler(plugin, null);
+        return handler.processStream(new RecordedResponse(body));
+    }
+
+    /**
+     * 只提供响应体的 HttpResponse，processStream 不读取其余字段
+     */
+    private static final class RecordedResponse implements HttpResponse<InputStream> {
+        private final byte[] body;
+
+        RecordedResponse(byte[] body) {
+            this.body = body;
+        }
+
+        @Override
+        public int statusCode() {
+            return 200;
+        }
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(URI.create("http://localhost/v1/chat/completions")).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<InputStream>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Collections.emptyMap(), (k, v) -> true);
+        }
+
+        @Override
+        public InputStream body() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return URI.create("http://localhost/v1/chat/completions");
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
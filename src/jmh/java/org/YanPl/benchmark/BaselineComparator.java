@@ -0,0 +1,149 @@
+package org.YanPl.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 比较本次 JMH 结果与基线，逐项输出变化比例。
+ * <p>
+ * 用法：BaselineComparator &lt;本地基线 json&gt; &lt;本次结果 json&gt; [回退阈值] [是否因回退失败]
+ * [已提交的基线 json] [是否保存为已提交的基线]
+ * <ul>
+ *     <li>本地基线（target 下）存在时与它比较，否则与已提交的基线比较；都不存在时把本次结果记为本地基线</li>
+ *     <li>按分数单位判断方向：AverageTime 等时间单位越小越好，ops/时间 的吞吐量单位越大越好</li>
+ *     <li>任一基准变慢超过阈值即视为回退，是否让构建失败由第四个参数决定</li>
+ *     <li>只有第六个参数为 true（-Djmh.saveBaseline=true）时才把本次结果写入源码树中的基线，平时不改动工作区</li>
+ * </ul>
+ * 不同机器的结果不可比，基线应在同一台机器上生成。
+ */
+public final class BaselineComparator {
+
+    private BaselineComparator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [threshold] [failOnRegression]"
+                    + " [committedBaseline.json] [saveBaseline]");
+            System.exit(2);
+        }
+        Path baseline = Path.of(args[0]);
+        Path result = Path.of(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+        Path committed = args.length > 4 && !args[4].isEmpty() ? Path.of(args[4]) : null;
+        boolean saveBaseline = args.length > 5 && Boolean.parseBoolean(args[5]);
+
+        if (!Files.isRegularFile(result)) {
+            System.err.println("[JMH] Result file not found: " + result);
+            System.exit(failOnRegression ? 1 : 0);
+            return;
+        }
+        int regressions = 0;
+        if (Files.isRegularFile(baseline)) {
+            regressions = compare(baseline, result, threshold);
+        } else if (committed != null && Files.isRegularFile(committed)) {
+            regressions = compare(committed, result, threshold);
+        } else {
+            copy(result, baseline);
+            System.out.println("[JMH] No baseline found, recorded current results as baseline: " + baseline);
+        }
+        if (saveBaseline && committed != null) {
+            copy(result, committed);
+            System.out.println("[JMH] Saved current results as committed baseline: " + committed);
+        }
+        if (regressions > 0 && failOnRegression) {
+            System.exit(1);
+        }
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        Files.createDirectories(to.toAbsolutePath().getParent());
+        Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 逐项输出变化比例，返回超过阈值的回退数量
+     */
+    private static int compare(Path baseline, Path result, double threshold) throws IOException {
+        Map<String, Score> before = load(baseline);
+        Map<String, Score> after = load(result);
+        int regressions = 0;
+
+        System.out.println(String.format("[JMH] Comparing against %s (threshold %.0f%%)", baseline, threshold * 100));
+        System.out.println(String.format("%-90s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Score> entry : new TreeMap<>(after).entrySet()) {
+            Score current = entry.getValue();
+            Score base = before.get(entry.getKey());
+            if (base == null || !base.unit.equals(current.unit) || base.value == 0) {
+                System.out.println(String.format("%-90s %14s %14s %9s",
+                        entry.getKey(), "-", format(current), "new"));
+                continue;
+            }
+            // 正值表示变慢
+            double change = (current.value - base.value) / base.value;
+            if (current.higherIsBetter()) change = -change;
+            boolean regressed = change > threshold;
+            if (regressed) regressions++;
+            System.out.println(String.format("%-90s %14s %14s %+8.1f%%%s",
+                    entry.getKey(), format(base), format(current), change * 100, regressed ? "  REGRESSION" : ""));
+        }
+
+        if (regressions == 0) {
+            System.out.println("[JMH] No regressions beyond threshold.");
+        } else {
+            System.out.println("[JMH] " + regressions + " benchmark(s) regressed beyond threshold.");
+        }
+        return regressions;
+    }
+
+    /**
+     * 读取 JMH 的 JSON 结果，键为基准名加参数
+     */
+    private static Map<String, Score> load(Path file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        JsonArray runs = JsonParser.parseString(Files.readString(file, StandardCharsets.UTF_8)).getAsJsonArray();
+        for (JsonElement element : runs) {
+            JsonObject run = element.getAsJsonObject();
+            StringBuilder key = new StringBuilder(run.get("benchmark").getAsString());
+            if (run.has("params")) {
+                for (Map.Entry<String, JsonElement> param : run.getAsJsonObject("params").entrySet()) {
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().getAsString());
+                }
+            }
+            JsonObject metric = run.getAsJsonObject("primaryMetric");
+            scores.put(key.toString(), new Score(metric.get("score").getAsDouble(), metric.get("scoreUnit").getAsString()));
+        }
+        return scores;
+    }
+
+    private static String format(Score score) {
+        return String.format("%.3f %s", score.value, score.unit);
+    }
+
+    private static final class Score {
+        final double value;
+        final String unit;
+
+        Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+
+        /** ops/us 之类的吞吐量单位越大越好 */
+        boolean higherIsBetter() {
+            return unit.startsWith("ops/");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.YanPl.benchmark;
+
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.YanPl.model.DialogueSession;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 基准测试共用的夹具：插件桩对象、录制的 SSE 流、内置 Skill 文档与典型会话历史。
+ * <p>
+ * 插件与配置使用 stubOnly 的 Mockito 桩（不记录调用），热路径中的 getConfigManager()/isDebug()
+ * 开销固定且很小，前后两次结果对比时可以抵消。
+ */
+public final class Fixtures {
+
+    /** 内置 Skill 目录，JMH 进程的工作目录为项目根目录 */
+    private static final Path SKILLS_DIR = Path.of(System.getProperty("fancyhelper.skills.dir", "src/main/resources/skills"));
+
+    private Fixtures() {
+    }
+
+    /**
+     * 关闭调试日志、超时 60 秒的插件桩
+     */
+    public static FancyHelper plugin(File dataFolder) {
+        FancyHelper plugin = mock(FancyHelper.class, withSettings().stubOnly());
+        ConfigManager config = mock(ConfigManager.class, withSettings().stubOnly());
+        Logger logger = Logger.getLogger("FancyHelper-Benchmark");
+        logger.setLevel(Level.WARNING);
+        when(plugin.getLogger()).thenReturn(logger);
+        when(plugin.getConfigManager()).thenReturn(config);
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(config.isDebug()).thenReturn(false);
+        when(config.getApiTimeoutSeconds()).thenReturn(60);
+        when(config.getServerMemoryMaxEntries()).thenReturn(500);
+        return plugin;
+    }
+
+    /**
+     * 读取 src/jmh/resources 下的测试资源
+     */
+    public static byte[] resource(String name) {
+        try (InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) throw new IllegalStateException("缺少基准测试资源: " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 内置 Skill 的 skill.md 文件
+     */
+    public static List<Path> skillFiles() {
+        try (Stream<Path> dirs = Files.list(SKILLS_DIR)) {
+            return dirs.map(dir -> dir.resolve("skill.md"))
+                    .filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("无法读取内置 Skill 目录 " + SKILLS_DIR.toAbsolutePath(), e);
+        }
+    }
+
+    public static String read(Path file) {
+        try {
+            return Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 一段典型的长文本：所有内置 Skill 文档拼接，接近真实系统提示词的中英混排分布
+     */
+    public static String longDocument() {
+        StringBuilder sb = new StringBuilder();
+        for (Path file : skillFiles()) {
+            sb.append(read(file)).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 构造一个进行了若干轮的会话：玩家提问、AI 回复带工具调用、工具结果回填交替出现
+     *
+     * @param rounds 轮数，每轮 3 条消息
+     */
+    public static DialogueSession session(int rounds) {
+        List<String> docs = new ArrayList<>();
+        for (Path file : skillFiles()) {
+            docs.add(read(file));
+        }
+        DialogueSession session = new DialogueSession();
+        session.setSessionUUID("00000000-0000-4000-8000-000000000000");
+        for (int i = 0; i < rounds; i++) {
+            String doc = docs.get(i % docs.size());
+            session.addMessage("user", PLAYER_MESSAGES[i % PLAYER_MESSAGES.length]);
+            session.addMessage("assistant", "好的，我先查看相关文档。\n#skill: " + (i % docs.size()) + " read skill.md");
+            // 工具结果截取文档片段，长度在 1~4KB 之间变化
+            int length = Math.min(doc.length(), 1024 * (1 + i % 4));
+            session.addMessage("user", "[Tool Result] " + doc.substring(0, length));
+        }
+        return session;
+    }
+
+    /** 真实场景中常见的玩家输入 */
+    public static final String[] PLAYER_MESSAGES = {
+            "帮我给 vip 组加上 essentials.fly 权限",
+            "用 worldedit 把主城广场那片区域铺成石英块",
+            "查一下 Steve 昨天晚上在出生点附近破坏了哪些方块",
+            "把 mcmmo 的挖掘经验倍率调成两倍，周末活动用",
+            "新建一个叫 resource 的资源世界，生存模式，和主世界分开背包",
+            "给所有在线玩家发 16 个面包",
+            "服务器最近有点卡，帮我看看是哪个插件的问题",
+            "今天天气怎么样",
+    };
+}
@@ -0,0 +1,79 @@
+package org.YanPl.manager;
+
+import org.YanPl.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 服务器记忆检索：每轮对话按玩家消息对全部记忆做关键词打分并取 Top-K。
+ * <p>
+ * 命中的记忆会刷新 lastUsed 并向操作日志排队一条 TOUCH，与线上行为一致；写盘在后台线程完成。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class ServerMemoryBenchmark {
+
+    private static final String[] SUBJECTS = {
+            "主城", "资源世界", "地狱", "末地", "商店区", "新手村", "竞技场", "空岛"};
+    private static final String[] RULES = {
+            "%s 禁止使用 TNT 和苦力怕刷怪塔，违者没收物品",
+            "%s 的权限组为 vip 时可以使用 /fly，普通玩家不行",
+            "%s 每周日晚上 8 点重置，重要物品请提前转移",
+            "%s 区域由 Residence 圈地保护，修改需要管理员同意",
+            "%s 的 mcmmo 经验倍率为 1.5 倍，活动期间临时调整为 2 倍",
+    };
+
+    @Param({"50", "200"})
+    public int memories;
+
+    private Path dataFolder;
+    private ServerMemoryManager manager;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataFolder = Files.createTempDirectory("fancyhelper-jmh-memory");
+        manager = new ServerMemoryManager(Fixtures.plugin(dataFolder.toFile()));
+        for (int i = 0; i < memories; i++) {
+            String subject = SUBJECTS[i % SUBJECTS.length];
+            String rule = String.format(RULES[(i / SUBJECTS.length) % RULES.length], subject);
+            manager.addMemory(rule + "（#" + i + "）", i % 3 == 0 ? "fact" : "rule", "admin");
+        }
+        manager.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Benchmark
+    public List<ServerMemoryManager.ServerMemory> relevantQuery() {
+        return manager.getMemoriesForPrompt("资源世界什么时候重置？我的 vip 能不能飞", 5, 1);
+    }
+
+    @Benchmark
+    public List<ServerMemoryManager.ServerMemory> unrelatedQuery() {
+        return manager.getMemoriesForPrompt("今天天气怎么样", 5, 1);
+    }
+}
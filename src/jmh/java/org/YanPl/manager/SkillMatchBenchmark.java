@@ -0,0 +1,61 @@
+package org.YanPl.manager;
+
+import org.YanPl.benchmark.Fixtures;
+import org.YanPl.model.Skill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Skill 触发词匹配：每条玩家消息都会对全部已注册 Skill 打分，用于自动注入相关文档。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SkillMatchBenchmark {
+
+    /** 玩家输入的下标，最后一条为无任何 Skill 命中的闲聊 */
+    @Param({"0", "1", "2", "7"})
+    public int input;
+
+    private SkillManager skillManager;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        Path dataFolder = Files.createTempDirectory("fancyhelper-jmh-skill");
+        skillManager = new SkillManager(Fixtures.plugin(dataFolder.toFile()));
+        for (Path file : Fixtures.skillFiles()) {
+            skillManager.getRegistry().register(
+                    Skill.parse("skill.md", Fixtures.read(file), file.toFile(), false, true));
+        }
+        text = Fixtures.PLAYER_MESSAGES[input];
+    }
+
+    @Benchmark
+    public List<Skill> findMatchingSkills() {
+        return skillManager.findMatchingSkills(text, 3, 30);
+    }
+
+    @Benchmark
+    public Skill findBestMatch() {
+        return skillManager.findBestMatch(text);
+    }
+}
@@ -0,0 +1,53 @@
+package org.YanPl.model;
+
+import org.YanPl.benchmark.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token 估算：单段文本与整段会话历史，后者在每轮对话和自动压缩判断时都会调用。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TokenCountBenchmark {
+
+    private String shortText;
+    private String longText;
+    private DialogueSession session;
+
+    @Setup
+    public void setup() {
+        shortText = Fixtures.PLAYER_MESSAGES[0];
+        longText = Fixtures.longDocument();
+        session = Fixtures.session(20);
+    }
+
+    @Benchmark
+    public int shortMessage() {
+        return DialogueSession.calculateTokens(shortText);
+    }
+
+    @Benchmark
+    public int longDocument() {
+        return DialogueSession.calculateTokens(longText);
+    }
+
+    @Benchmark
+    public int sessionHistory() {
+        return session.getEstimatedTokens();
+    }
+}
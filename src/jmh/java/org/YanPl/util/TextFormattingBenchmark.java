@@ -0,0 +1,76 @@
+package org.YanPl.util;
+
+import org.YanPl.manager.ToolExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每条输出到聊天栏的文本都会经过的格式化路径：I18n 占位符替换、颜色码转换与剥离，
+ * 以及 AI 回复中的工具调用识别。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class TextFormattingBenchmark {
+
+    private static final String PREFIX = "§zFancyHelper§b§r §7> §f";
+
+    private String coloredLine;
+    private String reply;
+
+    @Setup
+    public void setup() {
+        coloredLine = PREFIX + "§x已为 §evip §x组设置权限 §aessentials.fly §7= §btrue §8(§7LuckPerms§8)";
+        reply = "好的，我先确认 vip 组当前的权限，再添加飞行权限。\n"
+                + "LuckPerms 的权限节点是 essentials.fly，设置为 true 后组内玩家即可使用 /fly。\n"
+                + "注意 #run 只在行首时才会被执行，正文里提到不会触发。\n"
+                + "#run: lp group vip permission set essentials.fly true\n";
+    }
+
+    @Benchmark
+    public String i18nWithArgs() {
+        return I18n.t("cli.metrics.line", "llm.stream", 128, 412, 1830);
+    }
+
+    @Benchmark
+    public String translateCustomColors() {
+        return ColorUtil.translateCustomColors(coloredLine);
+    }
+
+    @Benchmark
+    public String legacyToReadable() {
+        return ColorUtil.legacyToReadable(coloredLine);
+    }
+
+    @Benchmark
+    public String stripToPlainText() {
+        return ColorUtil.stripToPlainText(coloredLine);
+    }
+
+    @Benchmark
+    public List<String> scanToolCalls() {
+        List<String> calls = new ArrayList<>(1);
+        ToolCallScanner.scanCompletedLines(reply, 0, ToolCallScanner.KNOWN_TOOLS, calls);
+        return calls;
+    }
+
+    @Benchmark
+    public ToolExecutor.ToolParseResult parseToolCall() {
+        return ToolExecutor.parseToolCall("#run: lp group vip permission set essentials.fly true");
+    }
+}
@@ -1,9 +1,11 @@
 package org.YanPl;
 
 import org.YanPl.api.MetasoAPI;
+import org.YanPl.api.WebFetcher;
 import org.YanPl.api.TavilyAPI;
 import org.YanPl.command.CLICommand;
 import org.YanPl.listener.ChatListener;
+import org.YanPl.listener.PluginLoadListener;
 import org.YanPl.manager.CLIManager;
 import org.YanPl.manager.ConfigManager;
 import org.YanPl.manager.PacketCaptureManager;
@@ -15,6 +17,8 @@ import org.YanPl.manager.WorkspaceIndexer;
 import org.YanPl.manager.TodoManager;
 import org.YanPl.manager.NoticeManager;
 import org.YanPl.manager.FileWatcherManager;
+import org.YanPl.manager.ConsoleLogTailer;
+import org.YanPl.manager.SearchGateway;
 import org.YanPl.manager.InstructionManager;
 import org.YanPl.manager.ServerMemoryManager;
 import org.YanPl.manager.GuiManager;
@@ -54,8 +58,11 @@ public final class FancyHelper extends JavaPlugin {
     private TodoManager todoManager;
     private NoticeManager noticeManager;
     private FileWatcherManager fileWatcherManager;
+    private ConsoleLogTailer consoleLogTailer;
     private TavilyAPI tavilyAPI;
     private MetasoAPI metasoAPI;
+    private SearchGateway searchGateway;
+    private WebFetcher webFetcher;
     private ErrorHandler errorHandler;
     private InstructionManager instructionManager;
     private ServerMemoryManager serverMemoryManager;
@@ -154,12 +161,22 @@ public final class FancyHelper extends JavaPlugin {
             // 初始化文件监听管理器
             fileWatcherManager = new FileWatcherManager(this);
 
+            // 初始化控制台日志跟随器（#run 控制台兜底反馈）
+            consoleLogTailer = new ConsoleLogTailer(this);
+            consoleLogTailer.start();
+
             // 初始化 Tavily API
             tavilyAPI = new TavilyAPI(this);
 
             // 初始化 Metaso API
             metasoAPI = new MetasoAPI(this);
 
+            // 初始化搜索网关（#search 结果缓存）
+            searchGateway = new SearchGateway(this);
+
+            // 初始化网页读取客户端（#webfetch）
+            webFetcher = new WebFetcher(this);
+
             // 初始化 MCP 管理器
             mcpManager = new McpManager(this);
             mcpManager.initialize();
@@ -175,6 +192,7 @@ public final class FancyHelper extends JavaPlugin {
 
             // 注册事件监听器
             getServer().getPluginManager().registerEvents(new ChatListener(this), this);
+            getServer().getPluginManager().registerEvents(new PluginLoadListener(this), this);
 
             // bStats 统计
             int pluginId = 29036;
@@ -479,11 +497,26 @@ public final class FancyHelper extends JavaPlugin {
             fileWatcherManager.shutdown();
         }
 
+        // 关闭控制台日志跟随器
+        if (consoleLogTailer != null) {
+            consoleLogTailer.shutdown();
+        }
+
         // 关闭 Metaso API
         if (metasoAPI != null) {
             metasoAPI.shutdown();
         }
 
+        // 保存搜索缓存
+        if (searchGateway != null) {
+            searchGateway.shutdown();
+        }
+
+        // 关闭网页读取客户端
+        if (webFetcher != null) {
+            webFetcher.shutdown();
+        }
+
         // 关闭偏好记忆管理器
         if (instructionManager != null) {
             instructionManager.shutdown();
@@ -501,9 +534,15 @@ public final class FancyHelper extends JavaPlugin {
 
         // 保存统计数据
         if (statsManager != null) {
+            statsManager.stopMetricsServer();
             statsManager.save();
         }
 
+        // 关闭错误上报线程
+        if (cloudErrorReport != null) {
+            cloudErrorReport.shutdown();
+        }
+
         // 等待短暂时间以确保后台任务结束
         try {
             Thread.sleep(500);
@@ -550,6 +589,10 @@ public final class FancyHelper extends JavaPlugin {
         return packetCaptureManager;
     }
 
+    public ConsoleLogTailer getConsoleLogTailer() {
+        return consoleLogTailer;
+    }
+
     public TodoManager getTodoManager() {
         return todoManager;
     }
@@ -566,6 +609,14 @@ public final class FancyHelper extends JavaPlugin {
         return metasoAPI;
     }
 
+    public SearchGateway getSearchGateway() {
+        return searchGateway;
+    }
+
+    public WebFetcher getWebFetcher() {
+        return webFetcher;
+    }
+
     public ErrorHandler getErrorHandler() {
         return errorHandler;
     }
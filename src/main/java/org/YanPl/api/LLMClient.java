@@ -5,8 +5,10 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.YanPl.FancyHelper;
+import org.YanPl.manager.StatsManager;
 import org.YanPl.model.AIResponse;
 import org.YanPl.model.DialogueSession;
+import org.YanPl.util.TurnEvents;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,6 +34,8 @@ public class LLMClient {
     private final HttpClient httpClient;
     private final Gson gson = new Gson();
     private final ResponseParser responseParser = new ResponseParser();
+    /** 当前线程正在进行的对话请求事件，请求体在各提供商分支中才生成，由 logRequestFormatted 回填大小 */
+    private static final ThreadLocal<TurnEvents.LlmRequest> ACTIVE_REQUEST = new ThreadLocal<>();
     private String cachedAccountId = null;
     private BiConsumer<Integer, String> retryCallback = null;
 
@@ -175,6 +179,10 @@ public class LLMClient {
      * 只记录本次新增的消息，更新 lastLoggedMessageCount。
      */
     private void logRequestFormatted(DialogueSession session, String requestBody) {
+        TurnEvents.LlmRequest requestEvent = ACTIVE_REQUEST.get();
+        if (requestEvent != null && requestEvent.isEnabled()) {
+            requestEvent.requestBytes = TurnEvents.utf8Length(requestBody);
+        }
         StringBuilder sb = new StringBuilder();
         try {
             JsonElement reqEl = gson.fromJson(requestBody, JsonElement.class);
@@ -224,8 +232,10 @@ public class LLMClient {
 
     /**
      * 构建消息数组（OpenAI 和 CloudFlare API 通用）
+     * <p>
+     * 包级可见，供 src/jmh 下的序列化基准测试直接调用
      */
-    private JsonArray buildMessagesArray(DialogueSession session, String systemPrompt) {
+    JsonArray buildMessagesArray(DialogueSession session, String systemPrompt) {
         JsonArray messagesArray = new JsonArray();
 
         String safeSystemPrompt = (systemPrompt != null && !systemPrompt.isEmpty()) ? systemPrompt : "你是一个得力的助手。";
@@ -366,16 +376,101 @@ public class LLMClient {
     public AIResponse chat(DialogueSession session, String systemPrompt) throws IOException {
         checkConfigLoaded();
 
-        // 检测是否启用 FancyConsole 模式
+        String provider = metricsProvider();
+        String model = metricsModel();
+        long start = System.nanoTime();
+        boolean success = false;
+        TurnEvents.LlmRequest event = new TurnEvents.LlmRequest();
+        event.begin();
+        ACTIVE_REQUEST.set(event);
+        try {
+            AIResponse response;
+            // 检测是否启用 FancyConsole 模式
+            if (plugin.getConfigManager().isFancyConsoleAi()) {
+                response = chatWithFancyConsole(session, systemPrompt);
+            } else if ("openai".equalsIgnoreCase(plugin.getConfigManager().getProvider())) {
+                // 检测是否启用 OpenAI 模式
+                response = chatWithOpenAI(session, systemPrompt);
+            } else {
+                // 否则使用 CloudFlare Workers AI
+                response = chatWithCloudFlare(session, systemPrompt);
+            }
+            success = true;
+            StatsManager stats = plugin.getStatsManager();
+            if (stats != null && response != null) {
+                stats.recordLlmTokens(provider, model, response.getPromptTokens(), response.getCompletionTokens());
+            }
+            if (response != null && response.getContent() != null) {
+                event.responseChars = response.getContent().length();
+            }
+            return response;
+        } finally {
+            ACTIVE_REQUEST.remove();
+            StatsManager stats = plugin.getStatsManager();
+            if (stats != null) {
+                stats.recordLlmRequest(provider, model, "chat", success, start);
+            }
+            commitRequestEvent(event, session, provider, model, false, success);
+        }
+    }
+
+    /**
+     * 指标中的提供商标签
+     */
+    private String metricsProvider() {
+        if (plugin.getConfigManager().isFancyConsoleAi()) return "fancy";
+        if ("openai".equalsIgnoreCase(plugin.getConfigManager().getProvider())) return "openai";
+        return "cloudflare";
+    }
+
+    /**
+     * 指标中的模型标签（来自配置，取值有限）
+     */
+    private String metricsModel() {
+        String model;
         if (plugin.getConfigManager().isFancyConsoleAi()) {
-            return chatWithFancyConsole(session, systemPrompt);
+            model = plugin.getConfigManager().getFancyModel();
+        } else if ("openai".equalsIgnoreCase(plugin.getConfigManager().getProvider())) {
+            model = plugin.getConfigManager().getOpenAiModel();
+        } else {
+            model = plugin.getConfigManager().getCloudflareModel();
         }
-        // 检测是否启用 OpenAI 模式
-        if ("openai".equalsIgnoreCase(plugin.getConfigManager().getProvider())) {
-            return chatWithOpenAI(session, systemPrompt);
+        return model == null || model.isEmpty() ? "default" : model;
+    }
+
+    private static void commitRequestEvent(TurnEvents.LlmRequest event, DialogueSession session,
+                                           String provider, String model, boolean streaming, boolean success) {
+        if (!event.shouldCommit()) return;
+        event.player = session != null ? session.getPlayerName() : null;
+        event.sessionId = session != null ? session.getSessionUUID() : null;
+        event.provider = provider;
+        event.model = model;
+        event.streaming = streaming;
+        event.success = success;
+        event.commit();
+    }
+
+    /**
+     * 记录流式请求的首 token 耗时、输出速度与 token 用量
+     */
+    private void recordStreamingMetrics(String provider, String model, long start,
+                                        StreamingHandler streamingHandler, String fullText) {
+        StatsManager stats = plugin.getStatsManager();
+        long first = streamingHandler.getFirstTokenNanos();
+        if (stats == null || first == 0) return;
+        stats.recordFirstToken(provider, model, first - start);
+
+        long reportedOutput = streamingHandler.getReportedOutputTokens();
+        if (reportedOutput >= 0) {
+            stats.recordLlmTokens(provider, model, streamingHandler.getReportedInputTokens(), reportedOutput);
+        }
+        // 没有 usage 时按文本估算，只用于计算速度
+        long output = reportedOutput >= 0 ? reportedOutput
+                : DialogueSession.calculateTokens(fullText == null ? "" : fullText) + DialogueSession.calculateTokens(streamingHandler.getThoughtContent());
+        long span = streamingHandler.getLastTokenNanos() - first;
+        if (span > 0 && output > 1) {
+            stats.recordTokensPerSecond(provider, model, (output - 1) / (span / 1e9));
         }
-        // 否则使用 CloudFlare Workers AI
-        return chatWithCloudFlare(session, systemPrompt);
     }
 
     /**
@@ -1881,13 +1976,34 @@ public class LLMClient {
     public String chatStreaming(DialogueSession session, String systemPrompt, StreamingHandler streamingHandler) throws IOException {
         checkConfigLoaded();
 
-        if (plugin.getConfigManager().isFancyConsoleAi()) {
-            return chatStreamingWithFancyConsole(session, systemPrompt, streamingHandler);
-        }
-        if ("openai".equalsIgnoreCase(plugin.getConfigManager().getProvider())) {
-            return chatStreamingWithOpenAI(session, systemPrompt, streamingHandler);
+        String provider = metricsProvider();
+        String model = metricsModel();
+        long start = System.nanoTime();
+        boolean success = false;
+        TurnEvents.LlmRequest event = new TurnEvents.LlmRequest();
+        event.begin();
+        ACTIVE_REQUEST.set(event);
+        try {
+            String fullText;
+            if (plugin.getConfigManager().isFancyConsoleAi()) {
+                fullText = chatStreamingWithFancyConsole(session, systemPrompt, streamingHandler);
+            } else if ("openai".equalsIgnoreCase(plugin.getConfigManager().getProvider())) {
+                fullText = chatStreamingWithOpenAI(session, systemPrompt, streamingHandler);
+            } else {
+                fullText = chatStreamingWithCloudFlare(session, systemPrompt, streamingHandler);
+            }
+            success = true;
+            recordStreamingMetrics(provider, model, start, streamingHandler, fullText);
+            event.responseChars = fullText != null ? fullText.length() : 0;
+            return fullText;
+        } finally {
+            ACTIVE_REQUEST.remove();
+            StatsManager stats = plugin.getStatsManager();
+            if (stats != null) {
+                stats.recordLlmRequest(provider, model, "stream", success, start);
+            }
+            commitRequestEvent(event, session, provider, model, true, success);
         }
-        return chatStreamingWithCloudFlare(session, systemPrompt, streamingHandler);
     }
 
     /**
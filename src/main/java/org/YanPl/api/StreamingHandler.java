@@ -5,6 +5,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.YanPl.FancyHelper;
+import org.YanPl.model.DialogueSession;
+import org.YanPl.util.TurnEvents;
+import org.YanPl.util.ToolCallScanner;
 import org.bukkit.entity.Player;
 
 import java.io.BufferedReader;
@@ -13,6 +16,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
@@ -40,16 +45,23 @@ public class StreamingHandler {
     private volatile Consumer<String> onReasoningCallback;      // 思考内容逐片回调
     private volatile Consumer<Long> onReasoningCompleteCallback;  // 思考结束回调，参数为思考耗时ms
     private volatile BiConsumer<Long, Long> onUsageTokens;        // API 返回的 token 用量回调 (input, output)
+    private volatile Consumer<String> onToolLineCallback;         // 完整工具调用行回调
     private volatile boolean errorOccurred = false;
     private long reasoningStartTime = -1;       // 第一个 reasoning token 的时间戳
     private boolean reasoningJustCompleted = false;  // 本次 extractTextFromSSE 是否刚完成思考
     private boolean reasoningCompleteFired = false;  // 是否已触发过思考结束回调
     private volatile boolean toolCallDetected = false;  // 是否已检测到 # 工具调用标记
+    private int toolScanPos = 0;  // 工具调用行增量扫描位置（fullText 中尚未完整的行首）
     private final Logger logger;
     private final int readTimeoutSeconds;  // 流式读取超时秒数
     private long pendingUsageInput = 0;    // 流中最后一次出现的 usage 输入 token（累计值）
     private long pendingUsageOutput = 0;   // 流中最后一次出现的 usage 输出 token（累计值）
     private boolean usageSeen = false;     // 本次流是否出现过非零 usage
+    private long firstTokenNanos = 0;      // 收到第一段正文或思考内容的时间（System.nanoTime），0 表示尚未收到
+    private long lastTokenNanos = 0;       // 收到最后一段正文或思考内容的时间
+    private final String playerName;       // 诊断事件中的玩家名
+    private final String sessionId;        // 诊断事件中的会话 UUID
+    private TurnEvents.StreamFirstToken firstTokenEvent;  // 开始读取流时开始计时，收到第一段内容时提交
     
     /**
      * 创建流式输出处理器
@@ -57,6 +69,16 @@ public class StreamingHandler {
      * @param player 目标玩家
      */
     public StreamingHandler(FancyHelper plugin, Player player) {
+        this(plugin, player, null);
+    }
+
+    /**
+     * 创建流式输出处理器
+     * @param plugin 插件实例
+     * @param player 目标玩家
+     * @param session 所属会话，用于诊断事件关联到具体一轮对话，可为 null
+     */
+    public StreamingHandler(FancyHelper plugin, Player player, DialogueSession session) {
         this.plugin = plugin;
         this.buffer = new StringBuffer();  // 线程安全的 StringBuffer
         this.thoughtContent = new StringBuilder();
@@ -64,6 +86,8 @@ public class StreamingHandler {
         this.errorOccurred = false;
         this.gson = new Gson();
         this.logger = plugin.getLogger();
+        this.playerName = player != null ? player.getName() : null;
+        this.sessionId = session != null ? session.getSessionUUID() : null;
         // 钳制下限，避免配置为 0/负数时看门狗立即触发
         this.readTimeoutSeconds = Math.max(1, plugin.getConfigManager().getApiTimeoutSeconds());
     }
@@ -116,6 +140,14 @@ public class StreamingHandler {
         this.onUsageTokens = callback;
     }
 
+    /**
+     * 设置工具调用行回调（流式输出中每出现一行完整的行首工具调用时触发，在读取线程上调用）
+     * @param callback 回调函数，参数为解析出的工具调用
+     */
+    public void setOnToolLineCallback(Consumer<String> callback) {
+        this.onToolLineCallback = callback;
+    }
+
     /**
      * 获取累积的思考内容（来自 reasoning_content 字段）
      * @return 思考内容字符串
@@ -130,6 +162,49 @@ public class StreamingHandler {
     public boolean hasReasoningCompleteFired() {
         return reasoningCompleteFired;
     }
+
+    /**
+     * 收到第一段正文或思考内容的时间（System.nanoTime），尚未收到时为 0
+     */
+    public long getFirstTokenNanos() {
+        return firstTokenNanos;
+    }
+
+    /**
+     * 收到最后一段正文或思考内容的时间（System.nanoTime），尚未收到时为 0
+     */
+    public long getLastTokenNanos() {
+        return lastTokenNanos;
+    }
+
+    /**
+     * 流中 usage 字段报告的输入 token，未出现 usage 时为 -1
+     */
+    public long getReportedInputTokens() {
+        return usageSeen ? pendingUsageInput : -1;
+    }
+
+    /**
+     * 流中 usage 字段报告的输出 token，未出现 usage 时为 -1
+     */
+    public long getReportedOutputTokens() {
+        return usageSeen ? pendingUsageOutput : -1;
+    }
+
+    private void markTokenArrival(boolean reasoning) {
+        long now = System.nanoTime();
+        if (firstTokenNanos == 0) {
+            firstTokenNanos = now;
+            TurnEvents.StreamFirstToken event = firstTokenEvent;
+            if (event != null && event.shouldCommit()) {
+                event.player = playerName;
+                event.sessionId = sessionId;
+                event.reasoning = reasoning;
+                event.commit();
+            }
+        }
+        lastTokenNanos = now;
+    }
     
     /**
      * 取消流式输出
@@ -145,6 +220,7 @@ public class StreamingHandler {
             onErrorCallback = null;
             onReasoningCallback = null;
             onReasoningCompleteCallback = null;
+            onToolLineCallback = null;
             buffer.setLength(0);  // 清空缓冲
             thoughtContent.setLength(0);  // 清空思考内容
             reasoningStartTime = -1;
@@ -181,6 +257,10 @@ public class StreamingHandler {
      */
     public String processStream(HttpResponse<InputStream> response) throws IOException {
         StringBuilder fullText = new StringBuilder();
+        TurnEvents.StreamComplete completeEvent = new TurnEvents.StreamComplete();
+        completeEvent.begin();
+        firstTokenEvent = new TurnEvents.StreamFirstToken();
+        firstTokenEvent.begin();
         StringBuilder nonSseFallback = new StringBuilder();  // 非SSE回退缓冲
 
         // 看门狗共享状态：只有真实模型数据（data: 行）才重置计时，
@@ -225,7 +305,12 @@ public class StreamingHandler {
                         }
 
                         try {
+                            int thoughtBefore = thoughtContent.length();
                             String textChunk = extractTextFromSSE(data);
+                            boolean hasText = textChunk != null && !textChunk.isEmpty();
+                            if (hasText || thoughtContent.length() > thoughtBefore) {
+                                markTokenArrival(!hasText);
+                            }
 
                             // 检测 reasoning 刚结束 → 触发思考结束回调
                             if (reasoningJustCompleted) {
@@ -243,6 +328,11 @@ public class StreamingHandler {
 
                             if (textChunk != null && !textChunk.isEmpty()) {
                                 fullText.append(textChunk);
+                                // 只有出现换行时才可能有新的完整行，避免超长单行被反复扫描
+                                if (onToolLineCallback != null
+                                        && (textChunk.indexOf('\n') >= 0 || textChunk.indexOf('\r') >= 0)) {
+                                    fireCompletedToolLines(fullText);
+                                }
 
                                 if (!toolCallDetected) {
                                     int hashIndex = textChunk.indexOf('#');
@@ -352,6 +442,16 @@ public class StreamingHandler {
                 }
             }
             throw e;
+        } finally {
+            if (completeEvent.shouldCommit()) {
+                completeEvent.player = playerName;
+                completeEvent.sessionId = sessionId;
+                completeEvent.textChars = fullText.length();
+                completeEvent.thoughtChars = thoughtContent.length();
+                completeEvent.cancelled = isCancelled.get();
+                completeEvent.error = errorOccurred;
+                completeEvent.commit();
+            }
         }
         
         return fullText.toString();
@@ -364,6 +464,9 @@ public class StreamingHandler {
      * @return 原始文本
      */
     public String feedCompletedText(String fullText) {
+        if (fullText != null && !fullText.isEmpty()) {
+            markTokenArrival(false);
+        }
         if (fullText != null && !fullText.isEmpty() && !isCancelled.get() && onChunkCallback != null) {
             try {
                 onChunkCallback.accept(fullText);
@@ -785,6 +888,23 @@ public class StreamingHandler {
         }
     }
 
+    /**
+     * 把新出现的完整工具调用行交给回调，让调用方不必等整段回复结束就能开始准备工具
+     */
+    private void fireCompletedToolLines(StringBuilder fullText) {
+        List<String> calls = new ArrayList<>();
+        toolScanPos = ToolCallScanner.scanCompletedLines(fullText, toolScanPos, ToolCallScanner.KNOWN_TOOLS, calls);
+        for (String call : calls) {
+            Consumer<String> callback = onToolLineCallback;
+            if (callback == null || isCancelled.get()) return;
+            try {
+                callback.accept(call);
+            } catch (Exception e) {
+                logger.warning("[Stream] 工具调用行回调异常: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * 去掉字符串尾部空白字符（空格、\\r、\\n、\\t 等）
      */
@@ -0,0 +1,536 @@
+package org.YanPl.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import org.YanPl.FancyHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * #webfetch 使用的网页获取客户端
+ * <p>
+ * 所有请求共用一个 HttpClient（连接可复用），并带有两层缓存：
+ * <ul>
+ *   <li>磁盘 HTTP 缓存：按 Cache-Control / Expires 判断新鲜度，过期后用 ETag / Last-Modified 做条件请求，304 时直接复用旧内容</li>
+ *   <li>内存正文缓存：保存提取后的完整文本，AI 翻页时不再重新请求和解析</li>
+ * </ul>
+ * 响应体按流读取，超过大小上限即断开，不会把超大页面整个读进内存。
+ */
+public class WebFetcher {
+
+    private static final String JINA_PREFIX = "https://jina.proxy.baicaizhale.top/";
+    private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/135.0.0.0 Safari/537.36";
+    /** 内存中最多保存多少个页面的正文 */
+    private static final int TEXT_CACHE_SIZE = 32;
+    /** 正文缓存有效期，用于翻页 */
+    private static final long TEXT_CACHE_TTL_MILLIS = 10 * 60 * 1000L;
+    /** 没有任何缓存头但带 Last-Modified 时，启发式新鲜期的上限 */
+    private static final long HEURISTIC_MAX_MILLIS = 60 * 60 * 1000L;
+    private static final long NO_STORE = -1L;
+
+    private final FancyHelper plugin;
+    private final File cacheDir;
+    private final String jinaPrefix;
+    private final HttpClient httpClient;
+    private final Gson gson = new Gson();
+    /** URL → 提取后的完整正文，按访问顺序淘汰 */
+    private final Map<String, TextEntry> textCache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class TextEntry {
+        final String text;
+        final long createdAt;
+
+        TextEntry(String text, long createdAt) {
+            this.text = text;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * 磁盘缓存的元数据，与响应体分两个文件保存
+     */
+    static final class CacheMeta {
+        String url;
+        String etag;
+        String lastModified;
+        String contentType;
+        long freshUntil;
+        boolean truncated;
+    }
+
+    /**
+     * 一次获取得到的原始内容
+     */
+    static final class Body {
+        final int status;
+        final byte[] bytes;
+        final String contentType;
+        final boolean truncated;
+        final boolean fromCache;
+
+        Body(int status, byte[] bytes, String contentType, boolean truncated, boolean fromCache) {
+            this.status = status;
+            this.bytes = bytes;
+            this.contentType = contentType;
+            this.truncated = truncated;
+            this.fromCache = fromCache;
+        }
+    }
+
+    public WebFetcher(FancyHelper plugin) {
+        this(plugin, new File(new File(plugin.getDataFolder(), "runtime"), "webfetch"), JINA_PREFIX);
+    }
+
+    /**
+     * @param jinaPrefix 文本代理前缀，为 null 时直接获取网页
+     */
+    WebFetcher(FancyHelper plugin, File cacheDir, String jinaPrefix) {
+        this.plugin = plugin;
+        this.cacheDir = cacheDir;
+        this.jinaPrefix = jinaPrefix;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(15))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * 获取网页正文的第 page 页（从 1 开始）
+     * 优先使用 jina 代理获取纯文本内容，失败则直接获取并清理 HTML
+     */
+    public String fetch(String url, int page) throws Exception {
+        if (!url.startsWith("http://") && !url.startsWith("https://")) {
+            throw new IllegalArgumentException("URL必须以http://或https://开头");
+        }
+        if (page < 1) {
+            throw new IllegalArgumentException("页码必须从 1 开始");
+        }
+        String text = getCachedText(url);
+        if (text == null) {
+            text = fetchFullText(url);
+            putCachedText(url, text);
+        }
+        return paginate(url, text, page, plugin.getConfigManager().getWebFetchPageChars());
+    }
+
+    private String fetchFullText(String url) throws Exception {
+        if (jinaPrefix != null) {
+            try {
+                HttpRequest.Builder jinaRequest = HttpRequest.newBuilder()
+                        .uri(URI.create(jinaPrefix + url))
+                        .timeout(Duration.ofSeconds(20))
+                        .header("Accept", "text/plain, text/html, */*")
+                        .header("User-Agent", USER_AGENT);
+                Body body = get(jinaPrefix + url, jinaRequest);
+                if (body.status == 200) {
+                    return withTruncationNote(decode(body.bytes, body.contentType).trim(), body.truncated);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                if (plugin.getConfigManager().isDebug()) {
+                    plugin.getLogger().info("[WebFetch] Jina.ai 请求失败，回退到直接获取: " + e.getMessage());
+                }
+            }
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(Duration.ofSeconds(45))
+                .header("User-Agent", USER_AGENT)
+                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8")
+                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate")
+                .header("Sec-Ch-Ua", "\"Google Chrome\";v=\"135\", \"Not:A-Brand\";v=\"99\", \"Chromium\";v=\"135\"")
+                .header("Sec-Ch-Ua-Mobile", "?0")
+                .header("Sec-Ch-Ua-Platform", "\"Windows\"")
+                .header("Upgrade-Insecure-Requests", "1")
+                .header("Sec-Fetch-Dest", "document")
+                .header("Sec-Fetch-Mode", "navigate")
+                .header("Sec-Fetch-Site", "none")
+                .header("Sec-Fetch-User", "?1")
+                .header("Referer", "https://www.google.com/")
+                .header("DNT", "1");
+        Body body = get(url, request);
+        if (body.status != 200) {
+            throw new Exception("HTTP请求失败，状态码: " + body.status);
+        }
+
+        org.jsoup.nodes.Document doc = org.jsoup.Jsoup.parse(decode(body.bytes, body.contentType), url);
+        String title = doc.title();
+        doc.select("script, style").remove();
+        String bodyText = doc.body() != null ? doc.body().text() : "";
+
+        StringBuilder result = new StringBuilder();
+        result.append("网页标题: ").append(title).append("\n");
+        result.append("网页URL: ").append(url).append("\n");
+        result.append("\n正文内容:\n");
+        result.append(bodyText);
+        return withTruncationNote(result.toString(), body.truncated);
+    }
+
+    /**
+     * 经过磁盘缓存发起 GET 请求：新鲜的缓存直接返回，过期的缓存带上校验头重新验证
+     */
+    Body get(String url, HttpRequest.Builder request) throws IOException, InterruptedException {
+        boolean cacheEnabled = plugin.getConfigManager().isWebFetchCacheEnabled();
+        String key = sha256(url);
+        CacheMeta meta = cacheEnabled ? readMeta(key) : null;
+        byte[] cachedBody = meta != null ? readBody(key) : null;
+        if (cachedBody == null) {
+            meta = null;
+        }
+        long now = System.currentTimeMillis();
+        if (meta != null && meta.freshUntil > now) {
+            return new Body(200, cachedBody, meta.contentType, meta.truncated, true);
+        }
+        if (meta != null) {
+            if (meta.etag != null) {
+                request.header("If-None-Match", meta.etag);
+            }
+            if (meta.lastModified != null) {
+                request.header("If-Modified-Since", meta.lastModified);
+            }
+        }
+
+        HttpResponse<InputStream> response = httpClient.send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        HttpHeaders headers = response.headers();
+        int status = response.statusCode();
+
+        if (status == 304 && meta != null) {
+            response.body().close();
+            long freshUntil = computeFreshUntil(headers, now);
+            if (freshUntil != NO_STORE) {
+                meta.freshUntil = freshUntil;
+                meta.etag = headers.firstValue("ETag").orElse(meta.etag);
+                writeMeta(key, meta);
+            }
+            return new Body(200, cachedBody, meta.contentType, meta.truncated, true);
+        }
+
+        String contentType = headers.firstValue("Content-Type").orElse("text/html");
+        if (status != 200) {
+            response.body().close();
+            return new Body(status, new byte[0], contentType, false, false);
+        }
+
+        int maxBytes = plugin.getConfigManager().getWebFetchMaxBodyKb() * 1024;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxBytes, 64 * 1024));
+        boolean truncated = readLimited(response.body(), headers.firstValue("Content-Encoding").orElse("identity"), maxBytes, out);
+        byte[] bytes = out.toByteArray();
+
+        if (cacheEnabled) {
+            long freshUntil = computeFreshUntil(headers, now);
+            if (freshUntil != NO_STORE) {
+                CacheMeta fresh = new CacheMeta();
+                fresh.url = url;
+                fresh.etag = headers.firstValue("ETag").orElse(null);
+                fresh.lastModified = headers.firstValue("Last-Modified").orElse(null);
+                fresh.contentType = contentType;
+                fresh.freshUntil = freshUntil;
+                fresh.truncated = truncated;
+                store(key, fresh, bytes);
+            } else if (meta != null) {
+                deleteEntry(key);
+            }
+        }
+        return new Body(status, bytes, contentType, truncated, false);
+    }
+
+    /**
+     * 按流读取响应体（边读边解压），超过 maxBytes 后停止并断开连接
+     *
+     * @return 内容是否被截断
+     */
+    static boolean readLimited(InputStream raw, String contentEncoding, int maxBytes, ByteArrayOutputStream out) throws IOException {
+        String encoding = contentEncoding.toLowerCase(Locale.ROOT);
+        try (InputStream in = encoding.contains("gzip") ? new GZIPInputStream(raw)
+                : encoding.contains("deflate") ? new InflaterInputStream(raw) : raw) {
+            byte[] buffer = new byte[8192];
+            int total = 0;
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                int take = Math.min(n, maxBytes - total);
+                out.write(buffer, 0, take);
+                total += take;
+                if (total >= maxBytes) {
+                    return take < n || in.read() >= 0;
+                }
+            }
+            return false;
+        } finally {
+            raw.close();
+        }
+    }
+
+    /**
+     * 根据响应头计算缓存的新鲜期截止时间；返回 NO_STORE 表示不应缓存
+     */
+    static long computeFreshUntil(HttpHeaders headers, long now) {
+        String cacheControl = String.join(",", headers.allValues("Cache-Control")).toLowerCase(Locale.ROOT);
+        if (cacheControl.contains("no-store")) {
+            return NO_STORE;
+        }
+        if (cacheControl.contains("no-cache")) {
+            return now;
+        }
+        for (String directive : cacheControl.split(",")) {
+            String d = directive.trim();
+            if (d.startsWith("max-age=")) {
+                try {
+                    return now + Math.max(0L, Long.parseLong(d.substring(8).replace("\"", "").trim())) * 1000L;
+                } catch (NumberFormatException ignored) {
+                    return now;
+                }
+            }
+        }
+        String expires = headers.firstValue("Expires").orElse(null);
+        if (expires != null) {
+            Long time = parseHttpDate(expires);
+            return time != null ? Math.max(now, time) : now;
+        }
+        String lastModified = headers.firstValue("Last-Modified").orElse(null);
+        if (lastModified != null) {
+            Long time = parseHttpDate(lastModified);
+            if (time != null && time < now) {
+                // 启发式新鲜期：距上次修改时间的 10%
+                return now + Math.min((now - time) / 10, HEURISTIC_MAX_MILLIS);
+            }
+        }
+        return now;
+    }
+
+    private static Long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把正文切成若干页，尽量在换行处断开，并附上翻页提示
+     */
+    static String paginate(String url, String text, int page, int pageChars) {
+        int size = Math.max(500, pageChars);
+        int start = 0;
+        int current = 1;
+        int pageStart = -1;
+        int pageEnd = -1;
+        while (true) {
+            int end = nextPageEnd(text, start, size);
+            if (current == page) {
+                pageStart = start;
+                pageEnd = end;
+            }
+            if (end >= text.length()) {
+                break;
+            }
+            start = end;
+            current++;
+        }
+        int totalPages = current;
+        if (pageStart < 0) {
+            throw new IllegalArgumentException("页码超出范围，共 " + totalPages + " 页");
+        }
+
+        String content = text.substring(pageStart, pageEnd);
+        if (totalPages == 1) {
+            return content;
+        }
+        StringBuilder sb = new StringBuilder(content.length() + 96);
+        sb.append(content).append("\n\n[第 ").append(page).append('/').append(totalPages)
+                .append(" 页，全文共 ").append(text.length()).append(" 字符。");
+        if (page < totalPages) {
+            sb.append("查看下一页: #webfetch: ").append(url).append(' ').append(page + 1).append(']');
+        } else {
+            sb.append("已是最后一页]");
+        }
+        return sb.toString();
+    }
+
+    private static int nextPageEnd(String text, int start, int size) {
+        int hardEnd = start + size;
+        if (hardEnd >= text.length()) {
+            return text.length();
+        }
+        // 在本页后 20% 的范围内找换行，避免把一行从中间切开
+        int newline = text.lastIndexOf('\n', hardEnd - 1);
+        if (newline >= start + size * 4 / 5) {
+            return newline + 1;
+        }
+        return hardEnd;
+    }
+
+    private static String withTruncationNote(String text, boolean truncated) {
+        return truncated ? text + "\n... (网页过大，仅读取了前面部分)" : text;
+    }
+
+    private static String decode(byte[] bytes, String contentType) {
+        Charset charset = StandardCharsets.UTF_8;
+        int index = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (index >= 0) {
+            String name = contentType.substring(index + 8).split(";")[0].trim().replace("\"", "");
+            try {
+                charset = Charset.forName(name);
+            } catch (Exception ignored) {
+                // 未知编码按 UTF-8 处理
+            }
+        }
+        return new String(bytes, charset);
+    }
+
+    private String getCachedText(String url) {
+        synchronized (textCache) {
+            TextEntry entry = textCache.get(url);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - entry.createdAt > TEXT_CACHE_TTL_MILLIS) {
+                textCache.remove(url);
+                return null;
+            }
+            return entry.text;
+        }
+    }
+
+    private void putCachedText(String url, String text) {
+        synchronized (textCache) {
+            textCache.put(url, new TextEntry(text, System.currentTimeMillis()));
+            while (textCache.size() > TEXT_CACHE_SIZE) {
+                textCache.remove(textCache.keySet().iterator().next());
+            }
+        }
+    }
+
+    private CacheMeta readMeta(String key) {
+        File file = new File(cacheDir, key + ".json");
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return gson.fromJson(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), CacheMeta.class);
+        } catch (IOException | JsonSyntaxException e) {
+            return null;
+        }
+    }
+
+    private byte[] readBody(String key) {
+        File file = new File(cacheDir, key + ".body");
+        try {
+            return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 只更新元数据（304 续期），与 store 共用同一把锁：临时文件名相同，且条目可能刚被淘汰
+     */
+    private synchronized void writeMeta(String key, CacheMeta meta) {
+        try {
+            if (!new File(cacheDir, key + ".body").isFile()) {
+                return;
+            }
+            writeAtomically(new File(cacheDir, key + ".json"), gson.toJson(meta).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            plugin.getLogger().warning("[WebFetch] 写入网页缓存失败: " + e.getMessage());
+        }
+    }
+
+    private synchronized void store(String key, CacheMeta meta, byte[] body) {
+        try {
+            if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+                return;
+            }
+            // 先写内容再写元数据，元数据存在即代表这一条完整可用
+            writeAtomically(new File(cacheDir, key + ".body"), body);
+            writeAtomically(new File(cacheDir, key + ".json"), gson.toJson(meta).getBytes(StandardCharsets.UTF_8));
+            evictIfNeeded();
+        } catch (IOException e) {
+            plugin.getLogger().warning("[WebFetch] 写入网页缓存失败: " + e.getMessage());
+        }
+    }
+
+    private void deleteEntry(String key) {
+        new File(cacheDir, key + ".json").delete();
+        new File(cacheDir, key + ".body").delete();
+    }
+
+    /**
+     * 磁盘缓存超过上限时，按最后写入时间从旧到新删除
+     */
+    private void evictIfNeeded() {
+        File[] bodies = cacheDir.listFiles((dir, name) -> name.endsWith(".body"));
+        if (bodies == null) {
+            return;
+        }
+        long limit = plugin.getConfigManager().getWebFetchCacheMaxMb() * 1024L * 1024L;
+        long total = 0;
+        for (File f : bodies) {
+            total += f.length();
+        }
+        if (total <= limit) {
+            return;
+        }
+        Arrays.sort(bodies, Comparator.comparingLong(File::lastModified));
+        for (File f : bodies) {
+            if (total <= limit) {
+                break;
+            }
+            total -= f.length();
+            String name = f.getName();
+            deleteEntry(name.substring(0, name.length() - ".body".length()));
+        }
+    }
+
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        File tmp = new File(target.getParentFile(), target.getName() + ".tmp");
+        Files.write(tmp.toPath(), data);
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 清空内存中的正文缓存（磁盘缓存保留，重启后继续使用）
+     */
+    public void shutdown() {
+        synchronized (textCache) {
+            textCache.clear();
+        }
+    }
+}
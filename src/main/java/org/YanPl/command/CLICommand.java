@@ -7,11 +7,14 @@ import net.md_5.bungee.api.chat.hover.content.Text;
 import org.YanPl.FancyHelper;
 import org.YanPl.manager.InstructionManager;
 import org.YanPl.manager.ServerMemoryManager;
+import org.YanPl.manager.SearchGateway;
 import org.YanPl.manager.StatsManager;
 import org.YanPl.model.DialogueSession;
 import org.YanPl.model.SessionRecord;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.Histogram;
 import org.YanPl.util.I18n;
+import org.YanPl.util.MetricsRegistry;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -89,6 +92,13 @@ public class CLICommand implements CommandExecutor, TabCompleter {
             case "stats":
                 handleStatsCommand(sender);
                 break;
+            case "metrics":
+                if (!sender.hasPermission("fancyhelper.reload")) {
+                    sender.sendMessage(I18n.t("cli.no.perm.metrics"));
+                    return true;
+                }
+                handleMetrics(sender);
+                break;
             case "update":
             case "checkupdate":
                 sender.sendMessage(I18n.t("cli.checking.update"));
@@ -205,6 +215,7 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(I18n.t("cli.help.reload.deep"));
         sender.sendMessage(I18n.t("cli.help.status"));
         sender.sendMessage(I18n.t("cli.help.stats"));
+        sender.sendMessage(I18n.t("cli.help.metrics"));
         sender.sendMessage(I18n.t("cli.help.checkupdate"));
         sender.sendMessage(I18n.t("cli.help.upgrade"));
         sender.sendMessage(I18n.t("cli.help.notice"));
@@ -232,6 +243,7 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         sender.sendMessage(I18n.t("cli.help.mcp.tools"));
         sender.sendMessage(I18n.t("cli.help.mcp.tools.server"));
         sender.sendMessage(I18n.t("cli.help.mcp.toggle"));
+        sender.sendMessage(I18n.t("cli.help.mcp.status"));
     }
 
     private boolean handlePlayerSubCommand(Player player, String subCommand, String[] args) {
@@ -597,6 +609,14 @@ public class CLICommand implements CommandExecutor, TabCompleter {
             sender.sendMessage(ChatColor.WHITE + "已索引命令: " + ChatColor.YELLOW + plugin.getWorkspaceIndexer().getIndexedCommands().size());
             sender.sendMessage(ChatColor.WHITE + "已加载 Skills: " + ChatColor.YELLOW + plugin.getSkillManager().getSkillCount());
             sender.sendMessage(ChatColor.WHITE + "CLI 模式玩家: " + ChatColor.YELLOW + plugin.getCliManager().getActivePlayersCount());
+            SearchGateway.Stats searchStats = plugin.getSearchGateway().getStats();
+            sender.sendMessage(ChatColor.WHITE + "搜索缓存: " + ChatColor.YELLOW + searchStats.getEntries() + " 条, 命中率 "
+                    + searchStats.getHitRatePercent() + "% (" + searchStats.getHits() + " 命中 / " + searchStats.getCoalesced()
+                    + " 合并 / " + searchStats.getMisses() + " 未命中)");
+            for (java.util.Map.Entry<String, long[]> e : searchStats.getProviderLatency().entrySet()) {
+                sender.sendMessage(ChatColor.WHITE + "  " + e.getKey() + ": " + ChatColor.YELLOW + e.getValue()[0] + " 次, 平均 "
+                        + e.getValue()[1] + "ms, 最大 " + e.getValue()[2] + "ms");
+            }
             sender.sendMessage(ChatColor.WHITE + "插件版本: " + ChatColor.YELLOW + plugin.getDescription().getVersion());
             sender.sendMessage(ChatColor.AQUA + "=======================");
             return;
@@ -636,6 +656,15 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         playerLine.addExtra(playerVal);
         player.spigot().sendMessage(playerLine);
 
+        // Search Cache
+        SearchGateway.Stats searchStats = plugin.getSearchGateway().getStats();
+        TextComponent searchLine = new TextComponent(ColorUtil.translateCustomColors("&7  Search Cache: "));
+        TextComponent searchVal = new TextComponent(ColorUtil.translateCustomColors("&e" + searchStats.getHitRatePercent() + "% &8(&7"
+                + (searchStats.getHits() + searchStats.getCoalesced()) + "/" + (searchStats.getHits() + searchStats.getCoalesced() + searchStats.getMisses()) + "&8)"));
+        searchVal.setHoverEvent(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new Text(I18n.t("cli.status.hover.search"))));
+        searchLine.addExtra(searchVal);
+        player.spigot().sendMessage(searchLine);
+
         player.sendMessage("");
 
         // Action Buttons
@@ -688,6 +717,51 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         });
     }
 
+    /**
+     * 显示本次运行以来各阶段、工具与模型请求的耗时分布
+     */
+    private void handleMetrics(CommandSender sender) {
+        StatsManager stats = plugin.getStatsManager();
+        MetricsRegistry registry = stats.getMetricsRegistry();
+        sender.sendMessage(I18n.t("cli.metrics.header"));
+
+        List<String> lines = new ArrayList<>();
+        registry.forEachHistogram("fancyhelper_stage_duration_seconds",
+                (labels, h) -> addLatencyLine(lines, labels.get(0), h));
+        registry.forEachHistogram("fancyhelper_tool_duration_seconds",
+                (labels, h) -> addLatencyLine(lines, "#" + labels.get(0), h));
+        registry.forEachHistogram("fancyhelper_llm_request_duration_seconds",
+                (labels, h) -> addLatencyLine(lines, labels.get(0) + "/" + labels.get(1), h));
+        registry.forEachHistogram("fancyhelper_llm_time_to_first_token_seconds",
+                (labels, h) -> addLatencyLine(lines, "ttft " + labels.get(0) + "/" + labels.get(1), h));
+        registry.forEachHistogram("fancyhelper_llm_output_tokens_per_second", (labels, h) -> {
+            if (h.getCount() == 0) return;
+            lines.add(I18n.t("cli.metrics.line.tps", labels.get(0) + "/" + labels.get(1), h.getCount(),
+                    String.format("%.1f", h.quantile(0.5))));
+        });
+
+        if (lines.isEmpty()) {
+            sender.sendMessage(I18n.t("cli.metrics.empty"));
+        } else {
+            lines.forEach(sender::sendMessage);
+        }
+
+        int port = stats.getMetricsPort();
+        if (port > 0) {
+            sender.sendMessage(I18n.t("cli.metrics.endpoint",
+                    "http://" + plugin.getConfigManager().getMetricsBindAddress() + ":" + port + "/metrics"));
+        } else {
+            sender.sendMessage(I18n.t("cli.metrics.endpoint.off"));
+        }
+    }
+
+    private static void addLatencyLine(List<String> lines, String name, Histogram histogram) {
+        if (histogram.getCount() == 0) return;
+        lines.add(I18n.t("cli.metrics.line", name, histogram.getCount(),
+                String.format("%.0f", histogram.quantile(0.5) * 1000),
+                String.format("%.0f", histogram.quantile(0.95) * 1000)));
+    }
+
     private void handleSettings(Player player) {
         player.sendMessage(ColorUtil.translateCustomColors("&8&m----------------------------------------"));
         player.sendMessage(ColorUtil.translateCustomColors("       &zFancyHelper &8| &7Settings"));
@@ -1593,6 +1667,7 @@ public class CLICommand implements CommandExecutor, TabCompleter {
             player.sendMessage(I18n.t("cli.help.mcp.tools"));
             player.sendMessage(I18n.t("cli.help.mcp.tools.server"));
             player.sendMessage(I18n.t("cli.help.mcp.toggle"));
+            player.sendMessage(I18n.t("cli.help.mcp.status"));
             return true;
         }
 
@@ -1612,6 +1687,9 @@ public class CLICommand implements CommandExecutor, TabCompleter {
                     handleMcpToggle(player, args[2], args[3]);
                 }
                 break;
+            case "status":
+                handleMcpStatus(player);
+                break;
             default:
                 player.sendMessage(I18n.t("cli.mcp.unknown", subCommand));
                 break;
@@ -1668,6 +1746,45 @@ public class CLICommand implements CommandExecutor, TabCompleter {
         player.sendMessage(I18n.t("cli.mcp.hint"));
     }
 
+    private void handleMcpStatus(Player player) {
+        if (plugin.getMcpManager() == null || !plugin.getMcpManager().isEnabled()) {
+            player.sendMessage(I18n.t("cli.mcp.not.enabled"));
+            return;
+        }
+
+        List<org.YanPl.mcp.client.McpClientManager.ServerStatus> statuses = plugin.getMcpManager().getServerStatuses();
+        player.sendMessage(I18n.t("cli.mcp.state.header"));
+        if (statuses.isEmpty()) {
+            player.sendMessage(I18n.t("cli.mcp.no.tools"));
+        }
+        long now = System.currentTimeMillis();
+        for (org.YanPl.mcp.client.McpClientManager.ServerStatus status : statuses) {
+            String state;
+            switch (status.state) {
+                case CONNECTED:
+                    state = I18n.t("cli.mcp.state.connected", status.connectMillis);
+                    break;
+                case CONNECTING:
+                    state = I18n.t("cli.mcp.state.connecting", (now - status.since) / 1000);
+                    break;
+                case BACKOFF:
+                    state = I18n.t("cli.mcp.state.backoff", status.failures, Math.max(0, (status.nextRetryAt - now) / 1000));
+                    break;
+                case FAILED:
+                    state = I18n.t("cli.mcp.state.failed", status.failures);
+                    break;
+                default:
+                    state = I18n.t("cli.mcp.state.idle");
+                    break;
+            }
+            player.sendMessage("  " + ChatColor.WHITE + status.serverName + " " + state);
+            if (status.lastError != null && status.state != org.YanPl.mcp.client.McpClientManager.ConnectionState.CONNECTED) {
+                player.sendMessage(I18n.t("cli.mcp.state.error", status.lastError));
+            }
+        }
+        player.sendMessage(ChatColor.DARK_GRAY + "━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+    }
+
     private void handleMcpServerTools(Player player, String serverName) {
         if (plugin.getMcpManager() == null || !plugin.getMcpManager().isEnabled()) {
             player.sendMessage(I18n.t("cli.mcp.not.enabled.short"));
@@ -1917,7 +2034,7 @@ public class CLICommand implements CommandExecutor, TabCompleter {
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
             List<String> subCommands = new ArrayList<>(Arrays.asList(
-                "bind", "reload", "status", "stats", "yolo", "normal", "smart", "plan", "checkupdate", "upgrade",
+                "bind", "reload", "status", "stats", "metrics", "yolo", "normal", "smart", "plan", "checkupdate", "upgrade",
                 "read", "set", "settings", "tools", "display", "streaming", "toggle",
                 "notice", "retry", "todo", "memory", "mem", "confirm",
                 "cancel", "agree", "thought", "select", "exempt_anti_loop",
@@ -1980,7 +2097,7 @@ public class CLICommand implements CommandExecutor, TabCompleter {
                         .collect(Collectors.toList());
             }
         } else if (args.length == 2 && args[0].equalsIgnoreCase("mcp")) {
-            return Arrays.asList("tools", "toggle").stream()
+            return Arrays.asList("tools", "toggle", "status").stream()
                     .filter(s -> s.startsWith(args[1].toLowerCase()))
                     .collect(Collectors.toList());
         } else if (args.length == 3 && args[0].equalsIgnoreCase("mcp")) {
@@ -0,0 +1,41 @@
+package org.YanPl.listener;
+
+import org.YanPl.FancyHelper;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+
+/**
+ * 插件加载 / 卸载时刷新命令索引，让 #run 的本地语法检查跟上服务器上实际可用的命令
+ */
+public class PluginLoadListener implements Listener {
+    private final FancyHelper plugin;
+
+    public PluginLoadListener(FancyHelper plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginEnable(PluginEnableEvent event) {
+        refresh(event.getPlugin().getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event) {
+        refresh(event.getPlugin().getName());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onServerLoad(ServerLoadEvent event) {
+        // 启动完成后（含 /reload）部分插件才注册命令
+        refresh(null);
+    }
+
+    private void refresh(String pluginName) {
+        if (plugin.getName().equals(pluginName) || plugin.getWorkspaceIndexer() == null) return;
+        plugin.getWorkspaceIndexer().scheduleRefresh();
+    }
+}
@@ -14,6 +14,8 @@ import org.YanPl.model.Skill;
 import org.YanPl.util.ColorUtil;
 import org.YanPl.util.I18n;
 import org.YanPl.util.PlayerListFileUtil;
+import org.YanPl.util.ToolCallScanner;
+import org.YanPl.util.TurnEvents;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -31,6 +33,7 @@ import com.google.gson.JsonObject;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -102,6 +105,8 @@ public class CLIManager {
     private final Map<UUID, String> interruptedToolCalls = new ConcurrentHashMap<>();
     private final Map<UUID, RetryInfo> retryInfoMap = new ConcurrentHashMap<>();
     private final Map<UUID, StreamingHandler> activeStreamingHandlers = new ConcurrentHashMap<>();
+    /** 正在并行执行的只读工具批次 */
+    private final Map<UUID, ToolBatch> toolBatches = new ConcurrentHashMap<>();
 
     // 会话历史持久化相关字段
     private final Map<String, String> generatedTitles = new ConcurrentHashMap<>(); // sessionUUID -> title
@@ -618,9 +623,9 @@ public class CLIManager {
     private void sendStatusMessage(Player player, String message) {
         String position = plugin.getConfigManager().getPlayerDisplayPosition(player);
         if ("subtitle".equalsIgnoreCase(position)) {
-            player.sendTitle("", message, 0, 20, 0);
+            sendOwnSubtitle(player, message, 20);
         } else {
-            player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(message));
+            sendOwnActionBar(player, new TextComponent(message));
         }
     }
 
@@ -632,9 +637,9 @@ public class CLIManager {
     private void sendStatusMessage(Player player, TextComponent actionBarComp, String subtitleMsg) {
         String position = plugin.getConfigManager().getPlayerDisplayPosition(player);
         if ("subtitle".equalsIgnoreCase(position)) {
-            player.sendTitle("", subtitleMsg, 0, 20, 0);
+            sendOwnSubtitle(player, subtitleMsg, 20);
         } else {
-            player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, actionBarComp);
+            sendOwnActionBar(player, actionBarComp);
         }
     }
 
@@ -644,9 +649,30 @@ public class CLIManager {
     private void clearStatusMessage(Player player) {
         String position = plugin.getConfigManager().getPlayerDisplayPosition(player);
         if ("subtitle".equalsIgnoreCase(position)) {
-            player.sendTitle("", "", 0, 0, 0);
+            sendOwnSubtitle(player, "", 0);
         } else {
-            player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
+            sendOwnActionBar(player, new TextComponent(""));
+        }
+    }
+
+    /**
+     * 发送状态栏动作栏消息：优先绕过数据包监听器发送（每 2 tick 一次的动画不进入捕获过滤），
+     * ProtocolLib 不可用时回退到 Bukkit API
+     */
+    private void sendOwnActionBar(Player player, TextComponent component) {
+        PacketCaptureManager capture = plugin.getPacketCaptureManager();
+        if (capture == null || !capture.sendOwnActionBar(player, component)) {
+            player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, component);
+        }
+    }
+
+    /**
+     * 发送状态栏副标题，规则同 {@link #sendOwnActionBar}
+     */
+    private void sendOwnSubtitle(Player player, String subtitle, int stay) {
+        PacketCaptureManager capture = plugin.getPacketCaptureManager();
+        if (capture == null || !capture.sendOwnSubtitle(player, subtitle, 0, stay, 0)) {
+            player.sendTitle("", subtitle, 0, stay, 0);
         }
     }
 
@@ -831,6 +857,9 @@ public class CLIManager {
      * @param session 对话会话
      */
     public synchronized void saveSessionToHistory(UUID playerUUID, DialogueSession session) {
+        long start = System.nanoTime();
+        TurnEvents.Persistence event = new TurnEvents.Persistence();
+        event.begin();
         try {
             // 获取玩家名
             Player player = Bukkit.getPlayer(playerUUID);
@@ -899,7 +928,10 @@ public class CLIManager {
 
             // 写入文件
             String json = gson.toJson(newRecord);
-            Files.write(sessionFile, json.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            byte[] data = json.getBytes(StandardCharsets.UTF_8);
+            Files.write(sessionFile, data, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            event.bytes = data.length;
+            event.success = true;
 
             if (plugin.getConfigManager().isDebug()) {
                 plugin.getLogger().info("[CLI] 已保存会话到历史: " + playerName + "/" + sessionUUID + ".json");
@@ -907,6 +939,14 @@ public class CLIManager {
         } catch (Exception e) {
             plugin.getLogger().warning("[CLI] 保存会话历史失败: " + e.getMessage());
             plugin.getCloudErrorReport().report(e);
+        } finally {
+            plugin.getStatsManager().recordStage(StatsManager.Stage.PERSISTENCE, start);
+            if (event.shouldCommit()) {
+                event.player = session.getPlayerName();
+                event.sessionId = session.getSessionUUID();
+                event.messages = session.getHistory().size();
+                event.commit();
+            }
         }
     }
 
@@ -1152,6 +1192,7 @@ public class CLIManager {
             }
 
             // 设置恢复的会话
+            restoredSession.setPlayerName(player.getName());
             sessions.put(playerUUID, restoredSession);
             activeCLIPayers.add(playerUUID);
 
@@ -1318,6 +1359,8 @@ public class CLIManager {
             ai.shutdown();
         }
 
+        toolExecutor.shutdown();
+
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[CLI] CLIManager 已完成关闭。");
         }
@@ -1388,6 +1431,7 @@ public class CLIManager {
             session.setSessionUUID(sessionUUID);
 
             // 先将会话放入 Map，确保后续操作能获取到正确的模式
+            session.setPlayerName(player.getName());
             sessions.put(uuid, session);
 
             // 创建日志文件
@@ -1440,6 +1484,7 @@ public class CLIManager {
         plugin.getStatsManager().incrementCliEntry();
         // 注意：新会话已经在上面放入 Map，这里只处理恢复会话的情况
         if (session != null) {
+            session.setPlayerName(player.getName());
             sessions.put(uuid, session);
         }
 
@@ -1550,6 +1595,12 @@ public class CLIManager {
             pendingCommands.remove(uuid);
             player.sendMessage(I18n.t("clim.cancel.pending"));
         }
+        toolExecutor.cancelMcpCalls(uuid);
+        toolExecutor.discardSpeculation(uuid);
+        toolBatches.remove(uuid);
+        if (plugin.getMcpManager() != null) {
+            plugin.getMcpManager().clearResults(uuid);
+        }
 
         // 清空玩家的待办列表
         plugin.getTodoManager().clearTodos(uuid);
@@ -1734,6 +1785,7 @@ public class CLIManager {
             session.setMode(DialogueSession.Mode.PLAN);
         }
 
+        session.setPlayerName(player.getName());
         sessions.put(uuid, session);
 
             // 创建日志文件
@@ -2251,12 +2303,21 @@ public class CLIManager {
             if (message.equalsIgnoreCase("stop")) {
                 boolean interrupted = false;
                 interruptedToolCalls.remove(uuid);
+                toolBatches.remove(uuid);
+                toolExecutor.discardSpeculation(uuid);
                 
                 StreamingHandler activeHandler = activeStreamingHandlers.get(uuid);
                 if (activeHandler != null) {
                     activeHandler.cancel();
                     activeStreamingHandlers.remove(uuid);
                 }
+
+                if (toolExecutor.cancelMcpCalls(uuid) && !isGenerating.getOrDefault(uuid, false)) {
+                    generationStates.put(uuid, GenerationStatus.CANCELLED);
+                    generationStartTimes.put(uuid, System.currentTimeMillis());
+                    player.sendMessage(I18n.t("clim.stop.interrupted"));
+                    interrupted = true;
+                }
                 
                 if (isGenerating.getOrDefault(uuid, false)) {
                     isGenerating.put(uuid, false);
@@ -2456,8 +2517,9 @@ public class CLIManager {
         UUID uuid = player.getUniqueId();
         DialogueSession session = sessions.get(uuid);
         
-        StreamingHandler streamingHandler = new StreamingHandler(plugin, player);
+        StreamingHandler streamingHandler = new StreamingHandler(plugin, player, session);
         activeStreamingHandlers.put(uuid, streamingHandler);
+        streamingHandler.setOnToolLineCallback(speculativeToolListener(player));
         final long reservedMessageId = session.getNextMessageId();
 
         final StringBuilder fullResponseText = new StringBuilder();
@@ -2563,7 +2625,9 @@ public class CLIManager {
 
             if (!plugin.isEnabled()) return;
 
+            final long completedAt = System.nanoTime();
             Bukkit.getScheduler().runTask(plugin, () -> {
+                plugin.getStatsManager().recordStage(StatsManager.Stage.MAIN_QUEUE_WAIT, completedAt);
                 if (!player.isOnline()) return;
 
                 String response = completeText;
@@ -2739,7 +2803,7 @@ public class CLIManager {
         });
 
         // 估算本轮输入的 prompt tokens 并记入 session
-        String systemPrompt = promptManager.getSystemPromptForSession(player, matchedSkills, session.getMode(), message);
+        String systemPrompt = promptManager.getSystemPromptForSession(player, matchedSkills, session, message);
         String modelName = plugin.getConfigManager().getCloudflareModel();
         int estimatedInput = DialogueSession.calculateTokens(systemPrompt, modelName)
             + session.getEstimatedTokens(modelName) + 3;
@@ -2816,8 +2880,7 @@ public class CLIManager {
 
     private void processNonStreamingMessage(Player player, String message, List<org.YanPl.model.Skill> matchedSkills) throws IOException {
         DialogueSession nsSession = sessions.get(player.getUniqueId());
-        String systemPrompt = promptManager.getSystemPromptForSession(player, matchedSkills,
-                nsSession != null ? nsSession.getMode() : DialogueSession.Mode.NORMAL, message);
+        String systemPrompt = promptManager.getSystemPromptForSession(player, matchedSkills, nsSession, message);
         AIResponse response = ai.chat(sessions.get(player.getUniqueId()), systemPrompt);
 
         if (!plugin.isEnabled()) return;
@@ -2838,6 +2901,16 @@ public class CLIManager {
 
         session.addMessage("user", message);
 
+        TurnEvents.TurnStart turnEvent = new TurnEvents.TurnStart();
+        if (turnEvent.shouldCommit()) {
+            turnEvent.player = player.getName();
+            turnEvent.sessionId = session.getSessionUUID();
+            turnEvent.mode = session.getMode().name();
+            turnEvent.messageChars = message.length();
+            turnEvent.historyMessages = session.getHistory().size();
+            turnEvent.commit();
+        }
+
         // 用户发送第一条消息时才创建会话文件（进入CLI不说话不存文件）
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             saveSessionToHistory(uuid, session);
@@ -2890,7 +2963,9 @@ public class CLIManager {
             plugin.getLogger().info("[Skill] 匹配到 " + matchedSkills.size() + " 个 Skill: " + skillIds);
         }
         
+        final long queuedAt = System.nanoTime();
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            plugin.getStatsManager().recordStage(StatsManager.Stage.ASYNC_QUEUE_WAIT, queuedAt);
             plugin.getStatsManager().incrementConversation();
             ai.setRetryCallback((statusCode, retryMessage) -> {
                 if (!plugin.isEnabled()) return;
@@ -2970,6 +3045,15 @@ public class CLIManager {
     }
 
     private void handleAIResponse(Player player, AIResponse aiResponse, boolean skipDisplay) {
+        try {
+            dispatchAIResponse(player, aiResponse, skipDisplay);
+        } finally {
+            // 流式输出期间预执行、但本次回复最终没有取用的只读工具结果
+            toolExecutor.discardSpeculation(player.getUniqueId());
+        }
+    }
+
+    private void dispatchAIResponse(Player player, AIResponse aiResponse, boolean skipDisplay) {
         UUID uuid = player.getUniqueId();
         DialogueSession session = sessions.get(uuid);
         if (session == null) return;
@@ -3063,93 +3147,22 @@ public class CLIManager {
         String content = cleanResponse;
         String toolCall = "";
 
-        // 定义已知工具列表（顺序敏感：startsWith 前缀匹配，长名在前，否则 #edit_global 会被 #edit 劫持）
-        List<String> knownTools = Arrays.asList("#start", "#end", "#exit", "#run", "#ask", "#search", "#skill", "#unloadskill", "#list", "#read", "#edit_global", "#edit", "#write", "#todo", "#remember_global", "#remember", "#forget_global", "#forget", "#edit_memory", "#webfetch", "#mcp_tools", "#mcp");
+        List<String> knownTools = ToolCallScanner.KNOWN_TOOLS;
 
         int currentPos = 0;
-        boolean foundTool = false;
         while (currentPos < cleanResponse.length()) {
             int hashIndex = cleanResponse.indexOf("#", currentPos);
             if (hashIndex == -1) break;
 
             // 只认行首 #，防止 AI 在对话中提到 #tool_name 时误触发
-            boolean isValidStart = hashIndex == 0;
-            if (!isValidStart) {
-                char prev = cleanResponse.charAt(hashIndex - 1);
-                isValidStart = prev == '\n' || prev == '\r';
-            }
-
-            if (isValidStart) {
-                String potentialToolPart = cleanResponse.substring(hashIndex).trim();
-                for (String tool : knownTools) {
-                    if (potentialToolPart.toLowerCase().startsWith(tool)) {
-                        // 提取完整的工具调用，直到遇到换行符或下一个工具
-                        String remainingAfterTool = potentialToolPart.substring(tool.length()).trim();
-
-                        // 如果有冒号或空格，提取参数部分
-                        if (remainingAfterTool.startsWith(":") || remainingAfterTool.startsWith(" ")) {
-                            int splitIndex = remainingAfterTool.startsWith(":") ? 1 : 0;
-                            remainingAfterTool = remainingAfterTool.substring(splitIndex).trim();
-
-                            // 对于 JSON 参数（如 #todo: [...] 或 #ask: {...}），需要找到匹配的闭合括号
-                            if (remainingAfterTool.startsWith("[") || remainingAfterTool.startsWith("{")) {
-                                char openChar = remainingAfterTool.charAt(0);
-                                char closeChar = openChar == '[' ? ']' : '}';
-                                int bracketDepth = 0;
-                                int endIndex = -1;
-                                for (int i = 0; i < remainingAfterTool.length(); i++) {
-                                    char c = remainingAfterTool.charAt(i);
-                                    if (c == openChar) bracketDepth++;
-                                    else if (c == closeChar) bracketDepth--;
-
-                                    if (bracketDepth == 0) {
-                                        endIndex = i + 1;
-                                        break;
-                                    }
-                                }
-                                if (endIndex != -1) {
-                                    toolCall = tool + ":" + remainingAfterTool.substring(0, endIndex);
-                                } else {
-                                    // 没有找到闭合括号，提取到行尾
-                                    int lineEnd = remainingAfterTool.indexOf('\n');
-                                    if (lineEnd != -1) {
-                                        toolCall = tool + ":" + remainingAfterTool.substring(0, lineEnd);
-                                    } else {
-                                        toolCall = potentialToolPart;
-                                    }
-                                }
-                            } else {
-                                // 对于普通参数，提取到行尾或遇到下一个工具
-                                int lineEnd = remainingAfterTool.indexOf('\n');
-                                int nextToolPos = -1;
-                                for (String nextTool : knownTools) {
-                                    int pos = remainingAfterTool.toLowerCase().indexOf(nextTool);
-                                    if (pos != -1 && (nextToolPos == -1 || pos < nextToolPos)) {
-                                        nextToolPos = pos;
-                                    }
-                                }
-
-                                int paramEnd = lineEnd;
-                                if (nextToolPos != -1 && (paramEnd == -1 || nextToolPos < paramEnd)) {
-                                    paramEnd = nextToolPos;
-                                }
-
-                                if (paramEnd != -1) {
-                                    toolCall = tool + ":" + remainingAfterTool.substring(0, paramEnd).trim();
-                                } else {
-                                    toolCall = potentialToolPart;
-                                }
-                            }
-                        } else {
-                            toolCall = tool;
-                        }
-                        content = cleanResponse.substring(0, hashIndex).trim();
-                        foundTool = true;
-                        break;
-                    }
+            if (ToolCallScanner.isLineStart(cleanResponse, hashIndex)) {
+                String call = ToolCallScanner.parseAt(cleanResponse, hashIndex, knownTools);
+                if (call != null) {
+                    toolCall = call;
+                    content = cleanResponse.substring(0, hashIndex).trim();
+                    break;
                 }
             }
-            if (foundTool) break;
             currentPos = hashIndex + 1;
         }
 
@@ -3238,7 +3251,12 @@ public class CLIManager {
                 roundOutputTokens.merge(uuid, streamedThisCycle, (a, b) -> a + b);
             }
             streamedOutputTokens.remove(uuid);
-            executeTool(player, toolCall);
+            List<String> batchCalls = collectToolBatch(player, cleanResponse, toolCall);
+            if (batchCalls.size() > 1) {
+                executeToolBatch(player, batchCalls);
+            } else {
+                executeTool(player, toolCall);
+            }
         } else {
             // 检查响应是否被截断
             if (aiResponse.isTruncated()) {
@@ -3295,82 +3313,13 @@ public class CLIManager {
         cleanResponse = cleanResponse.replaceAll("(?i)^思考过程:.*?\n", "");
         cleanResponse = cleanResponse.trim();
         
-        // 顺序敏感：startsWith 前缀匹配，长名在前，否则 #edit_global 会被 #edit 劫持
-        List<String> knownTools = Arrays.asList("#start", "#end", "#exit", "#run", "#ask", "#search", "#skill", "#unloadskill", "#list", "#read", "#edit_global", "#edit", "#write", "#todo", "#remember_global", "#remember", "#forget_global", "#forget", "#edit_memory", "#webfetch", "#mcp_tools", "#mcp");
-
         int currentPos = 0;
         while (currentPos < cleanResponse.length()) {
             int hashIndex = cleanResponse.indexOf("#", currentPos);
             if (hashIndex == -1) break;
-
-            // 只认行首 #，防止 AI 在对话中提到 #tool_name 时误触发
-            boolean isValidStart = hashIndex == 0;
-            if (!isValidStart) {
-                char prev = cleanResponse.charAt(hashIndex - 1);
-                isValidStart = prev == '\n' || prev == '\r';
-            }
-
-            if (isValidStart) {
-                String potentialToolPart = cleanResponse.substring(hashIndex).trim();
-                for (String tool : knownTools) {
-                    if (potentialToolPart.toLowerCase().startsWith(tool)) {
-                        String remainingAfterTool = potentialToolPart.substring(tool.length()).trim();
-
-                        if (remainingAfterTool.startsWith(":") || remainingAfterTool.startsWith(" ")) {
-                            int splitIndex = remainingAfterTool.startsWith(":") ? 1 : 0;
-                            remainingAfterTool = remainingAfterTool.substring(splitIndex).trim();
-
-                            if (remainingAfterTool.startsWith("[") || remainingAfterTool.startsWith("{")) {
-                                char openChar = remainingAfterTool.charAt(0);
-                                char closeChar = openChar == '[' ? ']' : '}';
-                                int bracketDepth = 0;
-                                int endIndex = -1;
-                                for (int i = 0; i < remainingAfterTool.length(); i++) {
-                                    char c = remainingAfterTool.charAt(i);
-                                    if (c == openChar) bracketDepth++;
-                                    else if (c == closeChar) bracketDepth--;
-
-                                    if (bracketDepth == 0) {
-                                        endIndex = i + 1;
-                                        break;
-                                    }
-                                }
-                                if (endIndex != -1) {
-                                    return tool + ":" + remainingAfterTool.substring(0, endIndex);
-                                } else {
-                                    int lineEnd = remainingAfterTool.indexOf('\n');
-                                    if (lineEnd != -1) {
-                                        return tool + ":" + remainingAfterTool.substring(0, lineEnd);
-                                    } else {
-                                        return potentialToolPart;
-                                    }
-                                }
-                            } else {
-                                int lineEnd = remainingAfterTool.indexOf('\n');
-                                int nextToolPos = -1;
-                                for (String nextTool : knownTools) {
-                                    int pos = remainingAfterTool.toLowerCase().indexOf(nextTool);
-                                    if (pos != -1 && (nextToolPos == -1 || pos < nextToolPos)) {
-                                        nextToolPos = pos;
-                                    }
-                                }
-
-                                int paramEnd = lineEnd;
-                                if (nextToolPos != -1 && (paramEnd == -1 || nextToolPos < paramEnd)) {
-                                    paramEnd = nextToolPos;
-                                }
-
-                                if (paramEnd != -1) {
-                                    return tool + ":" + remainingAfterTool.substring(0, paramEnd).trim();
-                                } else {
-                                    return potentialToolPart;
-                                }
-                            }
-                        } else {
-                            return tool;
-                        }
-                    }
-                }
+            if (ToolCallScanner.isLineStart(cleanResponse, hashIndex)) {
+                String call = ToolCallScanner.parseAt(cleanResponse, hashIndex, ToolCallScanner.KNOWN_TOOLS);
+                if (call != null) return call;
             }
             currentPos = hashIndex + 1;
         }
@@ -3415,7 +3364,7 @@ public class CLIManager {
             
             try {
                 // continueGeneration 不需要匹配新 Skills，使用空列表
-                AIResponse response = ai.chat(session, promptManager.getSystemPromptForSession(player, Collections.emptyList(), session.getMode()));
+                AIResponse response = ai.chat(session, promptManager.getSystemPromptForSession(player, Collections.emptyList(), session));
                 if (!plugin.isEnabled()) return;
                 Bukkit.getScheduler().runTask(plugin, () -> {
                     handleAIResponse(player, response);
@@ -3490,6 +3439,8 @@ public class CLIManager {
 
         // 异步执行压缩，不阻塞主线程
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            TurnEvents.Compression compressionEvent = new TurnEvents.Compression();
+            compressionEvent.begin();
             try {
                 // 检查是否有之前的压缩摘要
                 boolean hasOldSummary = false;
@@ -3538,7 +3489,12 @@ public class CLIManager {
 
                 String compactPrompt = fullPrompt.toString();
 
+                long compressStart = System.nanoTime();
                 String summary = ai.chatWithCompressionModel(systemPrompt, compactPrompt);
+                plugin.getStatsManager().recordStage(StatsManager.Stage.COMPRESSION, compressStart);
+                compressionEvent.inputChars = compactPrompt.length();
+                compressionEvent.summaryChars = summary != null ? summary.length() : 0;
+                compressionEvent.success = summary != null && !summary.trim().isEmpty();
 
                 if (plugin.getConfigManager().isDebug()) {
                     String outputPreview = summary != null && summary.length() > 500 ? summary.substring(0, 500) + "..." : (summary != null ? summary : "null");
@@ -3630,6 +3586,13 @@ public class CLIManager {
                 if (plugin.getConfigManager().isDebug()) {
                     e.printStackTrace();
                 }
+            } finally {
+                if (compressionEvent.shouldCommit()) {
+                    compressionEvent.player = player.getName();
+                    compressionEvent.sessionId = session.getSessionUUID();
+                    compressionEvent.messages = oldCount;
+                    compressionEvent.commit();
+                }
             }
         });
     }
@@ -3656,10 +3619,15 @@ public class CLIManager {
         return systemPromptTokens + historyTokens + replyPrimerTokens;
     }
 
-    private void executeTool(Player player, String toolCall) {
+    /**
+     * 执行单个工具调用
+     *
+     * @return 是否交给了 ToolExecutor（被防循环检测拦下时为 false）
+     */
+    private boolean executeTool(Player player, String toolCall) {
         UUID uuid = player.getUniqueId();
         DialogueSession session = sessions.get(uuid);
-        if (session == null) return;
+        if (session == null) return false;
 
         // --- 防死循环检测逻辑 ---
         if (session.isAntiLoopExempted()) {
@@ -3710,7 +3678,7 @@ public class CLIManager {
                     generationStates.put(uuid, GenerationStatus.CANCELLED);
                     generationStartTimes.remove(uuid);
                     player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
-                    return;
+                    return false;
                 }
             }
 
@@ -3742,7 +3710,7 @@ public class CLIManager {
                 generationStates.put(uuid, GenerationStatus.COMPLETED);
                 generationStartTimes.remove(uuid);
                 player.spigot().sendMessage(net.md_5.bungee.api.ChatMessageType.ACTION_BAR, new TextComponent(""));
-                return;
+                return false;
             }
             
             // 记录本次工具调用
@@ -3763,10 +3731,127 @@ public class CLIManager {
                 session.incrementToolFailure();
             }
         }
+        return true;
+    }
+
+    /**
+     * 开启并行只读工具时，收集回复中的全部工具调用。只有全部可以并行时才按批次执行，
+     * 否则仍只执行第一个，有副作用的工具始终逐个执行
+     */
+    private List<String> collectToolBatch(Player player, String response, String firstCall) {
+        if (!plugin.getConfigManager().isParallelToolsEnabled()) {
+            return Collections.singletonList(firstCall);
+        }
+        List<String> calls = ToolCallScanner.extractAll(response, ToolCallScanner.KNOWN_TOOLS);
+        if (calls.size() < 2 || !calls.get(0).equals(firstCall)) {
+            return Collections.singletonList(firstCall);
+        }
+        int maxCalls = plugin.getConfigManager().getParallelToolsMaxCalls();
+        if (calls.size() > maxCalls) {
+            calls = calls.subList(0, maxCalls);
+        }
+        for (String call : calls) {
+            if (!toolExecutor.canBatch(player, call)) {
+                return Collections.singletonList(firstCall);
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * 一次分发整批只读工具，它们各自异步完成；全部回填后合并为一条结果交给 AI
+     */
+    private void executeToolBatch(Player player, List<String> calls) {
+        UUID uuid = player.getUniqueId();
+        ToolBatch batch = new ToolBatch(calls);
+        toolBatches.put(uuid, batch);
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[CLI] 为 " + player.getName() + " 并行执行 " + calls.size() + " 个只读工具");
+        }
+
+        for (int i = 0; i < calls.size(); i++) {
+            batch.beginDispatch(i);
+            boolean dispatched = executeTool(player, calls.get(i));
+            batch.endDispatch();
+            if (!dispatched || toolBatches.get(uuid) != batch) {
+                // 被防循环检测拦下，或工具结束了会话
+                toolBatches.remove(uuid, batch);
+                return;
+            }
+        }
+
+        if (batch.isComplete()) {
+            finishToolBatch(player, batch);
+            return;
+        }
+        // 兜底：有工具迟迟不回填时按超时结算，避免整轮对话卡住
+        long timeoutTicks = plugin.getConfigManager().getParallelToolsTimeoutSeconds() * 20L;
+        Bukkit.getScheduler().runTaskLater(plugin, () -> finishToolBatch(player, batch), timeoutTicks);
+    }
+
+    /**
+     * 流式输出的工具调用行监听：回复中每出现一行完整的工具调用，就把只读工具交给
+     * {@link ToolExecutor#speculate} 提前执行。只覆盖最终可能被执行的调用——第一个调用，
+     * 开启并行工具时再加上其后连续的只读调用；一旦出现有副作用的工具就停止，它要等回复结束确认后才执行。
+     *
+     * @return 流式处理器的工具调用行回调，关闭该功能时返回 null
+     */
+    private Consumer<String> speculativeToolListener(Player player) {
+        UUID uuid = player.getUniqueId();
+        // 上一轮流式输出出错或被中断时可能留下未取用的结果
+        toolExecutor.discardSpeculation(uuid);
+        if (!plugin.getConfigManager().isSpeculativeToolsEnabled()) return null;
+
+        int limit = plugin.getConfigManager().isParallelToolsEnabled()
+                ? plugin.getConfigManager().getParallelToolsMaxCalls() : 1;
+        final int[] seen = {0};
+        final boolean[] stopped = {false};
+        return call -> {
+            if (stopped[0] || seen[0]++ >= limit) return;
+            if (!ToolExecutor.isReadOnlyTool(ToolExecutor.parseToolCall(call).toolName)) {
+                stopped[0] = true;
+                return;
+            }
+            if (!plugin.isEnabled()) return;
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                if (!player.isOnline() || !isGenerating.getOrDefault(uuid, false)) return;
+                toolExecutor.speculate(player, call);
+            });
+        };
+    }
+
+    /**
+     * 工具结果的回填目标。异步完成的工具应在分发时取得它，批量执行时结果才会进入自己的槽位
+     */
+    public Consumer<String> feedbackTarget(Player player) {
+        ToolBatch batch = toolBatches.get(player.getUniqueId());
+        int slot = batch != null ? batch.currentSlot() : -1;
+        if (slot < 0) {
+            return feedback -> feedbackToAI(player, feedback);
+        }
+        return feedback -> completeBatchSlot(player, batch, slot, feedback);
+    }
+
+    private void completeBatchSlot(Player player, ToolBatch batch, int slot, String feedback) {
+        // 批次已被停止或已超时结算，迟到的结果直接丢弃
+        if (toolBatches.get(player.getUniqueId()) != batch) return;
+        if (batch.complete(slot, feedback) && batch.currentSlot() < 0) {
+            finishToolBatch(player, batch);
+        }
+    }
+
+    private void finishToolBatch(Player player, ToolBatch batch) {
+        if (!toolBatches.remove(player.getUniqueId(), batch)) return;
+        feedbackToAI(player, batch.render());
     }
 
     public void feedbackToAI(Player player, String feedback) {
         UUID uuid = player.getUniqueId();
+        ToolBatch batch = toolBatches.get(uuid);
+        if (batch != null) {
+            completeBatchSlot(player, batch, batch.currentSlot(), feedback);
+            return;
+        }
         DialogueSession session = sessions.get(uuid);
         if (session == null) return;
 
@@ -3789,9 +3874,11 @@ public class CLIManager {
 
         // 异步调用 AI，不显示 "Thought..." 提示，因为这是后台自动反馈
         if (!plugin.isEnabled()) return;
+        final long queuedAt = System.nanoTime();
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            plugin.getStatsManager().recordStage(StatsManager.Stage.ASYNC_QUEUE_WAIT, queuedAt);
             // feedbackToAI 不需要匹配新 Skills，使用空列表
-            final String systemPrompt = promptManager.getSystemPromptForSession(player, Collections.emptyList(), session.getMode());
+            final String systemPrompt = promptManager.getSystemPromptForSession(player, Collections.emptyList(), session);
             
             // 设置重试回调，向玩家显示重试提示
             ai.setRetryCallback((statusCode, retryMessage) -> {
@@ -3814,8 +3901,9 @@ public class CLIManager {
             try {
                 if (plugin.getConfigManager().isPlayerStreamingEnabled(player)) {
                     // === 流式输出：工具反馈触发的 AI 回复 ===
-                    StreamingHandler streamingHandler = new StreamingHandler(plugin, player);
+                    StreamingHandler streamingHandler = new StreamingHandler(plugin, player, session);
                     activeStreamingHandlers.put(uuid, streamingHandler);
+                    streamingHandler.setOnToolLineCallback(speculativeToolListener(player));
                     final long reservedMessageId = session.getNextMessageId();
 
                     final StringBuilder fullResponseText = new StringBuilder();
@@ -3906,7 +3994,9 @@ public class CLIManager {
                         activeStreamingHandlers.remove(uuid);
 
                         if (!plugin.isEnabled()) return;
+                        final long completedAt = System.nanoTime();
                         Bukkit.getScheduler().runTask(plugin, () -> {
+                            plugin.getStatsManager().recordStage(StatsManager.Stage.MAIN_QUEUE_WAIT, completedAt);
                             if (!player.isOnline()) return;
                             // flush remaining undisplayed text
                             String formatted = convertMarkdownBoldToMinecraft(accumulatedText.toString());
@@ -4539,6 +4629,10 @@ public class CLIManager {
         return activeCLIPayers.size();
     }
 
+    public ToolExecutor getToolExecutor() {
+        return toolExecutor;
+    }
+
     public boolean isInCLI(Player player) {
         return activeCLIPayers.contains(player.getUniqueId());
     }
@@ -0,0 +1,54 @@
+package org.YanPl.manager;
+
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 数据包捕获的文本过滤规则（已去除颜色码的纯文本）
+ * <p>
+ * 正则全部预编译，固定文案放进 HashSet，首字符标记用 switch，
+ * 每条消息只做一次遍历式判断。FancyHelper 自己的状态栏 / 副标题已在发送端绕过监听器，
+ * 这里只兜底过滤普通聊天框里的插件提示和玩家聊天。
+ */
+final class CaptureFilter {
+
+    /** 插件自身的固定提示文案 */
+    private static final Set<String> OWN_MESSAGES = Set.of(
+            "....", "...", "- ✓ -", "- ✕ -", "- ERROR -",
+            "正在征求您的许可...", "正在征求您的意见...");
+
+    private static final Pattern THINKING = Pattern.compile("^- 思考中 \\d+s -$");
+
+    /** 玩家聊天：&lt;名字&gt; 内容、[前缀] &lt;名字&gt; 内容、* 名字 动作 */
+    private static final Pattern PLAYER_CHAT = Pattern.compile("^(?:<[^>]+>|\\[.*\\]\\s*<[^>]+>|\\* [^ ]+ )");
+
+    private CaptureFilter() {
+    }
+
+    /**
+     * 判断一条消息是否应计入命令输出
+     *
+     * @param plain 去除颜色码并 trim 后的纯文本
+     */
+    static boolean isCommandOutput(String plain) {
+        if (plain == null || plain.isEmpty()) return false;
+        switch (plain.charAt(0)) {
+            case '⇒':
+            case '◇':
+            case '◆':
+                return false;
+            case '-':
+                if (plain.startsWith("- 思考中 ") && THINKING.matcher(plain).matches()) return false;
+                break;
+            case '<':
+            case '[':
+            case '*':
+                if (PLAYER_CHAT.matcher(plain).lookingAt()) return false;
+                break;
+            default:
+                break;
+        }
+        if (OWN_MESSAGES.contains(plain)) return false;
+        return !plain.contains("FancyHelper");
+    }
+}
@@ -0,0 +1,183 @@
+package org.YanPl.manager;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * #run 命令完成检测
+ * <p>
+ * 不再固定等待 1 秒 / 5 秒，而是由数据包捕获在每条输出到达时通知：
+ * 收到第一条输出后，若 settle 毫秒内没有新输出即视为命令已结束；
+ * 一直没有输出时按命令档案决定等多久（已知静默的命令立即结束，已知异步回复的命令等到上限）。
+ * 任何情况下都不会超过 max 毫秒。
+ */
+public class CommandSettleDetector {
+
+    /**
+     * 命令档案
+     */
+    public enum Profile {
+        /** 通常没有任何回显，执行完立即结束 */
+        SILENT,
+        /** 普通命令：有输出时等输出平静，没输出时等 quiet 毫秒 */
+        NORMAL,
+        /** 异步回复的命令（如 LuckPerms、WorldEdit），没输出时一直等到上限，输出平静的判定也放宽 */
+        SLOW
+    }
+
+    /** SLOW 档案的平静判定是普通命令的几倍 */
+    private static final int SLOW_SETTLE_FACTOR = 4;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "FancyHelper-RunWait");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 一次命令执行的等待过程。先创建、开始捕获，命令派发后再调用 {@link #start(boolean)}。
+     */
+    public final class Watch {
+        private final Profile profile;
+        private final long settleMillis;
+        private long quietMillis;
+        private final long maxMillis;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private long startNanos;
+        private long lastOutputNanos;
+        private int outputs;
+        private boolean started;
+
+        private Watch(Profile profile, long settleMillis, long quietMillis, long maxMillis) {
+            this.profile = profile;
+            this.settleMillis = profile == Profile.SLOW ? settleMillis * SLOW_SETTLE_FACTOR : settleMillis;
+            this.quietMillis = profile == Profile.SILENT ? 0 : profile == Profile.SLOW ? maxMillis : quietMillis;
+            this.maxMillis = maxMillis;
+        }
+
+        /**
+         * 捕获到一条输出（任意线程调用）
+         */
+        public synchronized void onOutput() {
+            lastOutputNanos = System.nanoTime();
+            outputs++;
+            // 第一条输出到达时，原本排着的"无输出"检查可能还很远，补一次平静检查
+            if (started && outputs == 1) {
+                schedule(settleMillis);
+            }
+        }
+
+        /**
+         * 命令已派发，开始计时
+         *
+         * @param commandSucceeded 命令是否派发成功；失败的命令不会再有后续输出，没有输出时立即结束
+         */
+        public synchronized void start(boolean commandSucceeded) {
+            if (!commandSucceeded) {
+                quietMillis = 0;
+            }
+            started = true;
+            startNanos = System.nanoTime();
+            check();
+        }
+
+        /**
+         * 等待结束时完成，值为期间是否收到过输出
+         */
+        public CompletableFuture<Boolean> result() {
+            return result;
+        }
+
+        public Profile getProfile() {
+            return profile;
+        }
+
+        public synchronized boolean hasOutput() {
+            return outputs > 0;
+        }
+
+        private synchronized void check() {
+            if (result.isDone()) return;
+            long now = System.nanoTime();
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+            long remainingMax = maxMillis - elapsed;
+            if (remainingMax <= 0) {
+                result.complete(outputs > 0);
+                return;
+            }
+            long wait;
+            if (outputs > 0) {
+                wait = settleMillis - TimeUnit.NANOSECONDS.toMillis(now - lastOutputNanos);
+            } else {
+                wait = quietMillis - elapsed;
+            }
+            if (wait <= 0) {
+                result.complete(outputs > 0);
+                return;
+            }
+            schedule(Math.min(wait, remainingMax));
+        }
+
+        private void schedule(long delayMillis) {
+            try {
+                scheduler.schedule(this::check, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // 已关闭时直接结束等待
+                result.complete(outputs > 0);
+            }
+        }
+    }
+
+    /**
+     * 创建一次等待
+     *
+     * @param settleMillis 最后一条输出之后多久没有新输出视为结束
+     * @param quietMillis  一直没有输出时最多等多久
+     * @param maxMillis    硬上限
+     */
+    public Watch watch(Profile profile, long settleMillis, long quietMillis, long maxMillis) {
+        return new Watch(profile, Math.max(0, settleMillis), Math.max(0, quietMillis), Math.max(1, maxMillis));
+    }
+
+    /**
+     * 按命令名匹配档案。命令名忽略前导 / 与命名空间（minecraft:tp → tp），
+     * 列表中的 "//" 表示所有 WorldEdit 风格的双斜杠命令。
+     */
+    public static Profile profileFor(String command, Collection<String> silentCommands, Collection<String> slowCommands) {
+        String name = commandName(command);
+        if (name.isEmpty()) return Profile.NORMAL;
+        if (matches(name, slowCommands)) return Profile.SLOW;
+        if (matches(name, silentCommands)) return Profile.SILENT;
+        return Profile.NORMAL;
+    }
+
+    static String commandName(String command) {
+        if (command == null) return "";
+        String s = command.trim();
+        if (s.startsWith("/")) s = s.substring(1);
+        if (s.startsWith("/")) return "//";
+        int space = s.indexOf(' ');
+        String name = (space >= 0 ? s.substring(0, space) : s).toLowerCase(Locale.ROOT);
+        int colon = name.indexOf(':');
+        return colon >= 0 ? name.substring(colon + 1) : name;
+    }
+
+    private static boolean matches(String name, Collection<String> commands) {
+        if (commands == null) return false;
+        for (String c : commands) {
+            if (c != null && name.equals(c.trim().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,615 @@
+package org.YanPl.manager;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 命令语法树索引，用于在 #run 真正派发之前做本地语法检查
+ * <p>
+ * 原版（及 Paper Brigadier）命令从 VanillaCommandWrapper 持有的 Brigadier 节点反射转换成本地节点，
+ * 普通插件命令只有名称、权限与用法。检查只报告"确定是错的"情况：未知命令、
+ * 只能接字面量的位置写了别的词、数字/布尔参数格式错误、命令不完整、参数多余。
+ * 路径上一旦出现无法精确建模的参数类型，就放行交给服务器判断，宁可漏报也不误报。
+ */
+public class CommandTreeIndex {
+
+    /**
+     * 参数的解析方式
+     */
+    public enum ArgKind {
+        /** 单个词 */
+        WORD,
+        /** 带引号的字符串或单个词 */
+        QUOTABLE,
+        /** 吃掉剩余全部内容 */
+        GREEDY,
+        INTEGER, LONG, FLOAT, DOUBLE, BOOL,
+        /** 固定数量的词（坐标等） */
+        TOKENS,
+        /** 无法精确建模的类型：按括号 / 引号平衡吃掉一个词，且路径上出现后不再报告多余 / 不完整 */
+        GENERIC
+    }
+
+    /**
+     * 命令树节点
+     */
+    public static final class Node {
+        final String name;
+        final boolean literal;
+        final ArgKind kind;
+        final int tokens;
+        final double min;
+        final double max;
+        boolean executable;
+        /** 重定向目标；指向 {@link #ROOT} 表示把剩余部分当作一条完整命令（如 execute ... run） */
+        Node redirect;
+        final List<Node> children = new ArrayList<>();
+
+        private Node(String name, boolean literal, ArgKind kind, int tokens, double min, double max) {
+            this.name = name;
+            this.literal = literal;
+            this.kind = kind;
+            this.tokens = tokens;
+            this.min = min;
+            this.max = max;
+        }
+
+        public static Node literal(String name) {
+            return new Node(name, true, null, 0, 0, 0);
+        }
+
+        public static Node argument(String name, ArgKind kind) {
+            return new Node(name, false, kind, kind == ArgKind.TOKENS ? 1 : 0, -Double.MAX_VALUE, Double.MAX_VALUE);
+        }
+
+        public static Node tokens(String name, int count) {
+            return new Node(name, false, ArgKind.TOKENS, count, 0, 0);
+        }
+
+        public static Node number(String name, ArgKind kind, double min, double max) {
+            return new Node(name, false, kind, 0, min, max);
+        }
+
+        public Node then(Node child) {
+            children.add(child);
+            return this;
+        }
+
+        public Node executes() {
+            executable = true;
+            return this;
+        }
+
+        public Node redirect(Node target) {
+            redirect = target;
+            return this;
+        }
+
+        String display() {
+            return literal ? name : "<" + name + ">";
+        }
+    }
+
+    /** 重定向到命令根（execute ... run 之类） */
+    public static final Node ROOT = Node.literal("<root>");
+
+    /**
+     * 一条顶层命令：Brigadier 语法树可能为空（普通插件命令）
+     */
+    public static final class Root {
+        final String label;
+        final Node node;
+        final String permission;
+        final String usage;
+
+        public Root(String label, Node node, String permission, String usage) {
+            this.label = label;
+            this.node = node;
+            this.permission = permission;
+            this.usage = usage;
+        }
+    }
+
+    /**
+     * 检查结果
+     */
+    public static final class Validation {
+        private static final Validation OK = new Validation(true, null);
+        private final boolean ok;
+        private final String error;
+
+        private Validation(boolean ok, String error) {
+            this.ok = ok;
+            this.error = error;
+        }
+
+        static Validation ok() {
+            return OK;
+        }
+
+        static Validation error(String error) {
+            return new Validation(false, error);
+        }
+
+        /** 是否未发现确定的错误 */
+        public boolean isOk() {
+            return ok;
+        }
+
+        /** 错误说明（含修改建议），仅在 !isOk() 时有值 */
+        public String getError() {
+            return error;
+        }
+    }
+
+    /** 单条路径的走查结果 */
+    private static final class Walk {
+        final boolean ok;
+        final boolean uncertain;
+        final int position;
+        final String error;
+
+        Walk(boolean ok, boolean uncertain, int position, String error) {
+            this.ok = ok;
+            this.uncertain = uncertain;
+            this.position = position;
+            this.error = error;
+        }
+    }
+
+    private static final int MAX_DEPTH = 64;
+
+    /** 小写命令名（含别名与命名空间形式）→ 命令 */
+    private volatile Map<String, Root> roots = Collections.emptyMap();
+    /** 快照中找不到的命令名再查一次实时命令表（快照刷新有延迟），为 null 时直接报未知命令 */
+    private volatile Predicate<String> liveLookup;
+
+    /**
+     * 整体替换索引内容
+     */
+    public void replace(Collection<Root> newRoots) {
+        Map<String, Root> map = new HashMap<>();
+        for (Root root : newRoots) {
+            map.put(root.label.toLowerCase(Locale.ROOT), root);
+        }
+        roots = map;
+    }
+
+    /**
+     * 设置实时命令表查询，用于快照过期时避免误报未知命令
+     */
+    public void setLiveLookup(Predicate<String> liveLookup) {
+        this.liveLookup = liveLookup;
+    }
+
+    public int size() {
+        return roots.size();
+    }
+
+    public boolean isEmpty() {
+        return roots.isEmpty();
+    }
+
+    /**
+     * 获取命令（含别名、命名空间形式）所需的权限节点
+     *
+     * @return 权限节点；命令未索引或不需要权限时为 null
+     */
+    public String permissionOf(String label) {
+        if (label == null) return null;
+        Root root = roots.get(label.toLowerCase(Locale.ROOT));
+        return root == null || root.permission == null || root.permission.isEmpty() ? null : root.permission;
+    }
+
+    /**
+     * 检查一条命令（可带前导 /）
+     *
+     * @param hasPermission 判断执行者是否拥有某权限，为 null 时不检查权限
+     */
+    public Validation validate(String command, Predicate<String> hasPermission) {
+        Map<String, Root> current = roots;
+        if (current.isEmpty() || command == null) return Validation.ok();
+        String line = command.trim();
+        if (line.startsWith("/")) line = line.substring(1);
+        return validateLine(current, line, hasPermission, 0);
+    }
+
+    private Validation validateLine(Map<String, Root> current, String line, Predicate<String> hasPermission, int depth) {
+        int space = line.indexOf(' ');
+        String label = space >= 0 ? line.substring(0, space) : line;
+        if (label.isEmpty()) return Validation.ok();
+        Root root = current.get(label.toLowerCase(Locale.ROOT));
+        if (root == null) {
+            Predicate<String> live = liveLookup;
+            if (live != null && live.test(label)) return Validation.ok();
+            return Validation.error("未知命令 \"" + label + "\"。" + suggest(label, current.keySet()));
+        }
+        if (hasPermission != null && !testPermission(root.permission, hasPermission)) {
+            return Validation.error("没有执行 \"" + label + "\" 的权限（" + root.permission + "）。");
+        }
+        if (root.node == null) return Validation.ok();
+
+        Walk walk = walk(current, root.node, line, label.length(), hasPermission, depth, false);
+        if (walk.ok || walk.uncertain) return Validation.ok();
+        return Validation.error(walk.error + (root.usage != null && !root.usage.isEmpty() ? " 用法: " + root.usage : ""));
+    }
+
+    /**
+     * 与 Bukkit Command#testPermissionSilent 一致：权限串可用 ; 分隔多个节点，拥有任意一个即可
+     */
+    static boolean testPermission(String permission, Predicate<String> hasPermission) {
+        if (permission == null || permission.isEmpty()) return true;
+        for (String node : permission.split(";")) {
+            if (hasPermission.test(node)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 从 node（已匹配）之后的 pos 继续走查
+     */
+    private Walk walk(Map<String, Root> current, Node node, String line, int pos, Predicate<String> hasPermission,
+                      int depth, boolean generic) {
+        if (depth > MAX_DEPTH) return new Walk(true, true, pos, null);
+        int next = skipSpaces(line, pos);
+        if (next >= line.length()) {
+            if (node.executable || generic) return new Walk(true, generic, pos, null);
+            return new Walk(false, false, pos, "命令不完整，\"" + line.substring(0, pos).trim() + "\" 后面还需要: " + childList(node) + "。");
+        }
+        if (pos == next) {
+            // 上一个参数后面没有空格
+            return new Walk(false, generic, pos, "参数之间需要空格: \"" + abbreviate(line.substring(pos)) + "\"。");
+        }
+
+        if (node.redirect != null) {
+            if (node.redirect == ROOT) {
+                Validation rest = validateLine(current, line.substring(next), hasPermission, depth + 1);
+                return new Walk(rest.isOk(), false, line.length(), rest.getError());
+            }
+            node = node.redirect;
+        }
+        if (node.children.isEmpty()) {
+            if (generic) return new Walk(true, true, pos, null);
+            return new Walk(false, false, next, "多余的参数: \"" + abbreviate(line.substring(next)) + "\"。");
+        }
+
+        Walk best = null;
+        for (Node child : node.children) {
+            int end = consume(child, line, next);
+            if (end < 0) continue;
+            Walk result = walk(current, child, line, end, hasPermission, depth + 1,
+                    generic || (!child.literal && child.kind == ArgKind.GENERIC));
+            if (result.ok || result.uncertain) return result;
+            if (best == null || result.position > best.position) best = result;
+        }
+        if (best != null) return best;
+
+        String token = readWord(line, next);
+        return new Walk(false, generic, next, "\"" + line.substring(0, next).trim() + "\" 后的参数 \"" + token
+                + "\" 无效，此处可以是: " + childList(node) + "。" + suggest(token, literalNames(node)));
+    }
+
+    /**
+     * 尝试用 child 匹配 start 处的输入，返回匹配结束位置；不匹配返回 -1
+     */
+    static int consume(Node child, String line, int start) {
+        if (child.literal) {
+            int end = start + child.name.length();
+            if (line.regionMatches(start, child.name, 0, child.name.length())
+                    && (end == line.length() || line.charAt(end) == ' ')) {
+                return end;
+            }
+            return -1;
+        }
+        switch (child.kind) {
+            case GREEDY:
+                return line.length();
+            case QUOTABLE:
+                if (line.charAt(start) == '"' || line.charAt(start) == '\'') {
+                    int close = findClosingQuote(line, start);
+                    return close < 0 ? -1 : close + 1;
+                }
+                return wordEnd(line, start);
+            case WORD:
+                return wordEnd(line, start);
+            case INTEGER:
+            case LONG: {
+                int end = wordEnd(line, start);
+                try {
+                    long value = Long.parseLong(line.substring(start, end));
+                    return value >= child.min && value <= child.max ? end : -1;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            case FLOAT:
+            case DOUBLE: {
+                int end = wordEnd(line, start);
+                try {
+                    double value = Double.parseDouble(line.substring(start, end));
+                    return value >= child.min && value <= child.max ? end : -1;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            case BOOL: {
+                int end = wordEnd(line, start);
+                String word = line.substring(start, end);
+                return word.equals("true") || word.equals("false") ? end : -1;
+            }
+            case TOKENS: {
+                int end = start;
+                for (int i = 0; i < child.tokens; i++) {
+                    if (i > 0) {
+                        if (end >= line.length() || line.charAt(end) != ' ') return -1;
+                        end = skipSpaces(line, end);
+                        if (end >= line.length()) return -1;
+                    }
+                    end = wordEnd(line, end);
+                }
+                return end;
+            }
+            default:
+                return balancedEnd(line, start);
+        }
+    }
+
+    private static int wordEnd(String line, int start) {
+        int end = line.indexOf(' ', start);
+        return end < 0 ? line.length() : end;
+    }
+
+    /** 吃掉一个词，但 [] {} 与引号内的空格不算分隔 */
+    private static int balancedEnd(String line, int start) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = start; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') i++;
+                else if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if (c == ']' || c == '}') {
+                depth--;
+            } else if (c == ' ' && depth <= 0) {
+                return i;
+            }
+        }
+        return line.length();
+    }
+
+    private static int findClosingQuote(String line, int start) {
+        char quote = line.charAt(start);
+        for (int i = start + 1; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\') i++;
+            else if (c == quote) return i;
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(String line, int pos) {
+        while (pos < line.length() && line.charAt(pos) == ' ') pos++;
+        return pos;
+    }
+
+    private static String readWord(String line, int start) {
+        return line.substring(start, wordEnd(line, start));
+    }
+
+    private static String abbreviate(String s) {
+        return s.length() > 40 ? s.substring(0, 40) + "..." : s;
+    }
+
+    private static String childList(Node node) {
+        Node target = node.redirect != null && node.redirect != ROOT ? node.redirect : node;
+        if (node.redirect == ROOT) return "<命令>";
+        List<String> names = new ArrayList<>();
+        for (Node child : target.children) {
+            if (names.size() >= 12) {
+                names.add("...");
+                break;
+            }
+            names.add(child.display());
+        }
+        return names.isEmpty() ? "（无）" : String.join(" | ", names);
+    }
+
+    private static List<String> literalNames(Node node) {
+        List<String> names = new ArrayList<>();
+        for (Node child : node.children) {
+            if (child.literal) names.add(child.name);
+        }
+        return names;
+    }
+
+    /**
+     * 在候选中找编辑距离最近的几个作为建议
+     */
+    static String suggest(String input, Collection<String> candidates) {
+        String lower = input.toLowerCase(Locale.ROOT);
+        int limit = Math.max(1, Math.min(3, lower.length() / 3 + 1));
+        List<String> matches = new ArrayList<>();
+        Map<String, Integer> distances = new HashMap<>();
+        for (String candidate : candidates) {
+            if (candidate.indexOf(':') >= 0) continue;
+            int d = distance(lower, candidate.toLowerCase(Locale.ROOT), limit);
+            if (d <= limit) {
+                matches.add(candidate);
+                distances.put(candidate, d);
+            }
+        }
+        if (matches.isEmpty()) return "";
+        matches.sort(Comparator.comparingInt((String c) -> distances.get(c)).thenComparing(c -> c));
+        return "你是不是想用: " + String.join(", ", matches.subList(0, Math.min(3, matches.size()))) + "？";
+    }
+
+    /** 带上限提前退出的编辑距离 */
+    private static int distance(String a, String b, int limit) {
+        if (Math.abs(a.length() - b.length()) > limit) return limit + 1;
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(cur[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, cur[j]);
+            }
+            if (rowMin > limit) return limit + 1;
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    // ==================== Brigadier 反射转换 ====================
+
+    /**
+     * 从 Bukkit 命令对象中找出其持有的 Brigadier 节点（VanillaCommandWrapper 等），没有返回 null
+     */
+    static Object findBrigadierNode(Object command) {
+        Class<?> type = command.getClass();
+        while (type != null && type != Object.class) {
+            for (Field field : type.getDeclaredFields()) {
+                if (isBrigadierNodeType(field.getType())) {
+                    try {
+                        field.setAccessible(true);
+                        return field.get(command);
+                    } catch (Exception e) {
+                        return null;
+                    }
+                }
+            }
+            type = type.getSuperclass();
+        }
+        return null;
+    }
+
+    private static boolean isBrigadierNodeType(Class<?> type) {
+        while (type != null) {
+            if (type.getName().equals("com.mojang.brigadier.tree.CommandNode")) return true;
+            type = type.getSuperclass();
+        }
+        return false;
+    }
+
+    /**
+     * 把 Brigadier 节点转换为本地节点。cache 以 Brigadier 节点对象为键，刷新时复用未变化的命令，
+     * 同时处理 redirect 形成的环。
+     */
+    static Node convert(Object brigadierNode, Map<Object, Node> cache) {
+        Node existing = cache.get(brigadierNode);
+        if (existing != null) return existing;
+        String className = brigadierNode.getClass().getSimpleName();
+        if (className.contains("Root")) return ROOT;
+
+        Node node;
+        try {
+            if (className.contains("Literal")) {
+                node = Node.literal((String) invoke(brigadierNode, "getLiteral"));
+            } else {
+                node = argumentNode((String) invoke(brigadierNode, "getName"), invoke(brigadierNode, "getType"));
+            }
+            cache.put(brigadierNode, node);
+            node.executable = invoke(brigadierNode, "getCommand") != null;
+            Object redirect = invoke(brigadierNode, "getRedirect");
+            if (redirect != null) {
+                node.redirect = convert(redirect, cache);
+            }
+            Object children = invoke(brigadierNode, "getChildren");
+            if (children instanceof Collection) {
+                for (Object child : (Collection<?>) children) {
+                    node.children.add(convert(child, cache));
+                }
+            }
+        } catch (Exception e) {
+            // 无法解析的节点当作通用参数，保证不会误报
+            node = Node.argument("?", ArgKind.GENERIC).executes();
+            cache.put(brigadierNode, node);
+        }
+        return node;
+    }
+
+    private static Node argumentNode(String name, Object type) throws Exception {
+        String typeName = type == null ? "" : type.getClass().getSimpleName();
+        switch (typeName) {
+            case "IntegerArgumentType":
+                return Node.number(name, ArgKind.INTEGER, ((Number) invoke(type, "getMinimum")).doubleValue(),
+                        ((Number) invoke(type, "getMaximum")).doubleValue());
+            case "LongArgumentType":
+                return Node.number(name, ArgKind.LONG, ((Number) invoke(type, "getMinimum")).doubleValue(),
+                        ((Number) invoke(type, "getMaximum")).doubleValue());
+            case "FloatArgumentType":
+                return Node.number(name, ArgKind.FLOAT, ((Number) invoke(type, "getMinimum")).doubleValue(),
+                        ((Number) invoke(type, "getMaximum")).doubleValue());
+            case "DoubleArgumentType":
+                return Node.number(name, ArgKind.DOUBLE, ((Number) invoke(type, "getMinimum")).doubleValue(),
+                        ((Number) invoke(type, "getMaximum")).doubleValue());
+            case "BoolArgumentType":
+                return Node.argument(name, ArgKind.BOOL);
+            case "StringArgumentType": {
+                String stringType = String.valueOf(invoke(type, "getType"));
+                if (stringType.equals("GREEDY_PHRASE")) return Node.argument(name, ArgKind.GREEDY);
+                if (stringType.equals("QUOTABLE_PHRASE")) return Node.argument(name, ArgKind.QUOTABLE);
+                return Node.argument(name, ArgKind.WORD);
+            }
+            // 坐标类：Mojang 映射名 / Spigot 映射名
+            case "Vec3Argument":
+            case "ArgumentVec3":
+            case "BlockPosArgument":
+            case "ArgumentPosition":
+                return Node.tokens(name, 3);
+            case "Vec2Argument":
+            case "ArgumentVec2":
+            case "ColumnPosArgument":
+            case "ArgumentVec2I":
+            case "RotationArgument":
+            case "ArgumentRotation":
+                return Node.tokens(name, 2);
+            case "MessageArgument":
+            case "ArgumentChat":
+                return Node.argument(name, ArgKind.GREEDY);
+            default:
+                return Node.argument(name, ArgKind.GENERIC);
+        }
+    }
+
+    private static Object invoke(Object target, String method) throws Exception {
+        Method m = findMethod(target.getClass(), method);
+        m.setAccessible(true);
+        return m.invoke(target);
+    }
+
+    private static Method findMethod(Class<?> type, String name) throws NoSuchMethodException {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Method m : c.getDeclaredMethods()) {
+                if (m.getName().equals(name) && m.getParameterCount() == 0) return m;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    /**
+     * 新建一个用于 Brigadier 转换的缓存
+     */
+    static Map<Object, Node> newConversionCache() {
+        return new IdentityHashMap<>();
+    }
+}
@@ -7,6 +7,7 @@ import org.bukkit.entity.Player;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +22,9 @@ public class ConfigManager {
     private File playerDataFile;
     private boolean configLoadFailed = false;
     private String configLoadError = "";
+    /** 每次成功加载 config.yml 后递增，供依赖配置的缓存判断是否需要重建 */
+    private volatile int configGeneration = 0;
+    private volatile RiskyCommandMatcher riskyCommandMatcher = RiskyCommandMatcher.EMPTY;
     private boolean legacyPlayerListMigrationNeeded = false;
 
     private static final String FANCY_API_URL = "https://api.fancy.baicaizhale.top";
@@ -354,6 +358,8 @@ public class ConfigManager {
             return;
         }
         this.config = plugin.getConfig();
+        compileRiskyCommands();
+        configGeneration++;
 
         // 清理 config.yml 中可能存在的旧玩家数据（迁移到 playerdata.yml 后）
         if (config.contains("player_tools")) {
@@ -455,6 +461,22 @@ public class ConfigManager {
         return config.getBoolean("settings.auto_report", true);
     }
 
+    /**
+     * 获取错误上报的合并窗口（分钟）：同类错误在窗口内只上报一次
+     * @return 合并窗口（分钟）
+     */
+    public int getAutoReportWindowMinutes() {
+        return Math.max(1, config.getInt("settings.auto_report_window_minutes", 30));
+    }
+
+    /**
+     * 获取错误上报每小时最多上传的数据量（KB）
+     * @return 每小时上传上限（KB）
+     */
+    public int getAutoReportBudgetKb() {
+        return Math.max(16, config.getInt("settings.auto_report_budget_kb", 4096));
+    }
+
     /**
      * 获取是否启用统计数据上报（定时上报到 FancyConsole）
      * @return 是否启用
@@ -553,10 +575,71 @@ public class ConfigManager {
         return config.getInt("settings.anti_loop.max_chain_count", 10);
     }
 
+    /**
+     * 是否允许 AI 在一条回复中并行调用多个只读工具
+     */
+    public boolean isParallelToolsEnabled() {
+        return config.getBoolean("settings.parallel_tools.enabled", false);
+    }
+
+    /**
+     * 单条回复最多并行执行的只读工具数
+     */
+    public int getParallelToolsMaxCalls() {
+        return Math.max(2, config.getInt("settings.parallel_tools.max_calls", 6));
+    }
+
+    /**
+     * 等待并行工具全部回填的最长时间（秒）
+     */
+    public int getParallelToolsTimeoutSeconds() {
+        return Math.max(5, config.getInt("settings.parallel_tools.timeout_seconds", 60));
+    }
+
+    /**
+     * 是否在流式输出期间提前执行已经出现的只读工具调用
+     */
+    public boolean isSpeculativeToolsEnabled() {
+        return config.getBoolean("settings.speculative_tools", true);
+    }
+
+    /**
+     * Prometheus 指标端点端口，0 表示关闭
+     */
+    public int getMetricsPort() {
+        int port = config.getInt("settings.metrics.port", 0);
+        return port > 0 && port <= 65535 ? port : 0;
+    }
+
+    /**
+     * 指标端点监听地址，默认只允许本机访问
+     */
+    public String getMetricsBindAddress() {
+        String bind = config.getString("settings.metrics.bind", "127.0.0.1");
+        return bind == null || bind.isBlank() ? "127.0.0.1" : bind.trim();
+    }
+
     public List<String> getYoloRiskCommands() {
         return config.getStringList("settings.yolo_risk_commands");
     }
 
+    /**
+     * 获取编译后的风险命令匹配器（配置加载或命令表刷新时重建）
+     * @return 风险命令匹配器
+     */
+    public RiskyCommandMatcher getRiskyCommandMatcher() {
+        return riskyCommandMatcher;
+    }
+
+    /**
+     * 按当前配置与命令表重新编译风险命令匹配器
+     */
+    public void compileRiskyCommands() {
+        WorkspaceIndexer indexer = plugin.getWorkspaceIndexer();
+        riskyCommandMatcher = RiskyCommandMatcher.compile(getYoloRiskCommands(),
+                indexer != null ? indexer.getAliasGroups() : null);
+    }
+
     /**
      * 获取是否在玩家加入时显示公告
      * @return 是否在玩家加入时显示公告
@@ -633,6 +716,140 @@ public class ConfigManager {
         return config.getBoolean("metaso.concise_snippet", true);
     }
 
+    /**
+     * 是否启用搜索结果缓存
+     */
+    public boolean isSearchCacheEnabled() {
+        return config.getBoolean("search.cache.enabled", true);
+    }
+
+    /**
+     * 搜索缓存最多保存的条目数
+     */
+    public int getSearchCacheMaxEntries() {
+        return config.getInt("search.cache.max_entries", 500);
+    }
+
+    /**
+     * 获取某个搜索提供商（wiki / metaso / tavily）结果的缓存时间（分钟），0 表示不缓存
+     */
+    public int getSearchCacheTtlMinutes(String provider) {
+        int def = "wiki".equals(provider) ? 1440 : 360;
+        return config.getInt("search.cache.ttl." + provider, def);
+    }
+
+    /**
+     * "未找到结果"类结果的缓存时间（分钟）
+     */
+    public int getSearchCacheNegativeTtlMinutes() {
+        return config.getInt("search.cache.negative_ttl", 10);
+    }
+
+    /**
+     * 是否在关服时把搜索缓存保存到磁盘
+     */
+    public boolean isSearchCachePersist() {
+        return config.getBoolean("search.cache.persist", true);
+    }
+
+    /**
+     * 获取搜索策略：race（并发查询，按偏好取第一个有效结果）| merge（并发查询并合并去重）| wiki-first（先 Wiki，未找到再查网络）
+     */
+    public String getSearchStrategy() {
+        return config.getString("search.strategy", "race").toLowerCase();
+    }
+
+    /**
+     * 并发查询时最多等待某个提供商（wiki / metaso / tavily）多久（毫秒）
+     */
+    public int getSearchDeadlineMillis(String provider) {
+        int def = "wiki".equals(provider) ? 5000 : 30000;
+        return config.getInt("search.deadline_ms." + provider, def);
+    }
+
+    /**
+     * race 策略下，偏好的来源运行多久仍未返回就启动下一个来源（毫秒），0 表示同时启动全部
+     */
+    public int getSearchHedgeMillis() {
+        return config.getInt("search.hedge_ms", 2000);
+    }
+
+    /**
+     * 是否启用 #webfetch 的磁盘网页缓存
+     */
+    public boolean isWebFetchCacheEnabled() {
+        return config.getBoolean("webfetch.cache.enabled", true);
+    }
+
+    /**
+     * #webfetch 磁盘网页缓存的总大小上限（MB）
+     */
+    public int getWebFetchCacheMaxMb() {
+        return config.getInt("webfetch.cache.max_mb", 64);
+    }
+
+    /**
+     * #webfetch 单个网页最多读取多少 KB（解压后），超出部分丢弃
+     */
+    public int getWebFetchMaxBodyKb() {
+        return Math.max(16, config.getInt("webfetch.max_body_kb", 2048));
+    }
+
+    /**
+     * #webfetch 每页返回给 AI 的字符数
+     */
+    public int getWebFetchPageChars() {
+        return config.getInt("webfetch.page_chars", 8000);
+    }
+
+    /**
+     * #run 派发前是否先按命令语法树做本地检查
+     */
+    public boolean isRunValidateEnabled() {
+        return config.getBoolean("run.validate", true);
+    }
+
+    /**
+     * #run 收到输出后，多久（毫秒）没有新输出即视为命令结束
+     */
+    public int getRunSettleMillis() {
+        return config.getInt("run.settle_ms", 150);
+    }
+
+    /**
+     * #run 一直没有输出时最多等待多久（毫秒）
+     */
+    public int getRunQuietMillis() {
+        return config.getInt("run.quiet_ms", 600);
+    }
+
+    /**
+     * #run 等待命令输出的硬上限（毫秒）
+     */
+    public int getRunMaxWaitMillis() {
+        return config.getInt("run.max_wait_ms", 6000);
+    }
+
+    /**
+     * 通常没有回显、执行后立即返回结果的命令
+     */
+    public List<String> getRunSilentCommands() {
+        if (!config.isList("run.silent_commands")) {
+            return Arrays.asList("say", "me", "tellraw", "msg", "tell", "w", "teammsg", "tm", "trigger", "function");
+        }
+        return config.getStringList("run.silent_commands");
+    }
+
+    /**
+     * 异步回复的命令，没有输出时会一直等到硬上限
+     */
+    public List<String> getRunSlowCommands() {
+        if (!config.isList("run.slow_commands")) {
+            return Arrays.asList("lp", "luckperms", "co", "coreprotect", "chunky", "baltop", "//");
+        }
+        return config.getStringList("run.slow_commands");
+    }
+
     /**
      * 获取公告刷新间隔（分钟）
      * @return 刷新间隔
@@ -731,6 +948,30 @@ public class ConfigManager {
         return config.getInt("settings.smart_risk_threshold", 50);
     }
 
+    /**
+     * 获取 SMART 模式是否先用本地规则判定明确的命令（风险命令列表 / 只读查询）
+     * @return 是否启用本地规则
+     */
+    public boolean isSmartLocalRulesEnabled() {
+        return config.getBoolean("settings.smart_assess.local_rules", true);
+    }
+
+    /**
+     * 获取 SMART 模式风险评估结果的缓存时长（分钟），0 表示不缓存
+     * @return 缓存时长（分钟）
+     */
+    public int getSmartCacheTtlMinutes() {
+        return Math.max(0, config.getInt("settings.smart_assess.cache_ttl_minutes", 30));
+    }
+
+    /**
+     * 获取 SMART 模式风险评估结果的最大缓存条数
+     * @return 最大缓存条数
+     */
+    public int getSmartCacheMaxEntries() {
+        return Math.max(1, config.getInt("settings.smart_assess.cache_max_entries", 256));
+    }
+
     /**
      * 获取玩家数据配置对象
      * @return FileConfiguration
@@ -883,10 +1124,47 @@ public class ConfigManager {
         return config.getInt("mcp.client.connect_timeout", 10);
     }
 
+    public int getMcpClientMaxConcurrentCalls() {
+        return Math.max(1, config.getInt("mcp.client.max_concurrent_calls", 8));
+    }
+
+    /**
+     * MCP 工具目录缓存有效期（分钟），0 表示只在服务器通知 list_changed 时刷新
+     */
+    public int getMcpClientToolCatalogTtl() {
+        return Math.max(0, config.getInt("mcp.client.tool_catalog_ttl", 30));
+    }
+
+    /**
+     * 单条 MCP 消息的大小上限（MB），超出的响应在读取时即被丢弃
+     */
+    public int getMcpClientMaxMessageSize() {
+        return Math.max(1, config.getInt("mcp.client.max_message_size", 8));
+    }
+
+    /**
+     * MCP 结果直接回填的字符上限，也是 #mcp_page 每页的字符数
+     */
+    public int getMcpClientResultPageSize() {
+        return Math.max(1000, config.getInt("mcp.client.result_page_size", 8000));
+    }
+
     public int getMcpClientReconnectInterval() {
         return config.getInt("mcp.client.reconnect_interval", 5);
     }
 
+    public int getMcpClientReconnectBaseDelay() {
+        return Math.max(1, config.getInt("mcp.client.reconnect_base_delay", 5));
+    }
+
+    public int getMcpClientStartupDeadline() {
+        return Math.max(1, config.getInt("mcp.client.startup_deadline", 15));
+    }
+
+    public int getMcpClientHealthCheckInterval() {
+        return Math.max(0, config.getInt("mcp.client.health_check_interval", 30));
+    }
+
     public List<Map<?, ?>> getMcpClientServers() {
         List<?> list = config.getList("mcp.client.servers");
         if (list == null) return null;
@@ -907,6 +1185,14 @@ public class ConfigManager {
         return configLoadError;
     }
 
+    /**
+     * 获取配置代数：每次成功重载 config.yml 后变化
+     * @return 配置代数
+     */
+    public int getConfigGeneration() {
+        return configGeneration;
+    }
+
     public void save() {
         try {
             config.save(new File(plugin.getDataFolder(), "config.yml"));
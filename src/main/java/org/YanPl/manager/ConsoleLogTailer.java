@@ -0,0 +1,240 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 控制台日志跟随器：常驻线程按偏移增量读取 logs/latest.log（识别日志轮转），
+ * 在内存环形缓冲中保留最近的日志行，并为 "xxx issued server command: /..." 行建立索引。
+ * #run 的控制台兜底反馈由此直接查表，不再每条命令都读文件。
+ * <p>
+ * 同一命令重复执行时索引只保留最近一次：派发命令前用 {@link #mark()} 记下当时已读入的行序号，
+ * 查表时只接受此后读入的标记行，避免拿到上一次执行的输出。mark 与查表都只访问内存，不读文件；
+ * 跟随线程最多落后一个轮询间隔，#run 查不到时隔几 tick 再查一次即可覆盖。
+ */
+public class ConsoleLogTailer {
+    private static final String COMMAND_MARKER = " issued server command: ";
+    /** 环形缓冲保留的行数 */
+    private static final int RING_CAPACITY = 4096;
+    /** 轮询间隔 */
+    private static final long POLL_INTERVAL_MS = 200;
+    /** 单次轮询最多读取的字节数，落后太多时直接跳到末尾附近 */
+    private static final int MAX_READ_BYTES = 1024 * 1024;
+    /** 标记行之后最多带出的日志行数（交给 extractConsoleFeedback 过滤） */
+    private static final int FEEDBACK_WINDOW = 20;
+
+    private final FancyHelper plugin;
+    private final File logFile;
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private Thread tailThread;
+
+    /** 环形缓冲：seq 为全局行序号，位置 = seq % RING_CAPACITY */
+    private final String[] ring = new String[RING_CAPACITY];
+    private long nextSeq;
+    /** "玩家 issued server command: /命令" → 最近一次出现的行序号 */
+    private final Map<String, Long> commandIndex = new HashMap<>();
+
+    // 以下字段仅由跟随线程访问
+    private long offset = -1;
+    private Object fileIdentity;
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+    private boolean skipPartialLine;
+
+    public ConsoleLogTailer(FancyHelper plugin) {
+        this(plugin, new File("logs", "latest.log"));
+    }
+
+    ConsoleLogTailer(FancyHelper plugin, File logFile) {
+        this.plugin = plugin;
+        this.logFile = logFile;
+    }
+
+    public void start() {
+        tailThread = new Thread(() -> {
+            while (running.get()) {
+                try {
+                    poll();
+                } catch (IOException e) {
+                    if (plugin.getConfigManager() != null && plugin.getConfigManager().isDebug()) {
+                        plugin.getLogger().warning("[CLI] 控制台日志跟随读取失败: " + e.getMessage());
+                    }
+                }
+                try {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }, "FancyHelper-LogTailer");
+        tailThread.setDaemon(true);
+        tailThread.start();
+    }
+
+    /**
+     * 读取自上次偏移以来新增的内容。首次调用只定位到文件末尾，不回放历史日志。
+     */
+    void poll() throws IOException {
+        if (!logFile.isFile()) {
+            return;
+        }
+        BasicFileAttributes attrs = Files.readAttributes(logFile.toPath(), BasicFileAttributes.class);
+        Object identity = attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+        long size = attrs.size();
+
+        if (offset < 0) {
+            offset = size;
+            fileIdentity = identity;
+            return;
+        }
+        // 轮转（新文件）或被截断：从头开始读
+        if (!Objects.equals(identity, fileIdentity) || size < offset) {
+            fileIdentity = identity;
+            offset = 0;
+            partial.reset();
+            skipPartialLine = false;
+        }
+        if (size == offset) {
+            return;
+        }
+        if (size - offset > MAX_READ_BYTES) {
+            offset = size - MAX_READ_BYTES;
+            // 从行中间开始读，丢弃第一段残行
+            partial.reset();
+            skipPartialLine = true;
+        }
+
+        byte[] chunk;
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - offset));
+            long pos = offset;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, pos);
+                if (read < 0) break;
+                pos += read;
+            }
+            chunk = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(chunk);
+        }
+        offset += chunk.length;
+        consume(chunk);
+    }
+
+    /**
+     * 按 \n 切出完整行入环；末尾不完整的半行留到下次拼接
+     */
+    void consume(byte[] chunk) {
+        List<String> lines = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < chunk.length; i++) {
+            if (chunk[i] != '\n') continue;
+            partial.write(chunk, lineStart, i - lineStart);
+            byte[] raw = partial.toByteArray();
+            partial.reset();
+            int length = raw.length > 0 && raw[raw.length - 1] == '\r' ? raw.length - 1 : raw.length;
+            if (skipPartialLine) {
+                skipPartialLine = false;
+            } else {
+                lines.add(new String(raw, 0, length, StandardCharsets.UTF_8));
+            }
+            lineStart = i + 1;
+        }
+        partial.write(chunk, lineStart, chunk.length - lineStart);
+        // 没有换行的超长内容不再累积
+        if (partial.size() > MAX_READ_BYTES) {
+            partial.reset();
+            skipPartialLine = true;
+        }
+        if (!lines.isEmpty()) {
+            append(lines);
+        }
+    }
+
+    private synchronized void append(List<String> lines) {
+        for (String line : lines) {
+            long seq = nextSeq++;
+            ring[(int) (seq % RING_CAPACITY)] = line;
+            String key = commandKey(line);
+            if (key != null) {
+                commandIndex.put(key, seq);
+            }
+        }
+        // 清理已滑出环形缓冲的索引项
+        if (commandIndex.size() > RING_CAPACITY) {
+            long oldest = nextSeq - RING_CAPACITY;
+            Iterator<Long> it = commandIndex.values().iterator();
+            while (it.hasNext()) {
+                if (it.next() < oldest) it.remove();
+            }
+        }
+    }
+
+    /**
+     * 返回下一条读入的日志行的序号（不读文件）。应在派发命令之前调用，
+     * 结果传给 {@link #findCommandFeedback(String, String, long)}。
+     */
+    public synchronized long mark() {
+        return nextSeq;
+    }
+
+    /**
+     * 查找 mark 之后玩家执行该命令的控制台反馈（只查已读入的内容），标记行早于 mark（上一次执行）时返回空串
+     */
+    public String findCommandFeedback(String playerName, String command, long sinceSeq) {
+        return lookup(playerName, command, sinceSeq);
+    }
+
+    /**
+     * 查找玩家最近一次执行该命令后的控制台反馈（只查已读入的内容），找不到返回空串
+     */
+    public String findCommandFeedback(String playerName, String command) {
+        return lookup(playerName, command, Long.MIN_VALUE);
+    }
+
+    private synchronized String lookup(String playerName, String command, long sinceSeq) {
+        if (playerName == null || command == null) return "";
+        String normalized = command.startsWith("/") ? command.substring(1) : command;
+        Long seq = commandIndex.get(playerName + COMMAND_MARKER + "/" + normalized);
+        if (seq == null || seq < sinceSeq || seq < nextSeq - RING_CAPACITY) {
+            return "";
+        }
+        List<String> window = new ArrayList<>();
+        for (long s = seq; s < nextSeq && window.size() <= FEEDBACK_WINDOW; s++) {
+            window.add(ring[(int) (s % RING_CAPACITY)]);
+        }
+        return ToolExecutor.extractConsoleFeedback(window, playerName, command);
+    }
+
+    /**
+     * 从 "[时间 级别]: 玩家 issued server command: /命令" 中提取 "玩家 issued server command: /命令"
+     */
+    static String commandKey(String line) {
+        int idx = line.indexOf(COMMAND_MARKER);
+        if (idx <= 0) return null;
+        int nameStart = line.lastIndexOf(' ', idx - 1) + 1;
+        return line.substring(nameStart).trim();
+    }
+
+    public void shutdown() {
+        running.set(false);
+        if (tailThread != null) {
+            tailThread.interrupt();
+        }
+    }
+}
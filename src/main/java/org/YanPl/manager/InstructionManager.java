@@ -1,32 +1,44 @@
 package org.YanPl.manager;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
 import org.YanPl.FancyHelper;
+import org.YanPl.model.DialogueSession;
 import org.YanPl.util.I18n;
+import org.YanPl.util.OperationJournal;
 import org.bukkit.entity.Player;
 
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 玩家级偏好记忆管理器：每玩家一个快照文件 + 操作日志，变更只追加日志，由后台写线程批量落盘。
+ * 提示词片段按玩家缓存，仅在增删改清时失效；长时间未访问的玩家会被逐出内存。
+ */
 public class InstructionManager {
+    /** 玩家记忆在内存中的闲置保留时长 */
+    private static final long IDLE_EVICT_MS = 30 * 60 * 1000L;
+    /** 闲置清理的最小间隔 */
+    private static final long SWEEP_INTERVAL_MS = 60 * 1000L;
+    /** 无记忆玩家的占位片段，避免反复读盘 */
+    private static final PromptFragment EMPTY_FRAGMENT = new PromptFragment(null, 0);
+
     private final FancyHelper plugin;
     private final File instructionDir;
-    private final Gson gson;
     private final Map<UUID, List<PlayerInstruction>> cache;
-    private static final Type LIST_TYPE = new TypeToken<List<PlayerInstruction>>(){}.getType();
+    private final Map<UUID, OperationJournal<PlayerInstruction>> journals;
+    private final Map<UUID, PromptFragment> promptCache;
+    private final Map<UUID, Long> lastAccess;
+    private final ScheduledExecutorService journalWriter;
+    private long lastSweep;
 
     public static class PlayerInstruction {
         private String content;
@@ -44,20 +56,43 @@ public class InstructionManager {
         public String getCategory() { return category; }
     }
 
+    /**
+     * 已渲染的提示词片段及其 token 数
+     */
+    public static class PromptFragment {
+        private final String text;
+        private final int tokens;
+
+        PromptFragment(String text, int tokens) {
+            this.text = text;
+            this.tokens = tokens;
+        }
+
+        public String getText() { return text; }
+        public int getTokens() { return tokens; }
+    }
+
     public InstructionManager(FancyHelper plugin) {
         this.plugin = plugin;
         this.instructionDir = new File(plugin.getDataFolder(), "instruction");
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
         this.cache = new ConcurrentHashMap<>();
-        
+        this.journals = new ConcurrentHashMap<>();
+        this.promptCache = new ConcurrentHashMap<>();
+        this.lastAccess = new ConcurrentHashMap<>();
+        this.journalWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "FancyHelper-InstructionJournal");
+            t.setDaemon(true);
+            return t;
+        });
+
         if (!instructionDir.exists()) {
             instructionDir.mkdirs();
         }
     }
 
-    public String addInstruction(Player player, String content, String category) {
+    public synchronized String addInstruction(Player player, String content, String category) {
         UUID uuid = player.getUniqueId();
-        List<PlayerInstruction> instructions = getInstructions(uuid);
+        List<PlayerInstruction> instructions = loadedInstructions(uuid);
         
         if (instructions.size() >= 50) {
             return "error: " + I18n.t("inst.error.max");
@@ -65,7 +100,8 @@ public class InstructionManager {
         
         PlayerInstruction instruction = new PlayerInstruction(content, category);
         instructions.add(instruction);
-        saveInstructions(uuid, instructions);
+        getJournal(uuid).recordAdd(instruction);
+        promptCache.remove(uuid);
         
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[Instruction] 玩家 " + player.getName() + " 添加了新记忆: " + content);
@@ -73,16 +109,17 @@ public class InstructionManager {
         return "success: 已记住: " + content;
     }
 
-    public String removeInstruction(Player player, int index) {
+    public synchronized String removeInstruction(Player player, int index) {
         UUID uuid = player.getUniqueId();
-        List<PlayerInstruction> instructions = getInstructions(uuid);
+        List<PlayerInstruction> instructions = loadedInstructions(uuid);
         
         if (index < 1 || index > instructions.size()) {
             return "error: " + I18n.t("inst.error.invalid.index", instructions.size());
         }
         
         PlayerInstruction removed = instructions.remove(index - 1);
-        saveInstructions(uuid, instructions);
+        getJournal(uuid).recordRemove(index - 1);
+        promptCache.remove(uuid);
         
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[Instruction] 玩家 " + player.getName() + " 删除了记忆: " + removed.getContent());
@@ -90,9 +127,9 @@ public class InstructionManager {
         return "success: 已删除第 " + index + " 条记忆: " + removed.getContent();
     }
 
-    public String updateInstruction(Player player, int index, String content, String category) {
+    public synchronized String updateInstruction(Player player, int index, String content, String category) {
         UUID uuid = player.getUniqueId();
-        List<PlayerInstruction> instructions = getInstructions(uuid);
+        List<PlayerInstruction> instructions = loadedInstructions(uuid);
         
         if (index < 1 || index > instructions.size()) {
             return "error: " + I18n.t("inst.error.invalid.index", instructions.size());
@@ -104,7 +141,8 @@ public class InstructionManager {
         
         PlayerInstruction updated = new PlayerInstruction(content.trim(), category);
         instructions.set(index - 1, updated);
-        saveInstructions(uuid, instructions);
+        getJournal(uuid).recordSet(index - 1, updated);
+        promptCache.remove(uuid);
         
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[Instruction] 玩家 " + player.getName() + " 修改了第 " + index + " 条记忆: " + content);
@@ -114,12 +152,15 @@ public class InstructionManager {
 
     public String clearInstructions(Player player) {
         UUID uuid = player.getUniqueId();
-        cache.remove(uuid);
-        
-        File file = getInstructionFile(uuid);
-        if (file.exists()) {
-            file.delete();
+        OperationJournal<PlayerInstruction> journal;
+        synchronized (this) {
+            loadedInstructions(uuid).clear();
+            journal = getJournal(uuid);
+            journal.recordClear();
+            promptCache.remove(uuid);
         }
+        // 空列表压缩时会删除该玩家的快照与日志文件
+        journal.compact();
         
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[Instruction] 玩家 " + player.getName() + " 清空了所有记忆");
@@ -144,43 +185,91 @@ public class InstructionManager {
         return sb.toString().trim();
     }
 
-    public List<PlayerInstruction> getInstructions(UUID uuid) {
-        if (cache.containsKey(uuid)) {
-            return new ArrayList<>(cache.get(uuid));
+    public synchronized List<PlayerInstruction> getInstructions(UUID uuid) {
+        return new ArrayList<>(loadedInstructions(uuid));
+    }
+
+    /**
+     * 返回缓存中的可变列表（首次访问时从快照 + 操作日志恢复），调用方需持有 this 锁
+     */
+    private List<PlayerInstruction> loadedInstructions(UUID uuid) {
+        long now = System.currentTimeMillis();
+        lastAccess.put(uuid, now);
+        evictIdle(now);
+        List<PlayerInstruction> instructions = cache.get(uuid);
+        if (instructions == null) {
+            instructions = new ArrayList<>(getJournal(uuid).load());
+            cache.put(uuid, instructions);
         }
-        
-        File file = getInstructionFile(uuid);
-        if (!file.exists()) {
-            return new ArrayList<>();
+        return instructions;
+    }
+
+    /**
+     * 逐出长时间未访问的玩家（仅当其操作日志已全部落盘，包括写线程正在写的批次），调用方需持有 this 锁
+     */
+    private void evictIdle(long now) {
+        if (now - lastSweep < SWEEP_INTERVAL_MS) {
+            return;
         }
-        
-        try {
-            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
-            List<PlayerInstruction> instructions = gson.fromJson(json, LIST_TYPE);
-            if (instructions == null) {
-                instructions = new ArrayList<>();
+        lastSweep = now;
+        Iterator<Map.Entry<UUID, Long>> it = lastAccess.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, Long> entry = it.next();
+            if (now - entry.getValue() < IDLE_EVICT_MS) {
+                continue;
+            }
+            UUID uuid = entry.getKey();
+            OperationJournal<PlayerInstruction> journal = journals.get(uuid);
+            if (journal != null && journal.hasPending()) {
+                continue;
             }
-            cache.put(uuid, new ArrayList<>(instructions));
-            return new ArrayList<>(instructions);
-        } catch (IOException | JsonSyntaxException e) {
-            plugin.getLogger().warning("[Instruction] 读取玩家 " + uuid + " 的记忆失败: " + e.getMessage());
-            return new ArrayList<>();
+            it.remove();
+            cache.remove(uuid);
+            journals.remove(uuid);
+            promptCache.remove(uuid);
         }
     }
 
+    private OperationJournal<PlayerInstruction> getJournal(UUID uuid) {
+        return journals.computeIfAbsent(uuid, id -> new OperationJournal<>(getInstructionFile(id),
+                PlayerInstruction.class, journalWriter, this,
+                () -> cache.getOrDefault(id, new ArrayList<>()), null, plugin.getLogger(), "Instruction"));
+    }
+
     public String getInstructionsAsPrompt(UUID uuid) {
-        List<PlayerInstruction> instructions = getInstructions(uuid);
-        if (instructions.isEmpty()) {
-            return null;
+        return getPromptFragment(uuid).getText();
+    }
+
+    /**
+     * 玩家偏好片段的 token 数（无记忆时为 0）
+     */
+    public int getInstructionsPromptTokens(UUID uuid) {
+        return getPromptFragment(uuid).getTokens();
+    }
+
+    /**
+     * 获取缓存的提示词片段，未命中时重新渲染（含玩家名解析与 token 计数）
+     */
+    public synchronized PromptFragment getPromptFragment(UUID uuid) {
+        List<PlayerInstruction> instructions = loadedInstructions(uuid);
+        PromptFragment cached = promptCache.get(uuid);
+        if (cached != null) {
+            return cached;
         }
-        
+        PromptFragment fragment = instructions.isEmpty() ? EMPTY_FRAGMENT : renderFragment(uuid, instructions);
+        promptCache.put(uuid, fragment);
+        return fragment;
+    }
+
+    private PromptFragment renderFragment(UUID uuid, List<PlayerInstruction> instructions) {
         StringBuilder sb = new StringBuilder();
         sb.append("以下是玩家 ").append(getPlayerName(uuid)).append(" 的偏好和记忆，请在对话中参考这些信息。\n");
         sb.append("注意：如果记忆之间存在冲突，以列表中靠后的（较新的）记忆为准。\n");
         for (PlayerInstruction inst : instructions) {
             sb.append("- [").append(inst.getCategory()).append("] ").append(inst.getContent()).append("\n");
         }
-        return sb.toString().trim();
+        String text = sb.toString().trim();
+        return new PromptFragment(text, DialogueSession.calculateTokens(text));
     }
 
     private String getPlayerName(UUID uuid) {
@@ -188,23 +277,32 @@ public class InstructionManager {
         return offlinePlayer.getName() != null ? offlinePlayer.getName() : uuid.toString().substring(0, 8);
     }
 
-    private void saveInstructions(UUID uuid, List<PlayerInstruction> instructions) {
-        cache.put(uuid, new ArrayList<>(instructions));
-        
-        File file = getInstructionFile(uuid);
-        try {
-            String json = gson.toJson(instructions);
-            Files.write(file.toPath(), json.getBytes(StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            plugin.getLogger().warning("[Instruction] 保存玩家 " + uuid + " 的记忆失败: " + e.getMessage());
-        }
-    }
-
     private File getInstructionFile(UUID uuid) {
         return new File(instructionDir, uuid.toString() + ".json");
     }
 
+    /**
+     * 同步等待所有玩家排队中的操作写入日志
+     */
+    public void flush() {
+        for (OperationJournal<PlayerInstruction> journal : journals.values()) {
+            journal.flush();
+        }
+    }
+
     public void shutdown() {
-        cache.clear();
+        flush();
+        journalWriter.shutdown();
+        try {
+            journalWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            cache.clear();
+            journals.clear();
+            promptCache.clear();
+            lastAccess.clear();
+        }
     }
 }
@@ -2,11 +2,13 @@ package org.YanPl.manager;
 
 import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.chat.ComponentSerializer;
 import org.YanPl.FancyHelper;
 import org.YanPl.util.ColorUtil;
@@ -18,12 +20,54 @@ import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 数据包捕获管理器，使用 ProtocolLib 拦截发送给玩家的系统消息
+ * <p>
+ * 监听器对所有玩家的聊天 / 动作栏 / 标题数据包都会触发，所以按开销从低到高逐级放行：
+ * 没有任何捕获时直接返回 → 该玩家不在捕获中直接返回 → 才解析数据包文本并过滤。
+ * FancyHelper 自己的状态栏动画通过 {@link #sendOwnActionBar} / {@link #sendOwnSubtitle} 发送，
+ * 不经过监听器，无需再靠文本匹配排除。
  */
 public class PacketCaptureManager {
+    /** 单次捕获最多保留的字符数 */
+    private static final int MAX_CAPTURE_CHARS = 16 * 1024;
+    /** 单次捕获最多保留的消息条数 */
+    private static final int MAX_CAPTURE_LINES = 200;
+
     private final FancyHelper plugin;
-    private final Map<UUID, StringBuilder> captureBuffers = new ConcurrentHashMap<>();
+    private final Map<UUID, Capture> captureBuffers = new ConcurrentHashMap<>();
+    /** 是否有任何玩家正在捕获，监听器据此在触碰数据包之前快速返回 */
+    private volatile boolean anyCapturing = false;
     private boolean enabled = false;
 
+    /**
+     * 一次捕获的缓冲，超出上限后只计数不再追加
+     */
+    private static final class Capture {
+        final StringBuilder buffer = new StringBuilder();
+        final Runnable onOutput;
+        int lines;
+        boolean truncated;
+
+        Capture(Runnable onOutput) {
+            this.onOutput = onOutput;
+        }
+
+        synchronized void append(String message) {
+            if (truncated) return;
+            if (lines >= MAX_CAPTURE_LINES || buffer.length() + message.length() > MAX_CAPTURE_CHARS) {
+                buffer.append("\n... (输出过多，已截断)");
+                truncated = true;
+                return;
+            }
+            if (buffer.length() > 0) buffer.append("\n");
+            buffer.append(message);
+            lines++;
+        }
+
+        synchronized String content() {
+            return buffer.toString();
+        }
+    }
+
     /**
      * 初始化数据包捕获管理器
      *
@@ -53,50 +97,70 @@ public class PacketCaptureManager {
                     PacketType.Play.Server.SET_SUBTITLE_TEXT) {
                 @Override
                 public void onPacketSending(PacketEvent event) {
+                    if (!anyCapturing) return;
                     Player player = event.getPlayer();
                     if (player == null) return;
 
-                    UUID uuid = player.getUniqueId();
-                    if (captureBuffers.containsKey(uuid)) {
-                        String message = extractMessage(event.getPacket());
-                        if (message != null && !message.isEmpty()) {
-                            // 用 stripToPlainText 去除 [marker] 和 § 码后再过滤
-                            String stripped = ColorUtil.stripToPlainText(message).trim();
-                            if (stripped.isEmpty() ||
-                                stripped.startsWith("⇒") ||
-                                stripped.startsWith("◇") ||
-                                stripped.startsWith("◆") ||
-                                stripped.contains("FancyHelper") ||
-                                stripped.equals("....") ||
-                                stripped.equals("...") ||
-                                stripped.equals("- ✓ -") ||
-                                stripped.equals("- ✕ -") ||
-                                stripped.equals("- ERROR -") ||
-                                stripped.equals("正在征求您的许可...") ||
-                                stripped.equals("正在征求您的意见...") ||
-                                stripped.matches("^- 思考中 \\d+s -$")) {
-                                return;
-                            }
-
-                            // 过滤掉明显的玩家聊天消息
-                            if (stripped.matches("^<[^>]+>.*") ||
-                                stripped.matches("^\\[.*\\]\\s*<[^>]+>.*") ||
-                                stripped.matches("^\\* [^ ]+ .*")) {
-                                return;
-                            }
-
-                            StringBuilder buffer = captureBuffers.get(uuid);
-                            synchronized (buffer) {
-                                if (buffer.length() > 0) buffer.append("\n");
-                                buffer.append(message);
-                            }
-                        }
+                    Capture capture = captureBuffers.get(player.getUniqueId());
+                    if (capture == null) return;
+
+                    String message = extractMessage(event.getPacket());
+                    if (message == null || message.isEmpty()) return;
+                    // 用 stripToPlainText 去除 [marker] 和 § 码后再过滤
+                    if (!CaptureFilter.isCommandOutput(ColorUtil.stripToPlainText(message).trim())) return;
+
+                    capture.append(message);
+                    if (capture.onOutput != null) {
+                        capture.onOutput.run();
                     }
                 }
             }
         );
     }
 
+    /**
+     * 发送 FancyHelper 自己的动作栏消息，不经过数据包监听器（不会被捕获，也不消耗过滤开销）
+     *
+     * @return 发送成功返回 true；失败时调用方应回退到 Bukkit API
+     */
+    public boolean sendOwnActionBar(Player player, BaseComponent... components) {
+        if (!enabled) return false;
+        try {
+            PacketContainer packet = new PacketContainer(PacketType.Play.Server.SET_ACTION_BAR_TEXT);
+            packet.getChatComponents().write(0, WrappedChatComponent.fromJson(ComponentSerializer.toString(components)));
+            ProtocolLibrary.getProtocolManager().sendServerPacket(player, packet, false);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 发送 FancyHelper 自己的副标题（空主标题，0/20/0 tick），不经过数据包监听器
+     *
+     * @return 发送成功返回 true；失败时调用方应回退到 Bukkit API
+     */
+    public boolean sendOwnSubtitle(Player player, String legacySubtitle, int fadeIn, int stay, int fadeOut) {
+        if (!enabled) return false;
+        try {
+            PacketContainer times = new PacketContainer(PacketType.Play.Server.SET_TITLES_ANIMATION);
+            times.getIntegers().write(0, fadeIn).write(1, stay).write(2, fadeOut);
+            PacketContainer subtitle = new PacketContainer(PacketType.Play.Server.SET_SUBTITLE_TEXT);
+            subtitle.getChatComponents().write(0, WrappedChatComponent.fromJson(
+                    ComponentSerializer.toString(TextComponent.fromLegacyText(legacySubtitle))));
+            PacketContainer title = new PacketContainer(PacketType.Play.Server.SET_TITLE_TEXT);
+            title.getChatComponents().write(0, WrappedChatComponent.fromText(""));
+
+            ProtocolManager manager = ProtocolLibrary.getProtocolManager();
+            manager.sendServerPacket(player, times, false);
+            manager.sendServerPacket(player, subtitle, false);
+            manager.sendServerPacket(player, title, false);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * 从数据包中提取文本消息，颜色信息转为 AI 可读格式。
      * <p>
@@ -161,17 +225,26 @@ public class PacketCaptureManager {
      * 开始为指定玩家捕获数据包
      */
     public void startCapture(Player player) {
+        startCapture(player, null);
+    }
+
+    /**
+     * 开始为指定玩家捕获数据包，每捕获到一条输出就调用 onOutput
+     */
+    public synchronized void startCapture(Player player, Runnable onOutput) {
         if (!enabled) return;
-        captureBuffers.put(player.getUniqueId(), new StringBuilder());
+        captureBuffers.put(player.getUniqueId(), new Capture(onOutput));
+        anyCapturing = true;
     }
 
     /**
      * 停止为指定玩家捕获数据包并返回捕获的内容
      */
-    public String stopCapture(Player player) {
+    public synchronized String stopCapture(Player player) {
         if (!enabled) return "";
-        StringBuilder sb = captureBuffers.remove(player.getUniqueId());
-        return sb != null ? sb.toString() : "";
+        Capture capture = captureBuffers.remove(player.getUniqueId());
+        anyCapturing = !captureBuffers.isEmpty();
+        return capture != null ? capture.content() : "";
     }
 
     /**
@@ -186,7 +259,7 @@ public class PacketCaptureManager {
      */
     public String peekCapture(Player player) {
         if (!enabled) return "";
-        StringBuilder sb = captureBuffers.get(player.getUniqueId());
-        return sb != null ? sb.toString() : "";
+        Capture capture = captureBuffers.get(player.getUniqueId());
+        return capture != null ? capture.content() : "";
     }
 }
@@ -3,6 +3,7 @@ package org.YanPl.manager;
 import org.YanPl.FancyHelper;
 import org.YanPl.model.Skill;
 import org.YanPl.util.I18n;
+import org.YanPl.util.TurnEvents;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -97,7 +98,13 @@ public class PromptManager {
         sb.append("[Core Constraints] (Violations cause parsing failures — follow strictly)\n\n");
 
         sb.append("1. [Single Tool Call] Each response may contain ONLY ONE tool call.\n");
-        sb.append("   - For multiple operations: complete the first call, wait for result, then proceed.\n\n");
+        sb.append("   - For multiple operations: complete the first call, wait for result, then proceed.\n");
+        if (plugin.getConfigManager().isParallelToolsEnabled()) {
+            sb.append("   - Exception: read-only tools (#list, #read, #search, #webfetch, #skill, #mcp_tools, #mcp_page, #mcp) may be batched,\n");
+            sb.append("     one per line, up to ").append(plugin.getConfigManager().getParallelToolsMaxCalls())
+                    .append(". They run in parallel and return one combined result. Never mix them with other tools.\n");
+        }
+        sb.append("\n");
 
         sb.append("2. [Single Command] #run executes ONE command per call. Chaining with && or ; is prohibited.\n\n");
 
@@ -122,7 +129,7 @@ public class PromptManager {
         sb.append("  #ask: <json>         - Present choices to player. ONE question per call.\n");
         sb.append("    Fields: question (required), header (max 12 chars), options[] (2-4, each: label + description), otherLabel (optional free-input).\n");
         sb.append("    Example: #ask: {\"question\":\"Which database?\",\"options\":[{\"label\":\"MySQL\",\"description\":\"Relational\"},{\"label\":\"MongoDB\",\"description\":\"NoSQL\"}]}\n");
-        sb.append("  #webfetch: <url>      - Fetch and parse a web page.\n\n");
+        sb.append("  #webfetch: <url> [n]  - Fetch and parse a web page. Long pages are split; add page number n to read more.\n\n");
 
         sb.append("[Execution]\n");
         sb.append("  #run: <command>  - Execute ONE Minecraft in-game command. Never use for system/shell commands.\n");
@@ -176,7 +183,8 @@ public class PromptManager {
             sb.append("  #mcp_tools                         - List all MCP external tools and their enable/disable status.\n");
             sb.append("  #mcp: serverName.toolName|jsonArgs - Call an external MCP tool.\n");
             sb.append("    Format: #mcp: server.tool|{\"arg1\":\"value1\"}\n");
-            sb.append("    Always use #mcp_tools first to check available tools and their status.\n\n");
+            sb.append("    Always use #mcp_tools first to check available tools and their status.\n");
+            sb.append("  #mcp_page: handle|offset           - Read more of a large #mcp result that was stored as a handle (e.g. r1).\n\n");
         }
 
         // ==================== Usage Guide / 使用指南 ====================
@@ -206,10 +214,13 @@ public class PromptManager {
         }
 
         // ==================== Player Preferences / 玩家偏好 ====================
-        String instructions = plugin.getInstructionManager().getInstructionsAsPrompt(player.getUniqueId());
-        if (instructions != null && !instructions.isEmpty()) {
+        InstructionManager.PromptFragment instructions = plugin.getInstructionManager().getPromptFragment(player.getUniqueId());
+        if (instructions.getText() != null && !instructions.getText().isEmpty()) {
             sb.append("[Player Preferences]\n");
-            sb.append(instructions).append("\n\n");
+            sb.append(instructions.getText()).append("\n\n");
+            if (plugin.getConfigManager().isDebug()) {
+                plugin.getLogger().info("[Prompt] 玩家偏好片段: " + instructions.getTokens() + " tokens");
+            }
         }
 
         // ==================== Server Memory / 服务器级记忆 ====================
@@ -333,19 +344,40 @@ public class PromptManager {
      * 根据会话模式获取对应的系统提示词
      */
     public String getSystemPromptForSession(org.bukkit.entity.Player player, List<Skill> loadedSkills,
-                                             org.YanPl.model.DialogueSession.Mode mode) {
-        return getSystemPromptForSession(player, loadedSkills, mode, "");
+                                             org.YanPl.model.DialogueSession session) {
+        return getSystemPromptForSession(player, loadedSkills, session, "");
     }
 
     /**
      * 根据会话模式获取对应的系统提示词（带当前玩家消息，用于服务器记忆相关性筛选）
+     *
+     * @param session 当前会话，为 null 时按普通模式构建
      */
     public String getSystemPromptForSession(org.bukkit.entity.Player player, List<Skill> loadedSkills,
-                                             org.YanPl.model.DialogueSession.Mode mode, String currentMessage) {
-        if (mode == org.YanPl.model.DialogueSession.Mode.PLAN) {
-            return getPlanModeSystemPrompt(player);
+                                             org.YanPl.model.DialogueSession session, String currentMessage) {
+        org.YanPl.model.DialogueSession.Mode mode = session != null ? session.getMode() : null;
+        long start = System.nanoTime();
+        TurnEvents.PromptBuild event = new TurnEvents.PromptBuild();
+        event.begin();
+        String prompt = null;
+        try {
+            if (mode == org.YanPl.model.DialogueSession.Mode.PLAN) {
+                prompt = getPlanModeSystemPrompt(player);
+            } else {
+                prompt = getBaseSystemPrompt(player, loadedSkills, currentMessage);
+            }
+            return prompt;
+        } finally {
+            plugin.getStatsManager().recordStage(StatsManager.Stage.PROMPT_BUILD, start);
+            if (event.shouldCommit()) {
+                event.player = player != null ? player.getName() : null;
+                event.sessionId = session != null ? session.getSessionUUID() : null;
+                event.mode = mode != null ? mode.name() : null;
+                event.skills = loadedSkills != null ? loadedSkills.size() : 0;
+                event.promptChars = prompt != null ? prompt.length() : 0;
+                event.commit();
+            }
         }
-        return getBaseSystemPrompt(player, loadedSkills, currentMessage);
     }
 
     /**
@@ -394,7 +426,7 @@ public class PromptManager {
         sb.append("  #search: <args>      - Internet/Wiki search.\n");
         sb.append("  #skill: <id>         - Load Skill knowledge module.\n");
         sb.append("  #unloadskill: <id>   - Unload a loaded Skill.\n");
-        sb.append("  #webfetch: <url>      - Fetch and parse a web page.\n");
+        sb.append("  #webfetch: <url> [n]  - Fetch and parse a web page. Long pages are split; add page number n to read more.\n");
         sb.append("  #ask: <json>         - Ask player a question.\n");
         sb.append("    Fields: question (required), header (max 12 chars), options[] (2-4, each: label + description).\n\n");
 
@@ -5,11 +5,40 @@ import org.YanPl.api.LLMClient;
 import org.YanPl.model.AIResponse;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * SMART 模式风险评估。分两层：
+ * 先由 {@link RiskPreClassifier} 本地判定风险命令和只读查询，
+ * 再按命令模板（数字按位数分桶、区域按体积分桶）查评估结果缓存，都没有结论时才询问 AI。
+ * 重载配置后本地规则重建、缓存清空。
+ */
 public class RiskAssessmentManager {
     private final FancyHelper plugin;
     private final LLMClient ai;
 
+    private static class CachedVerdict {
+        final RiskAssessment assessment;
+        final long expiresAt;
+
+        CachedVerdict(RiskAssessment assessment, long expiresAt) {
+            this.assessment = assessment;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /** 操作类型 + 命令模板 → 评估结果，按访问顺序淘汰 */
+    private final Map<String, CachedVerdict> verdicts = new LinkedHashMap<>(64, 0.75f, true);
+    private RiskPreClassifier rules;
+    private RiskyCommandMatcher rulesMatcher;
+    private int rulesGeneration = -1;
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong modelCalls = new AtomicLong();
+
     public RiskAssessmentManager(FancyHelper plugin) {
         this.plugin = plugin;
         this.ai = new LLMClient(plugin);
@@ -35,6 +64,48 @@ public class RiskAssessmentManager {
      * @return 风险评估结果
      */
     public RiskAssessment assessRisk(String actionType, String actionContent) {
+        ConfigManager config = plugin.getConfigManager();
+        String key = null;
+        if ("run".equals(actionType)) {
+            RiskPreClassifier current = currentRules();
+            if (config.isSmartLocalRulesEnabled()) {
+                CommandTreeIndex tree = plugin.getWorkspaceIndexer() != null
+                        ? plugin.getWorkspaceIndexer().getCommandTree() : null;
+                RiskAssessment local = current.classify(actionContent, tree != null ? tree::permissionOf : null);
+                if (local != null) {
+                    localHits.incrementAndGet();
+                    if (config.isDebug()) {
+                        plugin.getLogger().info("[Smart] 本地规则判定 " + actionContent + " → " + local.level);
+                    }
+                    return local;
+                }
+            }
+            key = actionType + "|" + RiskPreClassifier.template(actionContent);
+        }
+
+        RiskAssessment cached = key != null ? getCached(key) : null;
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+
+        modelCalls.incrementAndGet();
+        RiskAssessment assessment = assessWithModel(actionType, actionContent);
+        if (assessment == null) {
+            // 评估失败不缓存，下次重新评估
+            return new RiskAssessment(100, "评估失败，默认高风险");
+        }
+        if (key != null) {
+            putCached(key, assessment);
+        }
+        return assessment;
+    }
+
+    /**
+     * 询问 AI 评估风险
+     * @return 评估结果；主模型和压缩模型都失败时返回 null
+     */
+    private RiskAssessment assessWithModel(String actionType, String actionContent) {
         String systemPrompt = "你是一个专门用于评估操作风险的AI助手。请评估Minecraft服务器操作的风险等级。";
         String userPrompt = buildRiskAssessmentPrompt(actionType, actionContent);
         
@@ -50,11 +121,64 @@ public class RiskAssessmentManager {
                 return parseRiskAssessment(fallbackResponse.getContent());
             } catch (IOException fallbackError) {
                 plugin.getLogger().warning("[Smart] 主模型风险评估也失败: " + fallbackError.getMessage());
-                return new RiskAssessment(100, "评估失败，默认高风险");
+                return null;
             }
         }
     }
 
+    /**
+     * 获取当前配置下的本地规则，配置重载后重建规则并清空评估缓存
+     */
+    private synchronized RiskPreClassifier currentRules() {
+        ConfigManager config = plugin.getConfigManager();
+        int generation = config.getConfigGeneration();
+        RiskyCommandMatcher matcher = config.getRiskyCommandMatcher();
+        if (rules == null || generation != rulesGeneration) {
+            verdicts.clear();
+        }
+        if (rules == null || generation != rulesGeneration || matcher != rulesMatcher) {
+            // 命令表刷新只会改变别名，已缓存的评估结果仍然有效
+            rules = new RiskPreClassifier(matcher);
+            rulesMatcher = matcher;
+            rulesGeneration = generation;
+        }
+        return rules;
+    }
+
+    private synchronized RiskAssessment getCached(String key) {
+        CachedVerdict verdict = verdicts.get(key);
+        if (verdict == null) return null;
+        if (verdict.expiresAt <= System.currentTimeMillis()) {
+            verdicts.remove(key);
+            return null;
+        }
+        return verdict.assessment;
+    }
+
+    private synchronized void putCached(String key, RiskAssessment assessment) {
+        ConfigManager config = plugin.getConfigManager();
+        int ttlMinutes = config.getSmartCacheTtlMinutes();
+        if (ttlMinutes <= 0) return;
+        if (rulesGeneration != config.getConfigGeneration()) {
+            // 评估期间配置被重载，这次结果基于旧配置，不再缓存
+            return;
+        }
+        verdicts.put(key, new CachedVerdict(assessment, System.currentTimeMillis() + ttlMinutes * 60_000L));
+        int max = config.getSmartCacheMaxEntries();
+        Iterator<String> it = verdicts.keySet().iterator();
+        while (verdicts.size() > max && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * 获取评估来源计数 {本地规则判定, 缓存命中, 询问 AI}
+     */
+    public long[] getStats() {
+        return new long[]{localHits.get(), cacheHits.get(), modelCalls.get()};
+    }
+
     /**
      * 构建风险评估的提示词
      */
@@ -0,0 +1,312 @@
+package org.YanPl.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * SMART 模式的本地风险预判：只处理一眼就能定性的命令，其余交给 AI 评估。
+ * <ul>
+ *   <li>命中 yolo_risk_commands 的命令（含 execute ... run 包裹的）直接判为高风险</li>
+ *   <li>明确的只读查询（list、time query、data get 等）直接判为低风险</li>
+ * </ul>
+ * 同时提供命令模板化：目标选择器参数和数字被抽象掉，供评估结果缓存作键。
+ */
+final class RiskPreClassifier {
+    static final int RISKY_LEVEL = 90;
+    static final int READ_ONLY_LEVEL = 5;
+
+    /** 任何参数下都只读或只发消息的命令 */
+    private static final Set<String> READ_ONLY_COMMANDS = Set.of(
+            "help", "list", "seed", "me", "say", "msg", "tell", "w", "tellraw", "teammsg", "tm",
+            "version", "ver", "about", "plugins", "pl", "tps", "mspt", "ping", "locate", "locatebiome");
+
+    /** 只读命令对应的权限节点，用来识别插件注册的别名 */
+    private static final Set<String> READ_ONLY_PERMISSIONS = Set.of(
+            "minecraft.command.help", "minecraft.command.list", "minecraft.command.seed", "minecraft.command.me",
+            "minecraft.command.say", "minecraft.command.msg", "minecraft.command.tellraw",
+            "minecraft.command.teammsg", "minecraft.command.locate",
+            "bukkit.command.help", "bukkit.command.plugins", "bukkit.command.version", "bukkit.command.tps");
+
+    /** 前两组坐标围成一个区域的命令，区域体积决定影响范围 */
+    private static final Set<String> REGION_COMMANDS = Set.of("fill", "clone", "fillbiome");
+
+    private final RiskyCommandMatcher riskyCommands;
+
+    /**
+     * @param riskyCommands 编译后的风险命令匹配器（settings.yolo_risk_commands）
+     */
+    RiskPreClassifier(RiskyCommandMatcher riskyCommands) {
+        this.riskyCommands = riskyCommands != null ? riskyCommands : RiskyCommandMatcher.EMPTY;
+    }
+
+    /**
+     * 本地判定一条命令
+     *
+     * @param permissionOf 命令名 → 权限节点（来自命令索引），可为 null
+     * @return 判定结果；无法明确判定时返回 null
+     */
+    RiskAssessmentManager.RiskAssessment classify(String command, Function<String, String> permissionOf) {
+        String risky = riskyCommands.match(command);
+        if (risky != null) {
+            return new RiskAssessmentManager.RiskAssessment(RISKY_LEVEL, "命中风险命令列表: " + risky);
+        }
+
+        List<String> tokens = tokenize(command == null ? "" : command.toLowerCase(Locale.ROOT));
+        if (tokens.isEmpty()) return null;
+
+        boolean stored = false;
+        while (true) {
+            stripSlashAndNamespace(tokens);
+            if (tokens.isEmpty()) return null;
+            if (!tokens.get(0).equals("execute")) break;
+            int run = tokens.indexOf("run");
+            if (run < 0) return null;
+            // execute store 会把子命令的结果写回记分板 / NBT，子命令再只读也不算只读
+            if (tokens.subList(0, run).contains("store")) stored = true;
+            tokens = new ArrayList<>(tokens.subList(run + 1, tokens.size()));
+        }
+
+        if (!stored && isReadOnly(tokens, permissionOf)) {
+            return new RiskAssessmentManager.RiskAssessment(READ_ONLY_LEVEL, "只读查询");
+        }
+        return null;
+    }
+
+    private static boolean isReadOnly(List<String> tokens, Function<String, String> permissionOf) {
+        String name = tokens.get(0);
+        if (READ_ONLY_COMMANDS.contains(name)) return true;
+        if (permissionOf != null) {
+            String permission = permissionOf.apply(name);
+            if (permission != null && READ_ONLY_PERMISSIONS.contains(permission.toLowerCase(Locale.ROOT))) return true;
+        }
+
+        int size = tokens.size();
+        switch (name) {
+            case "time":
+                return size == 3 && tokens.get(1).equals("query");
+            case "data":
+                return size >= 2 && tokens.get(1).equals("get");
+            case "worldborder":
+                return size == 2 && tokens.get(1).equals("get");
+            case "team":
+                return size >= 2 && tokens.get(1).equals("list");
+            case "bossbar":
+                return size >= 2 && (tokens.get(1).equals("list") || tokens.get(1).equals("get"));
+            case "datapack":
+                return size >= 2 && tokens.get(1).equals("list");
+            case "scoreboard":
+                return size >= 3 && (tokens.get(2).equals("list") || tokens.get(2).equals("get"));
+            case "attribute":
+                return size >= 4 && (tokens.get(3).equals("get")
+                        || (size >= 5 && tokens.get(3).equals("base") && tokens.get(4).equals("get")));
+            case "gamerule":
+                return size == 2;
+            case "difficulty":
+                return size == 1;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 把命令抽象成模板：去掉前导 / 与 minecraft: 命名空间，其余按小写保留，只有不影响风险的差异才合并：
+     * <ul>
+     *     <li>数字（含 ~ ^ 相对坐标）按位数分桶，如 64 → #2、~-1 → ~#1</li>
+     *     <li>目标选择器保留全部参数（type、limit、取反等），参数排序后数字同样分桶</li>
+     *     <li>fill / clone 等区域命令的两组坐标替换为区域体积的位数；坐标系不一致算不出体积时原样保留</li>
+     * </ul>
+     * 例如 "give @p[limit=1, distance=..5] minecraft:diamond 64" → "give @p[distance=..#1,limit=1] minecraft:diamond #2"
+     */
+    static String template(String command) {
+        List<String> tokens = tokenize(command == null ? "" : command.toLowerCase(Locale.ROOT));
+        stripSlashAndNamespace(tokens);
+        boolean region = tokens.size() >= 7 && REGION_COMMANDS.contains(tokens.get(0));
+        String volume = region ? regionVolume(tokens, 1) : null;
+        List<String> parts = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            if (region && i >= 1 && i <= 6) {
+                // 体积算不出时坐标原样保留，不与其他区域共用结论
+                if (volume == null) parts.add(tokens.get(i));
+                else if (i == 1) parts.add(volume);
+                continue;
+            }
+            parts.add(abstractToken(tokens.get(i)));
+        }
+        return String.join(" ", parts);
+    }
+
+    private static String abstractToken(String token) {
+        if (token.length() >= 2 && token.charAt(0) == '@') {
+            int bracket = token.indexOf('[');
+            return bracket > 0 ? token.substring(0, bracket) + abstractSelectorArgs(token.substring(bracket)) : token;
+        }
+        int i = 0;
+        String prefix = "";
+        if (token.charAt(0) == '~' || token.charAt(0) == '^') {
+            prefix = token.substring(0, 1);
+            i = 1;
+            if (token.length() == 1) return token;
+        }
+        return isNumber(token, i) ? prefix + bucket(token.substring(i)) : token;
+    }
+
+    /**
+     * 选择器参数：逐项保留键和值（含 ! 取反），数字与范围分桶，按参数排序去掉书写顺序差异
+     */
+    private static String abstractSelectorArgs(String args) {
+        String body = args.endsWith("]") ? args.substring(1, args.length() - 1) : args.substring(1);
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int from = 0;
+        for (int i = 0; i <= body.length(); i++) {
+            char c = i < body.length() ? body.charAt(i) : ',';
+            if (c == '{' || c == '[') depth++;
+            else if (c == '}' || c == ']') depth--;
+            else if (c == ',' && depth <= 0) {
+                String part = body.substring(from, i).trim();
+                if (!part.isEmpty()) parts.add(abstractSelectorArg(part));
+                from = i + 1;
+            }
+        }
+        Collections.sort(parts);
+        return "[" + String.join(",", parts) + "]";
+    }
+
+    private static String abstractSelectorArg(String part) {
+        int eq = part.indexOf('=');
+        if (eq < 0) return part;
+        String key = part.substring(0, eq).trim();
+        String value = part.substring(eq + 1).trim();
+        String negation = value.startsWith("!") ? "!" : "";
+        value = value.substring(negation.length());
+        if (!key.equals("limit")) {
+            if (isNumber(value, 0)) {
+                value = bucket(value);
+            } else {
+                int range = value.indexOf("..");
+                if (range >= 0) {
+                    String low = value.substring(0, range);
+                    String high = value.substring(range + 2);
+                    if ((low.isEmpty() || isNumber(low, 0)) && (high.isEmpty() || isNumber(high, 0))) {
+                        value = (low.isEmpty() ? "" : bucket(low)) + ".." + (high.isEmpty() ? "" : bucket(high));
+                    }
+                }
+            }
+        }
+        return key + "=" + negation + value;
+    }
+
+    /**
+     * 从 start 起的两组坐标算出区域体积并按位数分桶，如 "<区域#3>"；
+     * 两角坐标系不一致（绝对 / ~ / ^ 混用）或不是数字时返回 null
+     */
+    private static String regionVolume(List<String> tokens, int start) {
+        double volume = 1;
+        for (int axis = 0; axis < 3; axis++) {
+            String a = tokens.get(start + axis);
+            String b = tokens.get(start + 3 + axis);
+            char frameA = a.isEmpty() ? 0 : a.charAt(0);
+            char frameB = b.isEmpty() ? 0 : b.charAt(0);
+            boolean relativeA = frameA == '~' || frameA == '^';
+            boolean relativeB = frameB == '~' || frameB == '^';
+            if (relativeA != relativeB || (relativeA && frameA != frameB)) return null;
+            Double from = coordinate(a, relativeA);
+            Double to = coordinate(b, relativeB);
+            if (from == null || to == null) return null;
+            volume *= Math.floor(Math.abs(to - from)) + 1;
+        }
+        return "<区域" + bucket(volume) + ">";
+    }
+
+    private static Double coordinate(String token, boolean relative) {
+        String number = relative ? token.substring(1) : token;
+        if (number.isEmpty()) return relative ? 0.0 : null;
+        return isNumber(number, 0) ? Double.parseDouble(number) : null;
+    }
+
+    private static String bucket(String number) {
+        return bucket(Double.parseDouble(number));
+    }
+
+    /**
+     * 按整数部分的位数分桶：0.5 → #0、7 → #1、64 → #2、1000 → #4
+     */
+    private static String bucket(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude < 1) return "#0";
+        return "#" + (magnitude >= 1e18 ? 19 : String.valueOf((long) magnitude).length());
+    }
+
+    private static boolean isNumber(String token, int start) {
+        int i = start;
+        if (i < token.length() && (token.charAt(i) == '-' || token.charAt(i) == '+')) i++;
+        boolean digits = false;
+        boolean dot = false;
+        for (; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return false;
+            }
+        }
+        return digits;
+    }
+
+    private static void stripSlashAndNamespace(List<String> tokens) {
+        if (tokens.isEmpty()) return;
+        String first = tokens.get(0);
+        while (first.startsWith("/")) first = first.substring(1);
+        if (first.startsWith("minecraft:")) first = first.substring("minecraft:".length());
+        if (first.isEmpty()) {
+            tokens.remove(0);
+        } else {
+            tokens.set(0, first);
+        }
+    }
+
+    /**
+     * 按空白切分，[] {} 与引号内的空白不切分（选择器参数、NBT、JSON 文本）
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && i + 1 < line.length()) {
+                    current.append(c).append(line.charAt(++i));
+                    continue;
+                }
+                if (c == quote) quote = 0;
+                current.append(c);
+                continue;
+            }
+            if ((c == '"' || c == '\'') && (current.length() == 0 || depth > 0)) {
+                // 只有参数开头或 NBT / JSON 内部的引号才算字符串，避免 say don't 这类文本吞掉后续参数
+                quote = c;
+            } else if (c == '[' || c == '{') {
+                depth++;
+            } else if ((c == ']' || c == '}') && depth > 0) {
+                depth--;
+            } else if (Character.isWhitespace(c) && depth == 0) {
+                if (current.length() > 0) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+                continue;
+            }
+            current.append(c);
+        }
+        if (current.length() > 0) tokens.add(current.toString());
+        return tokens;
+    }
+}
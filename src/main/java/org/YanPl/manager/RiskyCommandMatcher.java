@@ -0,0 +1,219 @@
+package org.YanPl.manager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 编译后的风险命令匹配器（settings.yolo_risk_commands）。
+ * <p>
+ * 风险命令在配置加载时编译成按字符展开的前缀树，条目中的空格可匹配任意多个空白。
+ * 匹配时逐字符走树，不创建任何对象，耗时只与命令长度有关：
+ * <ul>
+ *   <li>忽略前导 / 与任意命名空间（minecraft:op、essentials:ban）</li>
+ *   <li>execute ... run 只检查 run 后面的子命令（可多层嵌套）</li>
+ *   <li>同一命令的其它别名（来自服务器命令表）与原命令同样视为风险命令</li>
+ * </ul>
+ */
+public final class RiskyCommandMatcher {
+    /** 嵌套 execute 的最大层数 */
+    private static final int MAX_EXECUTE_DEPTH = 16;
+    private static final String EXECUTE = "execute";
+    private static final String RUN = "run";
+
+    public static final RiskyCommandMatcher EMPTY = new RiskyCommandMatcher();
+
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        /** 在此结束的条目（原始风险命令，已规范化） */
+        String entry;
+
+        Node child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) return existing;
+            int n = keys.length;
+            char[] k = new char[n + 1];
+            Node[] ch = new Node[n + 1];
+            System.arraycopy(keys, 0, k, 0, n);
+            System.arraycopy(children, 0, ch, 0, n);
+            k[n] = c;
+            ch[n] = new Node();
+            keys = k;
+            children = ch;
+            return ch[n];
+        }
+    }
+
+    private final Node root = new Node();
+    private final List<String> entries = new ArrayList<>();
+
+    private RiskyCommandMatcher() {
+    }
+
+    /**
+     * 编译风险命令列表
+     *
+     * @param riskCommands 风险命令前缀，如 "op"、"lp user"
+     * @param aliasGroups  服务器命令表中每个命令的全部标签（主名 + 别名，不含命名空间形式），可为 null
+     */
+    public static RiskyCommandMatcher compile(Collection<String> riskCommands, Collection<? extends Collection<String>> aliasGroups) {
+        RiskyCommandMatcher matcher = new RiskyCommandMatcher();
+        if (riskCommands == null) return matcher;
+        for (String raw : riskCommands) {
+            String entry = normalize(raw);
+            if (entry.isEmpty()) continue;
+            matcher.entries.add(entry);
+            matcher.insert(entry, entry);
+
+            int space = entry.indexOf(' ');
+            String name = space >= 0 ? entry.substring(0, space) : entry;
+            String rest = space >= 0 ? entry.substring(space) : "";
+            if (aliasGroups == null) continue;
+            for (Collection<String> group : aliasGroups) {
+                if (group == null || !containsIgnoreCase(group, name)) continue;
+                for (String alias : group) {
+                    String label = normalize(alias);
+                    if (label.isEmpty() || label.indexOf(' ') >= 0 || label.indexOf(':') >= 0) continue;
+                    matcher.insert(label + rest, entry);
+                }
+            }
+        }
+        return matcher;
+    }
+
+    private void insert(String key, String entry) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+        }
+        if (node.entry == null) node.entry = entry;
+    }
+
+    /**
+     * 规范化条目：小写、去掉前导 / 与命名空间、合并空白
+     */
+    private static String normalize(String raw) {
+        if (raw == null) return "";
+        String s = raw.trim().toLowerCase(Locale.ROOT);
+        while (s.startsWith("/")) s = s.substring(1);
+        String[] parts = s.trim().split("\\s+");
+        if (parts.length == 0 || parts[0].isEmpty()) return "";
+        int colon = parts[0].indexOf(':');
+        if (colon >= 0) parts[0] = parts[0].substring(colon + 1);
+        if (parts[0].isEmpty()) return "";
+        return String.join(" ", parts);
+    }
+
+    private static boolean containsIgnoreCase(Collection<String> group, String name) {
+        for (String label : group) {
+            if (label != null && label.equalsIgnoreCase(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 匹配一条命令
+     *
+     * @return 命中的风险命令条目；未命中返回 null
+     */
+    public String match(String command) {
+        if (command == null || root.keys.length == 0) return null;
+        int end = command.length();
+        int pos = 0;
+        for (int depth = 0; depth < MAX_EXECUTE_DEPTH; depth++) {
+            pos = skipSpaces(command, pos);
+            while (pos < end && command.charAt(pos) == '/') pos++;
+            int tokenEnd = tokenEnd(command, pos);
+            for (int i = pos; i < tokenEnd; i++) {
+                if (command.charAt(i) == ':') {
+                    pos = i + 1;
+                    break;
+                }
+            }
+            if (pos >= tokenEnd) return null;
+
+            if (regionIs(command, pos, tokenEnd, EXECUTE)) {
+                int run = findRun(command, tokenEnd);
+                if (run >= 0) {
+                    pos = run + RUN.length();
+                    continue;
+                }
+            }
+            return walk(command, pos);
+        }
+        return null;
+    }
+
+    public boolean isRisky(String command) {
+        return match(command) != null;
+    }
+
+    /**
+     * 已编译的风险命令条目（不含别名展开）
+     */
+    public List<String> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    private String walk(String command, int pos) {
+        Node node = root;
+        int end = command.length();
+        int i = pos;
+        while (true) {
+            if (i >= end || Character.isWhitespace(command.charAt(i))) {
+                if (node.entry != null) return node.entry;
+                if (i >= end) return null;
+                node = node.child(' ');
+                if (node == null) return null;
+                i = skipSpaces(command, i);
+                if (i >= end) return null;
+                continue;
+            }
+            node = node.child(Character.toLowerCase(command.charAt(i)));
+            if (node == null) return null;
+            i++;
+        }
+    }
+
+    /**
+     * 找到 execute 参数中独立的 run，返回其起始下标
+     */
+    private static int findRun(String command, int from) {
+        int end = command.length();
+        int i = from;
+        while (i < end) {
+            i = skipSpaces(command, i);
+            int tokenEnd = tokenEnd(command, i);
+            if (regionIs(command, i, tokenEnd, RUN)) return i;
+            i = tokenEnd;
+        }
+        return -1;
+    }
+
+    private static boolean regionIs(String command, int start, int end, String word) {
+        return end - start == word.length() && command.regionMatches(true, start, word, 0, word.length());
+    }
+
+    private static int tokenEnd(String command, int start) {
+        int i = start;
+        while (i < command.length() && !Character.isWhitespace(command.charAt(i))) i++;
+        return i;
+    }
+
+    private static int skipSpaces(String command, int pos) {
+        int i = pos;
+        while (i < command.length() && Character.isWhitespace(command.charAt(i))) i++;
+        return i;
+    }
+}
@@ -0,0 +1,571 @@
+package org.YanPl.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.YanPl.FancyHelper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * #search 的统一入口：按 提供商 + 规范化查询 缓存结果，并合并同时发起的相同查询。
+ * <p>
+ * 只有正常结果和"未找到"类结果会被缓存（后者 TTL 较短），出错/未配置类结果一律不缓存。
+ * 缓存可在关服时落盘到 runtime/search_cache.json，重启后继续使用未过期的条目。
+ * <p>
+ * {@link #fanOut} 向多个提供商查询：先查缓存，竞速模式下按偏好顺序逐个对冲启动（前一个未找到、
+ * 超时或超过对冲等待时间后才启动下一个），避免每次搜索都消耗付费服务的额度；合并模式同时查询全部。
+ */
+public class SearchGateway {
+    public static final String WIKI = "wiki";
+    public static final String METASO = "metaso";
+    public static final String TAVILY = "tavily";
+
+    /** 各提供商返回的"没有结果"文本 */
+    private static final List<String> EMPTY_RESULTS = List.of(
+            "未找到相关 Wiki 条目。",
+            "未找到相关搜索结果。",
+            "Metaso 未返回搜索结果。",
+            "Metaso 未返回有效内容。");
+
+    /**
+     * 搜索结果的分类
+     */
+    public enum Verdict {
+        /** 有实际内容 */
+        GOOD,
+        /** 请求成功但没有结果 */
+        EMPTY,
+        /** 出错、未配置或未启用 */
+        ERROR
+    }
+
+    private static class Entry {
+        String value;
+        long expiresAt;
+
+        Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 参与并发查询的一个提供商
+     */
+    public static class ProviderCall {
+        final String provider;
+        final long deadlineMs;
+        final Supplier<String> fetcher;
+
+        /**
+         * @param deadlineMs 最多等待该提供商多久（毫秒），超时视为无结果并取消
+         */
+        public ProviderCall(String provider, long deadlineMs, Supplier<String> fetcher) {
+            this.provider = provider;
+            this.deadlineMs = deadlineMs;
+            this.fetcher = fetcher;
+        }
+    }
+
+    private static class ProviderStats {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    /**
+     * 命中率与各提供商耗时的快照
+     */
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long coalesced;
+        private final long timeouts;
+        private final int entries;
+        private final Map<String, long[]> providerLatency;
+
+        Stats(long hits, long misses, long coalesced, long timeouts, int entries, Map<String, long[]> providerLatency) {
+            this.hits = hits;
+            this.misses = misses;
+            this.coalesced = coalesced;
+            this.timeouts = timeouts;
+            this.entries = entries;
+            this.providerLatency = providerLatency;
+        }
+
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        /** 等待同一查询进行中的请求而未重复发起的次数 */
+        public long getCoalesced() { return coalesced; }
+        /** 并发查询中因超过时限而被放弃的提供商请求数 */
+        public long getTimeouts() { return timeouts; }
+        public int getEntries() { return entries; }
+        /** 提供商 → {请求次数, 平均耗时 ms, 最大耗时 ms} */
+        public Map<String, long[]> getProviderLatency() { return providerLatency; }
+
+        public int getHitRatePercent() {
+            long total = hits + misses + coalesced;
+            return total == 0 ? 0 : (int) ((hits + coalesced) * 100 / total);
+        }
+    }
+
+    private final FancyHelper plugin;
+    private final File cacheFile;
+    private final Gson gson = new GsonBuilder().create();
+
+    /** 规范化键 → 结果，按访问顺序淘汰 */
+    private final Map<String, Entry> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, ProviderStats> providerStats = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    /** 并发查询各提供商用的线程池 */
+    private final ExecutorService fanOutPool = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "FancyHelper-Search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SearchGateway(FancyHelper plugin) {
+        this(plugin, new File(new File(plugin.getDataFolder(), "runtime"), "search_cache.json"));
+    }
+
+    SearchGateway(FancyHelper plugin, File cacheFile) {
+        this.plugin = plugin;
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /**
+     * 通过缓存执行一次搜索。fetcher 只会在缓存未命中且没有相同查询正在进行时被调用。
+     * <p>
+     * 等待同一查询的线程共享发起者的结果；发起者被取消（线程被中断）时不把失败传给等待者，
+     * 而是让它们重新检查缓存并由其中一个重新发起。
+     */
+    public String search(String provider, String query, Supplier<String> fetcher) {
+        ConfigManager config = plugin.getConfigManager();
+        if (!config.isSearchCacheEnabled()) {
+            return timed(provider, fetcher);
+        }
+
+        String key = cacheKey(provider, query);
+        boolean counted = false;
+        while (true) {
+            String cached = getValid(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+
+            CompletableFuture<String> mine = new CompletableFuture<>();
+            CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                if (!counted) {
+                    coalesced.incrementAndGet();
+                    counted = true;
+                }
+                try {
+                    return running.join();
+                } catch (CancellationException e) {
+                    // 发起者被取消，重新检查缓存或自己发起
+                    continue;
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                    throw e;
+                }
+            }
+            return fetchAsOwner(key, provider, fetcher, mine);
+        }
+    }
+
+    private String fetchAsOwner(String key, String provider, Supplier<String> fetcher, CompletableFuture<String> mine) {
+        try {
+            // 上一个请求可能刚好在 putIfAbsent 之前写入了缓存
+            String cached = getValid(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                mine.complete(cached);
+                return cached;
+            }
+            misses.incrementAndGet();
+            String result = timed(provider, fetcher);
+            if (Thread.currentThread().isInterrupted() && classify(result) == Verdict.ERROR) {
+                // 被中断导致的失败只属于本线程，先移出再取消，等待者重试时不会再拿到它
+                inFlight.remove(key, mine);
+                mine.cancel(false);
+                return result;
+            }
+            store(key, provider, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                inFlight.remove(key, mine);
+                mine.cancel(false);
+            } else {
+                mine.completeExceptionally(e);
+            }
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static String cacheKey(String provider, String query) {
+        return provider + "|" + normalizeQuery(query);
+    }
+
+    /**
+     * 直接查缓存（计入命中），未启用缓存或未命中返回 null
+     */
+    private String cachedResult(String provider, String query) {
+        if (!plugin.getConfigManager().isSearchCacheEnabled()) return null;
+        String cached = getValid(cacheKey(provider, query));
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    private String timed(String provider, Supplier<String> fetcher) {
+        long start = System.nanoTime();
+        String result = fetcher.get();
+        long elapsed = System.nanoTime() - start;
+
+        ProviderStats stats = providerStats.computeIfAbsent(provider, p -> new ProviderStats());
+        stats.calls.incrementAndGet();
+        stats.totalNanos.addAndGet(elapsed);
+        stats.maxNanos.accumulateAndGet(elapsed, Math::max);
+        if (plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[Search] " + provider + " 请求耗时 " + (elapsed / 1_000_000) + "ms");
+        }
+        return result;
+    }
+
+    private synchronized String getValid(String key) {
+        Entry entry = cache.get(key);
+        if (entry == null) return null;
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private void store(String key, String provider, String result) {
+        Verdict verdict = classify(result);
+        if (verdict == Verdict.ERROR) return;
+
+        ConfigManager config = plugin.getConfigManager();
+        long ttlMinutes = verdict == Verdict.GOOD
+                ? config.getSearchCacheTtlMinutes(provider)
+                : config.getSearchCacheNegativeTtlMinutes();
+        if (ttlMinutes <= 0) return;
+
+        synchronized (this) {
+            cache.put(key, new Entry(result, System.currentTimeMillis() + ttlMinutes * 60_000L));
+            int max = Math.max(1, config.getSearchCacheMaxEntries());
+            Iterator<String> it = cache.keySet().iterator();
+            while (cache.size() > max && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 判断搜索结果是否有实际内容
+     */
+    public static Verdict classify(String result) {
+        if (result == null || result.trim().isEmpty()) return Verdict.ERROR;
+        String trimmed = result.trim();
+        if (EMPTY_RESULTS.contains(trimmed)) return Verdict.EMPTY;
+        // Wiki 结果以固定标题开头；Metaso / Tavily 结果以【...】分节标题开头
+        if (trimmed.startsWith("Minecraft Wiki 搜索结果") || trimmed.startsWith("【")) {
+            return Verdict.GOOD;
+        }
+        return Verdict.ERROR;
+    }
+
+    /**
+     * 规范化查询：去首尾空白、合并连续空白、统一小写、去掉结尾标点
+     */
+    static String normalizeQuery(String query) {
+        if (query == null) return "";
+        String normalized = query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        int end = normalized.length();
+        while (end > 0 && "?？!！.。,，".indexOf(normalized.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return normalized.substring(0, end).trim();
+    }
+
+    /**
+     * 按偏好顺序（calls 的顺序）查询多个提供商。已缓存的提供商直接取缓存结果，不再发起请求。
+     * <p>
+     * 竞速模式（对冲）：先只启动最靠前的提供商，它未找到、超过时限或运行超过对冲等待时间（search.hedge_ms）
+     * 后才启动下一个；某个提供商给出有效结果、且所有更靠前的提供商都已结束时立即返回它，
+     * 尚未启动的提供商不会被调用。
+     * 合并模式：同时启动全部，等待全部结束或超时，把各有效结果按偏好顺序拼接并去掉重复行。
+     * 时限从各提供商自己启动时算起；返回前会取消仍在进行的请求。都没有有效结果时，返回最靠前的"未找到"结果或错误信息。
+     */
+    public String fanOut(String query, List<ProviderCall> calls, boolean merge) {
+        int n = calls.size();
+        long hedgeMs = merge ? 0 : Math.max(0, plugin.getConfigManager().getSearchHedgeMillis());
+        AtomicReferenceArray<String> arrived = new AtomicReferenceArray<>(n);
+        LinkedBlockingQueue<Integer> completions = new LinkedBlockingQueue<>();
+        Future<?>[] futures = new Future<?>[n];
+        long[] startedAt = new long[n];
+        // 只记录在时限内到达的结果，超时后才返回的结果不再采用
+        String[] results = new String[n];
+        boolean[] timedOut = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            results[i] = cachedResult(calls.get(i).provider, query);
+        }
+
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                long nextWake = Long.MAX_VALUE;
+                boolean allFinished = true;
+                for (int i = 0; i < n; i++) {
+                    if (results[i] != null || timedOut[i]) continue;
+                    if (futures[i] == null) {
+                        long launchAt = launchTime(i, results, timedOut, startedAt, futures, merge, hedgeMs);
+                        if (launchAt > now) {
+                            allFinished = false;
+                            nextWake = Math.min(nextWake, launchAt);
+                            continue;
+                        }
+                        startedAt[i] = now;
+                        futures[i] = submit(query, calls.get(i), i, arrived, completions);
+                    }
+                    results[i] = arrived.get(i);
+                    if (results[i] != null) continue;
+                    long deadline = startedAt[i] + calls.get(i).deadlineMs;
+                    if (now >= deadline) {
+                        timedOut[i] = true;
+                        timeouts.incrementAndGet();
+                        futures[i].cancel(true);
+                        if (plugin.getConfigManager().isDebug()) {
+                            plugin.getLogger().info("[Search] " + calls.get(i).provider + " 超过 " + calls.get(i).deadlineMs + "ms 未返回，已放弃");
+                        }
+                    } else {
+                        allFinished = false;
+                        nextWake = Math.min(nextWake, deadline);
+                    }
+                }
+
+                if (!merge) {
+                    // 按偏好顺序：遇到还在等的就继续等，遇到有效结果就返回
+                    for (int i = 0; i < n; i++) {
+                        if (results[i] == null && !timedOut[i]) break;
+                        if (results[i] != null && classify(results[i]) == Verdict.GOOD) {
+                            return results[i];
+                        }
+                    }
+                }
+                if (allFinished) {
+                    return merge ? mergeResults(results) : bestFallback(results);
+                }
+
+                try {
+                    Integer done = completions.poll(Math.max(1, nextWake - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    if (done != null) completions.clear();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return bestFallback(results);
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            return "搜索服务正在关闭，请稍后再试。";
+        } finally {
+            for (Future<?> future : futures) {
+                if (future != null) future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 第 i 个提供商最早可以启动的时间（合并模式下全部立即启动）：
+     * 前一个已结束（无有效结果或超时）时立即启动，前一个有有效结果时不再启动，
+     * 前一个仍在进行时等它运行满对冲等待时间，前一个还没启动时暂不启动
+     */
+    private static long launchTime(int i, String[] results, boolean[] timedOut, long[] startedAt,
+                                   Future<?>[] futures, boolean merge, long hedgeMs) {
+        if (i == 0 || merge) return 0;
+        int prev = i - 1;
+        if (timedOut[prev]) return 0;
+        if (results[prev] != null) {
+            return classify(results[prev]) == Verdict.GOOD ? Long.MAX_VALUE : 0;
+        }
+        if (futures[prev] == null) return Long.MAX_VALUE;
+        return startedAt[prev] + hedgeMs;
+    }
+
+    private Future<?> submit(String query, ProviderCall call, int index,
+                             AtomicReferenceArray<String> arrived, LinkedBlockingQueue<Integer> completions) {
+        return fanOutPool.submit(() -> {
+            String result;
+            try {
+                result = search(call.provider, query, call.fetcher);
+            } catch (RuntimeException e) {
+                result = call.provider + " 搜索出错: " + e.getMessage();
+            }
+            arrived.set(index, result);
+            completions.offer(index);
+        });
+    }
+
+    /**
+     * 合并各有效结果，跳过已出现过的行（忽略首尾空白与大小写）
+     */
+    private static String mergeResults(String[] results) {
+        StringBuilder merged = new StringBuilder();
+        Set<String> seen = new HashSet<>();
+        for (String result : results) {
+            if (result == null || classify(result) != Verdict.GOOD) continue;
+            StringBuilder section = new StringBuilder();
+            for (String line : result.split("\n")) {
+                String key = line.trim().toLowerCase(Locale.ROOT);
+                // 空行和过短的行（序号、标题分隔等）不参与去重
+                if (key.length() >= 8 && !seen.add(key)) continue;
+                section.append(line).append("\n");
+            }
+            if (merged.length() > 0) merged.append("\n");
+            merged.append(section);
+        }
+        return merged.length() > 0 ? merged.toString() : bestFallback(results);
+    }
+
+    /**
+     * 没有有效结果时：优先返回"未找到"类结果，其次是第一条错误，全部超时则提示超时
+     */
+    private static String bestFallback(String[] results) {
+        String firstError = null;
+        for (String result : results) {
+            if (result == null) continue;
+            Verdict verdict = classify(result);
+            if (verdict != Verdict.ERROR) return result;
+            if (firstError == null) firstError = result;
+        }
+        return firstError != null ? firstError : "搜索超时：各搜索服务均未在限定时间内返回结果。";
+    }
+
+    public Stats getStats() {
+        Map<String, long[]> latency = new LinkedHashMap<>();
+        for (Map.Entry<String, ProviderStats> e : providerStats.entrySet()) {
+            long calls = e.getValue().calls.get();
+            long avgMs = calls == 0 ? 0 : e.getValue().totalNanos.get() / calls / 1_000_000;
+            latency.put(e.getKey(), new long[]{calls, avgMs, e.getValue().maxNanos.get() / 1_000_000});
+        }
+        int size;
+        synchronized (this) {
+            size = cache.size();
+        }
+        return new Stats(hits.get(), misses.get(), coalesced.get(), timeouts.get(), size, latency);
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private static class PersistedEntry {
+        String k;
+        String v;
+        long exp;
+    }
+
+    private void load() {
+        if (!cacheFile.exists()) return;
+        try {
+            String json = new String(Files.readAllBytes(cacheFile.toPath()), StandardCharsets.UTF_8);
+            List<PersistedEntry> entries = gson.fromJson(json, new TypeToken<List<PersistedEntry>>() {}.getType());
+            if (entries == null) return;
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                for (PersistedEntry e : entries) {
+                    if (e != null && e.k != null && e.v != null && e.exp > now) {
+                        cache.put(e.k, new Entry(e.v, e.exp));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("[Search] 读取搜索缓存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将未过期的缓存写入磁盘（未开启持久化时删除旧文件）
+     */
+    public void save() {
+        ConfigManager config = plugin.getConfigManager();
+        try {
+            if (!config.isSearchCacheEnabled() || !config.isSearchCachePersist()) {
+                Files.deleteIfExists(cacheFile.toPath());
+                return;
+            }
+            List<PersistedEntry> entries = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                for (Map.Entry<String, Entry> e : cache.entrySet()) {
+                    if (e.getValue().expiresAt <= now) continue;
+                    PersistedEntry p = new PersistedEntry();
+                    p.k = e.getKey();
+                    p.v = e.getValue().value;
+                    p.exp = e.getValue().expiresAt;
+                    entries.add(p);
+                }
+            }
+            File dir = cacheFile.getParentFile();
+            if (dir != null && !dir.exists()) {
+                dir.mkdirs();
+            }
+            File tmp = new File(cacheFile.getPath() + ".tmp");
+            Files.write(tmp.toPath(), gson.toJson(entries).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("[Search] 保存搜索缓存失败: " + e.getMessage());
+        }
+    }
+
+    public void shutdown() {
+        fanOutPool.shutdownNow();
+        save();
+        clear();
+    }
+}
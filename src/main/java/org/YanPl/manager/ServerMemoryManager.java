@@ -1,17 +1,10 @@
 package org.YanPl.manager;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
 import org.YanPl.FancyHelper;
 import org.YanPl.util.I18n;
+import org.YanPl.util.OperationJournal;
 
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -20,16 +13,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * 服务器级记忆管理器：存储管理员写入的全局规则/事实，对所有玩家的 AI 会话生效。
  * 与 {@link InstructionManager}（玩家级、每玩家一文件）不同，本类是服务器粒度、单文件持久化。
+ * 变更（含 lastUsed 刷新）以操作日志形式追加落盘，见 {@link OperationJournal}。
  */
 public class ServerMemoryManager {
-    private static final Type LIST_TYPE = new TypeToken<List<ServerMemory>>(){}.getType();
-
     private static final Pattern LATIN_PATTERN = Pattern.compile("[a-z0-9]{2,}");
     private static final Pattern CJK_PATTERN = Pattern.compile("[\\u4e00-\\u9fff]+");
     private static final int MAX_KEYWORDS = 40;
@@ -41,9 +36,9 @@ public class ServerMemoryManager {
             "of", "is", "are", "do", "what", "how"));
 
     private final FancyHelper plugin;
-    private final File memoryFile;
-    private final Gson gson;
     private final List<ServerMemory> cache;
+    private final ScheduledExecutorService journalWriter;
+    private final OperationJournal<ServerMemory> journal;
 
     public static class ServerMemory {
         private String content;
@@ -73,20 +68,27 @@ public class ServerMemoryManager {
         if (!runtimeDir.exists()) {
             runtimeDir.mkdirs();
         }
-        this.memoryFile = new File(runtimeDir, "server_memories.json");
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
         this.cache = new CopyOnWriteArrayList<>();
-        loadFromFile();
+        this.journalWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "FancyHelper-ServerMemoryJournal");
+            t.setDaemon(true);
+            return t;
+        });
+        this.journal = new OperationJournal<>(new File(runtimeDir, "server_memories.json"), ServerMemory.class,
+                journalWriter, this, () -> cache, ServerMemory::setLastUsed, plugin.getLogger(), "ServerMemory");
+        synchronized (this) {
+            cache.addAll(journal.load());
+        }
     }
 
-    public String addMemory(String content, String category, String author) {
+    public synchronized String addMemory(String content, String category, String author) {
         if (content == null || content.trim().isEmpty()) {
             return "error: " + I18n.t("inst.error.empty");
         }
         ServerMemory memory = new ServerMemory(content.trim(), category, author);
         cache.add(memory);
+        journal.recordAdd(memory);
         evictIfFull();
-        saveToFile();
 
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[ServerMemory] " + author + " 添加了服务器记忆: " + content.trim());
@@ -94,12 +96,12 @@ public class ServerMemoryManager {
         return "success: 已记住: " + content.trim();
     }
 
-    public String removeMemory(int index) {
+    public synchronized String removeMemory(int index) {
         if (index < 1 || index > cache.size()) {
             return "error: " + I18n.t("inst.error.invalid.index", cache.size());
         }
         ServerMemory removed = cache.remove(index - 1);
-        saveToFile();
+        journal.recordRemove(index - 1);
 
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[ServerMemory] 删除了服务器记忆: " + removed.getContent());
@@ -107,7 +109,7 @@ public class ServerMemoryManager {
         return "success: 已删除第 " + index + " 条服务器记忆: " + removed.getContent();
     }
 
-    public String updateMemory(int index, String content, String category) {
+    public synchronized String updateMemory(int index, String content, String category) {
         if (index < 1 || index > cache.size()) {
             return "error: " + I18n.t("inst.error.invalid.index", cache.size());
         }
@@ -117,7 +119,7 @@ public class ServerMemoryManager {
         ServerMemory existing = cache.get(index - 1);
         ServerMemory updated = new ServerMemory(content.trim(), category, existing.getAuthor());
         cache.set(index - 1, updated);
-        saveToFile();
+        journal.recordSet(index - 1, updated);
 
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[ServerMemory] 修改了第 " + index + " 条服务器记忆: " + content.trim());
@@ -126,10 +128,12 @@ public class ServerMemoryManager {
     }
 
     public String clearMemories() {
-        cache.clear();
-        if (memoryFile.exists()) {
-            memoryFile.delete();
+        synchronized (this) {
+            cache.clear();
+            journal.recordClear();
         }
+        // 空列表压缩时会删除快照与日志文件
+        journal.compact();
 
         if (plugin.getConfigManager().isDebug()) {
             plugin.getLogger().info("[ServerMemory] 清空了所有服务器记忆");
@@ -162,7 +166,7 @@ public class ServerMemoryManager {
     }
 
     /**
-     * 根据查询文本做 Top-K 相关性筛选，返回最相关的记忆（并按命中更新 lastUsed，仅内存）。
+     * 根据查询文本做 Top-K 相关性筛选，返回最相关的记忆（并按命中更新 lastUsed，以 TOUCH 操作追加落盘）。
      * 关键词提取：英文单词 + 中文单字/相邻二字组，子串命中打分。
      */
     public List<ServerMemory> getMemoriesForPrompt(String queryText, int topK, int minRelevance) {
@@ -189,16 +193,35 @@ public class ServerMemoryManager {
 
         List<ServerMemory> result = new ArrayList<>();
         String now = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        for (int i = 0; i < Math.min(topK, scored.size()); i++) {
-            ServerMemory memory = scored.get(i).memory;
-            memory.setLastUsed(now);
-            result.add(memory);
+        synchronized (this) {
+            for (int i = 0; i < Math.min(topK, scored.size()); i++) {
+                ServerMemory memory = scored.get(i).memory;
+                memory.setLastUsed(now);
+                int index = cache.indexOf(memory);
+                if (index >= 0) {
+                    journal.recordTouch(index, now);
+                }
+                result.add(memory);
+            }
         }
         return result;
     }
 
+    /**
+     * 同步等待排队中的操作写入日志
+     */
+    public void flush() {
+        journal.flush();
+    }
+
     public void shutdown() {
-        saveToFile();
+        journal.compact();
+        journalWriter.shutdown();
+        try {
+            journalWriter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         cache.clear();
     }
 
@@ -281,7 +304,9 @@ public class ServerMemoryManager {
         while (cache.size() > max) {
             ServerMemory lru = findLeastRecentlyUsed();
             if (lru == null) break;
-            cache.remove(lru);
+            int index = cache.indexOf(lru);
+            cache.remove(index);
+            journal.recordRemove(index);
             plugin.getLogger().info("[ServerMemory] 已淘汰最久未使用的记忆: " + lru.getContent());
         }
     }
@@ -305,28 +330,6 @@ public class ServerMemoryManager {
         return a.getLastUsed().compareTo(b.getLastUsed());
     }
 
-    private void saveToFile() {
-        try {
-            String json = gson.toJson(cache);
-            Files.write(memoryFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
-        } catch (IOException e) {
-            plugin.getLogger().warning("[ServerMemory] 保存服务器记忆失败: " + e.getMessage());
-        }
-    }
-
-    private void loadFromFile() {
-        if (!memoryFile.exists()) return;
-        try {
-            String json = new String(Files.readAllBytes(memoryFile.toPath()), StandardCharsets.UTF_8);
-            List<ServerMemory> loaded = gson.fromJson(json, LIST_TYPE);
-            if (loaded != null) {
-                cache.addAll(loaded);
-            }
-        } catch (IOException | JsonSyntaxException e) {
-            plugin.getLogger().warning("[ServerMemory] 读取服务器记忆失败: " + e.getMessage());
-        }
-    }
-
     private static class ScoredMemory {
         final ServerMemory memory;
         final int score;
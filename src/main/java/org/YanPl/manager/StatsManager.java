@@ -3,6 +3,9 @@ package org.YanPl.manager;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import org.YanPl.FancyHelper;
+import org.YanPl.util.MetricsHttpServer;
+import org.YanPl.util.MetricsRegistry;
+import org.YanPl.util.ToolCallScanner;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SingleLineChart;
 import org.bukkit.Bukkit;
@@ -15,6 +18,7 @@ import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -37,6 +41,42 @@ public class StatsManager {
      * 用 CAS 保证并发下最多只有一条调度链。
      */
     private final AtomicBoolean schedulerActive = new AtomicBoolean(false);
+    /** 各阶段耗时、工具与模型调用的细分指标（只在内存中，不持久化） */
+    private final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    private MetricsHttpServer metricsServer;
+    private String metricsEndpoint;
+    private final Object metricsServerLock = new Object();
+
+    /** 输出速度直方图的分桶（token/秒） */
+    private static final double[] TOKENS_PER_SECOND = {1, 5, 10, 20, 40, 60, 80, 120, 160, 250, 500};
+
+    /**
+     * 一轮对话中单独计时的阶段
+     */
+    public enum Stage {
+        /** 构建系统提示词 */
+        PROMPT_BUILD("prompt_build"),
+        /** 提交到异步线程后等待开始执行 */
+        ASYNC_QUEUE_WAIT("async_queue_wait"),
+        /** 回到主线程处理结果前的等待 */
+        MAIN_QUEUE_WAIT("main_queue_wait"),
+        /** #run 执行后等待命令输出平静 */
+        CAPTURE_WAIT("capture_wait"),
+        /** 上下文压缩 */
+        COMPRESSION("compression"),
+        /** 会话写入磁盘 */
+        PERSISTENCE("persistence");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
 
     public StatsManager(FancyHelper plugin, Metrics metrics) {
         this.plugin = plugin;
@@ -44,6 +84,8 @@ public class StatsManager {
         this.pluginStartTime = System.currentTimeMillis();
         load();
         registerCharts(metrics);
+        registerMetricFunctions();
+        startMetricsServer();
         startAutoSave();
         if (plugin.getConfigManager().isStatsReportEnabled()) {
             scheduleNextReport();
@@ -140,6 +182,163 @@ public class StatsManager {
         if (ms > 0) totalThinkingTimeMs.addAndGet(ms);
     }
 
+    // ==================== 细分指标 ====================
+
+    /**
+     * 记录一个阶段从 startNanos（System.nanoTime()）到现在的耗时
+     */
+    public void recordStage(Stage stage, long startNanos) {
+        metricsRegistry.histogram("fancyhelper_stage_duration_seconds", "各阶段耗时",
+                MetricsRegistry.LATENCY_SECONDS, "stage", stage.getLabel()).observe(secondsSince(startNanos));
+    }
+
+    /**
+     * 记录工具执行耗时（不含等待玩家确认的时间）
+     */
+    public void recordToolDuration(String tool, long startNanos) {
+        metricsRegistry.histogram("fancyhelper_tool_duration_seconds", "工具执行耗时",
+                MetricsRegistry.LATENCY_SECONDS, "tool", toolLabel(tool)).observe(secondsSince(startNanos));
+    }
+
+    /**
+     * 记录一次工具调用结果，同时计入 bStats 与上报使用的总计数
+     */
+    public void recordToolCall(String tool, boolean success) {
+        if (success) {
+            incrementToolSuccess();
+        } else {
+            incrementToolFailure();
+        }
+        metricsRegistry.counter("fancyhelper_tool_calls_total", "工具调用次数",
+                "tool", toolLabel(tool), "result", success ? "success" : "failure").increment();
+    }
+
+    /**
+     * 记录一次模型请求
+     *
+     * @param mode stream 或 chat
+     */
+    public void recordLlmRequest(String provider, String model, String mode, boolean success, long startNanos) {
+        metricsRegistry.counter("fancyhelper_llm_requests_total", "模型请求次数",
+                "provider", provider, "model", model, "mode", mode, "result", success ? "success" : "error").increment();
+        if (success) {
+            metricsRegistry.histogram("fancyhelper_llm_request_duration_seconds", "模型请求总耗时",
+                    MetricsRegistry.LATENCY_SECONDS, "provider", provider, "model", model).observe(secondsSince(startNanos));
+        }
+    }
+
+    /**
+     * 记录流式请求从发出到收到第一个 token 的耗时
+     */
+    public void recordFirstToken(String provider, String model, long nanos) {
+        metricsRegistry.histogram("fancyhelper_llm_time_to_first_token_seconds", "流式请求首 token 耗时",
+                MetricsRegistry.LATENCY_SECONDS, "provider", provider, "model", model).observe(nanos / 1e9);
+    }
+
+    /**
+     * 记录流式输出速度
+     */
+    public void recordTokensPerSecond(String provider, String model, double tokensPerSecond) {
+        metricsRegistry.histogram("fancyhelper_llm_output_tokens_per_second", "流式输出速度（首 token 之后）",
+                TOKENS_PER_SECOND, "provider", provider, "model", model).observe(tokensPerSecond);
+    }
+
+    /**
+     * 按提供商与模型累计 token 用量
+     */
+    public void recordLlmTokens(String provider, String model, long input, long output) {
+        if (input > 0) {
+            metricsRegistry.counter("fancyhelper_llm_tokens_total", "模型 token 用量",
+                    "provider", provider, "model", model, "type", "input").add(input);
+        }
+        if (output > 0) {
+            metricsRegistry.counter("fancyhelper_llm_tokens_total", "模型 token 用量",
+                    "provider", provider, "model", model, "type", "output").add(output);
+        }
+    }
+
+    public MetricsRegistry getMetricsRegistry() {
+        return metricsRegistry;
+    }
+
+    /**
+     * 工具名作为标签：只保留已知工具，避免 AI 编造的工具名撑大序列数
+     */
+    private static String toolLabel(String tool) {
+        String lower = tool == null ? "" : tool.toLowerCase(Locale.ROOT).trim();
+        if (!lower.startsWith("#")) lower = "#" + lower;
+        return ToolCallScanner.KNOWN_TOOLS.contains(lower) ? lower.substring(1) : "other";
+    }
+
+    private static double secondsSince(long startNanos) {
+        return Math.max(0, System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * 已有的累计计数与运行时状态在抓取时直接读取
+     */
+    private void registerMetricFunctions() {
+        metricsRegistry.counterFunction("fancyhelper_conversations_total", "对话轮次", conversationCount::get);
+        metricsRegistry.counterFunction("fancyhelper_cli_entries_total", "进入 CLI 次数", cliEntryCount::get);
+        metricsRegistry.counterFunction("fancyhelper_errors_total", "错误次数", errorCount::get);
+        metricsRegistry.counterFunction("fancyhelper_thinking_seconds_total", "思考总耗时", () -> totalThinkingTimeMs.get() / 1000.0);
+        metricsRegistry.gauge("fancyhelper_active_cli_sessions", "当前处于 CLI 模式的玩家数",
+                () -> plugin.getCliManager() != null ? plugin.getCliManager().getActivePlayersCount() : 0);
+        String[] sources = {"local", "cache", "model"};
+        for (int i = 0; i < sources.length; i++) {
+            int index = i;
+            metricsRegistry.counterFunction("fancyhelper_risk_assessments_total", "SMART 模式风险评估来源",
+                    () -> {
+                        RiskAssessmentManager risk = plugin.getCliManager() == null ? null
+                                : plugin.getCliManager().getToolExecutor().getRiskAssessmentManager();
+                        return risk == null ? 0 : risk.getStats()[index];
+                    }, "source", sources[i]);
+        }
+    }
+
+    // ==================== 指标端点 ====================
+
+    /**
+     * 按配置启动（或重启）Prometheus 抓取端点，端口为 0 时关闭
+     */
+    public void startMetricsServer() {
+        synchronized (metricsServerLock) {
+            int port = plugin.getConfigManager().getMetricsPort();
+            String bind = plugin.getConfigManager().getMetricsBindAddress();
+            String endpoint = port > 0 ? bind + ":" + port : null;
+            // 配置未变时保持现有端点，避免重载期间抓取失败
+            if (metricsServer != null && endpoint != null && endpoint.equals(metricsEndpoint)) return;
+            stopMetricsServer();
+            if (endpoint == null) return;
+            try {
+                metricsServer = MetricsHttpServer.start(bind, port, metricsRegistry::toPrometheus);
+                metricsEndpoint = endpoint;
+                plugin.getLogger().info("[StatsManager] 指标端点已启动: http://" + bind + ":" + metricsServer.getPort() + "/metrics");
+            } catch (IOException e) {
+                plugin.getLogger().warning("[StatsManager] 指标端点启动失败（" + bind + ":" + port + "）: " + e.getMessage());
+            }
+        }
+    }
+
+    public void stopMetricsServer() {
+        synchronized (metricsServerLock) {
+            if (metricsServer != null) {
+                metricsServer.stop();
+                metricsServer = null;
+                metricsEndpoint = null;
+            }
+        }
+    }
+
+    /**
+     * 指标端点的实际端口，未启动时为 -1
+     */
+    public int getMetricsPort() {
+        synchronized (metricsServerLock) {
+            return metricsServer != null ? metricsServer.getPort() : -1;
+        }
+    }
+
     // ==================== 快照 ====================
 
     /**
@@ -263,6 +462,7 @@ public class StatsManager {
         if (plugin.getConfigManager().isStatsReportEnabled()) {
             scheduleNextReport();
         }
+        startMetricsServer();
     }
 
     /**
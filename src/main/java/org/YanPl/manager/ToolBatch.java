@@ -0,0 +1,86 @@
+package org.YanPl.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 同一条 AI 回复中的一组只读工具调用：全部分发后并行完成，各自的回填结果按调用顺序
+ * 合并成一条消息交给 AI，代替逐个工具往返。
+ * <p>
+ * 工具在分发期间同步回填的结果进入当前槽位；异步回填应在分发时用 {@link #currentSlot()} 捕获槽位。
+ */
+final class ToolBatch {
+
+    private final List<String> calls;
+    private final String[] results;
+    private int remaining;
+    private int dispatching = -1;
+
+    ToolBatch(List<String> calls) {
+        this.calls = Collections.unmodifiableList(new ArrayList<>(calls));
+        this.results = new String[calls.size()];
+        this.remaining = calls.size();
+    }
+
+    List<String> getCalls() {
+        return calls;
+    }
+
+    synchronized void beginDispatch(int index) {
+        dispatching = index;
+    }
+
+    synchronized void endDispatch() {
+        dispatching = -1;
+    }
+
+    /**
+     * 正在分发的调用序号，不在分发中时为 -1
+     */
+    synchronized int currentSlot() {
+        return dispatching;
+    }
+
+    /**
+     * 记录一个工具的回填结果。slot 为 -1（未捕获槽位的异步回填）时放进第一个空槽
+     *
+     * @return 是否所有工具都已回填
+     */
+    synchronized boolean complete(int slot, String feedback) {
+        if (slot < 0 || slot >= results.length) {
+            slot = -1;
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    slot = i;
+                    break;
+                }
+            }
+            if (slot < 0) return remaining == 0;
+        }
+        if (results[slot] == null) {
+            results[slot] = feedback;
+            remaining--;
+        } else {
+            results[slot] = results[slot] + "\n" + feedback;
+        }
+        return remaining == 0;
+    }
+
+    synchronized boolean isComplete() {
+        return remaining == 0;
+    }
+
+    /**
+     * 按调用顺序合并结果，未回填的工具标注为无结果
+     */
+    synchronized String render() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[Batch Results] ").append(calls.size()).append(" 个只读工具已并行执行，结果按调用顺序排列：\n");
+        for (int i = 0; i < calls.size(); i++) {
+            sb.append("\n[").append(i + 1).append("] ").append(calls.get(i)).append('\n');
+            sb.append(results[i] != null ? results[i] : "(超时，没有结果)").append('\n');
+        }
+        return sb.toString().trim();
+    }
+}
@@ -7,11 +7,16 @@ import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.hover.content.Text;
 import org.YanPl.FancyHelper;
+import org.YanPl.api.WebFetcher;
+import org.YanPl.mcp.McpResultStore;
 import org.YanPl.model.DialogueSession;
-import org.YanPl.mcp.client.McpClientManager;
 import org.YanPl.mcp.core.McpTypes;
 import org.YanPl.util.ColorUtil;
+import org.YanPl.util.DirectoryIndex;
+import org.YanPl.util.EditEngine;
+import org.YanPl.util.FileViewCache;
 import org.YanPl.util.I18n;
+import org.YanPl.util.TurnEvents;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
@@ -24,7 +29,11 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 
 /**
@@ -35,6 +44,30 @@ public class ToolExecutor {
     private final FancyHelper plugin;
     private final CLIManager cliManager;
     private final RiskAssessmentManager riskAssessmentManager;
+    private final FileViewCache fileViewCache = new FileViewCache();
+    private final DirectoryIndex directoryIndex = new DirectoryIndex();
+    private final CommandSettleDetector settleDetector = new CommandSettleDetector();
+    /** 流式输出期间提前执行的只读工具结果 */
+    private final ToolPrefetch prefetch = new ToolPrefetch(SPECULATION_MAX_PER_PLAYER);
+    /** 每个玩家进行中的 MCP 调用 */
+    private final Map<UUID, Set<CompletableFuture<?>>> pendingMcpCalls = new ConcurrentHashMap<>();
+    /** #edit 预览与执行之间复用的匹配结果（按 文件 + 范围 + 查找内容），文件变动后自动作废 */
+    private final Map<String, EditEngine.Scan> editMatchCache = java.util.Collections.synchronizedMap(
+            new java.util.LinkedHashMap<String, EditEngine.Scan>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, EditEngine.Scan> eldest) {
+                    return size() > EDIT_MATCH_CACHE_SIZE;
+                }
+            });
+
+    /** #read 单次最多返回的行数 */
+    private static final int READ_MAX_LINES = 2000;
+    /** #read 单次最多读取的字节数 */
+    private static final int READ_MAX_BYTES = 1024 * 1024;
+    /** #edit 匹配缓存条目数 */
+    private static final int EDIT_MATCH_CACHE_SIZE = 16;
+    /** 每个玩家同时预执行的只读工具数 */
+    private static final int SPECULATION_MAX_PER_PLAYER = 8;
 
     public ToolExecutor(FancyHelper plugin, CLIManager cliManager) {
         this.plugin = plugin;
@@ -42,6 +75,10 @@ public class ToolExecutor {
         this.riskAssessmentManager = new RiskAssessmentManager(plugin);
     }
 
+    public RiskAssessmentManager getRiskAssessmentManager() {
+        return riskAssessmentManager;
+    }
+
     /**
      * 执行工具调用
      * @param player 玩家
@@ -85,6 +122,8 @@ public class ToolExecutor {
         // 执行对应的工具
         boolean success = true;
         String lowerToolName = toolName.toLowerCase();
+        TurnEvents.Tool toolEvent = new TurnEvents.Tool();
+        toolEvent.begin();
 
         switch (lowerToolName) {
             // 会话管理工具
@@ -169,6 +208,9 @@ public class ToolExecutor {
             case "#mcp_tools":
                 handleMcpToolsList(player);
                 break;
+            case "#mcp_page":
+                success = handleMcpPageTool(player, args);
+                break;
             case "#mcp":
                 success = handleMcpTool(player, args, session);
                 break;
@@ -185,10 +227,14 @@ public class ToolExecutor {
         }
 
         // 记录工具调用统计
-        if (success) {
-            plugin.getStatsManager().incrementToolSuccess();
-        } else {
-            plugin.getStatsManager().incrementToolFailure();
+        plugin.getStatsManager().recordToolCall(lowerToolName, success);
+        if (toolEvent.shouldCommit()) {
+            toolEvent.player = player.getName();
+            toolEvent.sessionId = session != null ? session.getSessionUUID() : null;
+            toolEvent.tool = lowerToolName;
+            toolEvent.argsChars = args != null ? args.length() : 0;
+            toolEvent.success = success;
+            toolEvent.commit();
         }
 
         return success;
@@ -283,6 +329,21 @@ public class ToolExecutor {
             return false;
         }
 
+        // 本地语法检查：确定有误的命令直接退回给 AI，不占用服务器执行和等待时间
+        if (plugin.getConfigManager().isRunValidateEnabled() && plugin.getWorkspaceIndexer() != null) {
+            CommandTreeIndex.Validation validation = plugin.getWorkspaceIndexer().getCommandTree()
+                    .validate(convertGameruleForServer(command.trim()), player::hasPermission);
+            if (!validation.isOk()) {
+                player.sendMessage(I18n.t("tool.run.invalid"));
+                String error = "#run_result: 命令未执行（本地语法检查未通过）: " + validation.getError() + " 请修正后重试。";
+                cliManager.feedbackToAI(player, error);
+                if (session != null) {
+                    session.setLastError(error);
+                }
+                return false;
+            }
+        }
+
         UUID uuid = player.getUniqueId();
         // 注释化：不再删除前导 /，命令保留原样执行（服务器端 dispatchCommand 会自行处理 /）
         String cleanCommand = command;
@@ -334,42 +395,10 @@ public class ToolExecutor {
     }
 
     /**
-     * 检查是否为风险命令
+     * 检查是否为风险命令（匹配器在配置加载时编译，已处理 /、命名空间、execute ... run 与别名）
      */
     private boolean isRiskyCommand(String cmd) {
-        String cleanCmd = cmd.trim();
-        // 注释化后命令可能带前导 /，此处单独去掉，保证风险检测仍然生效
-        if (cleanCmd.startsWith("/")) {
-            cleanCmd = cleanCmd.substring(1).trim();
-        }
-        if (cleanCmd.toLowerCase().startsWith("minecraft:")) {
-            cleanCmd = cleanCmd.substring(10).trim();
-        }
-        
-        // 处理 execute 命令的递归检查
-        if (cleanCmd.toLowerCase().startsWith("execute")) {
-            String lower = cleanCmd.toLowerCase();
-            int runIndex = lower.indexOf(" run ");
-            if (runIndex != -1) {
-                String subCmd = cleanCmd.substring(runIndex + 5).trim();
-                return isRiskyCommand(subCmd);
-            }
-        }
-
-        List<String> risky = plugin.getConfigManager().getYoloRiskCommands();
-        if (risky == null || risky.isEmpty()) return false;
-        
-        String lc = cleanCmd.toLowerCase();
-        for (String r : risky) {
-            if (r == null) continue;
-            String rr = r.trim().toLowerCase();
-            if (rr.isEmpty()) continue;
-            
-            // 精确匹配命令名或带参数的命令
-            if (lc.equals(rr)) return true;
-            if (lc.startsWith(rr + " ")) return true;
-        }
-        return false;
+        return plugin.getConfigManager().getRiskyCommandMatcher().isRisky(cmd);
     }
 
     /**
@@ -538,16 +567,20 @@ public class ToolExecutor {
     public void executeFileOperation(Player player, String type, String args) {
         if (!plugin.isEnabled()) return;
 
+        Consumer<String> reply = cliManager.feedbackTarget(player);
+        CompletableFuture<String> prefetched = prefetch.take(player.getUniqueId(), type + ":" + args);
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long start = System.nanoTime();
             try {
                 File root = Bukkit.getWorldContainer();
-                String result = executeFileOperationInternal(root, type, args);
+                String result = ToolPrefetch.resolve(prefetched, () -> executeFileOperationInternal(root, type, args));
+                plugin.getStatsManager().recordToolDuration("ls".equals(type) ? "#list" : "#" + type, start);
 
                 if (!plugin.isEnabled()) return;
                 // 先展示文件操作结果，不等待 view-fancy 上传
                 Bukkit.getScheduler().runTask(plugin, () -> {
                     displayFileOperationResult(player, type, result);
-                    cliManager.feedbackToAI(player, "#" + type + "_result: " + result);
+                    reply.accept("#" + type + "_result: " + result);
                 });
 
                 // #write / #edit 成功后推送到 view-fancy（仅 YOLO 模式；NORMAL/SMART 已在确认时推送预览）
@@ -568,7 +601,7 @@ public class ToolExecutor {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
                 Bukkit.getScheduler().runTask(plugin, () -> {
-                    cliManager.feedbackToAI(player, "#" + type + "_result: 错误 - " + e.getMessage());
+                    reply.accept("#" + type + "_result: 错误 - " + e.getMessage());
                 });
             }
         });
@@ -700,20 +733,15 @@ public class ToolExecutor {
             return "错误: 不是一个目录";
         }
 
-        File[] files = dir.listFiles();
+        List<DirectoryIndex.Child> files = directoryIndex.list(dir);
         if (files == null) {
             return "错误: 无法列出目录内容";
         }
 
+        // 索引中已按 目录在前、名称不区分大小写 排好序
         StringBuilder sb = new StringBuilder("目录 " + (args.isEmpty() ? "." : args) + " 的内容:\n");
-        Arrays.sort(files, (f1, f2) -> {
-            if (f1.isDirectory() && !f2.isDirectory()) return -1;
-            if (!f1.isDirectory() && f2.isDirectory()) return 1;
-            return f1.getName().compareToIgnoreCase(f2.getName());
-        });
-
-        for (File f : files) {
-            String size = f.isDirectory() ? "" : " (" + (f.length() / 1024) + "KB)";
+        for (DirectoryIndex.Child f : files) {
+            String size = f.isDirectory() ? "" : " (" + (f.getLength() / 1024) + "KB)";
             sb.append(f.isDirectory() ? "[DIR] " : "[FILE] ").append(f.getName()).append(size).append("\n");
         }
 
@@ -722,7 +750,8 @@ public class ToolExecutor {
 
     /**
      * 执行 read 操作
-     * 返回带行号的内容，方便 AI 知道每行对应的行号
+     * 返回带行号的内容，方便 AI 知道每行对应的行号。
+     * 通过 {@link FileViewCache} 按行索引读取，大文件按窗口分段返回而非直接拒绝。
      */
     private String executeReadOperation(File root, String pathArg) throws IOException {
         String[] parts = pathArg.split("\\s+");
@@ -759,33 +788,37 @@ public class ToolExecutor {
         if (file.isDirectory()) {
             return "错误: 这是一个目录，请使用 #ls";
         }
-        if (file.length() > 1024 * 1024) {
+        if (!FileViewCache.isReadable(file)) {
             return "错误: 文件过大 (" + (file.length() / 1024) + "KB)，无法读取。";
         }
 
+        FileViewCache.Window window = fileViewCache.read(file, startLine, endLine, READ_MAX_LINES, READ_MAX_BYTES);
+        if (window.getLines().isEmpty() && window.getTotalLines() > 0 && startLine > window.getTotalLines()) {
+            return "错误: 起始行号超出文件范围 (文件总行数: " + window.getTotalLines() + ")";
+        }
+
         StringBuilder content = new StringBuilder();
-        try (java.io.BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
-            String line;
-            int currentLine = 1;
-            int maxLines = 2000;
-            int readCount = 0;
-            
-            while ((line = reader.readLine()) != null) {
-                boolean inRange = true;
-                if (currentLine < startLine) inRange = false;
-                if (endLine != -1 && currentLine > endLine) inRange = false;
-
-                if (inRange) {
-                    if (readCount >= maxLines) {
-                        content.append("\n... (内容过长，已截断显示 " + maxLines + " 行) ...");
-                        break;
-                    }
-                    // 添加行号前缀，格式：行号: 内容
-                    content.append(currentLine).append(": ").append(line).append("\n");
-                    readCount++;
-                }
-                currentLine++;
-            }
+        int currentLine = window.getFirstLine();
+        for (String line : window.getLines()) {
+            // 添加行号前缀，格式：行号: 内容
+            content.append(currentLine).append(": ").append(line).append("\n");
+            currentLine++;
+        }
+        if (window.getCutLineBytes() > 0) {
+            content.append("\n... (第 ").append(window.getFirstLine()).append(" 行过长，已在 ")
+                    .append(window.getCutLineBytes()).append(" 字节处截断");
+            if (currentLine <= window.getTotalLines()) {
+                content.append("，可用 #read: ").append(path).append(" ").append(currentLine).append("-")
+                        .append(Math.min(window.getTotalLines(), currentLine + READ_MAX_LINES - 1))
+                        .append(" 继续读取后续行");
+            }
+            content.append(") ...");
+        } else if (window.isTruncated()) {
+            content.append("\n... (内容过长，已截断显示 ").append(window.getLines().size())
+                    .append(" 行，文件共 ").append(window.getTotalLines()).append(" 行，可用 #read: ")
+                    .append(path).append(" ").append(currentLine).append("-")
+                    .append(Math.min(window.getTotalLines(), currentLine + READ_MAX_LINES - 1))
+                    .append(" 继续读取) ...");
         }
         return content.toString();
     }
@@ -889,7 +922,7 @@ public class ToolExecutor {
 
         File file = resolvePathCaseInsensitive(root, path);
 
-        if (!isWithinRoot(root, file)) {
+        if (writeToDisk ? !isWritableWithinRoot(root, file) : !isWithinRoot(root, file)) {
             out.result = "错误: 路径超出服务器目录限制";
             return out;
         }
@@ -898,21 +931,38 @@ public class ToolExecutor {
             return out;
         }
 
-        // 读取文件内容
-        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        // 将 original 按行分割，并去掉行号前缀（如果 AI 从 #read 复制了行号）
+        String[] originalLines = original.split("\n");
+        int originalLineCount = originalLines.length;
+
+        // 去掉每行的行号前缀（格式：数字: ）
+        for (int j = 0; j < originalLines.length; j++) {
+            originalLines[j] = removeLineNumberPrefix(originalLines[j]);
+        }
+
+        // 流式扫描一遍文件得到所有匹配位置；预览时算过且文件未变则直接复用
+        String matchKey = file.getAbsolutePath() + "|" + (autoSearch ? "auto" : rangeStr) + "|" + String.join("\n", originalLines);
+        EditEngine.Scan scan = editMatchCache.get(matchKey);
+        if (scan == null || !scan.isCurrent(file.toPath())) {
+            int rangeFrom = autoSearch ? 0 : startLine - 1;
+            int rangeTo = autoSearch ? 0 : endLine;
+            scan = new EditEngine(originalLines).scan(file.toPath(), autoSearch ? 0 : startLine - 1, rangeFrom, rangeTo);
+            editMatchCache.put(matchKey, scan);
+        }
+        int totalLines = scan.getTotalLines();
 
         // 自动搜索模式下，搜索整个文件
         if (autoSearch) {
             startLine = 1;
-            endLine = lines.size();
+            endLine = totalLines;
         } else {
             // 验证行号范围
-            if (startLine < 1 || startLine > lines.size()) {
-                out.result = "错误: 起始行号无效 (文件总行数: " + lines.size() + ")";
+            if (startLine < 1 || startLine > totalLines) {
+                out.result = "错误: 起始行号无效 (文件总行数: " + totalLines + ")";
                 return out;
             }
-            if (endLine > lines.size()) {
-                endLine = lines.size();
+            if (endLine > totalLines) {
+                endLine = totalLines;
             }
             if (startLine > endLine) {
                 out.result = "错误: 起始行号不能大于结束行号";
@@ -920,40 +970,16 @@ public class ToolExecutor {
             }
         }
 
-        // 将 original 按行分割，并去掉行号前缀（如果 AI 从 #read 复制了行号）
-        String[] originalLines = original.split("\n");
-        int originalLineCount = originalLines.length;
-
-        // 去掉每行的行号前缀（格式：数字: ）
-        for (int j = 0; j < originalLines.length; j++) {
-            originalLines[j] = removeLineNumberPrefix(originalLines[j]);
-        }
-
-        // 在给定行号范围内查找所有匹配位置
-        List<Integer> matchPositions = new java.util.ArrayList<>();
-
-        // 计算搜索范围：从 startLine 到 endLine - originalLineCount + 1
+        // 在给定行号范围内的匹配位置
+        // 搜索范围：从 startLine 到 endLine - originalLineCount + 1
         int searchEndLine = endLine - originalLineCount + 1;
         if (searchEndLine < startLine) {
             searchEndLine = startLine;
         }
-
-        for (int i = startLine - 1; i <= searchEndLine - 1 && i < lines.size(); i++) {
-            boolean match = true;
-            for (int j = 0; j < originalLineCount; j++) {
-                int fileLineIndex = i + j;
-                if (fileLineIndex >= lines.size()) {
-                    match = false;
-                    break;
-                }
-                // 使用包含匹配：文件行包含 AI 提供的内容即可
-                if (!lines.get(fileLineIndex).contains(originalLines[j])) {
-                    match = false;
-                    break;
-                }
-            }
-            if (match) {
-                matchPositions.add(i); // 记录匹配的起始行索引（0-based）
+        List<Integer> matchPositions = new java.util.ArrayList<>();
+        for (int position : scan.getMatchStarts()) {
+            if (position >= startLine - 1 && position <= searchEndLine - 1) {
+                matchPositions.add(position); // 匹配的起始行索引（0-based）
             }
         }
 
@@ -967,16 +993,10 @@ public class ToolExecutor {
                 return out;
             } else {
                 // 构建实际内容用于显示
-                StringBuilder rangeContent = new StringBuilder();
-                for (int i = startLine - 1; i < endLine; i++) {
-                    rangeContent.append(lines.get(i));
-                    if (i < endLine - 1) {
-                        rangeContent.append("\n");
-                    }
-                }
+                String rangeContent = String.join("\n", scan.getRangeLines());
                 out.result = "错误: 在给定行号范围 " + rangeStr + " 内未找到包含指定内容的行\n" +
                              "查找内容: " + original + "\n" +
-                             "行号范围内的实际内容:\n" + rangeContent.toString() + "\n" +
+                             "行号范围内的实际内容:\n" + rangeContent + "\n" +
                              "提示：请提供更简短的关键内容（如 'enabled: true' 而不是整行）";
                 return out;
             }
@@ -1009,44 +1029,21 @@ public class ToolExecutor {
         // 只有一个匹配，执行替换
         int matchStartIndex = matchPositions.get(0);
         int matchEndIndex = matchStartIndex + originalLineCount;
-
-        // 替换内容
-        List<String> newLines = new java.util.ArrayList<>();
-
-        // 复制匹配位置之前的行
-        for (int i = 0; i < matchStartIndex; i++) {
-            newLines.add(lines.get(i));
-        }
-
-        // 插入修改后的内容（行内替换，保留行内其他部分）
         String[] replacementLines = replacement.split("\n");
-        for (int j = 0; j < originalLineCount; j++) {
-            String originalLine = lines.get(matchStartIndex + j);
-            String newLine;
-
-            if (j < replacementLines.length) {
-                // 行内子串替换：将匹配到的内容替换为新内容，缩进和注释等其余部分自动保留
-                newLine = originalLine.replace(originalLines[j], replacementLines[j]);
-            } else {
-                // 如果 replacement 行数少于 original 行数，保留原始行
-                newLine = originalLine;
-            }
-            newLines.add(newLine);
-        }
-
-        // 如果 replacement 行数多于 original 行数，添加剩余的行
-        for (int j = originalLineCount; j < replacementLines.length; j++) {
-            newLines.add(replacementLines[j]);
-        }
-
-        // 复制匹配位置之后的行
-        for (int i = matchEndIndex; i < lines.size(); i++) {
-            newLines.add(lines.get(i));
-        }
 
-        // 写盘（仅实际执行时）
         if (writeToDisk) {
-            Files.write(file.toPath(), newLines, StandardCharsets.UTF_8);
+            // 流式写入临时文件后原子替换，不在内存中保留整个文件
+            EditEngine.rewrite(file.toPath(), matchStartIndex, originalLines, replacementLines);
+            editMatchCache.remove(matchKey);
+            fileViewCache.invalidate(file);
+            directoryIndex.invalidate(file);
+        } else {
+            // 预览需要完整的修改前后内容
+            StringBuilder before = new StringBuilder();
+            StringBuilder after = new StringBuilder();
+            EditEngine.apply(file.toPath(), matchStartIndex, originalLines, replacementLines, null, before, after);
+            out.before = before.toString();
+            out.after = after.toString();
         }
 
         // 返回修改前后的对比
@@ -1060,16 +1057,10 @@ public class ToolExecutor {
 
         out.success = true;
         out.path = path;
-        out.before = joinLines(lines);
-        out.after = joinLines(newLines);
         out.result = result.toString();
         return out;
     }
 
-    private String joinLines(List<String> lines) {
-        return String.join("\n", lines);
-    }
-
     /**
      * 执行 write 操作 — 完全覆写文件内容
      * 格式：#write: <path>|<content>
@@ -1095,7 +1086,7 @@ public class ToolExecutor {
 
         File file = resolvePathCaseInsensitive(root, path);
 
-        if (!isWithinRoot(root, file)) {
+        if (!isWritableWithinRoot(root, file)) {
             return "错误: 路径超出服务器目录限制";
         }
 
@@ -1110,69 +1101,42 @@ public class ToolExecutor {
         content = content.replace("\\n", "\n");
         content = content.replace("", "\\n");
         Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        fileViewCache.invalidate(file);
+        directoryIndex.invalidate(file);
 
         return "成功写入文件: " + path + " (" + content.length() + " 字符)";
     }
 
     /**
      * 尝试不区分大小写解析路径
-     * 先尝试精确路径（兼容 Windows 和 Linux 精确输入），
-     * 不命中时逐层扫描目录进行大小写不敏感匹配
+     * 逐层优先精确匹配、其次大小写不敏感匹配，目录内容来自 {@link DirectoryIndex} 缓存
      */
     private File resolvePathCaseInsensitive(File root, String path) {
-        File exact = new File(root, path);
-        if (exact.exists()) {
-            return exact;
-        }
-
-        String[] components = path.replace("\\", "/").split("/");
-        File current = root;
-
-        for (int i = 0; i < components.length; i++) {
-            String component = components[i];
-            if (component.isEmpty()) continue;
-
-            File[] children = current.listFiles();
-            if (children == null) break;
-
-            File match = null;
-            for (File child : children) {
-                if (child.getName().equalsIgnoreCase(component)) {
-                    match = child;
-                    break;
-                }
-            }
-
-            if (match != null) {
-                current = match;
-            } else {
-                StringBuilder remaining = new StringBuilder(component);
-                for (int j = i + 1; j < components.length; j++) {
-                    remaining.append("/").append(components[j]);
-                }
-                return new File(current, remaining.toString());
-            }
-        }
-
-        return current;
+        return directoryIndex.resolve(root, path);
     }
 
     /**
-     * 检查路径是否在根目录内
+     * 检查路径是否在根目录内（使用 {@link DirectoryIndex} 缓存）
      */
     private boolean isWithinRoot(File root, File file) {
-        try {
-            String rootPath = root.getCanonicalPath();
-            String filePath = file.getCanonicalPath();
+        return directoryIndex.isWithin(root, file);
+    }
 
-            if (!rootPath.endsWith(File.separator)) {
-                rootPath += File.separator;
-            }
+    /**
+     * 写入 / 修改前的检查：索引中的符号链接标记可能过期，通过缓存检查后还要按真实路径确认一次，
+     * 防止目录在此期间被换成指向根目录之外的符号链接。
+     */
+    private boolean isWritableWithinRoot(File root, File file) {
+        return isWithinRoot(root, file) && DirectoryIndex.isRealPathWithin(root, file);
+    }
 
-            return filePath.equals(root.getCanonicalPath()) || filePath.startsWith(rootPath);
-        } catch (IOException e) {
-            return false;
-        }
+    /**
+     * 释放目录索引的监听线程
+     */
+    public void shutdown() {
+        prefetch.clear();
+        directoryIndex.shutdown();
+        settleDetector.shutdown();
     }
 
     /**
@@ -1229,13 +1193,24 @@ public class ToolExecutor {
         // Paper 1.21.11+ 将游戏规则名从 camelCase 改为 snake_case：版本较高时自动转换格式
         final String executedCommand = convertGameruleForServer(cleanCommand);
 
-        if (plugin.getPacketCaptureManager() != null) {
-            plugin.getPacketCaptureManager().startCapture(player);
-        }
+        ConfigManager config = plugin.getConfigManager();
+        CommandSettleDetector.Profile profile = CommandSettleDetector.profileFor(
+                executedCommand, config.getRunSilentCommands(), config.getRunSlowCommands());
 
         Bukkit.getScheduler().runTask(plugin, () -> {
             player.sendMessage(I18n.t("tool.run.dispatched"));
 
+            CommandSettleDetector.Watch watch = settleDetector.watch(profile, config.getRunSettleMillis(),
+                    config.getRunQuietMillis(), config.getRunMaxWaitMillis());
+            if (plugin.getPacketCaptureManager() != null) {
+                plugin.getPacketCaptureManager().startCapture(player, watch::onOutput);
+            }
+
+            // 派发前记下控制台日志位置，兜底反馈只认此后写入的标记行
+            ConsoleLogTailer tailer = plugin.getConsoleLogTailer();
+            final long consoleMark = tailer != null ? tailer.mark() : Long.MIN_VALUE;
+
+            long runStart = System.nanoTime();
             boolean success;
             String commandError = null;
             try {
@@ -1255,45 +1230,49 @@ public class ToolExecutor {
 
             if (!plugin.isEnabled()) return;
 
-            // 延迟 1 秒 (20 ticks) 检查反馈（通过 PacketCapture 捕获玩家实际看到的输出）
-            Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                String currentPacketOutput = "";
-                boolean hasOutput = false;
-
-                if (plugin.getPacketCaptureManager() != null) {
-                    currentPacketOutput = plugin.getPacketCaptureManager().peekCapture(player);
-                    if (!currentPacketOutput.isEmpty()) hasOutput = true;
-                }
-
-                // 如果有输出，或者命令执行失败，则立即结束
-                if (hasOutput || !finalSuccess) {
-                    String finalPacketOutput = "";
-                    if (plugin.getPacketCaptureManager() != null) {
-                        finalPacketOutput = plugin.getPacketCaptureManager().stopCapture(player);
-                    }
-                    String finalResult = buildCommandResult(executedCommand, finalPacketOutput, finalSuccess, finalCommandError, "");
-                    cliManager.feedbackToAI(player, "#run_result: " + finalResult);
-                    return;
-                }
-
-                // 如果没有输出，延长等待 5 秒 (100 ticks)
-                player.sendMessage(I18n.t("tool.run.no.feedback"));
+            // 输出平静（或达到档案规定的等待时间）后回到主线程汇总结果
+            long captureStart = System.nanoTime();
+            watch.result().thenAccept(hadOutput -> {
+                plugin.getStatsManager().recordStage(StatsManager.Stage.CAPTURE_WAIT, captureStart);
+                plugin.getStatsManager().recordToolDuration("#run", runStart);
+                if (!plugin.isEnabled()) return;
+                Bukkit.getScheduler().runTask(plugin, () -> finishCommand(player, executedCommand, consoleMark, finalSuccess, finalCommandError, false));
+            });
+            // 失败的命令不会再有后续输出，不必按档案等待
+            watch.start(finalSuccess);
 
+            if (finalSuccess && profile == CommandSettleDetector.Profile.SLOW) {
+                // 异步回复的命令迟迟没有输出时提示玩家仍在等待
                 Bukkit.getScheduler().runTaskLater(plugin, () -> {
-                    String delayedPacketOutput = "";
-                    if (plugin.getPacketCaptureManager() != null) {
-                        delayedPacketOutput = plugin.getPacketCaptureManager().stopCapture(player);
+                    if (!watch.result().isDone() && !watch.hasOutput()) {
+                        player.sendMessage(I18n.t("tool.run.no.feedback"));
                     }
+                }, Math.max(1L, config.getRunQuietMillis() / 50L));
+            }
+        });
+    }
 
-                    // 兜底：数据包仍无输出时，尝试从控制台日志抓取命令反馈
-                    String consoleFeedback = (finalSuccess && delayedPacketOutput.isEmpty())
-                            ? getConsoleFeedback(player, executedCommand) : "";
-                    String finalResult = buildCommandResult(executedCommand, delayedPacketOutput, finalSuccess, finalCommandError, consoleFeedback);
-                    cliManager.feedbackToAI(player, "#run_result: " + finalResult);
-                }, 100L);
+    /**
+     * 命令输出已平静，停止捕获并把结果反馈给 AI。
+     * 没有数据包输出时查控制台日志兜底；日志可能异步落盘、跟随线程也可能尚未读到，查不到时再等一轮。
+     */
+    private void finishCommand(Player player, String executedCommand, long consoleMark, boolean success,
+                               String commandError, boolean consoleRetried) {
+        String packetOutput = "";
+        if (plugin.getPacketCaptureManager() != null) {
+            packetOutput = consoleRetried ? "" : plugin.getPacketCaptureManager().stopCapture(player);
+        }
 
-            }, 20L);
-        });
+        String consoleFeedback = (success && packetOutput.isEmpty())
+                ? getConsoleFeedback(player, executedCommand, consoleMark) : "";
+        if (success && packetOutput.isEmpty() && consoleFeedback.isEmpty() && !consoleRetried
+                && plugin.getConsoleLogTailer() != null) {
+            Bukkit.getScheduler().runTaskLater(plugin,
+                    () -> finishCommand(player, executedCommand, consoleMark, success, commandError, true), 5L);
+            return;
+        }
+        String finalResult = buildCommandResult(executedCommand, packetOutput, success, commandError, consoleFeedback);
+        cliManager.feedbackToAI(player, "#run_result: " + finalResult);
     }
 
     /**
@@ -1338,44 +1317,13 @@ public class ToolExecutor {
     /**
      * 控制台日志兜底：找到玩家执行该命令时服务器记录的 "xxx issued server command" 行，
      * 抓取其后的下一句（或多句）作为命令反馈。
-     * 仅在数据包捕获无输出时调用，作为最后的信息来源。
+     * 仅在数据包捕获无输出时调用，作为最后的信息来源；日志由 {@link ConsoleLogTailer} 常驻跟随，
+     * 此处只在内存中查表（主线程不读文件），且只接受 consoleMark（派发时已读入的行序号）之后的标记行。
      */
-    private String getConsoleFeedback(Player player, String command) {
-        try {
-            File logFile = new File("logs", "latest.log");
-            if (!logFile.isFile()) return "";
-
-            List<String> tail = readLogTail(logFile, 64 * 1024);
-            return extractConsoleFeedback(tail, player.getName(), command);
-        } catch (Exception e) {
-            if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().warning("[CLI] 控制台日志兜底读取失败: " + e.getMessage());
-            }
-            return "";
-        }
-    }
-
-    /**
-     * 读取日志文件末尾的内容（最多 maxBytes 字节，限制在最后 200 行）
-     */
-    private static List<String> readLogTail(File file, int maxBytes) throws IOException {
-        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "r")) {
-            long length = raf.length();
-            long start = Math.max(0, length - maxBytes);
-            raf.seek(start);
-            byte[] buf = new byte[(int) (length - start)];
-            raf.readFully(buf);
-            String text = new String(buf, StandardCharsets.UTF_8);
-            String[] allLines = text.split("\r?\n");
-            // 从文件中间开始读时第一行是截断残片，跳过；再限制最多 200 行
-            int skipFirst = (start > 0) ? 1 : 0;
-            int from = Math.max(skipFirst, allLines.length - 200);
-            List<String> tail = new java.util.ArrayList<>();
-            for (int i = from; i < allLines.length; i++) {
-                tail.add(allLines[i]);
-            }
-            return tail;
-        }
+    private String getConsoleFeedback(Player player, String command, long consoleMark) {
+        ConsoleLogTailer tailer = plugin.getConsoleLogTailer();
+        if (tailer == null) return "";
+        return tailer.findCommandFeedback(player.getName(), command, consoleMark);
     }
 
     /**
@@ -1783,18 +1731,22 @@ public class ToolExecutor {
         }
 
         // 异步读取
+        Consumer<String> reply = cliManager.feedbackTarget(player);
+        CompletableFuture<String> prefetched = prefetch.take(player.getUniqueId(), "skill:" + resolvedFile.getPath());
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
-                String content = readSkillSidecarFile(resolvedFile);
+                long start = System.nanoTime();
+                String content = ToolPrefetch.resolve(prefetched, () -> readSkillSidecarFile(resolvedFile));
+                plugin.getStatsManager().recordToolDuration("#skill", start);
                 if (!plugin.isEnabled()) return;
                 Bukkit.getScheduler().runTask(plugin, () -> {
-                    cliManager.feedbackToAI(player, "#skill_result: " + content);
+                    reply.accept("#skill_result: " + content);
                 });
             } catch (Exception e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
                 Bukkit.getScheduler().runTask(plugin, () -> {
-                    cliManager.feedbackToAI(player, "#skill_result: 错误 - " + e.getMessage());
+                    reply.accept("#skill_result: 错误 - " + e.getMessage());
                 });
             }
         });
@@ -1951,51 +1903,106 @@ public class ToolExecutor {
 
         if (!plugin.isEnabled()) return;
         
+        Consumer<String> reply = cliManager.feedbackTarget(player);
+        CompletableFuture<String> prefetched = prefetch.take(player.getUniqueId(), "search:" + query);
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long start = System.nanoTime();
             String result;
-            if (query.toLowerCase().contains("widely")) {
-                result = performWideSearch(query);
-            } else {
-                result = performWikiSearch(query, player);
+            try {
+                result = ToolPrefetch.resolve(prefetched, () -> performSearch(query, player));
+            } catch (Exception e) {
+                result = "搜索失败: " + e.getMessage();
             }
+            plugin.getStatsManager().recordToolDuration("#search", start);
 
             final String finalResult = result;
             if (!plugin.isEnabled()) return;
             Bukkit.getScheduler().runTask(plugin, () -> {
-                cliManager.feedbackToAI(player, "#search_result: " + finalResult);
+                reply.accept("#search_result: " + finalResult);
             });
         });
     }
 
+    /**
+     * 按查询内容选择全网搜索或 Wiki 搜索
+     */
+    private String performSearch(String query, Player player) {
+        if (query.toLowerCase().contains("widely")) {
+            return performWideSearch(query);
+        }
+        return performWikiSearch(query, player);
+    }
+
     /**
      * 执行全网搜索
      */
     private String performWideSearch(String query) {
         String q = query.replace("widely", "").trim();
+        SearchGateway gateway = plugin.getSearchGateway();
+        String strategy = plugin.getConfigManager().getSearchStrategy();
+        if (!"wiki-first".equals(strategy)) {
+            List<SearchGateway.ProviderCall> calls = new java.util.ArrayList<>();
+            addWebSearchProviders(calls, q);
+            if (calls.isEmpty()) {
+                return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
+            }
+            return gateway.fanOut(q, calls, "merge".equals(strategy));
+        }
+
         if (plugin.getMetasoAPI().isAvailable()) {
-            return plugin.getMetasoAPI().search(q);
+            return gateway.search(SearchGateway.METASO, q, () -> plugin.getMetasoAPI().search(q));
         } else if (plugin.getConfigManager().isTavilyEnabled()) {
-            return plugin.getTavilyAPI().search(q);
+            return gateway.search(SearchGateway.TAVILY, q, () -> plugin.getTavilyAPI().search(q));
         }
         return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
     }
 
     /**
      * 执行 Wiki 搜索
+     * race / merge 策略下 Wiki 与网络搜索同时进行；wiki-first 策略下 Wiki 未找到才查网络
      */
     private String performWikiSearch(String query, Player player) {
-        String result = fetchWikiResult(query);
+        SearchGateway gateway = plugin.getSearchGateway();
+        String strategy = plugin.getConfigManager().getSearchStrategy();
+        if (!"wiki-first".equals(strategy)) {
+            List<SearchGateway.ProviderCall> calls = new java.util.ArrayList<>();
+            calls.add(new SearchGateway.ProviderCall(SearchGateway.WIKI,
+                    plugin.getConfigManager().getSearchDeadlineMillis(SearchGateway.WIKI), () -> fetchWikiResult(query)));
+            addWebSearchProviders(calls, query);
+            String result = gateway.fanOut(query, calls, "merge".equals(strategy));
+            if (calls.size() == 1 && result.equals("未找到相关 Wiki 条目。")) {
+                return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
+            }
+            return result;
+        }
+
+        String result = gateway.search(SearchGateway.WIKI, query, () -> fetchWikiResult(query));
         if (result.equals("未找到相关 Wiki 条目。")) {
             if (plugin.getMetasoAPI().isAvailable()) {
-                return plugin.getMetasoAPI().search(query);
+                return gateway.search(SearchGateway.METASO, query, () -> plugin.getMetasoAPI().search(query));
             } else if (plugin.getConfigManager().isTavilyEnabled()) {
-                return plugin.getTavilyAPI().search(query);
+                return gateway.search(SearchGateway.TAVILY, query, () -> plugin.getTavilyAPI().search(query));
             }
             return "搜索服务不可用，请在配置文件中启用 Metaso API 或 Tavily API。";
         }
         return result;
     }
 
+    /**
+     * 按偏好顺序（Metaso 优先于 Tavily）追加已启用的网络搜索提供商
+     */
+    private void addWebSearchProviders(List<SearchGateway.ProviderCall> calls, String query) {
+        ConfigManager config = plugin.getConfigManager();
+        if (plugin.getMetasoAPI().isAvailable()) {
+            calls.add(new SearchGateway.ProviderCall(SearchGateway.METASO,
+                    config.getSearchDeadlineMillis(SearchGateway.METASO), () -> plugin.getMetasoAPI().search(query)));
+        }
+        if (config.isTavilyEnabled()) {
+            calls.add(new SearchGateway.ProviderCall(SearchGateway.TAVILY,
+                    config.getSearchDeadlineMillis(SearchGateway.TAVILY), () -> plugin.getTavilyAPI().search(query)));
+        }
+    }
+
     /**
      * 调用 Minecraft Wiki 公开 API 搜索
      */
@@ -2323,7 +2330,7 @@ public class ToolExecutor {
 
     /**
      * 处理 #webfetch 工具 - 读取网页内容
-     * 格式: #webfetch: https://example.com
+     * 格式: #webfetch: https://example.com [页码]
      */
     private void handleWebFetchTool(Player player, String args, DialogueSession session) {
         UUID uuid = player.getUniqueId();
@@ -2337,6 +2344,17 @@ public class ToolExecutor {
 
         // 清理URL，去除可能的Markdown格式和其他无关字符
         String url = args.trim();
+
+        // URL 本身不含空白，末尾单独的数字视为页码
+        int page = 1;
+        String[] parts = url.split("\\s+");
+        if (parts.length > 1) {
+            String last = parts[parts.length - 1].replaceFirst("(?i)^page=", "");
+            if (last.matches("\\d{1,4}")) {
+                page = Math.max(1, Integer.parseInt(last));
+                url = url.substring(0, url.lastIndexOf(parts[parts.length - 1])).trim();
+            }
+        }
         
         // 去除反引号
         url = url.replaceAll("`", "");
@@ -2352,30 +2370,33 @@ public class ToolExecutor {
         url = url.trim();
 
         // 直接执行网页阅读，不需要验证
-        executeWebFetch(player, url);
+        executeWebFetch(player, url, page);
     }
 
     /**
      * 执行网页阅读操作
      */
-    private void executeWebFetch(Player player, String url) {
+    private void executeWebFetch(Player player, String url, int page) {
         // 显示工具调用信息
         player.sendMessage(I18n.t("tool.webfetch.fetching", url));
         
+        Consumer<String> reply = cliManager.feedbackTarget(player);
         Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
-                String result = fetchWebPage(url);
+                long start = System.nanoTime();
+                String result = fetchWebPage(url, page);
+                plugin.getStatsManager().recordToolDuration("#webfetch", start);
                 final String finalResult = result;
                 if (!plugin.isEnabled()) return;
                 Bukkit.getScheduler().runTask(plugin, () -> {
-                    cliManager.feedbackToAI(player, "#webfetch_result: " + finalResult);
+                    reply.accept("#webfetch_result: " + finalResult);
                 });
             } catch (Exception e) {
                 plugin.getCloudErrorReport().report(e);
                 if (!plugin.isEnabled()) return;
                 Bukkit.getScheduler().runTask(plugin, () -> {
                     String errorMessage = "#webfetch_result: 错误 - " + e.getMessage();
-                    cliManager.feedbackToAI(player, errorMessage);
+                    reply.accept(errorMessage);
                     player.sendMessage(I18n.t("tool.webfetch.fail", e.getMessage()));
                 });
             }
@@ -2383,152 +2404,17 @@ public class ToolExecutor {
     }
 
     /**
-     * 获取网页内容并解析
-     * 优先使用 r.jina.ai 代理获取纯文本内容
-     * 如果失败则回退到直接获取并清理HTML
+     * 获取网页内容并解析（第一页）
      */
     protected String fetchWebPage(String url) throws Exception {
-        // 验证URL格式
-        if (!url.startsWith("http://") && !url.startsWith("https://")) {
-            throw new IllegalArgumentException("URL必须以http://或https://开头");
-        }
-
-        // 首先尝试使用 r.jina.ai 代理
-        try {
-            String jinaUrl = "https://jina.proxy.baicaizhale.top/" + url;
-            java.net.http.HttpClient httpClient = java.net.http.HttpClient.newBuilder()
-                    .connectTimeout(java.time.Duration.ofSeconds(15))
-                    .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
-                    .build();
-
-            java.net.http.HttpRequest jinaRequest = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(jinaUrl))
-                    .timeout(java.time.Duration.ofSeconds(20))
-                    .header("Accept", "text/plain, text/html, */*")
-                    .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36")
-                    .GET()
-                    .build();
-
-            java.net.http.HttpResponse<String> jinaResponse = httpClient.send(jinaRequest, java.net.http.HttpResponse.BodyHandlers.ofString());
-            if (jinaResponse.statusCode() == 200) {
-                String jinaText = jinaResponse.body().trim();
-                if (jinaText.length() > 8000) {
-                    jinaText = jinaText.substring(0, 8000) + "\n... (内容已截断)";
-                }
-                return jinaText;
-            }
-        } catch (Exception e) {
-            if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().info("[WebFetch] Jina.ai 请求失败，回退到直接获取: " + e.getMessage());
-            }
-        }
-
-        // 回退到原有的直接获取逻辑
-        java.net.http.HttpClient httpClient = java.net.http.HttpClient.newBuilder()
-                .connectTimeout(java.time.Duration.ofSeconds(30))
-                .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
-                .build();
-
-        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                .uri(java.net.URI.create(url))
-                .timeout(java.time.Duration.ofSeconds(45))
-                .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/135.0.0.0 Safari/537.36")
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8")
-                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                .header("Accept-Encoding", "gzip, deflate")
-                .header("Sec-Ch-Ua", "\"Google Chrome\";v=\"135\", \"Not:A-Brand\";v=\"99\", \"Chromium\";v=\"135\"")
-                .header("Sec-Ch-Ua-Mobile", "?0")
-                .header("Sec-Ch-Ua-Platform", "\"Windows\"")
-                .header("Upgrade-Insecure-Requests", "1")
-                .header("Sec-Fetch-Dest", "document")
-                .header("Sec-Fetch-Mode", "navigate")
-                .header("Sec-Fetch-Site", "none")
-                .header("Sec-Fetch-User", "?1")
-                .header("Cache-Control", "max-age=0")
-                .header("Referer", "https://www.google.com/")
-                .header("DNT", "1")
-                .GET()
-                .build();
-
-        java.net.http.HttpResponse<byte[]> response = httpClient.send(request, java.net.http.HttpResponse.BodyHandlers.ofByteArray());
-        if (response.statusCode() != 200) {
-            throw new Exception("HTTP请求失败，状态码: " + response.statusCode());
-        }
-
-        try {
-            Thread.sleep(5000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
-        byte[] bodyBytes = response.body();
-        String contentType = response.headers().firstValue("Content-Type").orElse("text/html");
-        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("identity");
-
-        byte[] decompressedBytes = bodyBytes;
-        try {
-            if (contentEncoding.contains("gzip")) {
-                java.io.ByteArrayInputStream bis = new java.io.ByteArrayInputStream(bodyBytes);
-                java.util.zip.GZIPInputStream gis = new java.util.zip.GZIPInputStream(bis);
-                java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = gis.read(buffer)) > 0) {
-                    bos.write(buffer, 0, len);
-                }
-                gis.close();
-                bos.close();
-                decompressedBytes = bos.toByteArray();
-            } else if (contentEncoding.contains("deflate")) {
-                java.io.ByteArrayInputStream bis = new java.io.ByteArrayInputStream(bodyBytes);
-                java.util.zip.InflaterInputStream iis = new java.util.zip.InflaterInputStream(bis);
-                java.io.ByteArrayOutputStream bos = new java.io.ByteArrayOutputStream();
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = iis.read(buffer)) > 0) {
-                    bos.write(buffer, 0, len);
-                }
-                iis.close();
-                bos.close();
-                decompressedBytes = bos.toByteArray();
-            }
-        } catch (Exception e) {
-            decompressedBytes = bodyBytes;
-        }
-
-        String charset = "UTF-8";
-        if (contentType.contains("charset=")) {
-            int charsetIndex = contentType.indexOf("charset=");
-            charset = contentType.substring(charsetIndex + 8).trim();
-            if (charset.startsWith("\"")) {
-                charset = charset.substring(1, charset.length() - 1);
-            }
-        }
-
-        String htmlContent;
-        try {
-            htmlContent = new String(decompressedBytes, charset);
-        } catch (java.io.UnsupportedEncodingException e) {
-            htmlContent = new String(decompressedBytes, java.nio.charset.StandardCharsets.UTF_8);
-        }
-
-        org.jsoup.nodes.Document doc = org.jsoup.Jsoup.parse(htmlContent);
-        String title = doc.title();
-        doc.select("script, style").remove();
-        String bodyText = doc.body().text();
-
-        final int MAX_CONTENT_LENGTH = 5000;
-        if (bodyText.length() > MAX_CONTENT_LENGTH) {
-            bodyText = bodyText.substring(0, MAX_CONTENT_LENGTH) + "... (内容过长，已截断)";
-        }
-
-        StringBuilder result = new StringBuilder();
-        result.append("网页标题: ").append(title).append("\n");
-        result.append("网页URL: ").append(url).append("\n");
-        result.append("\n正文内容:\n");
-        result.append(bodyText);
+        return fetchWebPage(url, 1);
+    }
 
-        return result.toString();
+    /**
+     * 获取网页内容的第 page 页，请求、缓存与正文提取见 {@link WebFetcher}
+     */
+    protected String fetchWebPage(String url, int page) throws Exception {
+        return plugin.getWebFetcher().fetch(url, page);
     }
 
     /**
@@ -2572,6 +2458,106 @@ public class ToolExecutor {
         return line;
     }
 
+    /**
+     * 只读工具：不改变服务器状态，可以在同一回合内并行执行
+     */
+    public static boolean isReadOnlyTool(String toolName) {
+        return switch (toolName.toLowerCase().trim()) {
+            case "#list", "#read", "#search", "#webfetch", "#skill",
+                 "#mcp_tools", "#mcp_page", "#mcp" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * 工具调用能否放进并行批次：必须是只读工具，且不会停下来等待玩家操作（首次使用验证、冻结）
+     */
+    public boolean canBatch(Player player, String toolCall) {
+        String toolName = parseToolCall(toolCall).toolName.toLowerCase();
+        if (!isReadOnlyTool(toolName)) return false;
+        if ("#list".equals(toolName) || "#read".equals(toolName)) {
+            return plugin.getConfigManager().isPlayerToolEnabled(player, mapTypeToToolName("read"))
+                    && plugin.getVerificationManager().getPlayerFreezeRemaining(player) <= 0;
+        }
+        return true;
+    }
+
+    /**
+     * 流式输出中提前执行一个只读工具调用（主线程调用）。
+     * <p>
+     * 只预取结果本身的 I/O（#list、#read、#search、#skill 的 read 子命令）；展示、权限验证和会话状态
+     * 仍等最终回复确认调用后由正常流程处理，届时直接取用预取结果。其他工具一律不预执行。
+     *
+     * @return 是否启动了预执行
+     */
+    public boolean speculate(Player player, String toolCall) {
+        DialogueSession session = cliManager.getSession(player.getUniqueId());
+        if (session == null || !plugin.isEnabled()) return false;
+
+        ToolParseResult parsed = parseToolCall(toolCall);
+        String toolName = parsed.toolName.toLowerCase();
+        String args = parsed.args;
+        if (session.getMode() == DialogueSession.Mode.PLAN && !isPlanModeTool(toolName)) return false;
+
+        switch (toolName) {
+            case "#list":
+            case "#read": {
+                if (!canBatch(player, toolCall)) return false;
+                String type = "#list".equals(toolName) ? "ls" : "read";
+                File root = Bukkit.getWorldContainer();
+                return startPrefetch(player, type + ":" + args, () -> executeFileOperationInternal(root, type, args));
+            }
+            case "#search":
+                return startPrefetch(player, "search:" + args, () -> performSearch(args, player));
+            case "#skill": {
+                File file = resolveSkillSidecar(args.trim());
+                if (file == null) return false;
+                return startPrefetch(player, "skill:" + file.getPath(), () -> readSkillSidecarFile(file));
+            }
+            default:
+                return false;
+        }
+    }
+
+    private boolean startPrefetch(Player player, String key, java.util.concurrent.Callable<String> task) {
+        boolean started = prefetch.start(player.getUniqueId(), key, task,
+                r -> Bukkit.getScheduler().runTaskAsynchronously(plugin, r));
+        if (started && plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[CLI] 预执行只读工具: " + key);
+        }
+        return started;
+    }
+
+    /**
+     * 丢弃未被最终回复取用的预执行结果
+     */
+    public void discardSpeculation(UUID uuid) {
+        int discarded = prefetch.discard(uuid);
+        if (discarded > 0 && plugin.getConfigManager().isDebug()) {
+            plugin.getLogger().info("[CLI] 丢弃 " + discarded + " 个未被确认的预执行结果");
+        }
+    }
+
+    /**
+     * 解析 "#skill: <id> read <filename>" 指向的附属文件，不是合法的 read 子命令时返回 null
+     */
+    private File resolveSkillSidecar(String args) {
+        String[] tokens = args.split("\\s+");
+        if (tokens.length < 3 || !"read".equalsIgnoreCase(tokens[1])) return null;
+        int readIndex = args.toLowerCase().indexOf(" read ");
+        if (readIndex < 0) return null;
+        String fileName = args.substring(readIndex + 6).trim();
+
+        org.YanPl.model.Skill skill = plugin.getSkillManager().getSkill(tokens[0].toLowerCase());
+        File skillDir = skill == null ? null : skill.getSkillDirectory();
+        if (skillDir == null) return null;
+        File file = resolvePathCaseInsensitive(skillDir, fileName);
+        if (!isWithinRoot(skillDir, file) || !file.isFile() || "skill.md".equalsIgnoreCase(file.getName())) {
+            return null;
+        }
+        return file;
+    }
+
     /**
      * 检查工具是否在 Plan Mode 白名单中
      */
@@ -2598,42 +2584,7 @@ public class ToolExecutor {
             return;
         }
 
-        List<McpClientManager.ExternalToolInfo> allTools = plugin.getMcpManager().getAllToolsWithState();
-
-        StringBuilder sb = new StringBuilder("[MCP Tools Status]\n\n");
-        if (allTools.isEmpty()) {
-            sb.append("没有配置的 MCP 服务器。\n");
-        } else {
-            Map<String, List<McpClientManager.ExternalToolInfo>> grouped = new java.util.LinkedHashMap<>();
-            for (McpClientManager.ExternalToolInfo info : allTools) {
-                grouped.computeIfAbsent(info.serverName, k -> new java.util.ArrayList<>()).add(info);
-            }
-
-            for (Map.Entry<String, List<McpClientManager.ExternalToolInfo>> entry : grouped.entrySet()) {
-                String serverName = entry.getKey();
-                List<McpClientManager.ExternalToolInfo> tools = entry.getValue();
-                McpClientManager.ExternalToolInfo first = tools.get(0);
-
-                if (!first.serverConnected) {
-                    sb.append(serverName).append(" (未连接)\n");
-                    continue;
-                }
-                sb.append(serverName).append(" (已连接):\n");
-
-                for (McpClientManager.ExternalToolInfo info : tools) {
-                    if (info.tool == null) continue;
-                    String icon = info.enabled ? "☑" : "☐";
-                    String desc = info.tool.description != null && !info.tool.description.isEmpty()
-                        ? " - " + info.tool.description : "";
-                    String disabled = info.enabled ? "" : " (已禁用)";
-                    sb.append("  ").append(icon).append(" ").append(info.tool.name).append(desc).append(disabled).append("\n");
-                }
-                sb.append("\n");
-            }
-        }
-        sb.append("Format: #mcp: serverName.toolName|{\"arg1\":\"value1\"}");
-
-        cliManager.feedbackToAI(player, "#mcp_tools_result: " + sb.toString());
+        cliManager.feedbackToAI(player, "#mcp_tools_result: " + plugin.getMcpManager().getToolsListText());
     }
 
     /**
@@ -2694,29 +2645,113 @@ public class ToolExecutor {
         final String fToolName = toolName;
         final com.google.gson.JsonObject fArguments = arguments;
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            McpTypes.McpToolCallResult result = plugin.getMcpManager().callExternalTool(fServerName, fToolName, fArguments);
+        UUID uuid = player.getUniqueId();
+        Consumer<String> reply = cliManager.feedbackTarget(player);
+        long start = System.nanoTime();
+        CompletableFuture<McpTypes.McpToolCallResult> call =
+                plugin.getMcpManager().callExternalToolAsync(fServerName, fToolName, fArguments);
+        Set<CompletableFuture<?>> calls = pendingMcpCalls.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet());
+        calls.add(call);
+        call.whenComplete((result, error) -> {
+            calls.remove(call);
+            // 玩家停止生成时调用已被取消，不再回填结果
+            if (call.isCancelled() || !plugin.isEnabled()) return;
+            plugin.getStatsManager().recordToolDuration("#mcp", start);
+            // 过大的结果在这里（异步线程）落盘，只把预览和句柄放进对话历史
+            String feedback = formatMcpResult(uuid, result);
+            Bukkit.getScheduler().runTask(plugin, () -> reply.accept(feedback));
+        });
+        return true;
+    }
 
-            if (!plugin.isEnabled()) return;
-            Bukkit.getScheduler().runTask(plugin, () -> {
-                if (result == null) {
-                    cliManager.feedbackToAI(player, "#mcp_result: MCP 服务器无响应");
-                } else if (result.isError) {
-                    String errText = result.content != null && !result.content.isEmpty()
-                            && result.content.get(0).text != null
-                        ? result.content.get(0).text : "未知错误";
-                    cliManager.feedbackToAI(player, "#mcp_error: " + errText);
-                } else {
-                    String text = result.content != null && !result.content.isEmpty()
-                            && result.content.get(0).text != null
-                        ? result.content.get(0).text : "(空结果)";
-                    cliManager.feedbackToAI(player, "#mcp_result: " + text);
+    private String formatMcpResult(UUID uuid, McpTypes.McpToolCallResult result) {
+        if (result == null) {
+            return "#mcp_result: MCP 服务器无响应";
+        }
+        String text = result.getText();
+        if (text == null) {
+            text = result.isError ? "未知错误" : "(空结果)";
+        }
+        McpResultStore store = plugin.getMcpManager().getResultStore();
+        if (store != null) {
+            try {
+                text = store.toFeedback(uuid, text);
+            } catch (IOException e) {
+                plugin.getLogger().warning("[MCP] 暂存工具结果失败: " + e.getMessage());
+                if (text.length() > store.getPageChars()) {
+                    text = text.substring(0, store.getPageChars()) + "\n... (结果过长且暂存失败，已截断)";
                 }
-            });
+            }
+        }
+        return (result.isError ? "#mcp_error: " : "#mcp_result: ") + text;
+    }
+
+    /**
+     * 处理 #mcp_page — 分页读取暂存的过大 MCP 结果
+     * 格式: #mcp_page: r1|8000
+     */
+    private boolean handleMcpPageTool(Player player, String args) {
+        UUID uuid = player.getUniqueId();
+        cliManager.setGenerating(uuid, false, CLIManager.GenerationStatus.EXECUTING_TOOL);
+
+        McpResultStore store = plugin.getMcpManager() != null ? plugin.getMcpManager().getResultStore() : null;
+        if (store == null) {
+            cliManager.feedbackToAI(player, "#mcp_error: MCP Client 未启用");
+            return false;
+        }
+
+        String handle = args != null ? args.trim() : "";
+        int offset = 0;
+        int pipeIdx = handle.indexOf('|');
+        if (pipeIdx >= 0) {
+            try {
+                offset = Integer.parseInt(handle.substring(pipeIdx + 1).trim());
+            } catch (NumberFormatException e) {
+                cliManager.feedbackToAI(player, "#mcp_error: offset 必须是数字，格式: #mcp_page: r1|8000");
+                return false;
+            }
+            handle = handle.substring(0, pipeIdx).trim();
+        }
+        if (handle.isEmpty()) {
+            cliManager.feedbackToAI(player, "#mcp_error: 需要指定结果句柄，格式: #mcp_page: r1|8000");
+            return false;
+        }
+
+        player.sendMessage(ChatColor.GRAY + "⨁ MCP: " + handle + " @" + offset);
+        final String fHandle = handle;
+        final int fOffset = offset;
+        Consumer<String> reply = cliManager.feedbackTarget(player);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+            long start = System.nanoTime();
+            String feedback;
+            try {
+                feedback = "#mcp_page_result: " + store.readPage(uuid, fHandle, fOffset);
+            } catch (IllegalArgumentException | IOException e) {
+                feedback = "#mcp_error: " + e.getMessage();
+            }
+            plugin.getStatsManager().recordToolDuration("#mcp_page", start);
+            if (!plugin.isEnabled()) return;
+            String finalFeedback = feedback;
+            Bukkit.getScheduler().runTask(plugin, () -> reply.accept(finalFeedback));
         });
         return true;
     }
 
+    /**
+     * 取消玩家进行中的 MCP 调用（玩家停止生成或退出 CLI 时调用），服务器会收到取消通知
+     *
+     * @return 是否取消了进行中的调用
+     */
+    public boolean cancelMcpCalls(UUID uuid) {
+        Set<CompletableFuture<?>> calls = pendingMcpCalls.remove(uuid);
+        if (calls == null) return false;
+        boolean cancelled = false;
+        for (CompletableFuture<?> call : calls) {
+            cancelled |= call.cancel(true);
+        }
+        return cancelled;
+    }
+
     /**
      * 处理 #start 工具 — 结束 Plan Mode，显示执行模式选择
      */
@@ -0,0 +1,107 @@
+package org.YanPl.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 流式输出期间提前启动的只读工具结果。
+ * <p>
+ * 工具调用行一出现就在后台计算，按操作键（操作类型 + 参数）保存；最终回复确认调用后，
+ * 对应的处理器用 {@link #take} 取走结果代替现场计算。回复处理完仍未被取走的结果用 {@link #discard} 丢弃。
+ */
+final class ToolPrefetch {
+
+    private final int maxPerOwner;
+    private final Map<UUID, Map<String, CompletableFuture<String>>> entries = new HashMap<>();
+
+    /**
+     * @param maxPerOwner 每个玩家同时保留的预执行结果上限
+     */
+    ToolPrefetch(int maxPerOwner) {
+        this.maxPerOwner = Math.max(1, maxPerOwner);
+    }
+
+    /**
+     * 在 executor 上启动预执行
+     *
+     * @return 是否启动；同一操作已在预执行或达到上限时返回 false
+     */
+    boolean start(UUID owner, String key, Callable<String> task, Executor executor) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        synchronized (this) {
+            Map<String, CompletableFuture<String>> owned = entries.computeIfAbsent(owner, k -> new HashMap<>());
+            if (owned.containsKey(key) || owned.size() >= maxPerOwner) return false;
+            owned.put(key, future);
+        }
+        executor.execute(() -> {
+            if (future.isDone()) return;
+            try {
+                future.complete(task.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 取走与该操作对应的预执行结果，没有时返回 null
+     */
+    synchronized CompletableFuture<String> take(UUID owner, String key) {
+        Map<String, CompletableFuture<String>> owned = entries.get(owner);
+        if (owned == null) return null;
+        CompletableFuture<String> future = owned.remove(key);
+        if (owned.isEmpty()) entries.remove(owner);
+        return future;
+    }
+
+    /**
+     * 丢弃该玩家所有未被取走的预执行结果
+     *
+     * @return 丢弃的数量
+     */
+    int discard(UUID owner) {
+        Map<String, CompletableFuture<String>> owned;
+        synchronized (this) {
+            owned = entries.remove(owner);
+        }
+        if (owned == null) return 0;
+        for (CompletableFuture<String> future : owned.values()) {
+            future.cancel(false);
+        }
+        return owned.size();
+    }
+
+    void clear() {
+        Map<UUID, Map<String, CompletableFuture<String>>> all;
+        synchronized (this) {
+            all = new HashMap<>(entries);
+            entries.clear();
+        }
+        for (Map<String, CompletableFuture<String>> owned : all.values()) {
+            for (CompletableFuture<String> future : owned.values()) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 使用预执行结果；没有预执行、预执行失败或已取消时现场计算（只读操作重算没有副作用）
+     */
+    static String resolve(CompletableFuture<String> prefetched, Callable<String> task) throws Exception {
+        if (prefetched != null) {
+            try {
+                return prefetched.get();
+            } catch (ExecutionException | CancellationException ignored) {
+                // 回退到现场计算
+            }
+        }
+        return task.call();
+    }
+}
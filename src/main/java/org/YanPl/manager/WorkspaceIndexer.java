@@ -7,19 +7,33 @@ import org.bukkit.command.SimpleCommandMap;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 public class WorkspaceIndexer {
     /**
      * 工作区索引器：用于索引服务器上可用的命令。
+     * 除命令名列表外，还维护一份命令语法树（{@link CommandTreeIndex}），供 #run 派发前做本地语法检查；
+     * 插件加载 / 卸载时由 PluginLoadListener 触发增量刷新（未变化的命令直接复用已转换的语法树）。
      */
     private final FancyHelper plugin;
     private List<String> indexedCommands = new ArrayList<>();
+    private final CommandTreeIndex commandTree = new CommandTreeIndex();
+    /** Bukkit 命令对象 → 已转换的语法树，刷新时复用 */
+    private Map<Command, CommandTreeIndex.Node> convertedNodes = new IdentityHashMap<>();
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    /** 每个命令的全部标签（主名 + 别名，不含命名空间形式） */
+    private volatile List<List<String>> aliasGroups = new ArrayList<>();
+    /** 最近一次索引时取到的实时命令表 */
+    private volatile SimpleCommandMap commandMap;
 
     public WorkspaceIndexer(FancyHelper plugin) {
         this.plugin = plugin;
+        commandTree.setLiveLookup(this::isLiveCommand);
     }
 
     public void indexAll() {
@@ -28,23 +42,28 @@ public class WorkspaceIndexer {
     }
 
     @SuppressWarnings("unchecked")
-    public void indexCommands() {
-        indexedCommands.clear();
+    public synchronized void indexCommands() {
         try {
             Field commandMapField = Bukkit.getServer().getClass().getDeclaredField("commandMap");
             commandMapField.setAccessible(true);
             SimpleCommandMap commandMap = (SimpleCommandMap) commandMapField.get(Bukkit.getServer());
-            
+            this.commandMap = commandMap;
+
             Field knownCommandsField = SimpleCommandMap.class.getDeclaredField("knownCommands");
             knownCommandsField.setAccessible(true);
-            Map<String, Command> knownCommands = (Map<String, Command>) knownCommandsField.get(commandMap);
-            
-            indexedCommands.addAll(knownCommands.keySet().stream()
-                    .filter(name -> !name.contains(":")) 
-                    .collect(Collectors.toList()));
-            
+            Map<String, Command> knownCommands = new HashMap<>((Map<String, Command>) knownCommandsField.get(commandMap));
+
+            indexedCommands = knownCommands.keySet().stream()
+                    .filter(name -> !name.contains(":"))
+                    .collect(Collectors.toList());
+
+            indexCommandTree(knownCommands);
+            indexAliasGroups(knownCommands);
+            // 别名变化后风险命令匹配器需要重建
+            plugin.getConfigManager().compileRiskyCommands();
+
             if (plugin.getConfigManager().isDebug()) {
-                plugin.getLogger().info("已索引 " + indexedCommands.size() + " 个命令。");
+                plugin.getLogger().info("已索引 " + indexedCommands.size() + " 个命令，语法树 " + convertedNodes.size() + " 个。");
             }
         } catch (Exception e) {
             plugin.getLogger().warning("索引命令时出错: " + e.getMessage());
@@ -52,7 +71,89 @@ public class WorkspaceIndexer {
         }
     }
 
+    /**
+     * 根据命令表重建语法树索引，只转换新出现的命令
+     */
+    private void indexCommandTree(Map<String, Command> knownCommands) {
+        Map<Command, CommandTreeIndex.Node> nextNodes = new IdentityHashMap<>();
+        Map<Object, CommandTreeIndex.Node> conversionCache = CommandTreeIndex.newConversionCache();
+        List<CommandTreeIndex.Root> roots = new ArrayList<>(knownCommands.size());
+
+        for (Map.Entry<String, Command> entry : knownCommands.entrySet()) {
+            Command command = entry.getValue();
+            if (command == null) continue;
+
+            CommandTreeIndex.Node node = nextNodes.get(command);
+            if (node == null && !nextNodes.containsKey(command)) {
+                if (convertedNodes.containsKey(command)) {
+                    node = convertedNodes.get(command);
+                } else {
+                    Object brigadierNode = CommandTreeIndex.findBrigadierNode(command);
+                    node = brigadierNode != null ? CommandTreeIndex.convert(brigadierNode, conversionCache) : null;
+                }
+                nextNodes.put(command, node);
+            }
+
+            String label = entry.getKey();
+            String usage = command.getUsage();
+            if (usage != null) {
+                usage = usage.replace("<command>", label);
+                if (usage.trim().isEmpty() || usage.trim().equals("/" + label)) usage = null;
+            }
+            roots.add(new CommandTreeIndex.Root(label, node, command.getPermission(), usage));
+        }
+
+        convertedNodes = nextNodes;
+        commandTree.replace(roots);
+    }
+
+    private void indexAliasGroups(Map<String, Command> knownCommands) {
+        Map<Command, List<String>> groups = new IdentityHashMap<>();
+        for (Map.Entry<String, Command> entry : knownCommands.entrySet()) {
+            if (entry.getValue() == null || entry.getKey().contains(":")) continue;
+            groups.computeIfAbsent(entry.getValue(), c -> new ArrayList<>()).add(entry.getKey());
+        }
+        aliasGroups = groups.values().stream()
+                .filter(labels -> labels.size() > 1)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 语法树快照中没有的命令名是否已在实时命令表中注册（如刚加载的插件）；是则安排一次刷新
+     */
+    private boolean isLiveCommand(String label) {
+        SimpleCommandMap map = commandMap;
+        if (map == null || map.getCommand(label) == null) return false;
+        scheduleRefresh();
+        return true;
+    }
+
+    /**
+     * 插件加载 / 卸载后合并刷新（1 秒内的多次触发只刷新一次）
+     */
+    public void scheduleRefresh() {
+        if (!plugin.isEnabled() || !refreshPending.compareAndSet(false, true)) return;
+        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            refreshPending.set(false);
+            indexCommands();
+        }, 20L);
+    }
+
     public List<String> getIndexedCommands() {
         return indexedCommands;
     }
+
+    /**
+     * 获取别名分组：同一命令的全部标签（只包含有别名的命令）
+     */
+    public List<List<String>> getAliasGroups() {
+        return aliasGroups;
+    }
+
+    /**
+     * 获取命令语法树索引
+     */
+    public CommandTreeIndex getCommandTree() {
+        return commandTree;
+    }
 }
@@ -6,21 +6,26 @@ import org.YanPl.mcp.client.McpClientManager;
 import org.YanPl.mcp.client.McpClientConfig;
 import org.YanPl.mcp.core.McpTypes;
 import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 public class McpManager {
 
     private final FancyHelper plugin;
     private final Logger logger;
+    /** 每个会话最多保留的暂存结果数 */
+    private static final int MAX_RESULTS_PER_SESSION = 16;
+
     private McpClientManager clientManager;
+    private McpResultStore resultStore;
     private boolean enabled;
-    private BukkitRunnable reconnectTask;
 
     public McpManager(FancyHelper plugin) {
         this.plugin = plugin;
@@ -34,6 +39,10 @@ public class McpManager {
             return;
         }
 
+        resultStore = new McpResultStore(new File(plugin.getDataFolder(), "mcp_results"),
+                plugin.getConfigManager().getMcpClientResultPageSize(), MAX_RESULTS_PER_SESSION);
+        resultStore.clearAll();
+
         List<McpClientConfig> serverConfigs = loadServerConfigs();
         if (serverConfigs.isEmpty()) {
             logger.info("[MCP] 没有配置 MCP 服务器");
@@ -46,6 +55,17 @@ public class McpManager {
         clientManager.setEnabled(enabled);
         clientManager.setToolStateFile(new File(plugin.getDataFolder(), "mcp_tools.json"));
         clientManager.loadToolStates();
+        clientManager.setCatalogFile(new File(plugin.getDataFolder(), "mcp_tool_catalog.json"));
+        clientManager.setToolCatalogTtlMillis(plugin.getConfigManager().getMcpClientToolCatalogTtl() * 60_000L);
+        clientManager.loadCatalog();
+        clientManager.setStartupDeadlineSeconds(plugin.getConfigManager().getMcpClientStartupDeadline());
+        clientManager.setHealthCheckIntervalSeconds(plugin.getConfigManager().getMcpClientHealthCheckInterval());
+        int reconnectMinutes = plugin.getConfigManager().getMcpClientReconnectInterval();
+        if (reconnectMinutes <= 0) {
+            logger.info("[MCP] 自动重连已关闭（reconnect_interval <= 0）");
+        }
+        clientManager.setReconnectBackoff(plugin.getConfigManager().getMcpClientReconnectBaseDelay() * 1000L,
+                reconnectMinutes * 60_000L);
 
         // 异步连接，不阻塞主线程（SSE 模式需要阻塞读取事件流）
         logger.info("[MCP] 正在连接 " + serverConfigs.size() + " 个 MCP 服务器...");
@@ -54,42 +74,6 @@ public class McpManager {
             logger.info("[MCP] MCP Client 初始化完成，已连接 " + clientManager.getClients().size() + " 个服务器");
         });
 
-        startReconnectTask();
-    }
-
-    private void startReconnectTask() {
-        int intervalMinutes = plugin.getConfigManager().getMcpClientReconnectInterval();
-        if (intervalMinutes <= 0) {
-            logger.info("[MCP] 自动重连已关闭（reconnect_interval <= 0）");
-            return;
-        }
-
-        long intervalTicks = intervalMinutes * 60L * 20L;
-        reconnectTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (clientManager == null || !enabled) {
-                    cancel();
-                    return;
-                }
-                List<McpClientConfig> disconnected = clientManager.getDisconnectedServers();
-                if (!disconnected.isEmpty()) {
-                    logger.fine("[MCP] 检测到 " + disconnected.size() + " 个服务器断线，尝试重连...");
-                    Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-                        for (McpClientConfig cfg : disconnected) {
-                            logger.fine("[MCP] 正在重连 " + cfg.getName() + "...");
-                            boolean ok = clientManager.connectServer(cfg);
-                            if (ok) {
-                                logger.fine("[MCP] " + cfg.getName() + " 重连成功");
-                            } else {
-                                logger.warning("[MCP] " + cfg.getName() + " 重连失败，下次重试");
-                            }
-                        }
-                    });
-                }
-            }
-        };
-        reconnectTask.runTaskTimer(plugin, intervalTicks, intervalTicks);
     }
 
     private List<McpClientConfig> loadServerConfigs() {
@@ -118,14 +102,63 @@ public class McpManager {
                 try { cfg.setCallTimeout(ct != null ? Integer.parseInt(ct.toString()) : 30); }
                 catch (NumberFormatException ignored) {}
             }
+            if (cfg.isStdio()) {
+                loadStdioConfig(cfg, raw);
+            }
+            cfg.setMaxConcurrentCalls(plugin.getConfigManager().getMcpClientMaxConcurrentCalls());
+            cfg.setMaxMessageBytes(plugin.getConfigManager().getMcpClientMaxMessageSize() * 1024 * 1024);
+            if (raw.containsKey("max_concurrent")) {
+                Object mc = raw.get("max_concurrent");
+                try { cfg.setMaxConcurrentCalls(Integer.parseInt(String.valueOf(mc))); }
+                catch (NumberFormatException ignored) {}
+            }
 
-            if (!cfg.getName().isEmpty() && !cfg.getUrl().isEmpty()) {
+            boolean hasEndpoint = cfg.isStdio() ? cfg.getCommand() != null && !cfg.getCommand().isEmpty()
+                    : !cfg.getUrl().isEmpty();
+            if (!cfg.getName().isEmpty() && hasEndpoint) {
                 configs.add(cfg);
+            } else if (!cfg.getName().isEmpty()) {
+                logger.warning("[MCP] 服务器 " + cfg.getName() + " 缺少 " + (cfg.isStdio() ? "command" : "url") + "，已跳过");
             }
         }
         return configs;
     }
 
+    /**
+     * stdio 服务器：command + args 启动进程，env 追加环境变量，cwd 相对插件数据目录
+     */
+    private void loadStdioConfig(McpClientConfig cfg, Map<?, ?> raw) {
+        Object command = raw.get("command");
+        cfg.setCommand(command != null ? command.toString().trim() : null);
+
+        Object argsObj = raw.get("args");
+        if (argsObj instanceof List) {
+            List<String> args = new ArrayList<>();
+            for (Object arg : (List<?>) argsObj) {
+                if (arg != null) args.add(arg.toString());
+            }
+            cfg.setArgs(args);
+        }
+
+        Object envObj = raw.get("env");
+        if (envObj instanceof Map) {
+            Map<String, String> env = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) envObj).entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    env.put(entry.getKey().toString(), entry.getValue().toString());
+                }
+            }
+            cfg.setEnv(env);
+        }
+
+        Object cwd = raw.get("cwd");
+        if (cwd != null && !cwd.toString().trim().isEmpty()) {
+            File dir = new File(cwd.toString().trim());
+            if (!dir.isAbsolute()) dir = new File(plugin.getDataFolder(), dir.getPath());
+            cfg.setWorkingDir(dir.getPath());
+        }
+    }
+
     public McpClientManager getClientManager() { return clientManager; }
     public boolean isEnabled() { return enabled && clientManager != null; }
 
@@ -134,29 +167,55 @@ public class McpManager {
         return clientManager.isToolEnabled(serverName, toolName);
     }
 
+    /**
+     * 过大的 MCP 结果暂存处，MCP Client 未启用时为 null
+     */
+    public McpResultStore getResultStore() {
+        return isEnabled() ? resultStore : null;
+    }
+
+    public void clearResults(UUID uuid) {
+        if (resultStore != null) resultStore.clear(uuid);
+    }
+
     public List<McpClientManager.ExternalToolInfo> getAllToolsWithState() {
         if (clientManager == null) return List.of();
         return clientManager.getAllToolsWithState();
     }
 
+    public List<McpClientManager.ServerStatus> getServerStatuses() {
+        if (clientManager == null) return List.of();
+        return clientManager.getServerStatuses();
+    }
+
+    public String getToolsListText() {
+        if (clientManager == null) return "";
+        return clientManager.getToolsListText();
+    }
+
     public McpTypes.McpToolCallResult callExternalTool(String serverName, String toolName, JsonObject arguments) {
         if (clientManager == null)
             return McpTypes.McpToolCallResult.error("MCP Client 未启用");
         return clientManager.callExternalTool(serverName, toolName, arguments);
     }
 
+    public CompletableFuture<McpTypes.McpToolCallResult> callExternalToolAsync(String serverName, String toolName, JsonObject arguments) {
+        if (clientManager == null)
+            return CompletableFuture.completedFuture(McpTypes.McpToolCallResult.error("MCP Client 未启用"));
+        return clientManager.callExternalToolAsync(serverName, toolName, arguments);
+    }
+
     public void reload() {
         shutdown();
         initialize();
     }
 
     public void shutdown() {
-        if (reconnectTask != null) {
-            reconnectTask.cancel();
-            reconnectTask = null;
-        }
         if (clientManager != null) {
-            clientManager.disconnectAll();
+            clientManager.shutdown();
+        }
+        if (resultStore != null) {
+            resultStore.clearAll();
         }
         logger.info("[MCP] MCP Manager 已关闭");
     }
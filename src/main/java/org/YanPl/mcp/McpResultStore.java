@@ -0,0 +1,173 @@
+package org.YanPl.mcp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按会话暂存过大的 MCP 工具结果。
+ * <p>
+ * 超过一页的结果写入 {@code <dir>/<玩家UUID>/<句柄>.txt}，对话历史里只放预览和句柄，
+ * AI 通过 #mcp_page 按窗口读取后续内容。每次只读一页，内存占用与结果大小无关。
+ * 玩家退出 CLI 时删除该会话的全部结果。
+ */
+public class McpResultStore {
+
+    private final File dir;
+    private final int pageChars;
+    private final int maxResultsPerSession;
+    private final Map<UUID, Session> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * @param pageChars            直接回填与每次翻页的字符数
+     * @param maxResultsPerSession 每个会话最多保留的结果数，超出时删除最早的
+     */
+    public McpResultStore(File dir, int pageChars, int maxResultsPerSession) {
+        this.dir = dir;
+        this.pageChars = Math.max(100, pageChars);
+        this.maxResultsPerSession = Math.max(1, maxResultsPerSession);
+    }
+
+    public int getPageChars() {
+        return pageChars;
+    }
+
+    /**
+     * 生成回填给 AI 的结果文本：不超过一页时原样返回，否则落盘并返回预览与句柄
+     */
+    public String toFeedback(UUID owner, String text) throws IOException {
+        if (text == null || text.length() <= pageChars) return text;
+
+        Session session = sessions.computeIfAbsent(owner, k -> new Session());
+        String handle;
+        File file;
+        synchronized (session) {
+            handle = "r" + (++session.counter);
+            file = new File(new File(dir, owner.toString()), handle + ".txt");
+            session.results.put(handle, new Stored(file, text.length()));
+            Iterator<Map.Entry<String, Stored>> it = session.results.entrySet().iterator();
+            while (session.results.size() > maxResultsPerSession && it.hasNext()) {
+                deleteQuietly(it.next().getValue().file);
+                it.remove();
+            }
+        }
+        Files.createDirectories(file.getParentFile().toPath());
+        try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(text);
+        }
+
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') lines++;
+        }
+        return "结果过长（共 " + text.length() + " 字符，" + lines + " 行），已暂存为 " + handle
+                + "，以下是前 " + pageChars + " 字符：\n" + text.substring(0, pageChars)
+                + "\n... 用 #mcp_page: " + handle + "|" + pageChars + " 读取后续内容";
+    }
+
+    /**
+     * 读取暂存结果从 offset 开始的一页
+     *
+     * @throws IllegalArgumentException 句柄不存在或 offset 越界
+     */
+    public String readPage(UUID owner, String handle, int offset) throws IOException {
+        Session session = sessions.get(owner);
+        Stored stored;
+        if (session == null) {
+            stored = null;
+        } else {
+            synchronized (session) {
+                stored = session.results.get(handle);
+            }
+        }
+        if (stored == null || !stored.file.isFile()) {
+            throw new IllegalArgumentException("结果 " + handle + " 不存在或已过期");
+        }
+        if (offset < 0 || offset >= stored.length) {
+            throw new IllegalArgumentException("offset 超出范围（0 - " + (stored.length - 1) + "）");
+        }
+
+        char[] page = new char[pageChars];
+        int read = 0;
+        try (Reader reader = Files.newBufferedReader(stored.file.toPath(), StandardCharsets.UTF_8)) {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = reader.skip(offset - skipped);
+                if (n <= 0) break;
+                skipped += n;
+            }
+            while (read < page.length) {
+                int n = reader.read(page, read, page.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+        }
+
+        int end = offset + read;
+        StringBuilder sb = new StringBuilder();
+        sb.append('[').append(handle).append(" 第 ").append(offset + 1).append('-').append(end)
+                .append(" 字符，共 ").append(stored.length).append("]\n");
+        sb.append(page, 0, read);
+        if (end < stored.length) {
+            sb.append("\n... 用 #mcp_page: ").append(handle).append('|').append(end).append(" 继续读取");
+        } else {
+            sb.append("\n(已到结尾)");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 删除玩家会话的全部暂存结果
+     */
+    public void clear(UUID owner) {
+        sessions.remove(owner);
+        deleteRecursively(new File(dir, owner.toString()));
+    }
+
+    /**
+     * 删除所有暂存结果（插件启动与关闭时调用）
+     */
+    public void clearAll() {
+        sessions.clear();
+        deleteRecursively(dir);
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        deleteQuietly(file);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static final class Session {
+        int counter;
+        final LinkedHashMap<String, Stored> results = new LinkedHashMap<>();
+    }
+
+    private static final class Stored {
+        final File file;
+        final int length;
+
+        Stored(File file, int length) {
+            this.file = file;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.YanPl.mcp.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * 限长的 HTTP 响应体：累计超过上限时立即取消读取并以 {@link OversizedMessageException} 失败，
+ * 不会把超大响应整体读进内存。
+ */
+final class BoundedBodySubscriber implements HttpResponse.BodySubscriber<String> {
+
+    private final long maxBytes;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final CompletableFuture<String> body = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+
+    private BoundedBodySubscriber(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    static HttpResponse.BodyHandler<String> handler(long maxBytes) {
+        return info -> new BoundedBodySubscriber(maxBytes);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> items) {
+        if (body.isDone()) return;
+        for (ByteBuffer item : items) {
+            if (buffer.size() + (long) item.remaining() > maxBytes) {
+                subscription.cancel();
+                buffer.reset();
+                body.completeExceptionally(new OversizedMessageException(maxBytes));
+                return;
+            }
+            byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            buffer.write(bytes, 0, bytes.length);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        body.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        body.complete(buffer.toString(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public CompletionStage<String> getBody() {
+        return body;
+    }
+
+    /**
+     * 单条消息超过 max_message_size
+     */
+    static final class OversizedMessageException extends IOException {
+        OversizedMessageException(long maxBytes) {
+            super("消息超过 " + (maxBytes / 1024) + " KB 上限，已丢弃");
+        }
+    }
+}
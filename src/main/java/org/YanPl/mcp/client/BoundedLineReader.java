@@ -0,0 +1,55 @@
+package org.YanPl.mcp.client;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 限长的按行读取：单行超过上限时只保留前 maxChars 个字符，其余部分读掉丢弃。
+ * <p>
+ * 外部服务器返回的一行可能有几百 MB，{@link BufferedReader#readLine()} 会把它整行读进内存。
+ */
+final class BoundedLineReader {
+
+    private final BufferedReader in;
+    private final int maxChars;
+    private boolean truncated;
+
+    BoundedLineReader(Reader in, int maxChars) {
+        this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.maxChars = Math.max(1, maxChars);
+    }
+
+    /**
+     * 读取一行（不含行尾的 \n 或 \r\n）
+     *
+     * @return 该行内容，超长时为截断后的前缀；流结束时返回 null
+     */
+    String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        truncated = false;
+        int c = in.read();
+        if (c == -1) return null;
+        while (c != -1 && c != '\n') {
+            if (c == '\r') {
+                in.mark(1);
+                if (in.read() != '\n') in.reset();
+                break;
+            }
+            if (line.length() < maxChars) {
+                line.append((char) c);
+            } else {
+                truncated = true;
+            }
+            c = in.read();
+        }
+        return line.toString();
+    }
+
+    /**
+     * 上一次 {@link #readLine()} 返回的行是否被截断
+     */
+    boolean wasTruncated() {
+        return truncated;
+    }
+}
@@ -1,41 +1,86 @@
 package org.YanPl.mcp.client;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.YanPl.mcp.core.JsonRpcHandler;
 import org.YanPl.mcp.core.JsonRpcMessage;
 import org.YanPl.mcp.core.McpTypes;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Logger;
-
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 单个 MCP 服务器的客户端。
+ * <p>
+ * 请求通过 {@link #sendAsync} 异步发出，按 JSON-RPC id 关联响应：
+ * 响应可以直接在 POST 的响应体里（JSON 或 SSE 格式），也可以经由 SSE 事件流送达（HTTP 202）；
+ * stdio 传输则启动本地进程，请求与响应都是 stdin/stdout 上的一行 JSON。
+ * 同一服务器可以同时进行多个请求，超过 {@link McpClientConfig#getMaxConcurrentCalls()} 时直接拒绝；
+ * 请求被取消或超时时会向服务器发送 notifications/cancelled。
+ */
 public class McpClient {
 
     private static final String MCP_PROTOCOL_VERSION = "2024-11-05";
+    private static final Gson gson = new Gson();
+    /** 关闭 stdio 进程时等待其自行退出的时间 */
+    private static final long STDIO_GRACE_MILLIS = 3000;
+    /** 从消息前缀中找出 JSON-RPC id（字符串或数字） */
+    private static final Pattern MESSAGE_ID = Pattern.compile("\"id\"\\s*:\\s*(?:\"([^\"]*)\"|(-?\\d+))");
 
     private final McpClientConfig config;
     private final HttpClient httpClient;
     private final Logger logger;
+    private final PendingRequests pending = new PendingRequests();
+    private final Semaphore permits;
+    private volatile long lastMessageAt;
     private volatile List<McpTypes.McpTool> tools = new ArrayList<>();
     private volatile boolean connected = false;
+    private volatile boolean sse = false;
     private volatile String postEndpoint;
     private volatile boolean running = false;
     private volatile CountDownLatch sseEndpointLatch;
     private volatile Thread sseReaderThread;
+    private volatile StdioProcess stdio;
+    /** 工具列表最近一次从服务器拉取的时间，0 表示从未拉取 */
+    private volatile long toolsFetchedAt = 0;
+    /** 工具列表内容变化时递增 */
+    private volatile long toolsVersion = 0;
+    private volatile long toolCatalogTtlMillis = 0;
+    private volatile boolean refreshingTools = false;
+    private volatile Runnable stateListener;
+    private volatile String lastError;
 
     public McpClient(McpClientConfig config, int connectTimeoutSeconds, Logger logger) {
         this.config = config;
         this.logger = logger;
+        this.permits = new Semaphore(config.getMaxConcurrentCalls());
         int timeout = connectTimeoutSeconds > 0 ? connectTimeoutSeconds : 10;
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(timeout))
@@ -47,41 +92,56 @@ public class McpClient {
     public boolean isConnected() { return connected; }
     public List<McpTypes.McpTool> getTools() { return Collections.unmodifiableList(tools); }
 
+    public long getToolsVersion() { return toolsVersion; }
+    public long getToolsFetchedAt() { return toolsFetchedAt; }
+
+    /**
+     * 工具目录的有效期，过期后下次连接或读取目录时重新拉取；0 表示不按时间过期
+     */
+    public void setToolCatalogTtlMillis(long ttlMillis) { this.toolCatalogTtlMillis = Math.max(0, ttlMillis); }
+
+    /**
+     * 工具列表或连接状态变化时回调（在网络线程上调用）
+     */
+    public void setStateListener(Runnable listener) { this.stateListener = listener; }
+
+    /**
+     * 用持久化的工具目录预热，目录未过期时连接后不再执行 tools/list
+     */
+    public void seedTools(List<McpTypes.McpTool> cachedTools, long fetchedAt, long version) {
+        if (cachedTools == null) return;
+        this.tools = new ArrayList<>(cachedTools);
+        this.toolsFetchedAt = fetchedAt;
+        this.toolsVersion = version;
+    }
+
+    public boolean isToolCatalogStale(long now) {
+        if (toolsFetchedAt == 0) return true;
+        return toolCatalogTtlMillis > 0 && now - toolsFetchedAt >= toolCatalogTtlMillis;
+    }
+
+    /** 最近一次连接失败的原因，连接成功后清空 */
+    public String getLastError() { return lastError; }
+
+    /** 当前等待响应的请求数 */
+    public int getInFlightCount() { return pending.size(); }
+
+    /** 最近一次收到服务器消息（响应、请求或通知）的时间，从未收到为 0 */
+    public long getLastMessageAt() { return lastMessageAt; }
+
     public boolean connect() {
         running = true;
         try {
             String transport = config.getTransport();
-            boolean isSse = "sse".equalsIgnoreCase(transport);
+            sse = "sse".equalsIgnoreCase(transport);
 
-            String endpoint = resolveEndpoint();
-            if (endpoint == null) {
-                logger.warning("[MCP] " + config.getName() + ": 无法解析端点 URL");
+            if (config.isStdio()) {
+                startStdio();
+            } else if (!openHttpSession()) {
                 return false;
             }
 
-            // SSE 模式：先建立 SSE 连接获取消息端点
-            if (isSse) {
-                sseEndpointLatch = new CountDownLatch(1);
-                startSseReader(endpoint);
-                try {
-                    if (!sseEndpointLatch.await(config.getCallTimeout(), TimeUnit.SECONDS)) {
-                        logger.warning("[MCP] " + config.getName() + ": SSE 端点获取超时");
-                        return false;
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    return false;
-                }
-                if (postEndpoint == null) {
-                    logger.warning("[MCP] " + config.getName() + ": SSE 会话建立失败");
-                    return false;
-                }
-                logger.fine("[MCP] " + config.getName() + ": SSE 会话已建立");
-            } else {
-                postEndpoint = endpoint;
-            }
-
-            // 现在 postEndpoint 已设置，发送握手请求到正确的端点
+            // 传输已就绪，发送握手请求
             JsonObject initParams = new JsonObject();
             initParams.addProperty("protocolVersion", MCP_PROTOCOL_VERSION);
             JsonObject clientInfo = new JsonObject();
@@ -93,8 +153,7 @@ public class McpClient {
             JsonRpcMessage.Response initResp = sendRequest("initialize", initParams);
             if (initResp == null || initResp.error != null) {
                 String err = initResp != null && initResp.error != null ? initResp.error.message : "无响应";
-                logger.warning("[MCP] " + config.getName() + ": initialize 失败 - " + err);
-                return false;
+                return fail("initialize 失败 - " + err);
             }
 
             JsonObject result = initResp.result != null ? initResp.result.getAsJsonObject() : null;
@@ -107,30 +166,107 @@ public class McpClient {
 
             connected = true;
 
-            if (!discoverTools()) {
-                logger.warning("[MCP] " + config.getName() + ": 工具发现失败");
-            }
-            logger.info("[MCP] " + config.getName() + ": 连接成功，已发现 " + tools.size() + " 个工具");
-
-            if (!isSse) {
-                startPing();
+            if (!isToolCatalogStale(System.currentTimeMillis())) {
+                logger.info("[MCP] " + config.getName() + ": 连接成功，使用缓存的工具目录（" + tools.size() + " 个工具）");
+            } else {
+                if (!discoverTools()) {
+                    logger.warning("[MCP] " + config.getName() + ": 工具发现失败");
+                }
+                logger.info("[MCP] " + config.getName() + ": 连接成功，已发现 " + tools.size() + " 个工具");
             }
+            lastError = null;
             return true;
 
         } catch (Exception e) {
             running = false;
-            logger.warning("[MCP] " + config.getName() + ": 连接失败 - " + e.getMessage());
+            return fail("连接失败 - " + e.getMessage());
+        }
+    }
+
+    /**
+     * HTTP 传输：确定 POST 端点，SSE 模式下先建立事件流并等待服务器告知消息端点
+     */
+    private boolean openHttpSession() {
+        String endpoint = resolveEndpoint();
+        if (endpoint == null) {
+            return fail("无法解析端点 URL");
+        }
+        if (!sse) {
+            postEndpoint = endpoint;
+            return true;
+        }
+
+        sseEndpointLatch = new CountDownLatch(1);
+        startSseReader(endpoint);
+        try {
+            if (!sseEndpointLatch.await(config.getCallTimeout(), TimeUnit.SECONDS)) {
+                return fail("SSE 端点获取超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
+        if (postEndpoint == null) {
+            return fail(lastError != null ? lastError : "SSE 会话建立失败");
+        }
+        logger.fine("[MCP] " + config.getName() + ": SSE 会话已建立");
+        return true;
+    }
+
+    /**
+     * stdio 传输：启动本地进程，stdout 的每一行按 JSON-RPC 消息分发
+     */
+    private void startStdio() throws IOException {
+        List<String> commandLine = config.getCommandLine();
+        if (commandLine.isEmpty()) {
+            throw new IOException("未配置 command");
+        }
+        String dir = config.getWorkingDir();
+        AtomicReference<StdioProcess> self = new AtomicReference<>();
+        StdioProcess process = StdioProcess.start(config.getName(), commandLine, config.getEnv(),
+                dir != null && !dir.isEmpty() ? new File(dir) : null,
+                config.getMaxMessageBytes(), this::onStdioLine, code -> onStdioExit(self.get(), code), logger);
+        self.set(process);
+        stdio = process;
+    }
+
+    private void onStdioLine(String line, boolean truncated) {
+        if (truncated) {
+            onOversizedMessage(line);
+            return;
+        }
+        try {
+            dispatch(JsonParser.parseString(line));
+        } catch (Exception e) {
+            logger.fine("[MCP] " + config.getName() + ": 忽略非 JSON 输出 " + line);
+        }
+    }
+
+    /**
+     * 进程意外退出：让等待中的请求失败并通知管理器按退避策略重启
+     */
+    private void onStdioExit(StdioProcess process, int code) {
+        if (!running || (process != null && process != stdio)) return;
+        lastError = "进程已退出（退出码 " + code + "）";
+        logger.warning("[MCP] " + config.getName() + ": " + lastError);
+        connected = false;
+        pending.failAll(new IOException(lastError));
+        fireStateChanged();
+    }
+
+    private boolean fail(String reason) {
+        lastError = reason;
+        logger.warning("[MCP] " + config.getName() + ": " + reason);
+        return false;
     }
 
     private void startSseReader(String sseUrl) {
+        CountDownLatch endpointLatch = sseEndpointLatch;
         Thread t = new Thread(() -> {
             try {
                 HttpRequest.Builder sseBuilder = HttpRequest.newBuilder()
                         .uri(URI.create(sseUrl))
                         .header("Accept", "text/event-stream")
-                        .timeout(Duration.ofSeconds(config.getCallTimeout()))
                         .GET();
 
                 String apiKey = config.getApiKey();
@@ -143,42 +279,32 @@ public class McpClient {
                         HttpResponse.BodyHandlers.ofInputStream());
 
                 if (response.statusCode() != 200) {
-                    logger.warning("[MCP] " + config.getName() + ": SSE 连接返回 HTTP " + response.statusCode());
+                    lastError = "SSE 连接返回 HTTP " + response.statusCode();
+                    logger.warning("[MCP] " + config.getName() + ": " + lastError);
                     response.body().close();
                     return;
                 }
 
-                try (BufferedReader reader = new BufferedReader(
-                        new InputStreamReader(response.body(), java.nio.charset.StandardCharsets.UTF_8))) {
-                    String line;
-                    while (running && (line = reader.readLine()) != null) {
-                        if (line.startsWith("data: ")) {
-                            String data = line.substring(6).trim();
-                            if (data.startsWith("{")) {
-                                JsonObject json = com.google.gson.JsonParser.parseString(data)
-                                        .getAsJsonObject();
-                                if (json.has("uri")) {
-                                    postEndpoint = json.get("uri").getAsString();
-                                    sseEndpointLatch.countDown();
-                                }
-                                if (json.has("sessionId")) {
-                                    config.setSessionId(json.get("sessionId").getAsString());
-                                }
-                            } else {
-                                postEndpoint = data;
-                                sseEndpointLatch.countDown();
-                            }
-                        }
-                        // 忽略 SSE 注释（keep-alive 等）
-                    }
-                } catch (java.io.IOException e) {
+                try (Reader reader = new InputStreamReader(response.body(), StandardCharsets.UTF_8)) {
+                    readSseEvents(reader, this::isCurrentSseReader, (event, data) -> handleSseEvent(sseUrl, event, data));
+                } catch (IOException e) {
                     if (running) {
                         logger.warning("[MCP] " + config.getName() + ": SSE 流读取异常 - " + e.getMessage());
                     }
                 }
             } catch (Exception e) {
                 if (running) {
-                    logger.warning("[MCP] " + config.getName() + ": SSE 会话异常 - " + e.getMessage());
+                    lastError = "SSE 会话异常 - " + e.getMessage();
+                    logger.warning("[MCP] " + config.getName() + ": " + lastError);
+                }
+            } finally {
+                // 没拿到端点就结束时让 connect 立即失败，而不是等满超时
+                endpointLatch.countDown();
+                if (isCurrentSseReader()) {
+                    // 事件流断开后，经由它返回的响应都不会再到达
+                    connected = false;
+                    pending.failAll(new IOException("SSE 连接已断开"));
+                    fireStateChanged();
                 }
             }
         }, "mcp-sse-" + config.getName());
@@ -187,8 +313,184 @@ public class McpClient {
         t.start();
     }
 
+    /**
+     * 重连后旧的读取线程可能仍阻塞在 readLine 上，它的结束不应影响新连接
+     */
+    private boolean isCurrentSseReader() {
+        return running && sseReaderThread == Thread.currentThread();
+    }
+
+    private interface SseEventHandler {
+        void onEvent(String event, String data);
+    }
+
+    /**
+     * 按 SSE 规范读取事件：多行 data 以换行拼接，空行结束一个事件。
+     * 单个事件超过 max_message_size 时只保留前缀，并按其中的 id 让对应请求失败
+     */
+    private void readSseEvents(Reader source, BooleanSupplier live, SseEventHandler handler) throws IOException {
+        int limit = config.getMaxMessageBytes();
+        BoundedLineReader reader = new BoundedLineReader(source, limit);
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        boolean oversized = false;
+        String line;
+        while (live.getAsBoolean() && (line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (oversized) {
+                    onOversizedMessage(data.toString());
+                } else if (data.length() > 0) {
+                    handler.onEvent(event, data.toString());
+                }
+                event = null;
+                data.setLength(0);
+                oversized = false;
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("data:")) {
+                if (oversized) continue;
+                if (data.length() > 0) data.append('\n');
+                String chunk = line.substring(5).trim();
+                int room = limit - data.length();
+                if (reader.wasTruncated() || chunk.length() > room) {
+                    data.append(chunk, 0, Math.max(0, Math.min(room, chunk.length())));
+                    oversized = true;
+                } else {
+                    data.append(chunk);
+                }
+            }
+            // 忽略 SSE 注释（keep-alive 等）与 id / retry 字段
+        }
+        if (oversized) {
+            onOversizedMessage(data.toString());
+        } else if (data.length() > 0) {
+            handler.onEvent(event, data.toString());
+        }
+    }
+
+    /**
+     * 超过上限的消息无法完整解析，只能从前缀里找出请求 id，让对应请求以超限失败
+     */
+    private void onOversizedMessage(String prefix) {
+        Matcher matcher = MESSAGE_ID.matcher(prefix.length() > 4096 ? prefix.substring(0, 4096) : prefix);
+        String id = matcher.find() ? (matcher.group(1) != null ? matcher.group(1) : matcher.group(2)) : null;
+        BoundedBodySubscriber.OversizedMessageException error =
+                new BoundedBodySubscriber.OversizedMessageException(config.getMaxMessageBytes());
+        if (!pending.fail(id, error)) {
+            logger.warning("[MCP] " + config.getName() + ": 丢弃了一条超过大小上限的消息");
+        }
+    }
+
+    private void handleSseEvent(String sseUrl, String event, String data) {
+        if (!data.startsWith("{") && !data.startsWith("[")) {
+            // endpoint 事件：消息端点，可能是相对路径
+            postEndpoint = URI.create(sseUrl).resolve(data).toString();
+            sseEndpointLatch.countDown();
+            return;
+        }
+        try {
+            JsonElement element = JsonParser.parseString(data);
+            if (element.isJsonObject()) {
+                JsonObject json = element.getAsJsonObject();
+                if (json.has("uri")) {
+                    postEndpoint = json.get("uri").getAsString();
+                    sseEndpointLatch.countDown();
+                }
+                if (json.has("sessionId")) {
+                    config.setSessionId(json.get("sessionId").getAsString());
+                }
+            }
+            dispatch(element);
+        } catch (Exception e) {
+            logger.fine("[MCP] " + config.getName() + ": 无法解析 SSE 事件 " + event + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 分发服务器发来的 JSON-RPC 消息（单条或批量）
+     */
+    private void dispatch(JsonElement element) {
+        if (element.isJsonArray()) {
+            for (JsonElement item : element.getAsJsonArray()) {
+                dispatch(item);
+            }
+            return;
+        }
+        if (!element.isJsonObject()) return;
+        lastMessageAt = System.currentTimeMillis();
+        JsonObject json = element.getAsJsonObject();
+        boolean hasId = json.has("id") && !json.get("id").isJsonNull();
+        if (hasId && (json.has("result") || json.has("error"))) {
+            JsonRpcMessage.Response response = gson.fromJson(json, JsonRpcMessage.Response.class);
+            if (!pending.complete(response)) {
+                logger.fine("[MCP] " + config.getName() + ": 收到未知或已结束请求的响应 id=" + response.id);
+            }
+        } else if (json.has("method")) {
+            String method = json.get("method").getAsString();
+            JsonObject params = json.has("params") && json.get("params").isJsonObject()
+                    ? json.getAsJsonObject("params") : null;
+            if (hasId) {
+                onServerRequest(json.get("id").getAsString(), method);
+            } else {
+                onNotification(method, params);
+            }
+        }
+    }
+
+    /**
+     * 服务器发来的请求：目前只应答 ping，其余回复方法不存在
+     */
+    private void onServerRequest(String id, String method) {
+        JsonRpcMessage.Response reply = "ping".equals(method)
+                ? JsonRpcMessage.Response.success(id, new JsonObject())
+                : JsonRpcMessage.Response.error(id, JsonRpcMessage.METHOD_NOT_FOUND, "Method not found: " + method);
+        postAsync(JsonRpcMessage.toJson(reply));
+    }
+
+    /**
+     * 服务器发来的通知
+     */
+    private void onNotification(String method, JsonObject params) {
+        logger.fine("[MCP] " + config.getName() + ": 收到通知 " + method);
+        if ("notifications/tools/list_changed".equals(method)) {
+            refreshToolsAsync();
+        }
+    }
+
+    /**
+     * 在后台重新拉取工具列表，已有刷新在进行时不重复发起
+     */
+    public void refreshToolsAsync() {
+        if (!connected || refreshingTools) return;
+        refreshingTools = true;
+        sendAsync("tools/list", null).whenComplete((resp, err) -> {
+            refreshingTools = false;
+            if (err != null) {
+                logger.fine("[MCP] " + config.getName() + ": 刷新工具列表失败 - " + describe(unwrap(err)));
+                return;
+            }
+            applyToolsList(resp);
+        });
+    }
+
+    private void fireStateChanged() {
+        Runnable listener = stateListener;
+        if (listener == null) return;
+        try {
+            listener.run();
+        } catch (Exception e) {
+            logger.warning("[MCP] " + config.getName() + ": 状态回调异常 - " + e.getMessage());
+        }
+    }
+
     public boolean discoverTools() {
-        JsonRpcMessage.Response resp = sendRequest("tools/list", null);
+        return applyToolsList(sendRequest("tools/list", null));
+    }
+
+    /**
+     * 应用 tools/list 的响应；列表内容有变化时递增版本并回调
+     */
+    private boolean applyToolsList(JsonRpcMessage.Response resp) {
         if (resp == null || resp.error != null) {
             String err = resp != null && resp.error != null ? resp.error.message : "无响应";
             logger.warning("[MCP] " + config.getName() + ": tools/list 失败 - " + err);
@@ -198,7 +500,13 @@ public class McpClient {
         try {
             McpTypes.ToolsListResult listResult = JsonRpcHandler.parseResult(resp.result, McpTypes.ToolsListResult.class);
             if (listResult != null && listResult.tools != null) {
+                boolean changed = !gson.toJson(listResult.tools).equals(gson.toJson(tools));
                 tools = listResult.tools;
+                toolsFetchedAt = System.currentTimeMillis();
+                if (changed) {
+                    toolsVersion++;
+                    fireStateChanged();
+                }
             }
         } catch (Exception e) {
             logger.warning("[MCP] " + config.getName() + ": 解析工具列表失败 - " + e.getMessage());
@@ -208,22 +516,52 @@ public class McpClient {
     }
 
     public McpTypes.McpToolCallResult callTool(String toolName, JsonObject arguments) {
-        if (!connected) return McpTypes.McpToolCallResult.error("MCP 服务器未连接: " + config.getName());
-
         try {
-            JsonObject params = new JsonObject();
-            params.addProperty("name", toolName);
-            params.add("arguments", arguments != null ? arguments : new JsonObject());
+            return callToolAsync(toolName, arguments).join();
+        } catch (CancellationException e) {
+            return McpTypes.McpToolCallResult.error("MCP 调用已取消: " + config.getName());
+        }
+    }
 
-            JsonRpcMessage.Response resp = sendRequest("tools/call", params);
-            if (resp == null) {
-                return McpTypes.McpToolCallResult.error("MCP 服务器无响应: " + config.getName());
-            }
-            if (resp.error != null) {
-                return McpTypes.McpToolCallResult.error("MCP 错误: " + resp.error.message);
-            }
+    /**
+     * 异步调用工具。返回的 future 总是正常完成（错误包装在结果里），
+     * 对它调用 cancel 会取消底层请求并通知服务器。
+     */
+    public CompletableFuture<McpTypes.McpToolCallResult> callToolAsync(String toolName, JsonObject arguments) {
+        if (!connected) {
+            return CompletableFuture.completedFuture(
+                    McpTypes.McpToolCallResult.error("MCP 服务器未连接: " + config.getName()));
+        }
 
-            return JsonRpcHandler.parseResult(resp.result, McpTypes.McpToolCallResult.class);
+        JsonObject params = new JsonObject();
+        params.addProperty("name", toolName);
+        params.add("arguments", arguments != null ? arguments : new JsonObject());
+
+        CompletableFuture<JsonRpcMessage.Response> request = sendAsync("tools/call", params);
+        CompletableFuture<McpTypes.McpToolCallResult> result = request.handle(this::toToolResult);
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) request.cancel(true);
+        });
+        return result;
+    }
+
+    private McpTypes.McpToolCallResult toToolResult(JsonRpcMessage.Response resp, Throwable err) {
+        if (err != null) {
+            Throwable cause = unwrap(err);
+            if (cause instanceof CancellationException) {
+                return McpTypes.McpToolCallResult.error("MCP 调用已取消: " + config.getName());
+            }
+            return McpTypes.McpToolCallResult.error("MCP 调用异常: " + describe(cause));
+        }
+        if (resp == null) {
+            return McpTypes.McpToolCallResult.error("MCP 服务器无响应: " + config.getName());
+        }
+        if (resp.error != null) {
+            return McpTypes.McpToolCallResult.error("MCP 错误: " + resp.error.message);
+        }
+        try {
+            McpTypes.McpToolCallResult parsed = JsonRpcHandler.parseResult(resp.result, McpTypes.McpToolCallResult.class);
+            return parsed != null ? parsed : McpTypes.McpToolCallResult.error("MCP 服务器无响应: " + config.getName());
         } catch (Exception e) {
             return McpTypes.McpToolCallResult.error("MCP 调用异常: " + e.getMessage());
         }
@@ -232,6 +570,7 @@ public class McpClient {
     public void disconnect() {
         running = false;
         connected = false;
+        pending.failAll(new IOException("连接已关闭"));
         tools = new ArrayList<>();
         postEndpoint = null;
         Thread t = sseReaderThread;
@@ -239,47 +578,172 @@ public class McpClient {
             sseReaderThread = null;
             t.interrupt();
         }
+        StdioProcess process = stdio;
+        if (process != null) {
+            stdio = null;
+            process.stop(STDIO_GRACE_MILLIS);
+        }
     }
 
     private String getPostEndpoint() {
         return postEndpoint != null ? postEndpoint : resolveEndpoint();
     }
 
-    private JsonRpcMessage.Response sendRequest(String method, JsonObject params) {
+    /**
+     * 异步发送请求。返回的 future 在收到同 id 的响应时完成；
+     * 超过 call_timeout 以 TimeoutException 失败，被取消时会通知服务器放弃该请求。
+     */
+    public CompletableFuture<JsonRpcMessage.Response> sendAsync(String method, JsonObject params) {
+        if (!permits.tryAcquire()) {
+            CompletableFuture<JsonRpcMessage.Response> busy = new CompletableFuture<>();
+            busy.completeExceptionally(new IllegalStateException("服务器 " + config.getName()
+                    + " 同时进行的请求已达上限（" + config.getMaxConcurrentCalls() + "），请稍后再试"));
+            return busy;
+        }
+        return send(method, params, true);
+    }
+
+    /**
+     * @param limited 是否占用了并发额度（ping 不占用，避免额度占满时健康检查误判断线）
+     */
+    private CompletableFuture<JsonRpcMessage.Response> send(String method, JsonObject params, boolean limited) {
+        String id = JsonRpcHandler.generateId();
+        CompletableFuture<JsonRpcMessage.Response> future = pending.register(id);
+        CompletableFuture<?> exchange;
         try {
-            String requestBody = JsonRpcHandler.buildRequestJson(method, params);
-            HttpRequest request = buildHttpRequest(requestBody);
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            String body = JsonRpcHandler.buildRequestJson(id, method, params);
+            StdioProcess process = stdio;
+            if (process != null) {
+                // 响应由 stdout 读取线程按 id 分发
+                process.send(body);
+                exchange = CompletableFuture.completedFuture(null);
+            } else {
+                exchange = post(id, body, future);
+            }
+        } catch (Exception e) {
+            if (limited) permits.release();
+            future.completeExceptionally(e);
+            return future;
+        }
+
+        // 调用方拿到的 future 在归还并发额度之后才完成，保证其后续调用不会被误判为超出上限
+        CompletableFuture<JsonRpcMessage.Response> result = new CompletableFuture<>();
+        future.orTimeout(config.getCallTimeout(), TimeUnit.SECONDS);
+        future.whenComplete((r, e) -> {
+            if (limited) permits.release();
+            if (e instanceof CancellationException || e instanceof TimeoutException) {
+                exchange.cancel(true);
+                if (!"initialize".equals(method) && running) {
+                    JsonObject cancelParams = new JsonObject();
+                    cancelParams.addProperty("requestId", id);
+                    cancelParams.addProperty("reason", e instanceof TimeoutException ? "timeout" : "cancelled by user");
+                    postAsync(JsonRpcHandler.buildNotificationJson("notifications/cancelled", cancelParams));
+                }
+            }
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete(r);
+            }
+        });
+        result.whenComplete((r, e) -> {
+            if (e instanceof CancellationException) future.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * 通过 HTTP POST 发送请求，响应体里的结果直接分发；202 表示结果将经由 SSE 事件流送达
+     */
+    private CompletableFuture<HttpResponse<String>> post(String id, String body,
+                                                         CompletableFuture<JsonRpcMessage.Response> future) {
+        CompletableFuture<HttpResponse<String>> http =
+                httpClient.sendAsync(buildHttpRequest(body), BoundedBodySubscriber.handler(config.getMaxMessageBytes()));
+        http.whenComplete((response, err) -> {
+            if (err != null) {
+                future.completeExceptionally(unwrap(err));
+                return;
+            }
+            response.headers().firstValue("Mcp-Session-Id").ifPresent(config::setSessionId);
+            int status = response.statusCode();
+            if (status == 202 || status == 204) {
+                // 响应将经由 SSE 事件流送达
+                return;
+            }
+            if (status != 200) {
+                future.completeExceptionally(new IOException("HTTP " + status));
+                return;
+            }
+            dispatchBody(response);
+            if (!sse && !future.isDone()) {
+                future.completeExceptionally(new IOException("响应中没有请求 " + id + " 的结果"));
+            }
+        });
+        return http;
+    }
 
-            if (response.statusCode() != 200) {
-                logger.warning("[MCP] " + config.getName() + " " + method + " 返回 HTTP " + response.statusCode());
-                return null;
+    /**
+     * 解析 POST 响应体：可能是 JSON（单条或批量），也可能是 SSE 格式（可流式 HTTP 传输）
+     */
+    private void dispatchBody(HttpResponse<String> response) {
+        String body = response.body();
+        if (body == null || body.trim().isEmpty()) return;
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        try {
+            if (contentType.contains("text/event-stream")) {
+                readSseEvents(new StringReader(body), () -> true, (event, data) -> {
+                    if (data.startsWith("{") || data.startsWith("[")) {
+                        dispatch(JsonParser.parseString(data));
+                    }
+                });
+            } else {
+                dispatch(JsonParser.parseString(body));
             }
-            return JsonRpcMessage.parseResponse(response.body());
         } catch (Exception e) {
-            logger.warning("[MCP] " + config.getName() + " " + method + " 请求失败: " + e.getMessage());
+            logger.fine("[MCP] " + config.getName() + ": 无法解析响应 - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 同步发送请求（握手、工具发现、ping 使用），失败返回 null
+     */
+    private JsonRpcMessage.Response sendRequest(String method, JsonObject params) {
+        try {
+            return sendAsync(method, params).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            logger.warning("[MCP] " + config.getName() + " " + method + " 请求失败: " + describe(e.getCause()));
             return null;
         }
     }
 
+    private String describe(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "超时（" + config.getCallTimeout() + " 秒）";
+        }
+        return e != null && e.getMessage() != null ? e.getMessage() : String.valueOf(e);
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        while ((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
     private void sendNotification(String method, JsonObject params) {
+        if (stdio != null) {
+            postAsync(JsonRpcHandler.buildNotificationJson(method, params));
+            return;
+        }
         try {
             String ep = getPostEndpoint();
             if (ep == null) return;
 
             String body = JsonRpcHandler.buildNotificationJson(method, params);
-            HttpRequest.Builder builder = HttpRequest.newBuilder()
-                    .uri(URI.create(ep))
-                    .timeout(Duration.ofSeconds(config.getCallTimeout()))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(body));
-
-            String apiKey = config.getApiKey();
-            if (apiKey != null && !apiKey.isEmpty()) {
-                builder.header("Authorization", "Bearer " + apiKey);
-            }
-
-            HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> response = httpClient.send(buildHttpRequest(body), HttpResponse.BodyHandlers.ofString());
             if (response.statusCode() != 200 && response.statusCode() != 202) {
                 String respBody = response.body();
                 if (respBody != null && respBody.length() > 200) respBody = respBody.substring(0, 200);
@@ -290,6 +754,23 @@ public class McpClient {
         }
     }
 
+    /**
+     * 发送不需要等待结果的消息（通知、对服务器请求的应答）
+     */
+    private void postAsync(String body) {
+        try {
+            StdioProcess process = stdio;
+            if (process != null) {
+                process.send(body);
+                return;
+            }
+            if (getPostEndpoint() == null) return;
+            httpClient.sendAsync(buildHttpRequest(body), HttpResponse.BodyHandlers.discarding());
+        } catch (Exception e) {
+            logger.fine("[MCP] " + config.getName() + " 消息发送失败: " + e.getMessage());
+        }
+    }
+
     private HttpRequest buildHttpRequest(String body) {
         HttpRequest.Builder builder = HttpRequest.newBuilder()
                 .uri(URI.create(getPostEndpoint()))
@@ -302,23 +783,19 @@ public class McpClient {
         if (apiKey != null && !apiKey.isEmpty()) {
             builder.header("Authorization", "Bearer " + apiKey);
         }
+        String sessionId = config.getSessionId();
+        if (!sse && sessionId != null && !sessionId.isEmpty()) {
+            builder.header("Mcp-Session-Id", sessionId);
+        }
         return builder.build();
     }
 
-    private void startPing() {
-        Thread t = new Thread(() -> {
-            while (running && connected) {
-                try {
-                    Thread.sleep(30_000);
-                    if (!running || !connected) break;
-                    JsonObject params = new JsonObject();
-                    sendRequest("ping", params);
-                } catch (InterruptedException e) { break; }
-                catch (Exception e) { logger.fine("[MCP] " + config.getName() + " ping 异常: " + e.getMessage()); }
-            }
-        }, "mcp-ping-" + config.getName());
-        t.setDaemon(true);
-        t.start();
+    /**
+     * 发送 ping 做健康检查；收到任何响应（包括错误响应）都视为存活。不受并发上限限制
+     */
+    public CompletableFuture<Boolean> ping() {
+        if (!connected) return CompletableFuture.completedFuture(false);
+        return send("ping", new JsonObject(), false).handle((resp, err) -> err == null && resp != null);
     }
 
     public boolean reconnect() {
@@ -334,4 +811,4 @@ public class McpClient {
         return url.trim();
     }
 
-}
\ No newline at end of file
+}
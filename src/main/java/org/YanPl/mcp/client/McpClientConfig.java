@@ -1,16 +1,31 @@
 package org.YanPl.mcp.client;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 单个 MCP 服务器的连接配置
  */
 public class McpClientConfig {
+    /** 单条消息默认上限 8 MB */
+    public static final int DEFAULT_MAX_MESSAGE_BYTES = 8 * 1024 * 1024;
+    private static final int MIN_MESSAGE_BYTES = 64 * 1024;
+
     private String name;
     private String url;
     private String apiKey = "";
     private boolean enabled = true;
     private String transport = "auto";
     private int callTimeout = 30;
+    private int maxConcurrentCalls = 8;
+    private int maxMessageBytes = DEFAULT_MAX_MESSAGE_BYTES;
     private String sessionId;
+    private String command;
+    private List<String> args = Collections.emptyList();
+    private Map<String, String> env = Collections.emptyMap();
+    private String workingDir;
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
@@ -30,6 +45,44 @@ public class McpClientConfig {
     public int getCallTimeout() { return callTimeout > 0 ? callTimeout : 30; }
     public void setCallTimeout(int callTimeout) { this.callTimeout = callTimeout; }
 
+    /** 同一服务器同时进行中的请求上限，超出时直接拒绝 */
+    public int getMaxConcurrentCalls() { return maxConcurrentCalls > 0 ? maxConcurrentCalls : 8; }
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) { this.maxConcurrentCalls = Math.max(1, maxConcurrentCalls); }
+
+    /** 单条 JSON-RPC 消息的大小上限（字节），超出的消息在读取时即被丢弃，对应请求失败 */
+    public int getMaxMessageBytes() { return maxMessageBytes; }
+    public void setMaxMessageBytes(int maxMessageBytes) { this.maxMessageBytes = Math.max(MIN_MESSAGE_BYTES, maxMessageBytes); }
+
     public String getSessionId() { return sessionId; }
     public void setSessionId(String sessionId) { this.sessionId = sessionId; }
-}
\ No newline at end of file
+
+    /** stdio 传输：在本地启动进程，通过 stdin/stdout 通信 */
+    public boolean isStdio() { return "stdio".equalsIgnoreCase(getTransport()); }
+
+    public String getCommand() { return command; }
+    public void setCommand(String command) { this.command = command; }
+
+    public List<String> getArgs() { return args; }
+    public void setArgs(List<String> args) { this.args = args != null ? args : Collections.emptyList(); }
+
+    public Map<String, String> getEnv() { return env; }
+    public void setEnv(Map<String, String> env) { this.env = env != null ? env : Collections.emptyMap(); }
+
+    public String getWorkingDir() { return workingDir; }
+    public void setWorkingDir(String workingDir) { this.workingDir = workingDir; }
+
+    /** stdio 进程的完整命令行 */
+    public List<String> getCommandLine() {
+        List<String> line = new ArrayList<>();
+        if (command != null) line.add(command);
+        line.addAll(args);
+        return line;
+    }
+
+    /**
+     * 标识服务器端点，端点变化时缓存的工具目录失效
+     */
+    public String getEndpointKey() {
+        return isStdio() ? "stdio:" + String.join(" ", getCommandLine()) : (url != null ? url : "");
+    }
+}
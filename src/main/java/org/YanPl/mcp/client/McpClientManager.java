@@ -15,13 +15,28 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 public class McpClientManager {
 
     private static final Gson gson = new Gson();
     private static final Type TOOL_STATE_TYPE = new TypeToken<Map<String, Map<String, Boolean>>>() {}.getType();
+    private static final Type CATALOG_CACHE_TYPE = new TypeToken<Map<String, CachedCatalog>>() {}.getType();
+    /** 连续多少次 ping 无响应判定为断线 */
+    private static final int MAX_MISSED_PINGS = 2;
 
     private final Logger logger;
     private final List<McpClientConfig> serverConfigs;
@@ -29,7 +44,76 @@ public class McpClientManager {
     private final Map<String, McpClient> clients = new ConcurrentHashMap<>();
     private Map<String, Map<String, Boolean>> toolStates = new ConcurrentHashMap<>();
     private File toolStateFile;
+    private File catalogFile;
+    private Map<String, CachedCatalog> catalogCache = new ConcurrentHashMap<>();
+    private long toolCatalogTtlMillis = 0;
+    private volatile ToolCatalog catalog = ToolCatalog.EMPTY;
+    private long catalogVersion = 0;
     private boolean enabled = false;
+    private int startupDeadlineSeconds = 15;
+    private ReconnectBackoff backoff = ReconnectBackoff.DISABLED;
+    private long healthCheckIntervalMillis = 30_000;
+    private final Map<String, ServerStatus> statuses = new ConcurrentHashMap<>();
+    private final Map<String, Integer> missedPings = new ConcurrentHashMap<>();
+    private final Set<String> pinging = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> lastErrors = new ConcurrentHashMap<>();
+    private final Set<String> connecting = ConcurrentHashMap.newKeySet();
+    private final ExecutorService connectExecutor = Executors.newCachedThreadPool(daemonThreads("FancyHelper-MCP-Connect"));
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("FancyHelper-MCP"));
+    private volatile boolean healthChecksStarted = false;
+    private volatile boolean shutdown = false;
+
+    /**
+     * 服务器连接状态
+     */
+    public enum ConnectionState {
+        /** 尚未开始连接 */
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+        /** 连接失败，等待退避后重试 */
+        BACKOFF,
+        /** 连接失败且未开启自动重连 */
+        FAILED
+    }
+
+    /**
+     * 某个服务器的连接状态快照
+     */
+    public static class ServerStatus {
+        public final String serverName;
+        public final ConnectionState state;
+        /** 进入当前状态的时间 */
+        public final long since;
+        /** 连续失败次数 */
+        public final int failures;
+        public final String lastError;
+        /** BACKOFF 状态下的下次重试时间 */
+        public final long nextRetryAt;
+        /** CONNECTED 状态下本次连接耗时 */
+        public final long connectMillis;
+
+        ServerStatus(String serverName, ConnectionState state, int failures, String lastError,
+                     long nextRetryAt, long connectMillis) {
+            this.serverName = serverName;
+            this.state = state;
+            this.since = System.currentTimeMillis();
+            this.failures = failures;
+            this.lastError = lastError;
+            this.nextRetryAt = nextRetryAt;
+            this.connectMillis = connectMillis;
+        }
+    }
+
+    /**
+     * 持久化的单个服务器工具目录，用于重启后免去 tools/list
+     */
+    private static class CachedCatalog {
+        String url;
+        long version;
+        long fetchedAt;
+        List<McpTypes.McpTool> tools;
+    }
 
     public McpClientManager(List<McpClientConfig> serverConfigs, int connectTimeoutSeconds, Logger logger) {
         this.serverConfigs = serverConfigs;
@@ -45,9 +129,59 @@ public class McpClientManager {
         this.toolStateFile = file;
     }
 
+    public void setCatalogFile(File file) {
+        this.catalogFile = file;
+    }
+
+    public void setToolCatalogTtlMillis(long ttlMillis) {
+        this.toolCatalogTtlMillis = ttlMillis;
+    }
+
+    /**
+     * 启动时并行连接的总等待时间，超时的服务器继续在后台连接
+     */
+    public void setStartupDeadlineSeconds(int seconds) {
+        this.startupDeadlineSeconds = Math.max(1, seconds);
+    }
+
+    /**
+     * 断线重连的退避参数，maxMillis 为 0 表示不自动重连
+     */
+    public void setReconnectBackoff(long baseMillis, long maxMillis) {
+        this.backoff = new ReconnectBackoff(baseMillis, maxMillis);
+    }
+
+    /**
+     * ping 健康检查间隔，0 表示关闭
+     */
+    public void setHealthCheckIntervalSeconds(int seconds) {
+        this.healthCheckIntervalMillis = Math.max(0, seconds) * 1000L;
+    }
+
+    /**
+     * 所有已启用服务器的连接状态，按配置顺序
+     */
+    public List<ServerStatus> getServerStatuses() {
+        List<ServerStatus> result = new ArrayList<>();
+        for (McpClientConfig config : serverConfigs) {
+            if (!config.isEnabled()) continue;
+            ServerStatus status = statuses.get(config.getName());
+            result.add(status != null ? status
+                    : new ServerStatus(config.getName(), ConnectionState.DISCONNECTED, 0, null, 0, 0));
+        }
+        return result;
+    }
+
+    /** 当前工具目录快照的版本，目录内容变化时递增 */
+    public long getCatalogVersion() { return catalog.version; }
+
+    /**
+     * 并行连接所有服务器，最多等待 startup deadline；未完成的继续在后台连接，失败的按退避策略重试
+     */
     public void connectAll() {
         if (!enabled) return;
 
+        List<CompletableFuture<Boolean>> attempts = new ArrayList<>();
         for (McpClientConfig config : serverConfigs) {
             if (!config.isEnabled()) {
                 logger.info("[MCP] 跳过已禁用的服务器 " + config.getName());
@@ -57,52 +191,200 @@ public class McpClientManager {
                 logger.fine("[MCP] 服务器已连接，跳过 " + config.getName());
                 continue;
             }
+            attempts.add(CompletableFuture.supplyAsync(() -> attemptConnect(config), connectExecutor));
+        }
 
-            McpClient client = new McpClient(config, connectTimeoutSeconds, logger);
-            if (client.connect()) {
-                clients.put(config.getName(), client);
-                for (McpTypes.McpTool tool : client.getTools()) {
-                    setToolEnabledIfAbsent(config.getName(), tool.name, true);
-                }
+        try {
+            CompletableFuture.allOf(attempts.toArray(new CompletableFuture[0]))
+                    .get(startupDeadlineSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            List<String> slow = new ArrayList<>();
+            for (ServerStatus status : getServerStatuses()) {
+                if (status.state == ConnectionState.CONNECTING) slow.add(status.serverName);
             }
+            logger.warning("[MCP] 启动连接超过 " + startupDeadlineSeconds + " 秒，仍在后台连接: " + String.join(", ", slow));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warning("[MCP] 连接服务器时出现异常 " + e.getCause());
         }
-        saveToolStates();
+        startHealthChecks();
     }
 
     public boolean connectServer(McpClientConfig config) {
         if (!enabled || !config.isEnabled()) return false;
         if (clients.containsKey(config.getName())) return true;
+        return attemptConnect(config);
+    }
 
-        McpClient client = new McpClient(config, connectTimeoutSeconds, logger);
-        if (client.connect()) {
-            clients.put(config.getName(), client);
-            for (McpTypes.McpTool tool : client.getTools()) {
-                setToolEnabledIfAbsent(config.getName(), tool.name, true);
-            }
+    /**
+     * 连接一次并记录状态；失败时安排退避重连
+     */
+    private boolean attemptConnect(McpClientConfig config) {
+        String name = config.getName();
+        if (shutdown || clients.containsKey(name)) return false;
+        // 手动重连与退避重试可能同时触发，同一服务器只允许一个连接过程
+        if (!connecting.add(name)) return false;
+        try {
+            return doAttemptConnect(config);
+        } finally {
+            connecting.remove(name);
+        }
+    }
+
+    private boolean doAttemptConnect(McpClientConfig config) {
+        String name = config.getName();
+        ServerStatus previous = statuses.get(name);
+        int failures = previous != null ? previous.failures : 0;
+        statuses.put(name, new ServerStatus(name, ConnectionState.CONNECTING, failures,
+                previous != null ? previous.lastError : null, 0, 0));
+
+        long start = System.currentTimeMillis();
+        McpClient client = connectClient(config);
+        if (client != null) {
+            statuses.put(name, new ServerStatus(name, ConnectionState.CONNECTED, 0, null, 0,
+                    System.currentTimeMillis() - start));
             saveToolStates();
+            rebuildCatalog();
             return true;
         }
+        scheduleReconnect(config, failures + 1, lastErrors.remove(name));
         return false;
     }
 
-    public List<ExternalToolInfo> getAllEnabledTools() {
-        List<ExternalToolInfo> result = new ArrayList<>();
+    private void scheduleReconnect(McpClientConfig config, int failures, String error) {
+        String name = config.getName();
+        if (shutdown) return;
+        long delay = backoff.delayMillis(failures, ThreadLocalRandom.current());
+        if (delay < 0) {
+            statuses.put(name, new ServerStatus(name, ConnectionState.FAILED, failures, error, 0, 0));
+            return;
+        }
+        statuses.put(name, new ServerStatus(name, ConnectionState.BACKOFF, failures, error,
+                System.currentTimeMillis() + delay, 0));
+        logger.fine("[MCP] " + name + " 将在 " + (delay / 1000) + " 秒后重连（第 " + failures + " 次失败）");
+        try {
+            scheduler.schedule(() -> connectExecutor.execute(() -> attemptConnect(config)), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // 已关闭
+        }
+    }
+
+    /**
+     * 定期 ping 已连接的服务器，连续无响应视为断线
+     */
+    private void startHealthChecks() {
+        if (healthCheckIntervalMillis <= 0 || healthChecksStarted || shutdown) return;
+        healthChecksStarted = true;
+        scheduler.scheduleWithFixedDelay(this::checkHealth,
+                healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void checkHealth() {
         for (Map.Entry<String, McpClient> entry : clients.entrySet()) {
-            String serverName = entry.getKey();
+            String name = entry.getKey();
             McpClient client = entry.getValue();
-            Map<String, Boolean> serverStates = toolStates.getOrDefault(serverName, Collections.emptyMap());
-
-            for (McpTypes.McpTool tool : client.getTools()) {
-                boolean toolEnabled = serverStates.getOrDefault(tool.name, true);
-                if (toolEnabled) {
-                    result.add(new ExternalToolInfo(serverName, tool));
+            if (!client.isConnected()) {
+                onConnectionLost(name, client, "连接已断开");
+                continue;
+            }
+            if (!pinging.add(name)) continue;
+            client.ping().whenComplete((alive, err) -> {
+                pinging.remove(name);
+                // 服务器忙于处理其他请求时 ping 可能排队超时，期间仍有响应送达就不算断线
+                if (Boolean.TRUE.equals(alive)
+                        || System.currentTimeMillis() - client.getLastMessageAt() < healthCheckIntervalMillis) {
+                    missedPings.remove(name);
+                } else if (missedPings.merge(name, 1, Integer::sum) >= MAX_MISSED_PINGS) {
+                    onConnectionLost(name, client, "ping 无响应");
                 }
+            });
+        }
+    }
+
+    private void onConnectionLost(String name, McpClient client, String reason) {
+        if (!clients.remove(name, client)) return;
+        missedPings.remove(name);
+        client.disconnect();
+        logger.warning("[MCP] " + name + " 连接丢失（" + reason + "）");
+        rebuildCatalog();
+        for (McpClientConfig config : serverConfigs) {
+            if (config.getName().equals(name)) {
+                scheduleReconnect(config, 1, reason);
+                return;
             }
         }
-        return result;
     }
 
-    public List<ExternalToolInfo> getAllToolsWithState() {
+    /**
+     * 建立连接，成功时注册客户端并返回，失败返回 null（原因记入 lastErrors）
+     */
+    private McpClient connectClient(McpClientConfig config) {
+        McpClient client = new McpClient(config, connectTimeoutSeconds, logger);
+        client.setToolCatalogTtlMillis(toolCatalogTtlMillis);
+        CachedCatalog cached = catalogCache.get(config.getName());
+        if (cached != null && cached.tools != null && config.getEndpointKey().equals(cached.url)) {
+            client.seedTools(cached.tools, cached.fetchedAt, cached.version);
+        }
+        if (!client.connect()) {
+            lastErrors.put(config.getName(), client.getLastError() != null ? client.getLastError() : "连接失败");
+            client.disconnect();
+            return null;
+        }
+        if (shutdown) {
+            client.disconnect();
+            return null;
+        }
+        clients.put(config.getName(), client);
+        for (McpTypes.McpTool tool : client.getTools()) {
+            setToolEnabledIfAbsent(config.getName(), tool.name, true);
+        }
+        rememberCatalog(config, client);
+        client.setStateListener(() -> onClientStateChanged(config, client));
+        return client;
+    }
+
+    /**
+     * 客户端工具列表变化（list_changed 通知或过期刷新）或连接断开
+     */
+    private void onClientStateChanged(McpClientConfig config, McpClient client) {
+        if (clients.get(config.getName()) != client) return;
+        if (!client.isConnected()) {
+            onConnectionLost(config.getName(), client, "连接已断开");
+            return;
+        }
+        boolean added = false;
+        for (McpTypes.McpTool tool : client.getTools()) {
+            Map<String, Boolean> serverStates = toolStates.get(config.getName());
+            if (serverStates == null || !serverStates.containsKey(tool.name)) {
+                setToolEnabledIfAbsent(config.getName(), tool.name, true);
+                added = true;
+            }
+        }
+        if (added) saveToolStates();
+        if (client.isConnected()) rememberCatalog(config, client);
+        rebuildCatalog();
+    }
+
+    private void rememberCatalog(McpClientConfig config, McpClient client) {
+        CachedCatalog previous = catalogCache.get(config.getName());
+        if (previous != null && previous.version == client.getToolsVersion()
+                && previous.fetchedAt == client.getToolsFetchedAt()) {
+            return;
+        }
+        CachedCatalog cached = new CachedCatalog();
+        cached.url = config.getEndpointKey();
+        cached.version = client.getToolsVersion();
+        cached.fetchedAt = client.getToolsFetchedAt();
+        cached.tools = new ArrayList<>(client.getTools());
+        catalogCache.put(config.getName(), cached);
+        saveCatalog();
+    }
+
+    /**
+     * 重建工具目录快照并整体替换
+     */
+    private synchronized void rebuildCatalog() {
         List<ExternalToolInfo> result = new ArrayList<>();
         for (Map.Entry<String, McpClient> entry : clients.entrySet()) {
             String serverName = entry.getKey();
@@ -120,7 +402,37 @@ public class McpClientManager {
                 result.add(new ExternalToolInfo(config.getName(), null, false, false));
             }
         }
-        return result;
+        catalog = new ToolCatalog(++catalogVersion, result);
+    }
+
+    /**
+     * 读取目录时顺带检查过期，过期的服务器在后台刷新，本次仍返回当前快照
+     */
+    private ToolCatalog currentCatalog() {
+        if (toolCatalogTtlMillis > 0) {
+            long now = System.currentTimeMillis();
+            for (McpClient client : clients.values()) {
+                if (client.isConnected() && client.isToolCatalogStale(now)) {
+                    client.refreshToolsAsync();
+                }
+            }
+        }
+        return catalog;
+    }
+
+    public List<ExternalToolInfo> getAllEnabledTools() {
+        return currentCatalog().enabled;
+    }
+
+    public List<ExternalToolInfo> getAllToolsWithState() {
+        return currentCatalog().withState;
+    }
+
+    /**
+     * 预渲染的 #mcp_tools 结果文本
+     */
+    public String getToolsListText() {
+        return currentCatalog().rendered;
     }
 
     public McpTypes.McpToolCallResult callExternalTool(String serverName, String toolName, JsonObject arguments) {
@@ -134,17 +446,44 @@ public class McpClientManager {
         return client.callTool(toolName, arguments);
     }
 
+    /**
+     * 异步调用外部工具，不占用调用线程；取消返回的 future 会取消服务器上的请求
+     */
+    public CompletableFuture<McpTypes.McpToolCallResult> callExternalToolAsync(String serverName, String toolName, JsonObject arguments) {
+        McpClient client = clients.get(serverName);
+        if (client == null) {
+            return CompletableFuture.completedFuture(McpTypes.McpToolCallResult.error("MCP 服务器未连接: " + serverName));
+        }
+        if (!isToolEnabled(serverName, toolName)) {
+            return CompletableFuture.completedFuture(McpTypes.McpToolCallResult.error("工具已被管理员禁用 " + serverName + "." + toolName));
+        }
+        return client.callToolAsync(toolName, arguments);
+    }
+
+    /**
+     * 停止重连与健康检查并断开所有连接
+     */
+    public void shutdown() {
+        shutdown = true;
+        scheduler.shutdownNow();
+        connectExecutor.shutdownNow();
+        disconnectAll();
+    }
+
     public void disconnectAll() {
         for (McpClient client : clients.values()) {
             client.disconnect();
         }
         clients.clear();
+        rebuildCatalog();
     }
 
     public boolean reconnectClient(String serverName) {
+        missedPings.remove(serverName);
         McpClient old = clients.remove(serverName);
         if (old != null) {
             old.disconnect();
+            rebuildCatalog();
         }
         for (McpClientConfig cfg : serverConfigs) {
             if (cfg.getName().equals(serverName) && cfg.isEnabled()) {
@@ -173,6 +512,7 @@ public class McpClientManager {
     public void setToolEnabled(String serverName, String toolName, boolean enabled) {
         toolStates.computeIfAbsent(serverName, k -> new LinkedHashMap<>()).put(toolName, enabled);
         saveToolStates();
+        rebuildCatalog();
     }
 
     private void setToolEnabledIfAbsent(String serverName, String toolName, boolean enabled) {
@@ -200,6 +540,30 @@ public class McpClientManager {
         }
     }
 
+    public void loadCatalog() {
+        if (catalogFile == null || !catalogFile.exists()) return;
+        try {
+            String json = new String(Files.readAllBytes(catalogFile.toPath()), StandardCharsets.UTF_8);
+            Map<String, CachedCatalog> loaded = gson.fromJson(json, CATALOG_CACHE_TYPE);
+            if (loaded != null) {
+                catalogCache = new ConcurrentHashMap<>(loaded);
+            }
+        } catch (Exception e) {
+            logger.warning("[MCP] 加载工具目录缓存失败 " + e.getMessage());
+        }
+    }
+
+    private synchronized void saveCatalog() {
+        if (catalogFile == null) return;
+        try {
+            Files.createDirectories(catalogFile.getParentFile().toPath());
+            String json = gson.toJson(catalogCache, CATALOG_CACHE_TYPE);
+            Files.write(catalogFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warning("[MCP] 保存工具目录缓存失败 " + e.getMessage());
+        }
+    }
+
     public void saveToolStates() {
         if (toolStateFile == null) return;
         try {
@@ -211,6 +575,15 @@ public class McpClientManager {
         }
     }
 
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
     public McpClient findClientForTool(String fullToolName) {
         int dotIndex = fullToolName.indexOf('.');
         if (dotIndex <= 0) return null;
@@ -224,10 +597,6 @@ public class McpClientManager {
         public final boolean enabled;
         public final boolean serverConnected;
 
-        ExternalToolInfo(String serverName, McpTypes.McpTool tool) {
-            this(serverName, tool, true, true);
-        }
-
         ExternalToolInfo(String serverName, McpTypes.McpTool tool, boolean enabled, boolean serverConnected) {
             this.serverName = serverName;
             this.tool = tool;
@@ -0,0 +1,69 @@
+package org.YanPl.mcp.client;
+
+import org.YanPl.mcp.core.JsonRpcMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 等待响应的 JSON-RPC 请求表：按请求 id 关联响应。
+ * 响应可能来自 POST 的响应体，也可能来自 SSE 事件流，谁先到谁完成。
+ */
+class PendingRequests {
+
+    private final Map<String, CompletableFuture<JsonRpcMessage.Response>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 登记一个请求 id，返回其响应 future；future 结束（含取消、超时）后自动移出表
+     */
+    CompletableFuture<JsonRpcMessage.Response> register(String id) {
+        CompletableFuture<JsonRpcMessage.Response> future = new CompletableFuture<>();
+        pending.put(id, future);
+        future.whenComplete((r, e) -> pending.remove(id, future));
+        return future;
+    }
+
+    /**
+     * 用收到的响应完成对应请求
+     *
+     * @return 是否找到了等待中的请求
+     */
+    boolean complete(JsonRpcMessage.Response response) {
+        if (response == null || response.id == null) return false;
+        CompletableFuture<JsonRpcMessage.Response> future = pending.remove(response.id);
+        return future != null && future.complete(response);
+    }
+
+    /**
+     * 让指定请求失败（响应无法解析时使用，例如超过大小上限）
+     *
+     * @return 是否找到了等待中的请求
+     */
+    boolean fail(String id, Throwable cause) {
+        if (id == null) return false;
+        CompletableFuture<JsonRpcMessage.Response> future = pending.remove(id);
+        return future != null && future.completeExceptionally(cause);
+    }
+
+    boolean isPending(String id) {
+        return pending.containsKey(id);
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    /**
+     * 连接断开时让所有等待中的请求失败
+     */
+    void failAll(Throwable cause) {
+        List<CompletableFuture<JsonRpcMessage.Response>> futures = new ArrayList<>(pending.values());
+        pending.clear();
+        for (CompletableFuture<JsonRpcMessage.Response> future : futures) {
+            future.completeExceptionally(cause);
+        }
+    }
+}
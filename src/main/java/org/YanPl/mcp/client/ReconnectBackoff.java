@@ -0,0 +1,37 @@
+package org.YanPl.mcp.client;
+
+import java.util.Random;
+
+/**
+ * 重连退避策略：指数增长、封顶，并加随机抖动，避免多个服务器同时断线后在同一时刻一起重试。
+ */
+final class ReconnectBackoff {
+
+    static final ReconnectBackoff DISABLED = new ReconnectBackoff(0, 0);
+
+    private final long baseMillis;
+    private final long maxMillis;
+
+    ReconnectBackoff(long baseMillis, long maxMillis) {
+        this.baseMillis = Math.max(0, baseMillis);
+        this.maxMillis = Math.max(0, maxMillis);
+    }
+
+    boolean isEnabled() {
+        return baseMillis > 0 && maxMillis > 0;
+    }
+
+    /**
+     * 第 failures 次连续失败后的等待时间：base·2^(failures-1) 封顶到 max，
+     * 再在 [d/2, d] 内随机取值
+     *
+     * @return 等待毫秒数；未启用自动重连时返回 -1
+     */
+    long delayMillis(int failures, Random random) {
+        if (!isEnabled()) return -1;
+        int exponent = Math.min(Math.max(failures, 1) - 1, 30);
+        long delay = Math.min(maxMillis, baseMillis << exponent);
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * (delay - half));
+    }
+}
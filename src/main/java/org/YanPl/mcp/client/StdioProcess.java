@@ -0,0 +1,134 @@
+package org.YanPl.mcp.client;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+
+/**
+ * stdio 传输使用的本地 MCP 服务器进程：stdin/stdout 上每行一条 JSON-RPC 消息。
+ * <p>
+ * stdout 由读取线程逐行交给回调；stderr 只记入调试日志；stdout 关闭即视为进程退出。
+ */
+final class StdioProcess {
+
+    /** stderr 单行记录的最大长度 */
+    private static final int MAX_STDERR_LINE = 500;
+
+    private final String name;
+    private final Process process;
+    private final OutputStream stdin;
+    private final Object writeLock = new Object();
+
+    interface LineHandler {
+        void onLine(String line, boolean truncated);
+    }
+
+    private StdioProcess(String name, Process process) {
+        this.name = name;
+        this.process = process;
+        this.stdin = process.getOutputStream();
+    }
+
+    /**
+     * 启动进程
+     *
+     * @param maxLineChars 单行上限，超出部分被丢弃，回调时标记为截断
+     * @param onLine stdout 的每一行（在读取线程上调用）
+     * @param onExit stdout 关闭后以退出码回调，进程未能及时退出时为 -1
+     */
+    static StdioProcess start(String name, List<String> command, Map<String, String> env, File workingDir,
+                              int maxLineChars, LineHandler onLine, IntConsumer onExit, Logger logger) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command);
+        if (env != null) builder.environment().putAll(env);
+        if (workingDir != null) builder.directory(workingDir);
+        StdioProcess stdio = new StdioProcess(name, builder.start());
+        stdio.startReaders(maxLineChars, onLine, onExit, logger);
+        return stdio;
+    }
+
+    private void startReaders(int maxLineChars, LineHandler onLine, IntConsumer onExit, Logger logger) {
+        Thread out = new Thread(() -> {
+            try (BufferedReader stdout = reader(process.getInputStream())) {
+                BoundedLineReader reader = new BoundedLineReader(stdout, maxLineChars);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) onLine.onLine(line, reader.wasTruncated());
+                }
+            } catch (IOException ignored) {
+                // 进程被关闭
+            }
+            int code = -1;
+            try {
+                if (process.waitFor(2, TimeUnit.SECONDS)) code = process.exitValue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            onExit.accept(code);
+        }, "mcp-stdio-" + name);
+        out.setDaemon(true);
+        out.start();
+
+        Thread err = new Thread(() -> {
+            try (BufferedReader reader = reader(process.getErrorStream())) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.length() > MAX_STDERR_LINE) line = line.substring(0, MAX_STDERR_LINE) + "...";
+                    logger.fine("[MCP] " + name + " stderr: " + line);
+                }
+            } catch (IOException ignored) {
+                // 进程被关闭
+            }
+        }, "mcp-stderr-" + name);
+        err.setDaemon(true);
+        err.start();
+    }
+
+    private static BufferedReader reader(InputStream in) {
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 写入一条消息。Gson 输出的 JSON 不含换行，可以直接按行分隔
+     */
+    void send(String json) throws IOException {
+        byte[] line = (json + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (writeLock) {
+            stdin.write(line);
+            stdin.flush();
+        }
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * 优雅关闭：先关闭 stdin 让服务器自行退出，超时后 destroy，仍不退出则强制结束
+     */
+    void stop(long graceMillis) {
+        try {
+            synchronized (writeLock) {
+                stdin.close();
+            }
+        } catch (IOException ignored) {
+            // 进程可能已退出
+        }
+        try {
+            if (process.waitFor(graceMillis, TimeUnit.MILLISECONDS)) return;
+            process.destroy();
+            if (process.waitFor(1, TimeUnit.SECONDS)) return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        process.destroyForcibly();
+    }
+}
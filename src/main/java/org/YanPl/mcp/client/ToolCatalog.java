@@ -0,0 +1,74 @@
+package org.YanPl.mcp.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 所有 MCP 服务器工具目录的不可变快照：工具列表（含启用状态）与预渲染的 #mcp_tools 文本。
+ * <p>
+ * 只在工具列表、启用状态或连接状态变化时整体重建并替换，读取方每回合直接拿快照，不再重复构建。
+ */
+final class ToolCatalog {
+
+    static final ToolCatalog EMPTY = new ToolCatalog(0, Collections.emptyList());
+
+    final long version;
+    final List<McpClientManager.ExternalToolInfo> withState;
+    final List<McpClientManager.ExternalToolInfo> enabled;
+    final String rendered;
+
+    ToolCatalog(long version, List<McpClientManager.ExternalToolInfo> withState) {
+        this.version = version;
+        this.withState = Collections.unmodifiableList(new ArrayList<>(withState));
+        List<McpClientManager.ExternalToolInfo> enabledTools = new ArrayList<>();
+        for (McpClientManager.ExternalToolInfo info : withState) {
+            if (info.tool != null && info.enabled && info.serverConnected) {
+                enabledTools.add(info);
+            }
+        }
+        this.enabled = Collections.unmodifiableList(enabledTools);
+        this.rendered = render(withState);
+    }
+
+    /**
+     * 渲染 #mcp_tools 的结果文本：按服务器分组，未连接的服务器只显示名称
+     */
+    static String render(List<McpClientManager.ExternalToolInfo> allTools) {
+        StringBuilder sb = new StringBuilder("[MCP Tools Status]\n\n");
+        if (allTools.isEmpty()) {
+            sb.append("没有配置的 MCP 服务器。\n");
+        } else {
+            Map<String, List<McpClientManager.ExternalToolInfo>> grouped = new LinkedHashMap<>();
+            for (McpClientManager.ExternalToolInfo info : allTools) {
+                grouped.computeIfAbsent(info.serverName, k -> new ArrayList<>()).add(info);
+            }
+
+            for (Map.Entry<String, List<McpClientManager.ExternalToolInfo>> entry : grouped.entrySet()) {
+                String serverName = entry.getKey();
+                List<McpClientManager.ExternalToolInfo> tools = entry.getValue();
+                McpClientManager.ExternalToolInfo first = tools.get(0);
+
+                if (!first.serverConnected) {
+                    sb.append(serverName).append(" (未连接)\n");
+                    continue;
+                }
+                sb.append(serverName).append(" (已连接):\n");
+
+                for (McpClientManager.ExternalToolInfo info : tools) {
+                    if (info.tool == null) continue;
+                    String icon = info.enabled ? "☑" : "☐";
+                    String desc = info.tool.description != null && !info.tool.description.isEmpty()
+                        ? " - " + info.tool.description : "";
+                    String disabled = info.enabled ? "" : " (已禁用)";
+                    sb.append("  ").append(icon).append(" ").append(info.tool.name).append(desc).append(disabled).append("\n");
+                }
+                sb.append("\n");
+            }
+        }
+        sb.append("Format: #mcp: serverName.toolName|{\"arg1\":\"value1\"}");
+        return sb.toString();
+    }
+}
@@ -19,7 +19,13 @@ public class JsonRpcHandler {
     }
 
     public static String buildRequestJson(String method, JsonObject params) {
-        String id = generateId();
+        return buildRequestJson(generateId(), method, params);
+    }
+
+    /**
+     * 使用调用方提供的 id 构建请求，便于异步传输按 id 关联响应
+     */
+    public static String buildRequestJson(String id, String method, JsonObject params) {
         return gson.toJson(JsonRpcMessage.Request.create(id, method, params));
     }
 
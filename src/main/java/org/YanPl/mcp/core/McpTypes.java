@@ -58,6 +58,26 @@ public class McpTypes {
             r.isError = true;
             return r;
         }
+
+        /**
+         * 拼接所有文本内容；图片等非文本内容只标注类型
+         *
+         * @return 没有任何内容时返回 null
+         */
+        public String getText() {
+            if (content == null || content.isEmpty()) return null;
+            StringBuilder sb = new StringBuilder();
+            for (ContentItem item : content) {
+                if (item == null) continue;
+                if (sb.length() > 0) sb.append('\n');
+                if (item.text != null) {
+                    sb.append(item.text);
+                } else {
+                    sb.append('[').append(item.type != null ? item.type : "unknown").append(']');
+                }
+            }
+            return sb.toString();
+        }
     }
 
     /** 服务器能力声明 */
@@ -56,6 +56,7 @@ public class DialogueSession {
     private boolean systemPromptLogged = false;
     private int lastLoggedMessageCount = 0;
     private String sessionUUID = null; // 持久化标识，首次创建时分配
+    private volatile String playerName = null; // 所属玩家名，用于诊断事件
     private final Set<String> readFiles = new java.util.HashSet<>();
 
     public void addReadFile(String path) {
@@ -673,6 +674,17 @@ public class DialogueSession {
         this.sessionUUID = sessionUUID;
     }
 
+    /**
+     * 获取所属玩家名（放入 CLIManager 会话表时设置，可能为 null）
+     */
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public void setPlayerName(String playerName) {
+        this.playerName = playerName;
+    }
+
     public static class Message {
         private final long id;
         private final String role;
@@ -1,7 +1,6 @@
 package org.YanPl.util;
 
 import org.YanPl.FancyHelper;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.plugin.java.JavaPlugin;
 
@@ -10,16 +9,39 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * 云端错误上报工具类
+ * <p>
+ * 同一类错误（按堆栈签名打指纹，见 {@link ErrorAggregator}）在一个窗口内只打包上报一次，
+ * 重复出现只计数并在窗口结束时合并上报；打包上传在低优先级的单线程上执行，并受每小时字节预算限制。
  */
 public class CloudErrorReport {
 
     private final JavaPlugin plugin;
     private final String workerUrl = "https://report-fancy.baicaizhale.top/";
 
+    /** 最多同时跟踪的错误指纹数 */
+    private static final int MAX_FINGERPRINTS = 256;
+    /** 排队等待打包的上报数上限，超出时丢弃（只计数） */
+    private static final int MAX_QUEUED = 8;
+    /** 预算超限时仍会上传的错误信息文件名 */
+    private static final String MESSAGES_FILE = "messages.log";
+
+    private final ErrorAggregator aggregator = new ErrorAggregator(MAX_FINGERPRINTS);
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Object budgetLock = new Object();
+    private long budgetWindowStart = 0;
+    private long budgetUsed = 0;
+    /** 上一次完整打包时除错误信息外其余文件的大小，用来在收集前估计预算是否够用 */
+    private volatile long lastExtraBytes = 0;
+
     /**
      * 构造函数
      *
@@ -27,6 +49,13 @@ public class CloudErrorReport {
      */
     public CloudErrorReport(JavaPlugin plugin) {
         this.plugin = plugin;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "FancyHelper-ErrorReport");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
     }
 
     /**
@@ -44,46 +73,187 @@ public class CloudErrorReport {
             }
         }
 
-        // 插件已禁用时，Bukkit 调度器将拒绝注册任务；此时跳过上报以避免二次异常
-        if (!plugin.isEnabled()) {
+        // 插件已禁用时跳过上报，避免关服过程中再产生上传
+        if (!plugin.isEnabled() || executor.isShutdown()) {
             return;
         }
 
-        // 异步执行请求
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                // 创建临时目录
-                File tempDir = new File(plugin.getDataFolder(), "temp");
-                if (!tempDir.exists()) {
-                    tempDir.mkdirs();
-                }
+        String fingerprint = ErrorAggregator.fingerprint(throwable);
+        long now = System.currentTimeMillis();
+        long windowMs = getWindowMs();
+        try {
+            switch (aggregator.record(fingerprint, throwable, now, windowMs)) {
+                case UPLOAD_NOW:
+                    if (queued.incrementAndGet() > MAX_QUEUED) {
+                        // 排队太多时只计数，到窗口结束再合并上报
+                        queued.decrementAndGet();
+                        scheduleFlush(fingerprint, now);
+                        return;
+                    }
+                    executor.execute(() -> {
+                        queued.decrementAndGet();
+                        upload(aggregator.drain(fingerprint, System.currentTimeMillis(), windowMs));
+                    });
+                    break;
+                case SCHEDULE_FLUSH:
+                    scheduleFlush(fingerprint, now);
+                    break;
+                default:
+                    break;
+            }
+        } catch (RejectedExecutionException ignored) {
+            // 已关闭
+        }
+    }
 
-                // 收集日志文件
-                List<File> logFiles = collectLogFiles(tempDir, throwable);
+    private void scheduleFlush(String fingerprint, long now) {
+        long delay = Math.max(0, aggregator.windowEnd(fingerprint) - now);
+        executor.schedule(() -> upload(aggregator.drain(fingerprint, System.currentTimeMillis(), getWindowMs())),
+                delay, TimeUnit.MILLISECONDS);
+    }
 
-                // 上传文件
-                uploadFiles(logFiles, throwable);
+    /**
+     * 打包并上传一个批次
+     */
+    private void upload(ErrorAggregator.Batch batch) {
+        if (batch == null || !plugin.isEnabled()) return;
+        Throwable throwable = batch.sample;
+        // 每个批次使用独立的临时目录，避免并发时文件互相覆盖
+        File tempDir = new File(new File(plugin.getDataFolder(), "temp"), "report-" + batch.fingerprint + "-" + System.currentTimeMillis());
+        try {
+            if (!tempDir.exists()) {
+                tempDir.mkdirs();
+            }
 
-                // 清理临时文件
+            // 先只生成错误信息，按剩余预算决定是否还要收集终端日志、会话日志与配置
+            File messagesLog = new File(tempDir, MESSAGES_FILE);
+            collectErrorMessages(messagesLog, batch);
+            long messagesSize = uploadSize(messagesLog);
+            long remaining = remainingBudget();
+            if (messagesSize > remaining) {
+                logBudgetExhausted(batch);
+                return;
+            }
+            List<File> logFiles;
+            if (remaining - messagesSize < lastExtraBytes) {
+                plugin.getLogger().info("错误上报已接近每小时流量上限，本次只上传错误信息（指纹 " + batch.fingerprint + "）");
+                logFiles = new ArrayList<>();
+                logFiles.add(messagesLog);
+            } else {
+                logFiles = collectLogFiles(tempDir, messagesLog);
+                long extra = 0;
                 for (File file : logFiles) {
+                    if (file != messagesLog) extra += uploadSize(file);
+                }
+                lastExtraBytes = extra;
+            }
+
+            // 按预算裁剪后上传
+            logFiles = applyBudget(logFiles, batch);
+            if (!logFiles.isEmpty()) {
+                uploadFiles(logFiles, batch);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning("错误上报失败: " + e.getMessage() + buildErrorSummary(throwable));
+        } finally {
+            // 清理临时文件
+            File[] files = tempDir.listFiles();
+            if (files != null) {
+                for (File file : files) {
                     file.delete();
                 }
+            }
+            tempDir.delete();
+        }
+    }
+
+    /**
+     * 按每小时字节预算裁剪上传文件：预算不足时只保留错误信息，仍不足则放弃本次上传
+     */
+    private List<File> applyBudget(List<File> files, ErrorAggregator.Batch batch) {
+        long total = 0;
+        long messagesSize = 0;
+        for (File file : files) {
+            long size = uploadSize(file);
+            total += size;
+            if (MESSAGES_FILE.equals(file.getName())) messagesSize = size;
+        }
 
-            } catch (Exception e) {
-                plugin.getLogger().warning("错误上报失败: " + e.getMessage() + buildErrorSummary(throwable));
+        synchronized (budgetLock) {
+            long remaining = remainingBudget();
+            if (total <= remaining) {
+                budgetUsed += total;
+                return files;
             }
-        });
+            if (messagesSize > 0 && messagesSize <= remaining) {
+                budgetUsed += messagesSize;
+                plugin.getLogger().info("错误上报已接近每小时流量上限，本次只上传错误信息（指纹 " + batch.fingerprint + "）");
+                List<File> kept = new ArrayList<>();
+                for (File file : files) {
+                    if (MESSAGES_FILE.equals(file.getName())) kept.add(file);
+                }
+                return kept;
+            }
+        }
+        logBudgetExhausted(batch);
+        return new ArrayList<>();
+    }
+
+    /**
+     * 本小时剩余的上报字节数（跨过整点窗口时清零重计）
+     */
+    private long remainingBudget() {
+        synchronized (budgetLock) {
+            long now = System.currentTimeMillis();
+            if (now - budgetWindowStart >= 3_600_000L) {
+                budgetWindowStart = now;
+                budgetUsed = 0;
+            }
+            return getBudgetBytes() - budgetUsed;
+        }
+    }
+
+    private void logBudgetExhausted(ErrorAggregator.Batch batch) {
+        plugin.getLogger().warning("错误上报已达到每小时流量上限，跳过本次上报（指纹 " + batch.fingerprint
+                + "，出现 " + batch.occurrences + " 次）" + buildErrorSummary(batch.sample));
+    }
+
+    /** 实际会上传的大小（超过 500KB 的文件会被跳过） */
+    private static long uploadSize(File file) {
+        long size = file.length();
+        return size > 500 * 1024 ? 0 : size;
+    }
+
+    private long getWindowMs() {
+        if (plugin instanceof FancyHelper && ((FancyHelper) plugin).getConfigManager() != null) {
+            return ((FancyHelper) plugin).getConfigManager().getAutoReportWindowMinutes() * 60_000L;
+        }
+        return 30 * 60_000L;
+    }
+
+    private long getBudgetBytes() {
+        if (plugin instanceof FancyHelper && ((FancyHelper) plugin).getConfigManager() != null) {
+            return ((FancyHelper) plugin).getConfigManager().getAutoReportBudgetKb() * 1024L;
+        }
+        return 4096 * 1024L;
+    }
+
+    /**
+     * 关闭上报线程，丢弃尚未执行的合并上报
+     */
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
     /**
      * 收集日志文件
      *
      * @param tempDir 临时目录
-     * @param throwable 异常
+     * @param messagesLog 已生成的错误信息文件
      * @return 收集的日志文件列表
      * @throws IOException IO异常
      */
-    private List<File> collectLogFiles(File tempDir, Throwable throwable) throws IOException {
+    private List<File> collectLogFiles(File tempDir, File messagesLog) throws IOException {
         List<File> logFiles = new ArrayList<>();
 
         // 1. 收集最近200条终端消息
@@ -95,9 +265,7 @@ public class CloudErrorReport {
         List<File> cliSessionLogs = collectCLISessionLogs(tempDir);
         logFiles.addAll(cliSessionLogs);
 
-        // 3. 收集错误信息
-        File messagesLog = new File(tempDir, "messages.log");
-        collectErrorMessages(messagesLog, throwable);
+        // 3. 错误信息（已在预算检查前生成）
         logFiles.add(messagesLog);
 
         // 4. 收集配置文件
@@ -247,12 +415,17 @@ public class CloudErrorReport {
      * 收集错误信息
      *
      * @param file 目标文件
-     * @param throwable 异常
+     * @param batch 待上报批次
      * @throws IOException IO异常
      */
-    private void collectErrorMessages(File file, Throwable throwable) throws IOException {
+    private void collectErrorMessages(File file, ErrorAggregator.Batch batch) throws IOException {
+        java.text.SimpleDateFormat format = new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, StandardCharsets.UTF_8))) {
-            writer.write(getStackTraceString(throwable));
+            writer.write("指纹: " + batch.fingerprint + "\n");
+            writer.write("本次合并次数: " + batch.occurrences + "（累计 " + batch.total + " 次）\n");
+            writer.write("首次出现: " + format.format(new Date(batch.firstSeen))
+                    + "，最近出现: " + format.format(new Date(batch.lastSeen)) + "\n\n");
+            writer.write(getStackTraceString(batch.sample));
         }
     }
 
@@ -260,9 +433,11 @@ public class CloudErrorReport {
      * 上传文件到Cloudflare Worker
      *
      * @param files 文件列表
+     * @param batch 待上报批次
      * @throws IOException IO异常
      */
-    private void uploadFiles(List<File> files, Throwable throwable) throws IOException {
+    private void uploadFiles(List<File> files, ErrorAggregator.Batch batch) throws IOException {
+        Throwable throwable = batch.sample;
         String boundary = "----WebKitFormBoundary" + UUID.randomUUID().toString();
         HttpURLConnection conn = (HttpURLConnection) new URL(workerUrl).openConnection();
         conn.setRequestMethod("POST");
@@ -304,7 +479,8 @@ public class CloudErrorReport {
         if (responseCode == 200) {
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
                 String response = reader.lines().collect(Collectors.joining("\n"));
-                plugin.getLogger().info("已自动向开发者提交崩溃报告，感谢支持。报告编号: " + response + buildErrorSummary(throwable));
+                String repeated = batch.occurrences > 1 ? "（同类错误 " + batch.occurrences + " 次）" : "";
+                plugin.getLogger().info("已自动向开发者提交崩溃报告，感谢支持。报告编号: " + response + repeated + buildErrorSummary(throwable));
             }
         } else {
             plugin.getLogger().warning("错误上报失败，响应码: " + responseCode);
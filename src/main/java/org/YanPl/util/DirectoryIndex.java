@@ -0,0 +1,421 @@
+package org.YanPl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 目录内容索引（供 #ls / #read / #edit / #write 的路径解析使用）。
+ * <p>
+ * 按需缓存每个目录的子项列表（名称、小写名称、是否目录、是否符号链接、大小），
+ * 大小写不敏感解析和越界检查都直接查表，不再每次逐层 listFiles / getCanonicalPath。
+ * 已索引的目录注册到 WatchService，有变动即失效；收不到事件的文件系统靠 TTL 兜底。
+ * 缓存总子项数有上限，子项过多的目录（如 world/region）不缓存，直接现查。
+ */
+public class DirectoryIndex {
+
+    /** 已注册监听的目录条目最长存活时间（兜底，防止漏事件） */
+    private static final long WATCHED_TTL_MS = 60_000;
+    /** 未能注册监听的目录条目存活时间 */
+    private static final long UNWATCHED_TTL_MS = 3_000;
+    /** 最多缓存的目录数 */
+    private static final int MAX_DIRECTORIES = 2048;
+    /** 所有缓存目录的子项总数上限 */
+    private static final int MAX_TOTAL_CHILDREN = 200_000;
+    /** 单个目录子项超过该数量时不缓存 */
+    private static final int MAX_CHILDREN_PER_DIR = 20_000;
+
+    /**
+     * 目录中的一个子项
+     */
+    public static class Child {
+        private final String name;
+        private final boolean directory;
+        private final boolean symbolicLink;
+        private final long length;
+
+        Child(String name, boolean directory, boolean symbolicLink, long length) {
+            this.name = name;
+            this.directory = directory;
+            this.symbolicLink = symbolicLink;
+            this.length = length;
+        }
+
+        public String getName() { return name; }
+        public boolean isDirectory() { return directory; }
+        public boolean isSymbolicLink() { return symbolicLink; }
+        /** 文件大小（字节），目录为 0 */
+        public long getLength() { return length; }
+    }
+
+    private static class DirEntry {
+        final List<Child> children;
+        final Map<String, Child> byName;
+        final Map<String, Child> byLowerName;
+        final long loadedAt;
+        WatchKey watchKey;
+
+        DirEntry(List<Child> children, long loadedAt) {
+            this.children = children;
+            this.loadedAt = loadedAt;
+            this.byName = new HashMap<>(children.size() * 2);
+            this.byLowerName = new HashMap<>(children.size() * 2);
+            for (Child child : children) {
+                byName.put(child.name, child);
+                // 大小写不同的同名项（仅区分大小写的文件系统）取排序靠前的一个
+                byLowerName.putIfAbsent(child.name.toLowerCase(Locale.ROOT), child);
+            }
+        }
+    }
+
+    /** 绝对路径 → 目录条目，按访问顺序淘汰 */
+    private final Map<Path, DirEntry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    private int totalChildren;
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private boolean watchUnavailable;
+    private volatile boolean closed;
+
+    /**
+     * 在 root 下解析 path，逐层优先精确匹配、其次大小写不敏感匹配；
+     * 某一层找不到时，剩余部分按原样拼接（供 #write 新建文件使用）。
+     */
+    public File resolve(File root, String path) {
+        String[] components = path.replace("\\", "/").split("/");
+        File current = root;
+
+        for (int i = 0; i < components.length; i++) {
+            String component = components[i];
+            if (component.isEmpty() || component.equals(".")) continue;
+
+            Child match = component.equals("..") ? null : findChild(current, component);
+            if (match == null) {
+                StringBuilder remaining = new StringBuilder(component);
+                for (int j = i + 1; j < components.length; j++) {
+                    remaining.append("/").append(components[j]);
+                }
+                return new File(current, remaining.toString());
+            }
+            current = new File(current, match.name);
+        }
+        return current;
+    }
+
+    /**
+     * 判断 file 是否位于 root 之内。
+     * 先按规范化后的绝对路径做字面比较；路径上存在符号链接时才退回 getCanonicalPath。
+     */
+    public boolean isWithin(File root, File file) {
+        // ".." 可能跟在符号链接之后，字面规范化不可信
+        for (Path part : file.toPath()) {
+            if (part.toString().equals("..")) {
+                return isWithinCanonical(root, file);
+            }
+        }
+        Path rootPath = root.toPath().toAbsolutePath().normalize();
+        Path filePath = file.toPath().toAbsolutePath().normalize();
+        if (!filePath.startsWith(rootPath)) {
+            return false;
+        }
+
+        File current = rootPath.toFile();
+        for (Path part : rootPath.relativize(filePath)) {
+            String name = part.toString();
+            if (name.isEmpty()) continue;
+            Child child = findChild(current, name);
+            if (child == null) {
+                // 后续路径尚不存在，不可能再经过符号链接
+                return true;
+            }
+            if (child.symbolicLink) {
+                return isWithinCanonical(root, file);
+            }
+            current = new File(current, child.name);
+        }
+        return true;
+    }
+
+    /**
+     * 列出目录内容，目录不存在或不可读时返回 null
+     */
+    public List<Child> list(File dir) {
+        DirEntry entry = getEntry(dir.toPath().toAbsolutePath().normalize());
+        if (entry != null) {
+            return entry.children;
+        }
+        // 子项过多未缓存的目录
+        return loadChildren(dir.toPath().toAbsolutePath().normalize(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * 文件被写入或新建后调用，使其所在目录（以及它自身，若为目录）的条目失效
+     */
+    public synchronized void invalidate(File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        remove(path);
+        // mkdirs 可能新建多层目录：向上逐层失效，直到某个已缓存的祖先本来就认识下一级
+        Path child = path;
+        for (Path parent = path.getParent(); parent != null; child = parent, parent = parent.getParent()) {
+            DirEntry entry = entries.get(parent);
+            boolean knewChild = entry != null && entry.byName.containsKey(child.getFileName().toString());
+            remove(parent);
+            if (knewChild) break;
+        }
+    }
+
+    public synchronized void clear() {
+        for (Path path : new ArrayList<>(entries.keySet())) {
+            remove(path);
+        }
+    }
+
+    public void shutdown() {
+        closed = true;
+        synchronized (this) {
+            clear();
+            if (watchService != null) {
+                try {
+                    watchService.close();
+                } catch (IOException ignored) {}
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+    }
+
+    private Child findChild(File dir, String name) {
+        Path dirPath = dir.toPath().toAbsolutePath().normalize();
+        DirEntry entry = getEntry(dirPath);
+        if (entry != null) {
+            Child exact = entry.byName.get(name);
+            return exact != null ? exact : entry.byLowerName.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        // 未缓存（不存在或子项过多）：直接查找
+        File exactFile = new File(dir, name);
+        if (exactFile.exists()) {
+            return describe(exactFile.toPath());
+        }
+        File[] children = dir.listFiles();
+        if (children == null) return null;
+        for (File child : children) {
+            if (child.getName().equalsIgnoreCase(name)) {
+                return describe(child.toPath());
+            }
+        }
+        return null;
+    }
+
+    private DirEntry getEntry(Path dir) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            DirEntry cached = entries.get(dir);
+            if (cached != null) {
+                long ttl = cached.watchKey != null ? WATCHED_TTL_MS : UNWATCHED_TTL_MS;
+                if (now - cached.loadedAt < ttl) {
+                    return cached;
+                }
+                remove(dir);
+            }
+        }
+
+        List<Child> children = loadChildren(dir, MAX_CHILDREN_PER_DIR);
+        if (children == null || children.size() > MAX_CHILDREN_PER_DIR) {
+            return null;
+        }
+        DirEntry entry = new DirEntry(children, now);
+        synchronized (this) {
+            if (closed) return entry;
+            remove(dir);
+            entry.watchKey = register(dir);
+            entries.put(dir, entry);
+            totalChildren += children.size();
+            evict();
+        }
+        return entry;
+    }
+
+    /**
+     * 读取目录子项并排序（目录在前，同类按名称不区分大小写排序）。
+     * 超过 limit 时提前返回 limit + 1 项，调用方据此放弃缓存。
+     */
+    private static List<Child> loadChildren(Path dir, int limit) {
+        if (!Files.isDirectory(dir)) return null;
+        List<Child> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path child : stream) {
+                Child described = describe(child);
+                if (described != null) {
+                    children.add(described);
+                }
+                if (children.size() > limit) {
+                    return children;
+                }
+            }
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+        children.sort((a, b) -> {
+            if (a.directory != b.directory) return a.directory ? -1 : 1;
+            int cmp = a.name.compareToIgnoreCase(b.name);
+            return cmp != 0 ? cmp : a.name.compareTo(b.name);
+        });
+        return Collections.unmodifiableList(children);
+    }
+
+    private static Child describe(Path path) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            boolean link = attrs.isSymbolicLink();
+            boolean directory = link ? Files.isDirectory(path) : attrs.isDirectory();
+            long length = directory ? 0 : (link ? path.toFile().length() : attrs.size());
+            return new Child(path.getFileName().toString(), directory, link, length);
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按真实路径（解析全部符号链接）判断 file 是否位于 root 之内，不使用缓存。
+     * <p>
+     * 缓存中的符号链接标记最长可能过期 60 秒，写入或修改文件前应再用本方法确认最终目标。
+     * 目标尚不存在时解析其最近的已存在祖先，其余不存在的部分不可能是符号链接；
+     * 不存在的部分里出现 ".." 时无法确定最终位置，一律拒绝。
+     */
+    public static boolean isRealPathWithin(File root, File file) {
+        try {
+            Path realRoot = root.toPath().toRealPath();
+            Path existing = file.toPath().toAbsolutePath();
+            Deque<String> missing = new ArrayDeque<>();
+            while (existing != null && !Files.exists(existing, LinkOption.NOFOLLOW_LINKS)) {
+                Path name = existing.getFileName();
+                if (name != null) missing.push(name.toString());
+                existing = existing.getParent();
+            }
+            if (existing == null) {
+                return false;
+            }
+            Path real = existing.toRealPath();
+            for (String name : missing) {
+                if (name.equals("..")) return false;
+                if (name.equals(".")) continue;
+                real = real.resolve(name);
+            }
+            return real.startsWith(realRoot);
+        } catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+
+    private static boolean isWithinCanonical(File root, File file) {
+        try {
+            String rootPath = root.getCanonicalPath();
+            String filePath = file.getCanonicalPath();
+            if (!rootPath.endsWith(File.separator)) {
+                rootPath += File.separator;
+            }
+            return filePath.equals(root.getCanonicalPath()) || filePath.startsWith(rootPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Path, DirEntry>> it = entries.entrySet().iterator();
+        while (it.hasNext() && entries.size() > 1
+                && (entries.size() > MAX_DIRECTORIES || totalChildren > MAX_TOTAL_CHILDREN)) {
+            Map.Entry<Path, DirEntry> eldest = it.next();
+            it.remove();
+            release(eldest.getValue());
+        }
+    }
+
+    private void remove(Path dir) {
+        if (dir == null) return;
+        DirEntry removed = entries.remove(dir);
+        if (removed != null) {
+            release(removed);
+        }
+    }
+
+    private void release(DirEntry entry) {
+        totalChildren -= entry.children.size();
+        if (entry.watchKey != null) {
+            watchedDirs.remove(entry.watchKey);
+            entry.watchKey.cancel();
+        }
+    }
+
+    private WatchKey register(Path dir) {
+        if (watchUnavailable) return null;
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                startWatchThread();
+            }
+            WatchKey key = dir.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirs.put(key, dir);
+            return key;
+        } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+            // 例如 inotify 监听数耗尽：之后只靠 TTL
+            watchUnavailable = true;
+            return null;
+        }
+    }
+
+    private void startWatchThread() {
+        WatchService service = watchService;
+        watchThread = new Thread(() -> {
+            while (!closed) {
+                WatchKey key;
+                try {
+                    key = service.take();
+                } catch (InterruptedException | ClosedWatchServiceException e) {
+                    break;
+                }
+                List<WatchEvent<?>> events = key.pollEvents();
+                synchronized (this) {
+                    Path dir = watchedDirs.get(key);
+                    if (dir != null) {
+                        for (WatchEvent<?> event : events) {
+                            // 子目录被删除/重建时，它自己的条目也要失效
+                            if (event.context() instanceof Path) {
+                                remove(dir.resolve((Path) event.context()));
+                            }
+                        }
+                        remove(dir);
+                    }
+                }
+                key.reset();
+            }
+        }, "FancyHelper-DirIndex");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+}
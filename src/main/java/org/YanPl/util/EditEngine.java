@@ -0,0 +1,321 @@
+package org.YanPl.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * #edit 的多行匹配与改写引擎。
+ * <p>
+ * #edit 的语义是"第 j 行文件内容包含第 j 行查找内容"（子串包含，而非整行相等），
+ * 所以不能直接对行做哈希比较。这里先用 Aho-Corasick 自动机把每一行文件内容
+ * 一次性映射成"包含了哪些查找行"的位掩码，再在行序列上跑 Shift-And，
+ * 整体耗时与 文件字符数 + 行数 × 查找行数/64 成正比，不再是 文件行数 × 查找行数 次 contains。
+ * <p>
+ * 扫描和改写都按行流式处理，不把整个文件读进 List；改写先写同目录临时文件，再原子替换。
+ */
+public final class EditEngine {
+
+    /**
+     * 一次扫描的结果，带文件大小和修改时间，供预览与执行之间复用
+     */
+    public static final class Scan {
+        private final long size;
+        private final long lastModified;
+        private final int totalLines;
+        private final List<Integer> matchStarts;
+        private final List<String> rangeLines;
+
+        Scan(long size, long lastModified, int totalLines, List<Integer> matchStarts, List<String> rangeLines) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.totalLines = totalLines;
+            this.matchStarts = matchStarts;
+            this.rangeLines = rangeLines;
+        }
+
+        public int getTotalLines() { return totalLines; }
+        /** 所有匹配的起始行索引（从 0 开始，升序） */
+        public List<Integer> getMatchStarts() { return matchStarts; }
+        /** 扫描时顺带收集的指定行区间内容（用于报错展示） */
+        public List<String> getRangeLines() { return rangeLines; }
+
+        /**
+         * 文件自扫描以来是否未被修改
+         */
+        public boolean isCurrent(Path file) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+                return attrs.size() == size && attrs.lastModifiedTime().toMillis() == lastModified;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class Node {
+        final Map<Character, Node> next = new HashMap<>();
+        Node fail;
+        /** 在此结束的查找行（含沿失配链继承的） */
+        long[] output;
+    }
+
+    private final int patternCount;
+    private final int words;
+    private final Node rootNode = new Node();
+    /** 空查找行与任何内容都匹配 */
+    private final long[] alwaysMask;
+
+    public EditEngine(String[] patternLines) {
+        this.patternCount = patternLines.length;
+        this.words = (patternCount + 63) >>> 6;
+        this.alwaysMask = new long[words];
+        for (int j = 0; j < patternCount; j++) {
+            String pattern = patternLines[j];
+            if (pattern.isEmpty()) {
+                setBit(alwaysMask, j);
+                continue;
+            }
+            Node node = rootNode;
+            for (int k = 0; k < pattern.length(); k++) {
+                node = node.next.computeIfAbsent(pattern.charAt(k), c -> new Node());
+            }
+            if (node.output == null) node.output = new long[words];
+            setBit(node.output, j);
+        }
+        buildFailureLinks();
+    }
+
+    private void buildFailureLinks() {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        for (Node child : rootNode.next.values()) {
+            child.fail = rootNode;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (Map.Entry<Character, Node> edge : node.next.entrySet()) {
+                Node child = edge.getValue();
+                Node f = node.fail;
+                while (f != null && !f.next.containsKey(edge.getKey())) {
+                    f = f.fail;
+                }
+                child.fail = f == null ? rootNode : f.next.get(edge.getKey());
+                if (child.fail.output != null) {
+                    if (child.output == null) child.output = new long[words];
+                    or(child.output, child.fail.output);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 计算某一行包含了哪些查找行（第 j 位对应第 j 个查找行）
+     */
+    long[] lineMask(String line) {
+        long[] mask = alwaysMask.clone();
+        Node node = rootNode;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            Node next;
+            while ((next = node.next.get(c)) == null && node != rootNode) {
+                node = node.fail;
+            }
+            node = next != null ? next : rootNode;
+            if (node.output != null) {
+                or(mask, node.output);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 流式扫描文件，找出所有起始行索引不小于 fromIndex 的匹配。
+     *
+     * @param rangeFrom 需要顺带收集内容的区间起点（从 0 开始）
+     * @param rangeTo   区间终点（不含），小于等于 rangeFrom 时不收集
+     */
+    public Scan scan(Path file, int fromIndex, int rangeFrom, int rangeTo) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        List<Integer> starts = new ArrayList<>();
+        List<String> rangeLines = new ArrayList<>();
+        long[] state = new long[words];
+        int lastWord = (patternCount - 1) >>> 6;
+        long lastBit = 1L << ((patternCount - 1) & 63);
+
+        int index = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (index >= rangeFrom && index < rangeTo) {
+                    rangeLines.add(line);
+                }
+                if (patternCount > 0) {
+                    shiftInOne(state);
+                    long[] mask = lineMask(line);
+                    for (int w = 0; w < words; w++) {
+                        state[w] &= mask[w];
+                    }
+                    if ((state[lastWord] & lastBit) != 0) {
+                        int start = index - patternCount + 1;
+                        if (start >= fromIndex) {
+                            starts.add(start);
+                        }
+                    }
+                }
+                index++;
+            }
+        }
+        return new Scan(attrs.size(), attrs.lastModifiedTime().toMillis(), index,
+                Collections.unmodifiableList(starts), Collections.unmodifiableList(rangeLines));
+    }
+
+    /**
+     * 流式套用替换：matchStart 之前与之后的行原样输出，匹配区间逐行做子串替换，
+     * replacement 多出的行追加在匹配区间之后。
+     *
+     * @param out    写入目标，为 null 时只计算不输出
+     * @param before 不为 null 时收集修改前全文（以 \n 连接）
+     * @param after  不为 null 时收集修改后全文（以 \n 连接）
+     */
+    public static void apply(Path file, int matchStart, String[] originalLines, String[] replacementLines,
+                             Writer out, StringBuilder before, StringBuilder after) throws IOException {
+        String separator = System.lineSeparator();
+        int matchEnd = matchStart + originalLines.length;
+        int index = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                appendLine(before, line);
+                String newLine = line;
+                if (index >= matchStart && index < matchEnd) {
+                    int j = index - matchStart;
+                    if (j < replacementLines.length) {
+                        // 行内子串替换：缩进和注释等其余部分自动保留
+                        newLine = line.replace(originalLines[j], replacementLines[j]);
+                    }
+                }
+                emit(out, after, newLine, separator);
+                if (index == matchEnd - 1) {
+                    // replacement 行数多于 original 时，把剩余行插在匹配区间之后
+                    for (int j = originalLines.length; j < replacementLines.length; j++) {
+                        emit(out, after, replacementLines[j], separator);
+                    }
+                }
+                index++;
+            }
+        }
+        trimTrailingNewline(before);
+        trimTrailingNewline(after);
+    }
+
+    /**
+     * 把替换结果写入同目录临时文件，再原子替换原文件。
+     * <p>
+     * 符号链接先解析到真实文件，替换的是链接指向的文件而不是链接本身；
+     * 临时文件创建后权限为 0600，替换前复制原文件的 POSIX 权限与属主，避免改动后配置文件权限被收紧。
+     */
+    public static void rewrite(Path file, int matchStart, String[] originalLines, String[] replacementLines) throws IOException {
+        Path target = file.toRealPath();
+        Path tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                apply(target, matchStart, originalLines, replacementLines, writer, null, null);
+            }
+            copyPermissions(target, tmp);
+            try {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * 复制权限与属主；非 POSIX 文件系统只尝试属主。修改属主需要相应权限，失败时保留当前用户
+     */
+    private static void copyPermissions(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourceView = Files.getFileAttributeView(source, PosixFileAttributeView.class);
+        PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (sourceView != null && targetView != null) {
+            PosixFileAttributes attrs = sourceView.readAttributes();
+            targetView.setPermissions(attrs.permissions());
+            try {
+                if (!attrs.owner().equals(Files.getOwner(target))) {
+                    targetView.setOwner(attrs.owner());
+                }
+                targetView.setGroup(attrs.group());
+            } catch (IOException | SecurityException ignored) {
+                // 非 root 进程无法把文件交给其他用户，保持当前属主
+            }
+            return;
+        }
+        try {
+            UserPrincipal owner = Files.getOwner(source);
+            if (!owner.equals(Files.getOwner(target))) {
+                Files.setOwner(target, owner);
+            }
+        } catch (IOException | UnsupportedOperationException | SecurityException ignored) {
+            // 同上
+        }
+    }
+
+    private static void emit(Writer out, StringBuilder after, String line, String separator) throws IOException {
+        if (out != null) {
+            out.write(line);
+            out.write(separator);
+        }
+        appendLine(after, line);
+    }
+
+    private static void appendLine(StringBuilder sb, String line) {
+        if (sb != null) {
+            sb.append(line).append('\n');
+        }
+    }
+
+    private static void trimTrailingNewline(StringBuilder sb) {
+        if (sb != null && sb.length() > 0) {
+            sb.setLength(sb.length() - 1);
+        }
+    }
+
+    /** state = (state << 1) | 1，跨 long 进位 */
+    private static void shiftInOne(long[] state) {
+        long carry = 1L;
+        for (int w = 0; w < state.length; w++) {
+            long nextCarry = state[w] >>> 63;
+            state[w] = (state[w] << 1) | carry;
+            carry = nextCarry;
+        }
+    }
+
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << (index & 63);
+    }
+
+    private static void or(long[] target, long[] source) {
+        for (int w = 0; w < target.length; w++) {
+            target[w] |= source[w];
+        }
+    }
+}
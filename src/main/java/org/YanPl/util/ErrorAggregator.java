@@ -0,0 +1,193 @@
+package org.YanPl.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 错误上报聚合：按规范化堆栈签名给异常打指纹，同一指纹在一个窗口内只上报一次。
+ * <p>
+ * 窗口内首次出现立即上报；之后的重复只计数，窗口结束时带着次数合并上报一次（如果期间又出现过）。
+ */
+final class ErrorAggregator {
+    /** 每层异常参与签名的栈帧数 */
+    private static final int FRAMES_PER_CAUSE = 8;
+    /** 参与签名的最大 cause 层数 */
+    private static final int MAX_CAUSES = 5;
+
+    private static final Pattern LAMBDA_CLASS = Pattern.compile("\\$\\$Lambda(\\$\\d+)?(/0x[0-9a-f]+)?(\\$\\d+)?.*$");
+    private static final Pattern ANONYMOUS_CLASS = Pattern.compile("\\$\\d+");
+    private static final Pattern LAMBDA_METHOD = Pattern.compile("^(lambda\\$.*?)\\$\\d+$");
+
+    /**
+     * record 之后调用方应采取的动作
+     */
+    enum Action {
+        /** 新窗口的首次出现，立即 drain 并上报 */
+        UPLOAD_NOW,
+        /** 窗口内的第一次重复，在窗口结束时 drain 并上报 */
+        SCHEDULE_FLUSH,
+        /** 已计数，等待已安排的合并上报 */
+        COUNTED
+    }
+
+    /**
+     * 一次待上报的批次
+     */
+    static final class Batch {
+        final String fingerprint;
+        final Throwable sample;
+        /** 本批次代表的出现次数 */
+        final int occurrences;
+        /** 累计出现次数 */
+        final long total;
+        final long firstSeen;
+        final long lastSeen;
+
+        Batch(String fingerprint, Throwable sample, int occurrences, long total, long firstSeen, long lastSeen) {
+            this.fingerprint = fingerprint;
+            this.sample = sample;
+            this.occurrences = occurrences;
+            this.total = total;
+            this.firstSeen = firstSeen;
+            this.lastSeen = lastSeen;
+        }
+    }
+
+    private static final class Aggregate {
+        Throwable latest;
+        int pending;
+        long total;
+        long firstSeen;
+        long lastSeen;
+        /** 当前窗口结束时间，0 表示还没有开启窗口 */
+        long windowEnd;
+        boolean flushScheduled;
+    }
+
+    private final int maxFingerprints;
+    private final Map<String, Aggregate> aggregates = new LinkedHashMap<>(32, 0.75f, true);
+
+    ErrorAggregator(int maxFingerprints) {
+        this.maxFingerprints = Math.max(1, maxFingerprints);
+    }
+
+    /**
+     * 记录一次异常
+     */
+    synchronized Action record(String fingerprint, Throwable throwable, long now, long windowMs) {
+        Aggregate aggregate = aggregates.get(fingerprint);
+        if (aggregate == null) {
+            aggregate = new Aggregate();
+            aggregate.firstSeen = now;
+            aggregates.put(fingerprint, aggregate);
+            evict();
+        }
+        aggregate.latest = throwable;
+        aggregate.pending++;
+        aggregate.total++;
+        aggregate.lastSeen = now;
+
+        if (now >= aggregate.windowEnd) {
+            aggregate.windowEnd = now + windowMs;
+            return Action.UPLOAD_NOW;
+        }
+        if (!aggregate.flushScheduled) {
+            aggregate.flushScheduled = true;
+            return Action.SCHEDULE_FLUSH;
+        }
+        return Action.COUNTED;
+    }
+
+    /**
+     * 取出某指纹累积的出现次数，并从 now 开启新窗口
+     *
+     * @return 待上报批次；没有累积时返回 null
+     */
+    synchronized Batch drain(String fingerprint, long now, long windowMs) {
+        Aggregate aggregate = aggregates.get(fingerprint);
+        if (aggregate == null) return null;
+        aggregate.flushScheduled = false;
+        if (aggregate.pending == 0) return null;
+        Batch batch = new Batch(fingerprint, aggregate.latest, aggregate.pending, aggregate.total,
+                aggregate.firstSeen, aggregate.lastSeen);
+        aggregate.pending = 0;
+        aggregate.windowEnd = now + windowMs;
+        return batch;
+    }
+
+    /**
+     * 某指纹当前窗口的结束时间
+     */
+    synchronized long windowEnd(String fingerprint) {
+        Aggregate aggregate = aggregates.get(fingerprint);
+        return aggregate == null ? 0 : aggregate.windowEnd;
+    }
+
+    synchronized int size() {
+        return aggregates.size();
+    }
+
+    /**
+     * 超出上限时淘汰最久未出现、且没有等待合并上报的指纹
+     */
+    private void evict() {
+        Iterator<Aggregate> it = aggregates.values().iterator();
+        while (aggregates.size() > maxFingerprints && it.hasNext()) {
+            Aggregate aggregate = it.next();
+            if (!aggregate.flushScheduled) it.remove();
+        }
+    }
+
+    /**
+     * 计算异常指纹：异常类型 + 前若干栈帧的类名与方法名（含 cause 链），
+     * 不含消息与行号，lambda / 匿名类的编号被抹去，版本小改动或消息里的变量不会产生新指纹。
+     */
+    static String fingerprint(Throwable throwable) {
+        StringBuilder signature = new StringBuilder();
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Throwable current = throwable;
+        for (int depth = 0; current != null && depth < MAX_CAUSES && seen.add(current); depth++) {
+            signature.append(current.getClass().getName()).append('|');
+            StackTraceElement[] frames = current.getStackTrace();
+            for (int i = 0; i < frames.length && i < FRAMES_PER_CAUSE; i++) {
+                signature.append(normalizeClass(frames[i].getClassName()))
+                        .append('.')
+                        .append(normalizeMethod(frames[i].getMethodName()))
+                        .append(';');
+            }
+            signature.append('\n');
+            current = current.getCause();
+        }
+        return sha1(signature.toString()).substring(0, 16);
+    }
+
+    static String normalizeClass(String className) {
+        String name = LAMBDA_CLASS.matcher(className).replaceFirst("\\$\\$Lambda");
+        return ANONYMOUS_CLASS.matcher(name).replaceAll("\\$");
+    }
+
+    static String normalizeMethod(String method) {
+        return LAMBDA_METHOD.matcher(method).replaceFirst("$1");
+    }
+
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(text.hashCode()) + "0000000000000000";
+        }
+    }
+}
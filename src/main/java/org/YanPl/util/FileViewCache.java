@@ -0,0 +1,297 @@
+package org.YanPl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按行索引的文件读取缓存（供 #read 使用）。
+ * <p>
+ * 首次读取时扫描一遍文件，记录每行起始字节偏移，索引按 路径 + 大小 + 修改时间 缓存；
+ * 之后任意行区间都只读取该区间对应的字节，耗时与区间长度成正比，与文件总长无关。
+ * 只追加增长的文件（如 latest.log）从上次索引到的位置继续扫描，不重扫全文件；
+ * 是否为追加通过比对旧末尾的一段字节判断，不一致（轮转、改写）时重建索引。
+ * 一律使用按位置的通道读取，不做内存映射，避免映射未释放时 Windows 下文件被占用、无法轮转或改写。
+ */
+public class FileViewCache {
+
+    /** 可建立索引的最大文件大小 */
+    public static final long MAX_FILE_SIZE = 512L * 1024 * 1024;
+    /** 最多缓存的文件索引数 */
+    private static final int MAX_ENTRIES = 32;
+    /** 所有缓存索引的行数总和上限（int 偏移，约 4 字节/行） */
+    private static final long MAX_TOTAL_LINES = 8_000_000L;
+    private static final int SCAN_CHUNK = 256 * 1024;
+    /** 判断文件是否只追加时比对的旧末尾字节数 */
+    private static final int TAIL_CHECK_BYTES = 256;
+
+    private final Map<String, LineIndex> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalLines;
+
+    /**
+     * 一次区间读取的结果
+     */
+    public static class Window {
+        private final int firstLine;
+        private final List<String> lines;
+        private final int totalLines;
+        private final boolean truncated;
+        private final int cutLineBytes;
+
+        Window(int firstLine, List<String> lines, int totalLines, boolean truncated) {
+            this(firstLine, lines, totalLines, truncated, 0);
+        }
+
+        Window(int firstLine, List<String> lines, int totalLines, boolean truncated, int cutLineBytes) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.totalLines = totalLines;
+            this.truncated = truncated;
+            this.cutLineBytes = cutLineBytes;
+        }
+
+        /** 第一行的行号（从 1 开始） */
+        public int getFirstLine() { return firstLine; }
+        public List<String> getLines() { return lines; }
+        /** 文件总行数 */
+        public int getTotalLines() { return totalLines; }
+        /** 是否因行数或字节数上限而未读完请求的区间 */
+        public boolean isTruncated() { return truncated; }
+        /** 第一行单独就超过字节上限时，实际读取的字节数（截在 UTF-8 字符边界）；未截断为 0 */
+        public int getCutLineBytes() { return cutLineBytes; }
+    }
+
+    private static class LineIndex {
+        final long size;
+        final long lastModified;
+        /** 第 i 行（从 0 开始）的起始偏移；末尾额外存一个文件长度作为哨兵 */
+        final int[] lineStarts;
+        final int lineCount;
+        /** 文件末尾最多 TAIL_CHECK_BYTES 字节，用于判断之后的增长是否为纯追加 */
+        final byte[] tail;
+
+        LineIndex(long size, long lastModified, int[] lineStarts, int lineCount, byte[] tail) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.lineStarts = lineStarts;
+            this.lineCount = lineCount;
+            this.tail = tail;
+        }
+    }
+
+    /**
+     * 读取 [startLine, endLine] 区间（行号从 1 开始，endLine 为 -1 表示到文件末尾）
+     *
+     * @param maxLines 单次最多返回的行数
+     * @param maxBytes 单次最多读取的字节数；第一行就超过上限时只读取该行的前 maxBytes 字节
+     */
+    public Window read(File file, int startLine, int endLine, int maxLines, int maxBytes) throws IOException {
+        LineIndex index = getIndex(file);
+        int first = Math.max(1, startLine);
+        int last = endLine < 0 ? index.lineCount : Math.min(endLine, index.lineCount);
+        if (first > last) {
+            return new Window(first, new ArrayList<>(), index.lineCount, false);
+        }
+
+        // 按行数与字节数上限收缩区间
+        int limit = Math.min(last, first + maxLines - 1);
+        long startOffset = index.lineStarts[first - 1];
+        if (index.lineStarts[first] - startOffset > maxBytes) {
+            // 单行过长（压缩过的 JSON、无换行的日志）：只读前 maxBytes 字节
+            ByteBuffer bytes = readRange(file, startOffset, startOffset + maxBytes);
+            int cut = utf8Boundary(bytes.array(), bytes.limit());
+            String text = new String(bytes.array(), 0, cut, StandardCharsets.UTF_8);
+            List<String> lines = new ArrayList<>(1);
+            lines.add(text);
+            return new Window(first, lines, index.lineCount, true, cut);
+        }
+        int end = first;
+        while (end < limit && index.lineStarts[end + 1] - startOffset <= maxBytes) {
+            end++;
+        }
+        boolean truncated = end < last;
+        long endOffset = index.lineStarts[end];
+
+        ByteBuffer bytes = readRange(file, startOffset, endOffset);
+        String text = StandardCharsets.UTF_8.decode(bytes).toString();
+        List<String> lines = splitLines(text, end - first + 1);
+        return new Window(first, lines, index.lineCount, truncated);
+    }
+
+    /**
+     * 文件是否可被索引（未超过大小上限）
+     */
+    public static boolean isReadable(File file) {
+        return file.length() <= MAX_FILE_SIZE;
+    }
+
+    public synchronized void invalidate(File file) {
+        LineIndex removed = cache.remove(key(file));
+        if (removed != null) {
+            totalLines -= removed.lineCount;
+        }
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+        totalLines = 0;
+    }
+
+    private LineIndex getIndex(File file) throws IOException {
+        String key = key(file);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        LineIndex cached;
+        synchronized (this) {
+            cached = cache.get(key);
+            if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+                return cached;
+            }
+        }
+
+        LineIndex built = buildIndex(file, size, lastModified, cached);
+        synchronized (this) {
+            LineIndex previous = cache.put(key, built);
+            if (previous != null) {
+                totalLines -= previous.lineCount;
+            }
+            totalLines += built.lineCount;
+            evict();
+        }
+        return built;
+    }
+
+    private void evict() {
+        Iterator<LineIndex> it = cache.values().iterator();
+        while (it.hasNext() && cache.size() > 1 && (cache.size() > MAX_ENTRIES || totalLines > MAX_TOTAL_LINES)) {
+            totalLines -= it.next().lineCount;
+            it.remove();
+        }
+    }
+
+    /**
+     * 建立行索引；previous 不为空且文件只是在其基础上追加时，从旧末尾继续扫描
+     */
+    private static LineIndex buildIndex(File file, long size, long lastModified, LineIndex previous) throws IOException {
+        if (size > MAX_FILE_SIZE) {
+            throw new IOException("文件过大 (" + (size / 1024) + "KB)，超过可读取上限");
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int[] starts;
+            int count;
+            long from;
+            if (previous != null && size > previous.size && isAppendOf(channel, previous)) {
+                starts = Arrays.copyOf(previous.lineStarts, Math.max(1024, previous.lineStarts.length * 2));
+                // 旧索引对空文件也保留了第 0 行起点
+                count = Math.max(1, previous.lineCount);
+                // 回退一个字节：旧文件恰好以换行结尾时，旧长度处就是新一行的起点
+                from = Math.max(0, previous.size - 1);
+            } else {
+                starts = new int[1024];
+                starts[0] = 0;
+                count = 1;
+                from = 0;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_CHUNK);
+            long base = from;
+            while (base < size) {
+                buffer.clear();
+                buffer.limit((int) Math.min(SCAN_CHUNK, size - base));
+                int read = channel.read(buffer, base);
+                if (read <= 0) break;
+                for (int i = 0; i < read; i++) {
+                    long pos = base + i;
+                    if (buffer.get(i) == '\n' && pos + 1 < size) {
+                        if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                        starts[count++] = (int) (pos + 1);
+                    }
+                }
+                base += read;
+            }
+
+            int lineCount = size == 0 ? 0 : count;
+            int[] lineStarts = Arrays.copyOf(starts, lineCount + 1);
+            lineStarts[lineCount] = (int) size;
+            return new LineIndex(size, lastModified, lineStarts, lineCount, readTail(channel, size));
+        }
+    }
+
+    /**
+     * 旧索引末尾的字节是否原样保留（文件只在末尾追加）
+     */
+    private static boolean isAppendOf(FileChannel channel, LineIndex previous) throws IOException {
+        return Arrays.equals(previous.tail, readTail(channel, previous.size));
+    }
+
+    private static byte[] readTail(FileChannel channel, long size) throws IOException {
+        int length = (int) Math.min(TAIL_CHECK_BYTES, size);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, size - length);
+        return buffer.array();
+    }
+
+    private static ByteBuffer readRange(File file, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            readFully(channel, buffer, start);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, pos);
+            if (read < 0) break;
+            pos += read;
+        }
+    }
+
+    /**
+     * 把长度 length 的 UTF-8 字节前缀收缩到字符边界，避免截断半个多字节字符
+     */
+    static int utf8Boundary(byte[] bytes, int length) {
+        int back = 0;
+        while (back < 3 && back < length && (bytes[length - 1 - back] & 0xC0) == 0x80) {
+            back++;
+        }
+        int lead = length - 1 - back;
+        if (lead < 0 || (bytes[lead] & 0xC0) != 0xC0) {
+            return length;
+        }
+        int needed = (bytes[lead] & 0xE0) == 0xC0 ? 2 : (bytes[lead] & 0xF0) == 0xE0 ? 3 : 4;
+        return back + 1 < needed ? lead : length;
+    }
+
+    /**
+     * 按 \n 切分并去掉行尾 \r，与 BufferedReader.readLine 的常见结果一致
+     */
+    private static List<String> splitLines(String text, int expected) {
+        List<String> lines = new ArrayList<>(expected);
+        int from = 0;
+        while (from < text.length() && lines.size() < expected) {
+            int nl = text.indexOf('\n', from);
+            int to = nl < 0 ? text.length() : nl;
+            int trimmed = to > from && text.charAt(to - 1) == '\r' ? to - 1 : to;
+            lines.add(text.substring(from, trimmed));
+            if (nl < 0) break;
+            from = nl + 1;
+        }
+        return lines;
+    }
+
+    private static String key(File file) {
+        return file.getAbsolutePath();
+    }
+}
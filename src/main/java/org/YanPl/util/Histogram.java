@@ -0,0 +1,92 @@
+package org.YanPl.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 固定分桶的直方图，记录时只做原子累加，不加锁。
+ * <p>
+ * 桶按 Prometheus 的 le（小于等于）语义划分，最后一个桶是 +Inf。
+ * 分位数按桶内线性插值估算，精度取决于分桶粒度。
+ */
+public final class Histogram {
+
+    private final double[] bounds;
+    /** 每个桶自身的计数（非累积），长度为 bounds.length + 1 */
+    private final AtomicLongArray buckets;
+    private final DoubleAdder sum = new DoubleAdder();
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * @param bounds 严格递增的桶上界，不含 +Inf
+     */
+    public Histogram(double[] bounds) {
+        if (bounds == null || bounds.length == 0) {
+            throw new IllegalArgumentException("至少需要一个桶上界");
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (!(bounds[i] > bounds[i - 1])) {
+                throw new IllegalArgumentException("桶上界必须严格递增: " + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+        this.buckets = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void observe(double value) {
+        int index = Arrays.binarySearch(bounds, value);
+        if (index < 0) index = -index - 1;
+        buckets.incrementAndGet(index);
+        sum.add(value);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * 各桶的累积计数，最后一项对应 +Inf
+     */
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[buckets.length()];
+        long running = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            running += buckets.get(i);
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+    /**
+     * 估算分位数，没有数据时返回 0；落在 +Inf 桶时返回最大的有限上界
+     *
+     * @param q 0 到 1 之间的分位
+     */
+    public double quantile(double q) {
+        long[] cumulative = cumulativeCounts();
+        long total = cumulative[cumulative.length - 1];
+        if (total == 0) return 0;
+        double rank = Math.max(0, Math.min(1, q)) * total;
+        for (int i = 0; i < cumulative.length; i++) {
+            if (cumulative[i] < rank) continue;
+            if (i == bounds.length) return bounds[bounds.length - 1];
+            double lower = i == 0 ? 0 : bounds[i - 1];
+            long below = i == 0 ? 0 : cumulative[i - 1];
+            long inBucket = cumulative[i] - below;
+            if (inBucket == 0) return bounds[i];
+            return lower + (bounds[i] - lower) * (rank - below) / inBucket;
+        }
+        return bounds[bounds.length - 1];
+    }
+}
@@ -101,6 +101,7 @@ public class I18n {
         Map.entry("cli.only.player.sub", "§c该子命令仅限玩家使用。"),
         Map.entry("cli.only.console", "§c该命令仅限控制台使用。"),
         Map.entry("cli.no.perm.update", "§zFancyHelper§b§r §7> §f你没有权限执行更新。"),
+        Map.entry("cli.no.perm.metrics", "§zFancyHelper§b§r §7> §f你没有权限查看性能指标。"),
         Map.entry("cli.no.perm.skill", "§zFancyHelper§b§r §7> §f你没有权限使用 Skill 命令。"),
         Map.entry("cli.help.title", "§zFancyHelper§b§r §7> §f可用子命令:"),
         Map.entry("cli.help.toggle", " §7- §b/cli §f: 切换进入/退出 CLI 模式"),
@@ -109,6 +110,7 @@ public class I18n {
         Map.entry("cli.help.reload.deep", " §7- §b/cli reload deeply §f: 深度重载（完全重启插件）"),
         Map.entry("cli.help.status", " §7- §b/cli status §f: 查看插件运行状态"),
         Map.entry("cli.help.stats", " §7- §b/cli stats §f: 手动上报统计数据（测试用）"),
+        Map.entry("cli.help.metrics", " §7- §b/cli metrics §f: 查看各阶段耗时分布（p50/p95）"),
         Map.entry("cli.help.checkupdate", " §7- §b/cli checkupdate §f: 检查更新"),
         Map.entry("cli.help.upgrade", " §7- §b/cli upgrade §f: 下载并安装更新"),
         Map.entry("cli.help.notice", " §7- §b/cli notice §f: 查看系统公告"),
@@ -141,6 +143,7 @@ public class I18n {
         Map.entry("cli.help.mcp.tools", " §7- §b/cli mcp tools §f: 查看 MCP 外部工具"),
         Map.entry("cli.help.mcp.tools.server", " §7  §b/cli mcp tools <server> §f: 查看指定服务器的工具"),
         Map.entry("cli.help.mcp.toggle", " §7  §b/cli mcp toggle <server> <tool> §f: 切换工具启用/禁用"),
+        Map.entry("cli.help.mcp.status", " §7  §b/cli mcp status §f: 查看 MCP 服务器连接状态"),
         Map.entry("cli.tool.disabled", "§e工具 {0} 已禁用。下次开启需要重新验证。"),
         Map.entry("cli.tool.verifying", "§b正在为工具 {0} 发起安全验证..."),
         Map.entry("cli.tool.verified", "§a验证成功！工具 {0} 已启用。"),
@@ -194,6 +197,7 @@ public class I18n {
         Map.entry("cli.status.hover.commands", "§7已索引的原版/插件命令数量"),
         Map.entry("cli.status.hover.skills", "§7已加载的 Skill 数量"),
         Map.entry("cli.status.hover.players", "§7当前处于 CLI 模式的玩家数量"),
+        Map.entry("cli.status.hover.search", "§7搜索缓存命中率（命中/总查询），相同问题会直接复用近期结果"),
         Map.entry("cli.status.refresh", "§7点击刷新状态"),
         Map.entry("cli.status.reload", "§7点击重载配置与工作区"),
         Map.entry("cli.status.settings", "§7打开个人设置界面"),
@@ -201,6 +205,12 @@ public class I18n {
         Map.entry("cli.stats.sending", "§zFancyHelper§b§r §7> §f正在上报统计数据..."),
         Map.entry("cli.stats.success", "§zFancyHelper§b§r §7> §a统计数据上报成功。"),
         Map.entry("cli.stats.fail", "§zFancyHelper§b§r §7> §c统计数据上报失败，请检查网络或 API Key。"),
+        Map.entry("cli.metrics.header", "§zFancyHelper§b§r §7> §f性能指标（本次启动以来）："),
+        Map.entry("cli.metrics.empty", "§7  暂无数据"),
+        Map.entry("cli.metrics.line", "§7  {0} §8| §f{1} 次 §8| §7p50 §f{2}ms §8| §7p95 §f{3}ms"),
+        Map.entry("cli.metrics.line.tps", "§7  {0} §8| §f{1} 次 §8| §7输出速度 p50 §f{2} tok/s"),
+        Map.entry("cli.metrics.endpoint", "§7  Prometheus 端点: §f{0}"),
+        Map.entry("cli.metrics.endpoint.off", "§7  Prometheus 端点未开启（settings.metrics.port）"),
         // ---- 设置面板 ----
         Map.entry("cli.settings.mode.hover", "§7不可在此处更改"),
         Map.entry("cli.settings.pos.hover", "§7点击切换状态显示位置 (actionbar/subtitle)"),
@@ -310,6 +320,13 @@ public class I18n {
         Map.entry("cli.mcp.connected", "§a已连接"),
         Map.entry("cli.mcp.disconnected", "§c未连接"),
         Map.entry("cli.mcp.conn.status", "§7连接状态: {0}"),
+        Map.entry("cli.mcp.state.header", "§8━━━━━━━━ MCP 连接状态 ━━━━━━━━"),
+        Map.entry("cli.mcp.state.connected", "§a已连接 §7(连接耗时 {0}ms)"),
+        Map.entry("cli.mcp.state.connecting", "§e连接中 §7(已等待 {0} 秒)"),
+        Map.entry("cli.mcp.state.backoff", "§6等待重连 §7(连续失败 {0} 次，{1} 秒后重试)"),
+        Map.entry("cli.mcp.state.failed", "§c连接失败 §7(连续失败 {0} 次，未开启自动重连)"),
+        Map.entry("cli.mcp.state.idle", "§7未连接"),
+        Map.entry("cli.mcp.state.error", "§7    最近错误: §c{0}"),
         Map.entry("cli.mcp.disable", "禁用"),
         Map.entry("cli.mcp.enable", "启用"),
         Map.entry("cli.mcp.disable.hover", "点击禁用此工具"),
@@ -478,6 +495,7 @@ public class I18n {
         Map.entry("tool.run.need.args", "§zFancyHelper§b§r §7> §f#run 工具需要提供命令参数"),
         Map.entry("tool.run.assessing", "§7⁕ 正在评估操作风险..."),
         Map.entry("tool.run.smart", "§6>> SMART RUN §f{0}"),
+        Map.entry("tool.run.invalid", "§7⇒ 命令语法有误，已退回 AI 修正"),
         Map.entry("tool.run.risky", "§e⨀ 检测到风险命令，执行可能带来无法挽回的后果，请检查命令"),
         Map.entry("tool.run.yolo", "§6>> YOLO RUN §f{0}"),
         Map.entry("tool.verify.frozen", "§c验证已冻结，请在 {0} 秒后重试。"),
@@ -495,7 +513,7 @@ public class I18n {
         Map.entry("tool.edit.before", "§7修改前:"),
         Map.entry("tool.edit.after", "§7修改后:"),
         Map.entry("tool.run.dispatched", "§7⇒ 命令已下发，等待反馈中..."),
-        Map.entry("tool.run.no.feedback", "§7⇒ 暂无反馈，延长等待 5秒..."),
+        Map.entry("tool.run.no.feedback", "§7⇒ 暂无反馈，该命令可能稍后才回复，继续等待..."),
         Map.entry("tool.ask.missing.question", "§zFancyHelper§b§r §7> §fJSON 格式错误：缺少 question 字段"),
         Map.entry("tool.ask.parse.fail", "§cJSON 解析失败: {0}"),
         Map.entry("tool.webfetch.need.url", "§c错误: #webfetch 工具需要提供URL参数"),
@@ -674,6 +692,7 @@ public class I18n {
         Map.entry("cli.only.player.sub", "§cThis subcommand can only be used by players."),
         Map.entry("cli.only.console", "§cThis command can only be used from the console."),
         Map.entry("cli.no.perm.update", "§zFancyHelper§b§r §7> §fYou don't have permission to update."),
+        Map.entry("cli.no.perm.metrics", "§zFancyHelper§b§r §7> §fYou don't have permission to view metrics."),
         Map.entry("cli.no.perm.skill", "§zFancyHelper§b§r §7> §fYou don't have permission to use Skill commands."),
         Map.entry("cli.help.title", "§zFancyHelper§b§r §7> §fAvailable subcommands:"),
         Map.entry("cli.help.toggle", " §7- §b/cli §f: Toggle CLI mode on/off"),
@@ -682,6 +701,7 @@ public class I18n {
         Map.entry("cli.help.reload.deep", " §7- §b/cli reload deeply §f: Deep reload (full plugin restart)"),
         Map.entry("cli.help.status", " §7- §b/cli status §f: View plugin status"),
         Map.entry("cli.help.stats", " §7- §b/cli stats §f: Report stats manually (testing)"),
+        Map.entry("cli.help.metrics", " §7- §b/cli metrics §f: Show stage latency distribution (p50/p95)"),
         Map.entry("cli.help.checkupdate", " §7- §b/cli checkupdate §f: Check for updates"),
         Map.entry("cli.help.upgrade", " §7- §b/cli upgrade §f: Download and install updates"),
         Map.entry("cli.help.notice", " §7- §b/cli notice §f: View system notices"),
@@ -714,6 +734,7 @@ public class I18n {
         Map.entry("cli.help.mcp.tools", " §7- §b/cli mcp tools §f: View MCP external tools"),
         Map.entry("cli.help.mcp.tools.server", " §7  §b/cli mcp tools <server> §f: View tools of a server"),
         Map.entry("cli.help.mcp.toggle", " §7  §b/cli mcp toggle <server> <tool> §f: Toggle a tool"),
+        Map.entry("cli.help.mcp.status", " §7  §b/cli mcp status §f: View MCP server connection status"),
         Map.entry("cli.tool.disabled", "§eTool {0} disabled. Re-enabling requires re-verification."),
         Map.entry("cli.tool.verifying", "§bStarting security verification for tool {0}..."),
         Map.entry("cli.tool.verified", "§aVerification successful! Tool {0} enabled."),
@@ -767,6 +788,7 @@ public class I18n {
         Map.entry("cli.status.hover.commands", "§7Number of indexed vanilla/plugin commands"),
         Map.entry("cli.status.hover.skills", "§7Number of loaded Skills"),
         Map.entry("cli.status.hover.players", "§7Number of players currently in CLI mode"),
+        Map.entry("cli.status.hover.search", "§7Search cache hit rate (hits/total); repeated questions reuse recent results"),
         Map.entry("cli.status.refresh", "§7Click to refresh status"),
         Map.entry("cli.status.reload", "§7Click to reload config and workspace"),
         Map.entry("cli.status.settings", "§7Open personal settings"),
@@ -774,6 +796,12 @@ public class I18n {
         Map.entry("cli.stats.sending", "§zFancyHelper§b§r §7> §fReporting stats..."),
         Map.entry("cli.stats.success", "§zFancyHelper§b§r §7> §aStats reported successfully."),
         Map.entry("cli.stats.fail", "§zFancyHelper§b§r §7> §cStats report failed. Check your network or API Key."),
+        Map.entry("cli.metrics.header", "§zFancyHelper§b§r §7> §fMetrics (since startup):"),
+        Map.entry("cli.metrics.empty", "§7  No data yet"),
+        Map.entry("cli.metrics.line", "§7  {0} §8| §f{1} calls §8| §7p50 §f{2}ms §8| §7p95 §f{3}ms"),
+        Map.entry("cli.metrics.line.tps", "§7  {0} §8| §f{1} calls §8| §7output p50 §f{2} tok/s"),
+        Map.entry("cli.metrics.endpoint", "§7  Prometheus endpoint: §f{0}"),
+        Map.entry("cli.metrics.endpoint.off", "§7  Prometheus endpoint disabled (settings.metrics.port)"),
         // ---- 设置面板 ----
         Map.entry("cli.settings.mode.hover", "§7Cannot be changed here"),
         Map.entry("cli.settings.pos.hover", "§7Click to switch display position (actionbar/subtitle)"),
@@ -883,6 +911,13 @@ public class I18n {
         Map.entry("cli.mcp.connected", "§aConnected"),
         Map.entry("cli.mcp.disconnected", "§cDisconnected"),
         Map.entry("cli.mcp.conn.status", "§7Connection status: {0}"),
+        Map.entry("cli.mcp.state.header", "§8━━━━━━━━ MCP Connection Status ━━━━━━━━"),
+        Map.entry("cli.mcp.state.connected", "§aConnected §7(took {0}ms)"),
+        Map.entry("cli.mcp.state.connecting", "§eConnecting §7(waiting {0}s)"),
+        Map.entry("cli.mcp.state.backoff", "§6Waiting to reconnect §7({0} failures in a row, retry in {1}s)"),
+        Map.entry("cli.mcp.state.failed", "§cConnection failed §7({0} failures in a row, auto-reconnect off)"),
+        Map.entry("cli.mcp.state.idle", "§7Not connected"),
+        Map.entry("cli.mcp.state.error", "§7    Last error: §c{0}"),
         Map.entry("cli.mcp.disable", "Disable"),
         Map.entry("cli.mcp.enable", "Enable"),
         Map.entry("cli.mcp.disable.hover", "Click to disable this tool"),
@@ -1051,6 +1086,7 @@ public class I18n {
         Map.entry("tool.run.need.args", "§zFancyHelper§b§r §7> §f#run tool requires a command argument"),
         Map.entry("tool.run.assessing", "§7⁕ Assessing operation risk..."),
         Map.entry("tool.run.smart", "§6>> SMART RUN §f{0}"),
+        Map.entry("tool.run.invalid", "§7⇒ Command syntax is invalid, sent back to the AI to fix"),
         Map.entry("tool.run.risky", "§e⨀ Risky command detected. It may cause irreversible consequences. Please check the command."),
         Map.entry("tool.run.yolo", "§6>> YOLO RUN §f{0}"),
         Map.entry("tool.verify.frozen", "§cVerification is frozen, retry in {0} seconds."),
@@ -1068,7 +1104,7 @@ public class I18n {
         Map.entry("tool.edit.before", "§7Before:"),
         Map.entry("tool.edit.after", "§7After:"),
         Map.entry("tool.run.dispatched", "§7⇒ Command dispatched, waiting for feedback..."),
-        Map.entry("tool.run.no.feedback", "§7⇒ No feedback yet, extending wait by 5s..."),
+        Map.entry("tool.run.no.feedback", "§7⇒ No feedback yet, this command may reply later, still waiting..."),
         Map.entry("tool.ask.missing.question", "§zFancyHelper§b§r §7> §fJSON format error: missing question field"),
         Map.entry("tool.ask.parse.fail", "§cJSON parse failed: {0}"),
         Map.entry("tool.webfetch.need.url", "§cError: #webfetch tool requires a URL argument"),
@@ -1247,6 +1283,7 @@ public class I18n {
         Map.entry("cli.only.player.sub", "§c此子令惟玩家可用。"),
         Map.entry("cli.only.console", "§c此令惟控制台可用。"),
         Map.entry("cli.no.perm.update", "§zFancyHelper§b§r §7> §f汝无权更新。"),
+        Map.entry("cli.no.perm.metrics", "§zFancyHelper§b§r §7> §f汝无权观性能之数。"),
         Map.entry("cli.no.perm.skill", "§zFancyHelper§b§r §7> §f汝无权用 Skill 之令。"),
         Map.entry("cli.help.title", "§zFancyHelper§b§r §7> §f可用子令:"),
         Map.entry("cli.help.toggle", " §7- §b/cli §f: 入出 CLI 之境"),
@@ -1255,6 +1292,7 @@ public class I18n {
         Map.entry("cli.help.reload.deep", " §7- §b/cli reload deeply §f: 深度重载（尽重启插件）"),
         Map.entry("cli.help.status", " §7- §b/cli status §f: 观插件之况"),
         Map.entry("cli.help.stats", " §7- §b/cli stats §f: 手动上报统计（试之）"),
+        Map.entry("cli.help.metrics", " §7- §b/cli metrics §f: 观各段耗时之布（p50/p95）"),
         Map.entry("cli.help.checkupdate", " §7- §b/cli checkupdate §f: 查更新"),
         Map.entry("cli.help.upgrade", " §7- §b/cli upgrade §f: 下载并装更新"),
         Map.entry("cli.help.notice", " §7- §b/cli notice §f: 观系统公告"),
@@ -1287,6 +1325,7 @@ public class I18n {
         Map.entry("cli.help.mcp.tools", " §7- §b/cli mcp tools §f: 观 MCP 外具"),
         Map.entry("cli.help.mcp.tools.server", " §7  §b/cli mcp tools <server> §f: 观指定伺服之具"),
         Map.entry("cli.help.mcp.toggle", " §7  §b/cli mcp toggle <server> <tool> §f: 启停其具"),
+        Map.entry("cli.help.mcp.status", " §7  §b/cli mcp status §f: 观 MCP 伺服连况"),
         Map.entry("cli.tool.disabled", "§e工具 {0} 已废。再启须复验。"),
         Map.entry("cli.tool.verifying", "§b方为工具 {0} 起安全之验……"),
         Map.entry("cli.tool.verified", "§a验成！工具 {0} 已启。"),
@@ -1340,6 +1379,7 @@ public class I18n {
         Map.entry("cli.status.hover.commands", "§7已索原版/插件之令数"),
         Map.entry("cli.status.hover.skills", "§7已载 Skill 之数"),
         Map.entry("cli.status.hover.players", "§7今处 CLI 之境之玩家数"),
+        Map.entry("cli.status.hover.search", "§7搜索存录之中率（中/总问），同问则径取近得之果"),
         Map.entry("cli.status.refresh", "§7点此刷新"),
         Map.entry("cli.status.reload", "§7点此重载配置与工坊"),
         Map.entry("cli.status.settings", "§7开个人设置"),
@@ -1347,6 +1387,12 @@ public class I18n {
         Map.entry("cli.stats.sending", "§zFancyHelper§b§r §7> §f方报统计……"),
         Map.entry("cli.stats.success", "§zFancyHelper§b§r §7> §a统计上报成矣。"),
         Map.entry("cli.stats.fail", "§zFancyHelper§b§r §7> §c统计上报不成，请察网络或 API Key。"),
+        Map.entry("cli.metrics.header", "§zFancyHelper§b§r §7> §f性能之数（自启以来）："),
+        Map.entry("cli.metrics.empty", "§7  尚无数据"),
+        Map.entry("cli.metrics.line", "§7  {0} §8| §f{1} 次 §8| §7p50 §f{2}ms §8| §7p95 §f{3}ms"),
+        Map.entry("cli.metrics.line.tps", "§7  {0} §8| §f{1} 次 §8| §7出字之速 p50 §f{2} tok/s"),
+        Map.entry("cli.metrics.endpoint", "§7  Prometheus 端点: §f{0}"),
+        Map.entry("cli.metrics.endpoint.off", "§7  Prometheus 端点未启（settings.metrics.port）"),
         // ---- 设置面板 ----
         Map.entry("cli.settings.mode.hover", "§7此处不可改"),
         Map.entry("cli.settings.pos.hover", "§7点此换显示之处 (actionbar/subtitle)"),
@@ -1456,6 +1502,13 @@ public class I18n {
         Map.entry("cli.mcp.connected", "§a已连"),
         Map.entry("cli.mcp.disconnected", "§c未连"),
         Map.entry("cli.mcp.conn.status", "§7连况: {0}"),
+        Map.entry("cli.mcp.state.header", "§8━━━━━━━━ MCP 连况 ━━━━━━━━"),
+        Map.entry("cli.mcp.state.connected", "§a已连 §7(费时 {0}ms)"),
+        Map.entry("cli.mcp.state.connecting", "§e方连 §7(已候 {0} 秒)"),
+        Map.entry("cli.mcp.state.backoff", "§6候再连 §7(连败 {0} 次，{1} 秒后再试)"),
+        Map.entry("cli.mcp.state.failed", "§c连而不成 §7(连败 {0} 次，未启自复连)"),
+        Map.entry("cli.mcp.state.idle", "§7未连"),
+        Map.entry("cli.mcp.state.error", "§7    近误: §c{0}"),
         Map.entry("cli.mcp.disable", "废"),
         Map.entry("cli.mcp.enable", "启"),
         Map.entry("cli.mcp.disable.hover", "点此废此具"),
@@ -1624,6 +1677,7 @@ public class I18n {
         Map.entry("tool.run.need.args", "§zFancyHelper§b§r §7> §f#run 之具须供令参"),
         Map.entry("tool.run.assessing", "§7⁕ 方衡其险……"),
         Map.entry("tool.run.smart", "§6>> SMART RUN §f{0}"),
+        Map.entry("tool.run.invalid", "§7⇒ 令文有误，已还 AI 改之"),
         Map.entry("tool.run.risky", "§e⨀ 察有危令，行之恐难复，请察此令"),
         Map.entry("tool.run.yolo", "§6>> YOLO RUN §f{0}"),
         Map.entry("tool.verify.frozen", "§c验已冻，请于 {0} 秒后复试。"),
@@ -1641,7 +1695,7 @@ public class I18n {
         Map.entry("tool.edit.before", "§7改前:"),
         Map.entry("tool.edit.after", "§7改后:"),
         Map.entry("tool.run.dispatched", "§7⇒ 令已下，待应……"),
-        Map.entry("tool.run.no.feedback", "§7⇒ 暂无应，更待五秒……"),
+        Map.entry("tool.run.no.feedback", "§7⇒ 暂无应，此令或迟复，姑待之……"),
         Map.entry("tool.ask.missing.question", "§zFancyHelper§b§r §7> §fJSON 之式误：缺 question 之段"),
         Map.entry("tool.ask.parse.fail", "§cJSON 析之不成: {0}"),
         Map.entry("tool.webfetch.need.url", "§c误: #webfetch 之具须供 URL 之参"),
@@ -0,0 +1,188 @@
+package org.YanPl.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 按名称和标签组织的指标集合，可输出为 Prometheus 文本格式（0.0.4）。
+ * <p>
+ * 同名同标签的序列只创建一次，之后的查找与记录都不加锁。
+ * 标签以 键, 值, 键, 值 的形式传入，顺序即输出顺序。
+ */
+public final class MetricsRegistry {
+
+    /** 延迟类直方图的默认分桶（秒） */
+    public static final double[] LATENCY_SECONDS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120};
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * 获取（必要时创建）直方图序列
+     */
+    public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+        Family family = family(name, help, Type.HISTOGRAM);
+        return (Histogram) family.series.computeIfAbsent(renderLabels(labels),
+                k -> new Series(labelValues(labels), new Histogram(bounds))).metric;
+    }
+
+    /**
+     * 获取（必要时创建）计数器序列
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        Family family = family(name, help, Type.COUNTER);
+        return (LongAdder) family.series.computeIfAbsent(renderLabels(labels),
+                k -> new Series(labelValues(labels), new LongAdder())).metric;
+    }
+
+    /**
+     * 注册读取时才取值的计数器（值来自已有的累计计数），重复注册时替换取值函数
+     */
+    public void counterFunction(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.COUNTER).series.put(renderLabels(labels), new Series(labelValues(labels), value));
+    }
+
+    /**
+     * 注册读取时才取值的仪表，重复注册时替换取值函数
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, Type.GAUGE).series.put(renderLabels(labels), new Series(labelValues(labels), value));
+    }
+
+    /**
+     * 按标签顺序遍历某个直方图的全部序列，参数为标签值列表与直方图
+     */
+    public void forEachHistogram(String name, BiConsumer<List<String>, Histogram> action) {
+        Family family = families.get(name);
+        if (family == null || family.type != Type.HISTOGRAM) return;
+        for (Series series : family.series.values()) {
+            action.accept(series.labelValues, (Histogram) series.metric);
+        }
+    }
+
+    /**
+     * 输出 Prometheus 文本格式
+     */
+    public String toPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            if (family.series.isEmpty()) continue;
+            sb.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type.text).append('\n');
+            for (Map.Entry<String, Series> s : family.series.entrySet()) {
+                String labels = s.getKey();
+                Object metric = s.getValue().metric;
+                if (metric instanceof Histogram) {
+                    writeHistogram(sb, name, labels, (Histogram) metric);
+                } else {
+                    double value = metric instanceof LongAdder
+                            ? ((LongAdder) metric).sum() : ((DoubleSupplier) metric).getAsDouble();
+                    sb.append(name).append(braces(labels)).append(' ').append(formatNumber(value)).append('\n');
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void writeHistogram(StringBuilder sb, String name, String labels, Histogram histogram) {
+        double[] bounds = histogram.getBounds();
+        long[] cumulative = histogram.cumulativeCounts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        for (int i = 0; i < cumulative.length; i++) {
+            String le = i < bounds.length ? formatNumber(bounds[i]) : "+Inf";
+            sb.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+                    .append(cumulative[i]).append('\n');
+        }
+        sb.append(name).append("_sum").append(braces(labels)).append(' ').append(formatNumber(histogram.getSum())).append('\n');
+        sb.append(name).append("_count").append(braces(labels)).append(' ').append(cumulative[cumulative.length - 1]).append('\n');
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("指标 " + name + " 已注册为 " + family.type.text);
+        }
+        return family;
+    }
+
+    private static String renderLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("标签必须成对出现");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) sb.append(',');
+            sb.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static List<String> labelValues(String... labels) {
+        List<String> values = new ArrayList<>(labels.length / 2);
+        for (int i = 1; i < labels.length; i += 2) {
+            values.add(labels[i] == null ? "" : labels[i]);
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static String escapeLabel(String value) {
+        if (value == null) return "";
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    static String formatNumber(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static final class Family {
+        final String help;
+        final Type type;
+        final Map<String, Series> series = new ConcurrentSkipListMap<>();
+
+        Family(String help, Type type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final class Series {
+        final List<String> labelValues;
+        final Object metric;
+
+        Series(List<String> labelValues, Object metric) {
+            this.labelValues = labelValues;
+            this.metric = metric;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package org.YanPl.util;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * 列表型数据的追加式持久化：快照文件 + 操作日志（journal）。
+ * <p>
+ * 每次变更只在内存队列里追加一行 JSON 操作（ADD/SET/REMOVE/TOUCH/CLEAR），由写线程按批次追加到
+ * {@code .journal} 文件；日志累计到阈值后压缩为快照并清空日志。加载时先读快照，再按序号重放日志，
+ * 末尾被截断的半行（进程崩溃现场）会被丢弃。
+ * <p>
+ * 约定：{@code record*} 必须在 {@code stateLock} 内、紧随对应的内存变更调用，
+ * 以保证操作序号与内存状态一致；所有文件 I/O 都在传入的单线程写执行器上串行完成。
+ */
+public class OperationJournal<T> {
+
+    /** 操作类型 */
+    public enum OpType { ADD, SET, REMOVE, TOUCH, CLEAR }
+
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int COMPACT_THRESHOLD = 200;
+    private static final long SYNC_TIMEOUT_SECONDS = 10;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final Type itemType;
+    private final Type listType;
+    private final ScheduledExecutorService writer;
+    private final Object stateLock;
+    private final Supplier<List<T>> stateSupplier;
+    private final BiConsumer<T, String> toucher;
+    private final Logger logger;
+    private final String tag;
+
+    private final Gson lineGson = new Gson();
+    private final Gson snapshotGson = new GsonBuilder().setPrettyPrinting().create();
+    private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    /** 写线程已从队列取出、尚未写完（含随后的压缩）的批次数 */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /** 最近一次分配的操作序号（受 stateLock 保护） */
+    private long lastSeq;
+    /** 日志文件中尚未压缩的条目数（仅写线程访问） */
+    private int journalEntries;
+
+    /**
+     * @param snapshotFile  快照文件（兼容旧版纯 JSON 数组格式）
+     * @param itemType      列表元素类型
+     * @param writer        单线程写执行器（可由多个 journal 共享）
+     * @param stateLock     调用方保护内存状态所用的锁
+     * @param stateSupplier 在 stateLock 内返回当前完整列表，用于压缩
+     * @param toucher       TOUCH 操作的重放逻辑（不需要时传 null）
+     */
+    public OperationJournal(File snapshotFile, Type itemType, ScheduledExecutorService writer,
+                            Object stateLock, Supplier<List<T>> stateSupplier,
+                            BiConsumer<T, String> toucher, Logger logger, String tag) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = siblingFile(snapshotFile, ".journal");
+        this.itemType = itemType;
+        this.listType = TypeToken.getParameterized(List.class, itemType).getType();
+        this.writer = writer;
+        this.stateLock = stateLock;
+        this.stateSupplier = stateSupplier;
+        this.toucher = toucher;
+        this.logger = logger;
+        this.tag = tag;
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * 是否还有尚未写入日志文件的操作（包括写线程已取出、正在写入的批次）。
+     * <p>
+     * 调用方持有 stateLock 时结果可靠：先查队列再查在途计数，而写线程先登记在途再取队列，
+     * 因此队列为空且无在途批次时，不会有操作处于"已出队未落盘"的中间状态。
+     */
+    public boolean hasPending() {
+        return !pending.isEmpty() || inFlight.get() > 0;
+    }
+
+    /**
+     * 读取快照并重放日志，返回恢复后的列表（调用方需持有 stateLock）。
+     * 若日志中有有效条目或检测到损坏，会立即压缩一次，使下次启动无需重放。
+     */
+    public List<T> load() {
+        List<T> items = new ArrayList<>();
+        long baseSeq = 0;
+
+        if (snapshotFile.exists()) {
+            try {
+                String json = Files.readString(snapshotFile.toPath(), StandardCharsets.UTF_8);
+                JsonElement root = JsonParser.parseString(json);
+                if (root != null && root.isJsonArray()) {
+                    // 旧版格式：纯数组，无序号
+                    List<T> loaded = lineGson.fromJson(root, listType);
+                    if (loaded != null) items.addAll(loaded);
+                } else if (root != null && root.isJsonObject()) {
+                    JsonObject obj = root.getAsJsonObject();
+                    baseSeq = obj.has("seq") ? obj.get("seq").getAsLong() : 0;
+                    if (obj.has("items")) {
+                        List<T> loaded = lineGson.fromJson(obj.get("items"), listType);
+                        if (loaded != null) items.addAll(loaded);
+                    }
+                }
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                logger.warning("[" + tag + "] 读取快照失败: " + e.getMessage());
+            }
+        }
+
+        long maxSeq = baseSeq;
+        int replayed = 0;
+        boolean corrupted = false;
+        if (journalFile.exists()) {
+            try {
+                List<String> lines = Files.readAllLines(journalFile.toPath(), StandardCharsets.UTF_8);
+                for (int i = 0; i < lines.size(); i++) {
+                    String line = lines.get(i).trim();
+                    if (line.isEmpty()) continue;
+                    JsonObject op;
+                    try {
+                        op = JsonParser.parseString(line).getAsJsonObject();
+                    } catch (JsonParseException | IllegalStateException e) {
+                        // 写入中途崩溃只会截断最后一行，之后的内容一律不可信
+                        corrupted = true;
+                        logger.warning("[" + tag + "] 操作日志第 " + (i + 1) + " 行已损坏，忽略其后 "
+                                + (lines.size() - i) + " 行");
+                        break;
+                    }
+                    long seq = op.has("s") ? op.get("s").getAsLong() : 0;
+                    if (seq <= baseSeq) continue;
+                    apply(items, op);
+                    maxSeq = Math.max(maxSeq, seq);
+                    replayed++;
+                }
+            } catch (IOException e) {
+                logger.warning("[" + tag + "] 读取操作日志失败: " + e.getMessage());
+            }
+        }
+
+        lastSeq = maxSeq;
+        if (replayed > 0 || corrupted) {
+            writeSnapshot(items, maxSeq);
+        }
+        return items;
+    }
+
+    public void recordAdd(T item) {
+        append(OpType.ADD, -1, item, null);
+    }
+
+    public void recordSet(int index, T item) {
+        append(OpType.SET, index, item, null);
+    }
+
+    public void recordRemove(int index) {
+        append(OpType.REMOVE, index, null, null);
+    }
+
+    public void recordTouch(int index, String value) {
+        append(OpType.TOUCH, index, null, value);
+    }
+
+    public void recordClear() {
+        append(OpType.CLEAR, -1, null, null);
+    }
+
+    private void append(OpType type, int index, T item, String value) {
+        JsonObject op = new JsonObject();
+        op.addProperty("s", ++lastSeq);
+        op.addProperty("op", type.name());
+        if (index >= 0) op.addProperty("i", index);
+        if (item != null) op.add("v", lineGson.toJsonTree(item, itemType));
+        if (value != null) op.addProperty("t", value);
+        pending.add(lineGson.toJson(op));
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) return;
+        try {
+            writer.schedule(() -> {
+                flushScheduled.set(false);
+                flushPending();
+            }, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 写线程已关闭（插件卸载中），直接同步落盘
+            flushScheduled.set(false);
+            synchronized (this) {
+                flushPending();
+            }
+        }
+    }
+
+    /**
+     * 同步等待当前队列中的操作写入日志
+     */
+    public void flush() {
+        runOnWriter(this::flushPending);
+    }
+
+    /**
+     * 同步执行一次压缩：写出快照并清空日志
+     */
+    public void compact() {
+        runOnWriter(this::compactNow);
+    }
+
+    private void runOnWriter(Runnable task) {
+        try {
+            writer.submit(task).get(SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                task.run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warning("[" + tag + "] 等待写线程失败: " + e.getMessage());
+        }
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) return;
+        inFlight.incrementAndGet();
+        try {
+            writeBatch();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void writeBatch() {
+        StringBuilder batch = new StringBuilder();
+        int count = 0;
+        String line;
+        while ((line = pending.poll()) != null) {
+            batch.append(line).append('\n');
+            count++;
+        }
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.warning("[" + tag + "] 写入操作日志失败: " + e.getMessage());
+            return;
+        }
+        journalEntries += count;
+        if (journalEntries >= COMPACT_THRESHOLD) {
+            compactNow();
+        }
+    }
+
+    private void compactNow() {
+        inFlight.incrementAndGet();
+        try {
+            List<T> items;
+            long seq;
+            synchronized (stateLock) {
+                items = new ArrayList<>(stateSupplier.get());
+                seq = lastSeq;
+                // 队列中的操作已反映在 items 中，无需再写入日志
+                pending.clear();
+            }
+            writeSnapshot(items, seq);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void writeSnapshot(List<T> items, long seq) {
+        try {
+            JsonObject root = new JsonObject();
+            root.addProperty("seq", seq);
+            root.add("items", snapshotGson.toJsonTree(items, listType));
+            File tmp = siblingFile(snapshotFile, ".tmp");
+            Files.write(tmp.toPath(), snapshotGson.toJson(root).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tmp.toPath(), snapshotFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.deleteIfExists(journalFile.toPath());
+            journalEntries = 0;
+            // 空列表不保留文件；此后的日志序号都大于 seq，从空列表重放结果一致
+            if (items.isEmpty()) {
+                Files.deleteIfExists(snapshotFile.toPath());
+            }
+        } catch (IOException e) {
+            logger.warning("[" + tag + "] 写入快照失败: " + e.getMessage());
+        }
+    }
+
+    private void apply(List<T> items, JsonObject op) {
+        OpType type;
+        try {
+            type = OpType.valueOf(op.get("op").getAsString());
+        } catch (RuntimeException e) {
+            return;
+        }
+        int index = op.has("i") ? op.get("i").getAsInt() : -1;
+        boolean inRange = index >= 0 && index < items.size();
+        switch (type) {
+            case ADD:
+                items.add(lineGson.fromJson(op.get("v"), itemType));
+                break;
+            case SET:
+                if (inRange) items.set(index, lineGson.fromJson(op.get("v"), itemType));
+                break;
+            case REMOVE:
+                if (inRange) items.remove(index);
+                break;
+            case TOUCH:
+                if (inRange && toucher != null && op.has("t")) toucher.accept(items.get(index), op.get("t").getAsString());
+                break;
+            case CLEAR:
+                items.clear();
+                break;
+        }
+    }
+
+    private static File siblingFile(File file, String suffix) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(file.getParentFile(), base + suffix);
+    }
+}
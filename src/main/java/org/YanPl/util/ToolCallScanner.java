@@ -0,0 +1,131 @@
+package org.YanPl.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 从 AI 回复中识别工具调用行。只认行首的 #工具名，避免 AI 在正文里提到 #tool_name 时误触发。
+ */
+public final class ToolCallScanner {
+
+    /** 已知工具列表（顺序敏感：startsWith 前缀匹配，长名在前，否则 #edit_global 会被 #edit 劫持） */
+    public static final List<String> KNOWN_TOOLS = Collections.unmodifiableList(Arrays.asList(
+            "#start", "#end", "#exit", "#run", "#ask", "#search", "#skill", "#unloadskill", "#list", "#read",
+            "#edit_global", "#edit", "#write", "#todo", "#remember_global", "#remember", "#forget_global", "#forget",
+            "#edit_memory", "#webfetch", "#mcp_tools", "#mcp_page", "#mcp"));
+
+    private ToolCallScanner() {
+    }
+
+    /**
+     * hashIndex 处的 # 是否位于行首
+     */
+    public static boolean isLineStart(String text, int hashIndex) {
+        if (hashIndex == 0) return true;
+        char prev = text.charAt(hashIndex - 1);
+        return prev == '\n' || prev == '\r';
+    }
+
+    /**
+     * 解析从 hashIndex 开始的工具调用
+     *
+     * @return 规范化后的调用（工具名:参数），不是已知工具时返回 null
+     */
+    public static String parseAt(String text, int hashIndex, List<String> knownTools) {
+        String potentialToolPart = text.substring(hashIndex).trim();
+        for (String tool : knownTools) {
+            if (!potentialToolPart.toLowerCase().startsWith(tool)) continue;
+
+            // 提取完整的工具调用，直到遇到换行符或下一个工具
+            String remainingAfterTool = potentialToolPart.substring(tool.length()).trim();
+            if (!remainingAfterTool.startsWith(":") && !remainingAfterTool.startsWith(" ")) {
+                return tool;
+            }
+
+            // 有冒号或空格时提取参数部分
+            int splitIndex = remainingAfterTool.startsWith(":") ? 1 : 0;
+            remainingAfterTool = remainingAfterTool.substring(splitIndex).trim();
+
+            // 对于 JSON 参数（如 #todo: [...] 或 #ask: {...}），需要找到匹配的闭合括号
+            if (remainingAfterTool.startsWith("[") || remainingAfterTool.startsWith("{")) {
+                char openChar = remainingAfterTool.charAt(0);
+                char closeChar = openChar == '[' ? ']' : '}';
+                int bracketDepth = 0;
+                int endIndex = -1;
+                for (int i = 0; i < remainingAfterTool.length(); i++) {
+                    char c = remainingAfterTool.charAt(i);
+                    if (c == openChar) bracketDepth++;
+                    else if (c == closeChar) bracketDepth--;
+
+                    if (bracketDepth == 0) {
+                        endIndex = i + 1;
+                        break;
+                    }
+                }
+                if (endIndex != -1) {
+                    return tool + ":" + remainingAfterTool.substring(0, endIndex);
+                }
+                // 没有找到闭合括号，提取到行尾
+                int lineEnd = remainingAfterTool.indexOf('\n');
+                return lineEnd != -1 ? tool + ":" + remainingAfterTool.substring(0, lineEnd) : potentialToolPart;
+            }
+
+            // 对于普通参数，提取到行尾或遇到下一个工具
+            int lineEnd = remainingAfterTool.indexOf('\n');
+            int nextToolPos = -1;
+            for (String nextTool : knownTools) {
+                int pos = remainingAfterTool.toLowerCase().indexOf(nextTool);
+                if (pos != -1 && (nextToolPos == -1 || pos < nextToolPos)) {
+                    nextToolPos = pos;
+                }
+            }
+
+            int paramEnd = lineEnd;
+            if (nextToolPos != -1 && (paramEnd == -1 || nextToolPos < paramEnd)) {
+                paramEnd = nextToolPos;
+            }
+            return paramEnd != -1 ? tool + ":" + remainingAfterTool.substring(0, paramEnd).trim() : potentialToolPart;
+        }
+        return null;
+    }
+
+    /**
+     * 增量扫描流式文本：从 from（某一行的行首）开始，提取后面已经出现换行的完整工具调用行
+     *
+     * @param out 按出现顺序追加识别到的调用
+     * @return 下一次扫描的起点（尚未完整的最后一行的行首）
+     */
+    public static int scanCompletedLines(CharSequence text, int from, List<String> knownTools, List<String> out) {
+        int lineStart = from;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '\n' && c != '\r') continue;
+            if (i > lineStart && text.charAt(lineStart) == '#') {
+                String call = parseAt(text.subSequence(lineStart, i).toString(), 0, knownTools);
+                if (call != null) out.add(call);
+            }
+            lineStart = i + 1;
+        }
+        return lineStart;
+    }
+
+    /**
+     * 按出现顺序提取所有行首工具调用
+     */
+    public static List<String> extractAll(String text, List<String> knownTools) {
+        List<String> calls = new ArrayList<>();
+        int currentPos = 0;
+        while (currentPos < text.length()) {
+            int hashIndex = text.indexOf('#', currentPos);
+            if (hashIndex == -1) break;
+            if (isLineStart(text, hashIndex)) {
+                String call = parseAt(text, hashIndex, knownTools);
+                if (call != null) calls.add(call);
+            }
+            currentPos = hashIndex + 1;
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,202 @@
+package org.YanPl.util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 一轮 AI 对话各环节的 JFR 事件，用于在 JDK Mission Control 中把某个玩家的对话与 GC、卡顿关联起来。
+ * <p>
+ * 未录制时 begin/commit 几乎没有开销；大小类字段只在 shouldCommit() 为真时才计算。
+ * 所有事件都不采集堆栈，可在生产环境常开（-XX:StartFlightRecording 或 jcmd &lt;pid&gt; JFR.start）。
+ */
+public final class TurnEvents {
+
+    private static final String CATEGORY = "FancyHelper";
+
+    private TurnEvents() {
+    }
+
+    @Name("fancyhelper.TurnStart")
+    @Label("AI Turn Start")
+    @Category({CATEGORY, "Turn"})
+    @Description("玩家在 CLI 中发出一条交给 AI 的消息")
+    @StackTrace(false)
+    public static final class TurnStart extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Mode")
+        public String mode;
+        @Label("Message Length")
+        public int messageChars;
+        @Label("History Messages")
+        public int historyMessages;
+    }
+
+    @Name("fancyhelper.PromptBuild")
+    @Label("Prompt Build")
+    @Category({CATEGORY, "Turn"})
+    @Description("构建系统提示词")
+    @StackTrace(false)
+    public static final class PromptBuild extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Mode")
+        public String mode;
+        @Label("Skills")
+        public int skills;
+        @Label("Prompt Length")
+        public int promptChars;
+    }
+
+    @Name("fancyhelper.LlmRequest")
+    @Label("LLM Request")
+    @Category({CATEGORY, "LLM"})
+    @Description("一次对话模型请求（含流式读取）")
+    @StackTrace(false)
+    public static final class LlmRequest extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Provider")
+        public String provider;
+        @Label("Model")
+        public String model;
+        @Label("Streaming")
+        public boolean streaming;
+        @Label("Request Size")
+        @DataAmount
+        public long requestBytes;
+        @Label("Response Length")
+        public int responseChars;
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("fancyhelper.StreamFirstToken")
+    @Label("Stream First Token")
+    @Category({CATEGORY, "LLM"})
+    @Description("流式响应开始读取到收到第一段正文或思考内容")
+    @StackTrace(false)
+    public static final class StreamFirstToken extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Reasoning")
+        @Description("第一段内容是否为思考内容")
+        public boolean reasoning;
+    }
+
+    @Name("fancyhelper.StreamComplete")
+    @Label("Stream Complete")
+    @Category({CATEGORY, "LLM"})
+    @Description("流式响应从开始读取到结束")
+    @StackTrace(false)
+    public static final class StreamComplete extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Text Length")
+        public int textChars;
+        @Label("Thought Length")
+        public int thoughtChars;
+        @Label("Cancelled")
+        public boolean cancelled;
+        @Label("Error")
+        public boolean error;
+    }
+
+    @Name("fancyhelper.Tool")
+    @Label("Tool Dispatch")
+    @Category({CATEGORY, "Tool"})
+    @Description("主线程上分发并执行一次工具调用（异步部分在回填时结束，不计入）")
+    @StackTrace(false)
+    public static final class Tool extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Tool")
+        public String tool;
+        @Label("Arguments Length")
+        public int argsChars;
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("fancyhelper.Compression")
+    @Label("Context Compression")
+    @Category({CATEGORY, "Session"})
+    @Description("自动或手动压缩会话上下文")
+    @StackTrace(false)
+    public static final class Compression extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Compressed Messages")
+        public int messages;
+        @Label("Input Length")
+        public int inputChars;
+        @Label("Summary Length")
+        public int summaryChars;
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("fancyhelper.Persistence")
+    @Label("Session Persistence")
+    @Category({CATEGORY, "Session"})
+    @Description("会话写入磁盘")
+    @StackTrace(false)
+    public static final class Persistence extends Event {
+        @Label("Player")
+        public String player;
+        @Label("Session")
+        public String sessionId;
+        @Label("Messages")
+        public int messages;
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+        @Label("Success")
+        public boolean success;
+    }
+
+    /**
+     * 计算 UTF-8 编码后的字节数（与 String.getBytes(UTF_8) 一致），不分配新数组
+     */
+    public static long utf8Length(CharSequence text) {
+        if (text == null) return 0;
+        long bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // 孤立的代理字符编码时被替换为 '?'
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,178 @@
+package org.YanPl.api;
+
+import com.sun.net.httpserver.HttpServer;
+import org.YanPl.FancyHelper;
+import org.YanPl.manager.ConfigManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@DisplayName("WebFetcher 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class WebFetcherTest {
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private String base;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("TestLogger"));
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(configManager.isWebFetchCacheEnabled()).thenReturn(true);
+        when(configManager.getWebFetchCacheMaxMb()).thenReturn(8);
+        when(configManager.getWebFetchMaxBodyKb()).thenReturn(64);
+        when(configManager.getWebFetchPageChars()).thenReturn(1000);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            String etag = "\"v1\"";
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                conditionalRequests.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = (path.contains("long") ? "第一行内容\n".repeat(500) : "短内容").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=0");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("翻页应复用已提取的正文而不重新请求")
+    void testFetch_PagingDoesNotRefetch() throws Exception {
+        WebFetcher fetcher = new WebFetcher(plugin, tempDir.toFile(), base + "jina/");
+
+        String first = fetcher.fetch("https://example.com/long", 1);
+        String second = fetcher.fetch("https://example.com/long", 2);
+
+        assertTrue(first.contains("[第 1/"));
+        assertTrue(first.contains("#webfetch: https://example.com/long 2"));
+        assertTrue(second.startsWith("第一行内容"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    @DisplayName("过期缓存应带 ETag 重新验证并在 304 时复用内容")
+    void testGet_RevalidatesWithEtag() throws Exception {
+        WebFetcher fetcher = new WebFetcher(plugin, tempDir.toFile(), null);
+        String url = base + "page";
+
+        WebFetcher.Body first = fetcher.get(url, HttpRequest.newBuilder().uri(URI.create(url)));
+        WebFetcher.Body second = fetcher.get(url, HttpRequest.newBuilder().uri(URI.create(url)));
+
+        assertFalse(first.fromCache);
+        assertTrue(second.fromCache);
+        assertEquals("短内容", new String(second.bytes, StandardCharsets.UTF_8));
+        assertEquals(1, conditionalRequests.get());
+    }
+
+    @Test
+    @DisplayName("页码超出范围时应报错")
+    void testFetch_PageOutOfRange() {
+        WebFetcher fetcher = new WebFetcher(plugin, tempDir.toFile(), base + "jina/");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> fetcher.fetch("https://example.com/short", 3));
+        assertTrue(e.getMessage().contains("共 1 页"));
+    }
+
+    @Test
+    @DisplayName("computeFreshUntil 应遵循 Cache-Control")
+    void testComputeFreshUntil() {
+        long now = 1_000_000L;
+
+        assertEquals(-1L, WebFetcher.computeFreshUntil(headers(Map.of("Cache-Control", List.of("no-store"))), now));
+        assertEquals(now + 60_000L, WebFetcher.computeFreshUntil(headers(Map.of("Cache-Control", List.of("public, max-age=60"))), now));
+        assertEquals(now, WebFetcher.computeFreshUntil(headers(Map.of("Cache-Control", List.of("no-cache"))), now));
+        assertEquals(now, WebFetcher.computeFreshUntil(headers(Map.of()), now));
+    }
+
+    @Test
+    @DisplayName("readLimited 应边解压边截断")
+    void testReadLimited_GzipTruncated() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(new byte[100_000]);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        boolean truncated = WebFetcher.readLimited(new ByteArrayInputStream(compressed.toByteArray()), "gzip", 4096, out);
+
+        assertTrue(truncated);
+        assertEquals(4096, out.size());
+    }
+
+    @Test
+    @DisplayName("paginate 应尽量在换行处分页且不丢内容")
+    void testPaginate_SplitsOnNewline() {
+        String text = "0123456789\n".repeat(200);
+
+        StringBuilder joined = new StringBuilder();
+        for (int page = 1; page <= 5; page++) {
+            String content = WebFetcher.paginate("https://a.b", text, page, 500);
+            int marker = content.indexOf("\n\n[第 ");
+            String body = marker >= 0 ? content.substring(0, marker) : content;
+            assertTrue(body.isEmpty() || body.endsWith("\n"));
+            joined.append(body);
+        }
+
+        assertEquals(text, joined.toString());
+    }
+
+    private static HttpHeaders headers(Map<String, List<String>> map) {
+        return HttpHeaders.of(map, (a, b) -> true);
+    }
+}
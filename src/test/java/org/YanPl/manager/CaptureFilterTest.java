@@ -0,0 +1,43 @@
+package org.YanPl.manager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CaptureFilter 单元测试")
+class CaptureFilterTest {
+
+    @ParameterizedTest
+    @DisplayName("命令输出应被保留")
+    @ValueSource(strings = {
+            "Set own game mode to Creative Mode",
+            "Teleported Steve to 0.5, 64.0, 0.5",
+            "[LuckPerms] Steve has no permission nodes set.",
+            "Unknown or incomplete command, see below for error",
+            "- 思考中 的玩家数: 3",
+            "*important* notice"
+    })
+    void testIsCommandOutput_Kept(String text) {
+        assertTrue(CaptureFilter.isCommandOutput(text));
+    }
+
+    @ParameterizedTest
+    @DisplayName("插件自身提示与玩家聊天应被过滤")
+    @ValueSource(strings = {
+            "",
+            "⇒ 命令已下发，等待反馈中...",
+            "◆ 正在读取文件",
+            "- 思考中 12s -",
+            "- ✓ -",
+            "....",
+            "FancyHelper > 已连接",
+            "<Steve> hello",
+            "[VIP] <Alex> hi there",
+            "* Steve waves"
+    })
+    void testIsCommandOutput_Filtered(String text) {
+        assertFalse(CaptureFilter.isCommandOutput(text));
+    }
+}
@@ -0,0 +1,97 @@
+package org.YanPl.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CommandSettleDetector 单元测试")
+class CommandSettleDetectorTest {
+
+    private static final List<String> SILENT = List.of("say", "tellraw");
+    private static final List<String> SLOW = List.of("lp", "//");
+
+    private final CommandSettleDetector detector = new CommandSettleDetector();
+
+    @AfterEach
+    void tearDown() {
+        detector.shutdown();
+    }
+
+    @Test
+    @DisplayName("profileFor 应忽略前导斜杠与命名空间")
+    void testProfileFor() {
+        assertEquals(CommandSettleDetector.Profile.SILENT, CommandSettleDetector.profileFor("/minecraft:say hi", SILENT, SLOW));
+        assertEquals(CommandSettleDetector.Profile.SLOW, CommandSettleDetector.profileFor("lp user Steve info", SILENT, SLOW));
+        assertEquals(CommandSettleDetector.Profile.SLOW, CommandSettleDetector.profileFor("//set stone", SILENT, SLOW));
+        assertEquals(CommandSettleDetector.Profile.NORMAL, CommandSettleDetector.profileFor("gamemode creative", SILENT, SLOW));
+    }
+
+    @Test
+    @DisplayName("派发期间已有输出时应在输出平静后立即结束")
+    void testWatch_SettlesAfterOutput() throws Exception {
+        CommandSettleDetector.Watch watch = detector.watch(CommandSettleDetector.Profile.NORMAL, 50, 5000, 10000);
+        long start = System.nanoTime();
+        watch.onOutput();
+        watch.start(true);
+
+        assertTrue(watch.result().get(2, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+
+    @Test
+    @DisplayName("持续有输出时应等到平静为止")
+    void testWatch_WaitsForOutputToSettle() throws Exception {
+        CommandSettleDetector.Watch watch = detector.watch(CommandSettleDetector.Profile.NORMAL, 150, 5000, 10000);
+        watch.start(true);
+        for (int i = 0; i < 4; i++) {
+            watch.onOutput();
+            Thread.sleep(50);
+            assertFalse(watch.result().isDone());
+        }
+
+        assertTrue(watch.result().get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("静默命令与失败命令没有输出时应立即结束")
+    void testWatch_SilentAndFailedFinishImmediately() {
+        CommandSettleDetector.Watch silent = detector.watch(CommandSettleDetector.Profile.SILENT, 150, 5000, 10000);
+        silent.start(true);
+        CommandSettleDetector.Watch failed = detector.watch(CommandSettleDetector.Profile.NORMAL, 150, 5000, 10000);
+        failed.start(false);
+
+        assertTrue(silent.result().isDone());
+        assertFalse(silent.result().join());
+        assertTrue(failed.result().isDone());
+    }
+
+    @Test
+    @DisplayName("没有输出的普通命令应在 quiet 时间后结束")
+    void testWatch_QuietTimeout() throws Exception {
+        CommandSettleDetector.Watch watch = detector.watch(CommandSettleDetector.Profile.NORMAL, 50, 100, 10000);
+        watch.start(true);
+
+        assertFalse(watch.result().isDone());
+        assertFalse(watch.result().get(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("输出不停时也不应超过硬上限")
+    void testWatch_HardCap() throws Exception {
+        CommandSettleDetector.Watch watch = detector.watch(CommandSettleDetector.Profile.SLOW, 100, 100, 300);
+        watch.start(true);
+        long start = System.nanoTime();
+        while (!watch.result().isDone() && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000) {
+            watch.onOutput();
+            Thread.sleep(20);
+        }
+
+        assertTrue(watch.result().isDone());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+}
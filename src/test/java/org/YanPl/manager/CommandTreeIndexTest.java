@@ -0,0 +1,222 @@
+package org.YanPl.manager;
+
+import org.YanPl.manager.CommandTreeIndex.ArgKind;
+import org.YanPl.manager.CommandTreeIndex.Node;
+import org.YanPl.manager.CommandTreeIndex.Root;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CommandTreeIndex 单元测试")
+class CommandTreeIndexTest {
+
+    private CommandTreeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Node gamemode = Node.literal("gamemode");
+        for (String mode : new String[]{"survival", "creative", "adventure", "spectator"}) {
+            gamemode.then(Node.literal(mode).executes().then(Node.argument("target", ArgKind.GENERIC).executes()));
+        }
+
+        Node tp = Node.literal("tp")
+                .then(Node.tokens("location", 3).executes())
+                .then(Node.argument("destination", ArgKind.GENERIC).executes()
+                        .then(Node.tokens("location", 3).executes()));
+
+        Node give = Node.literal("give").then(Node.argument("targets", ArgKind.GENERIC)
+                .then(Node.argument("item", ArgKind.GENERIC).executes()
+                        .then(Node.number("count", ArgKind.INTEGER, 1, 6400).executes())));
+
+        Node time = Node.literal("time").then(Node.literal("set")
+                .then(Node.literal("day").executes())
+                .then(Node.number("time", ArgKind.INTEGER, 0, Integer.MAX_VALUE).executes()));
+
+        Node say = Node.literal("say").then(Node.argument("message", ArgKind.GREEDY).executes());
+
+        Node execute = Node.literal("execute");
+        execute.then(Node.literal("as").then(Node.argument("targets", ArgKind.GENERIC).redirect(execute)));
+        execute.then(Node.literal("run").redirect(CommandTreeIndex.ROOT));
+
+        List<Root> roots = new ArrayList<>();
+        roots.add(new Root("gamemode", gamemode, "minecraft.command.gamemode", null));
+        roots.add(new Root("tp", tp, "minecraft.command.teleport", null));
+        roots.add(new Root("minecraft:tp", tp, "minecraft.command.teleport", null));
+        roots.add(new Root("give", give, null, null));
+        roots.add(new Root("time", time, null, null));
+        roots.add(new Root("say", say, null, null));
+        roots.add(new Root("execute", execute, null, null));
+        roots.add(new Root("essentials", null, null, "/essentials <reload|debug>"));
+        index = new CommandTreeIndex();
+        index.replace(roots);
+    }
+
+    private boolean ok(String command) {
+        return index.validate(command, null).isOk();
+    }
+
+    @Test
+    @DisplayName("合法命令应通过")
+    void testValidate_ValidCommands() {
+        assertTrue(ok("gamemode creative"));
+        assertTrue(ok("/gamemode creative Steve"));
+        assertTrue(ok("tp ~ ~10 ~"));
+        assertTrue(ok("minecraft:tp @e[type=zombie, limit=1] 0 64 0"));
+        assertTrue(ok("give @p minecraft:diamond_sword{Enchantments:[{id:sharpness,lvl:5}]} 1"));
+        assertTrue(ok("say hello world"));
+        assertTrue(ok("essentials anything goes"));
+    }
+
+    @Test
+    @DisplayName("未知命令应报错并给出相近命令建议")
+    void testValidate_UnknownCommandSuggests() {
+        CommandTreeIndex.Validation validation = index.validate("gamemod creative", null);
+
+        assertFalse(validation.isOk());
+        assertTrue(validation.getError().contains("未知命令"));
+        assertTrue(validation.getError().contains("gamemode"));
+    }
+
+    @Test
+    @DisplayName("只能接字面量的位置写错时应列出可选值")
+    void testValidate_BadLiteral() {
+        CommandTreeIndex.Validation validation = index.validate("gamemode creatve", null);
+
+        assertFalse(validation.isOk());
+        assertTrue(validation.getError().contains("creative"));
+        assertTrue(validation.getError().contains("survival | creative"));
+    }
+
+    @Test
+    @DisplayName("数字参数越界或格式错误、命令不完整、参数多余应报错")
+    void testValidate_CertainErrors() {
+        assertFalse(ok("time set dusk"));
+        assertFalse(ok("time set -5"));
+        assertFalse(ok("time"));
+        assertFalse(ok("time set day now"));
+        assertFalse(ok("time set 1.5"));
+    }
+
+    @Test
+    @DisplayName("路径上出现无法精确建模的参数时不应报告不完整或多余参数")
+    void testValidate_GenericArgumentIsLenient() {
+        assertTrue(ok("gamemode creative Steve extra"));
+        assertTrue(ok("tp Steve 1 2"));
+        assertTrue(ok("give @p diamond 0"));
+    }
+
+    @Test
+    @DisplayName("execute 的 redirect 与 run 应继续检查后续命令")
+    void testValidate_ExecuteRedirect() {
+        assertTrue(ok("execute as @a as @s run say hi"));
+        CommandTreeIndex.Validation validation = index.validate("execute as @a run gamemod creative", null);
+
+        assertFalse(validation.isOk());
+        assertTrue(validation.getError().contains("未知命令"));
+    }
+
+    @Test
+    @DisplayName("缺少权限时应报错")
+    void testValidate_Permission() {
+        CommandTreeIndex.Validation validation = index.validate("gamemode creative", perm -> false);
+
+        assertFalse(validation.isOk());
+        assertTrue(validation.getError().contains("minecraft.command.gamemode"));
+    }
+
+    @Test
+    @DisplayName("分号分隔的权限拥有任意一个即可")
+    void testValidate_SemicolonSeparatedPermission() {
+        List<Root> roots = new ArrayList<>();
+        roots.add(new Root("home", null, "essentials.home;essentials.home.others", null));
+        CommandTreeIndex semicolon = new CommandTreeIndex();
+        semicolon.replace(roots);
+
+        assertTrue(semicolon.validate("home", perm -> perm.equals("essentials.home.others")).isOk());
+        assertFalse(semicolon.validate("home", perm -> false).isOk());
+    }
+
+    @Test
+    @DisplayName("快照中没有但实时命令表中存在的命令应放行")
+    void testValidate_UnknownLabelFallsBackToLiveLookup() {
+        index.setLiveLookup(label -> label.equals("newplugin"));
+
+        assertTrue(ok("newplugin reload"));
+        assertFalse(ok("gamemod creative"));
+    }
+
+    @Test
+    @DisplayName("索引为空时应全部放行")
+    void testValidate_EmptyIndexAllows() {
+        assertTrue(new CommandTreeIndex().validate("anything at all", null).isOk());
+    }
+
+    @Test
+    @DisplayName("convert 应按 Brigadier 节点结构转换并处理数字范围")
+    void testConvert_BrigadierShape() {
+        FakeLiteralNode root = new FakeLiteralNode("xp");
+        FakeArgumentNode amount = new FakeArgumentNode("amount", new IntegerArgumentType(0, 100));
+        amount.command = new Object();
+        root.children.add(amount);
+
+        Node node = CommandTreeIndex.convert(root, CommandTreeIndex.newConversionCache());
+        CommandTreeIndex converted = new CommandTreeIndex();
+        converted.replace(List.of(new Root("xp", node, null, null)));
+
+        assertTrue(converted.validate("xp 50", null).isOk());
+        assertFalse(converted.validate("xp 500", null).isOk());
+        assertFalse(converted.validate("xp", null).isOk());
+    }
+
+    static class FakeLiteralNode {
+        final String literal;
+        final List<Object> children = new ArrayList<>();
+        Object command;
+
+        FakeLiteralNode(String literal) {
+            this.literal = literal;
+        }
+
+        public String getLiteral() { return literal; }
+        public Object getCommand() { return command; }
+        public Object getRedirect() { return null; }
+        public Collection<Object> getChildren() { return children; }
+    }
+
+    static class FakeArgumentNode {
+        final String name;
+        final Object type;
+        final List<Object> children = new ArrayList<>();
+        Object command;
+
+        FakeArgumentNode(String name, Object type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String getName() { return name; }
+        public Object getType() { return type; }
+        public Object getCommand() { return command; }
+        public Object getRedirect() { return null; }
+        public Collection<Object> getChildren() { return children; }
+    }
+
+    static class IntegerArgumentType {
+        final int min;
+        final int max;
+
+        IntegerArgumentType(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        public int getMinimum() { return min; }
+        public int getMaximum() { return max; }
+    }
+}
@@ -0,0 +1,110 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("ConsoleLogTailer 单元测试")
+class ConsoleLogTailerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File logFile;
+    private ConsoleLogTailer tailer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        logFile = tempDir.resolve("latest.log").toFile();
+        Files.write(logFile.toPath(), "[01:00:00 INFO]: 启动前的历史日志\n".getBytes(StandardCharsets.UTF_8));
+        tailer = new ConsoleLogTailer(mock(FancyHelper.class), logFile);
+        tailer.poll();
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(logFile.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    @Test
+    @DisplayName("应通过索引找到命令之后的控制台反馈")
+    void testFindCommandFeedback_AfterPoll() throws IOException {
+        append("[01:57:20 INFO]: baicaizhale issued server command: /gamerule keep_inventory true\n"
+                + "[01:57:20 INFO]: [baicaizhale: Gamerule keep_inventory is now set to: true]\n");
+        tailer.poll();
+
+        assertEquals("[baicaizhale: Gamerule keep_inventory is now set to: true]",
+                tailer.findCommandFeedback("baicaizhale", "/gamerule keep_inventory true"));
+    }
+
+    @Test
+    @DisplayName("半行内容应等到换行写入后再入环")
+    void testPartialLine_JoinedOnNextPoll() throws IOException {
+        append("[01:57:20 INFO]: steve issued server command: /say hi\n[01:57:20 INFO]: [steve: h");
+        tailer.poll();
+        append("i]\n");
+        tailer.poll();
+
+        assertEquals("[steve: hi]", tailer.findCommandFeedback("steve", "say hi"));
+    }
+
+    @Test
+    @DisplayName("命令为更长命令的前缀时不应误匹配")
+    void testFindCommandFeedback_PrefixNoFalseMatch() throws IOException {
+        append("[01:57:20 INFO]: baicaizhale issued server command: /say hello world\n"
+                + "[01:57:20 INFO]: baicaizhale: Hello world\n");
+        tailer.poll();
+
+        assertEquals("", tailer.findCommandFeedback("baicaizhale", "say hello"));
+    }
+
+    @Test
+    @DisplayName("日志轮转后应从新文件开头继续跟随")
+    void testRotation_ReadsNewFileFromStart() throws IOException {
+        Files.delete(logFile.toPath());
+        Files.write(logFile.toPath(), ("[02:00:00 INFO]: alex issued server command: /time set day\n"
+                + "[02:00:00 INFO]: [alex: Set the time to 1000]\n").getBytes(StandardCharsets.UTF_8));
+        tailer.poll();
+
+        assertEquals("[alex: Set the time to 1000]", tailer.findCommandFeedback("alex", "time set day"));
+    }
+
+    @Test
+    @DisplayName("重复执行同一命令时不应返回 mark 之前那次的输出")
+    void testFindCommandFeedback_IgnoresMarkerBeforeMark() throws IOException {
+        append("[01:57:20 INFO]: steve issued server command: /list\n"
+                + "[01:57:20 INFO]: There are 1 of a max of 20 players online: steve\n");
+        tailer.poll();
+
+        long mark = tailer.mark();
+        // 第二次执行的标记行尚未写入日志
+        assertEquals("", tailer.findCommandFeedback("steve", "list", mark));
+
+        append("[01:58:00 INFO]: steve issued server command: /list\n"
+                + "[01:58:00 INFO]: There are 2 of a max of 20 players online: steve, alex\n");
+        // 查表不读文件：跟随线程读到新内容之前仍查不到
+        assertEquals("", tailer.findCommandFeedback("steve", "list", mark));
+        tailer.poll();
+        assertEquals("There are 2 of a max of 20 players online: steve, alex",
+                tailer.findCommandFeedback("steve", "list", mark));
+    }
+
+    @Test
+    @DisplayName("commandKey 应提取玩家名及其后的命令")
+    void testCommandKey() {
+        assertEquals("steve issued server command: /say hi",
+                ConsoleLogTailer.commandKey("[01:57:21 INFO]: steve issued server command: /say hi"));
+        assertNull(ConsoleLogTailer.commandKey("[01:57:21 INFO]: Done (3.2s)!"));
+    }
+}
@@ -375,4 +375,54 @@ class InstructionManagerTest {
         assertEquals("记忆1", instructions.get(0).getContent());
         assertEquals("记忆3", instructions.get(1).getContent());
     }
+
+    @Test
+    @DisplayName("落盘后新实例应从操作日志恢复记忆")
+    void testPersistence_ReloadFromJournal() {
+        instructionManager.addInstruction(player, "记忆1", "general");
+        instructionManager.addInstruction(player, "记忆2", "general");
+        instructionManager.updateInstruction(player, 2, "记忆2（修订）", "preference");
+        instructionManager.flush();
+
+        List<InstructionManager.PlayerInstruction> instructions = new InstructionManager(plugin).getInstructions(testUuid);
+
+        assertEquals(2, instructions.size());
+        assertEquals("记忆2（修订）", instructions.get(1).getContent());
+        assertEquals("preference", instructions.get(1).getCategory());
+    }
+
+    @Test
+    @DisplayName("getPromptFragment 命中缓存时不应重复解析玩家名")
+    void testGetPromptFragment_Cached_ResolvesNameOnce() {
+        instructionManager.addInstruction(player, "记忆1", "general");
+
+        InstructionManager.PromptFragment first = instructionManager.getPromptFragment(testUuid);
+        InstructionManager.PromptFragment second = instructionManager.getPromptFragment(testUuid);
+
+        assertSame(first, second);
+        assertTrue(first.getTokens() > 0);
+        verify(server, times(1)).getOfflinePlayer(testUuid);
+    }
+
+    @Test
+    @DisplayName("增删改清应使提示词片段缓存失效")
+    void testGetPromptFragment_InvalidatedOnMutation() {
+        instructionManager.addInstruction(player, "记忆1", "general");
+        String before = instructionManager.getInstructionsAsPrompt(testUuid);
+
+        instructionManager.updateInstruction(player, 1, "记忆1（修订）", "general");
+        String afterUpdate = instructionManager.getInstructionsAsPrompt(testUuid);
+        instructionManager.addInstruction(player, "记忆2", "general");
+        String afterAdd = instructionManager.getInstructionsAsPrompt(testUuid);
+        instructionManager.removeInstruction(player, 1);
+        String afterRemove = instructionManager.getInstructionsAsPrompt(testUuid);
+        instructionManager.clearInstructions(player);
+
+        assertFalse(before.contains("修订"));
+        assertTrue(afterUpdate.contains("记忆1（修订）"));
+        assertTrue(afterAdd.contains("记忆2"));
+        assertFalse(afterRemove.contains("记忆1"));
+        assertNull(instructionManager.getInstructionsAsPrompt(testUuid));
+        assertEquals(0, instructionManager.getInstructionsPromptTokens(testUuid));
+    }
 }
@@ -0,0 +1,124 @@
+package org.YanPl.manager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RiskPreClassifier 单元测试")
+class RiskPreClassifierTest {
+
+    private final RiskPreClassifier classifier =
+            new RiskPreClassifier(RiskyCommandMatcher.compile(Arrays.asList("op", "/stop", "lp user", "kill", "", null), null));
+
+    @ParameterizedTest
+    @DisplayName("风险命令列表中的命令应直接判为高风险")
+    @ValueSource(strings = {
+            "op Steve",
+            "/op Steve",
+            "minecraft:op Steve",
+            "stop",
+            "LP User Steve permission set *",
+            "execute as @a at @s run kill @s",
+            "execute as @a run execute if entity @s run minecraft:kill @e[type=zombie, limit=1]"
+    })
+    void testClassify_Risky(String command) {
+        RiskAssessmentManager.RiskAssessment result = classifier.classify(command, null);
+
+        assertNotNull(result);
+        assertEquals(RiskPreClassifier.RISKY_LEVEL, result.level);
+    }
+
+    @ParameterizedTest
+    @DisplayName("明确的只读查询应直接判为低风险")
+    @ValueSource(strings = {
+            "list",
+            "/seed",
+            "time query daytime",
+            "data get entity @p Inventory",
+            "scoreboard players get Steve kills",
+            "attribute @p minecraft:generic.max_health base get",
+            "gamerule keepInventory",
+            "execute as @a run say hi"
+    })
+    void testClassify_ReadOnly(String command) {
+        RiskAssessmentManager.RiskAssessment result = classifier.classify(command, null);
+
+        assertNotNull(result);
+        assertEquals(RiskPreClassifier.READ_ONLY_LEVEL, result.level);
+    }
+
+    @ParameterizedTest
+    @DisplayName("无法明确判定的命令应交给 AI")
+    @ValueSource(strings = {
+            "give @p diamond 64",
+            "gamerule keepInventory true",
+            "time set day",
+            "lp group admin info",
+            "opme",
+            "execute if block ~ ~-1 ~ stone",
+            "execute store result score @s x run data get entity @s Pos[0]",
+            ""
+    })
+    void testClassify_Ambiguous(String command) {
+        assertNull(classifier.classify(command, null));
+    }
+
+    @Test
+    @DisplayName("插件别名应按命令索引中的权限节点识别为只读")
+    void testClassify_ReadOnlyAliasByPermission() {
+        RiskAssessmentManager.RiskAssessment result = classifier.classify("who",
+                label -> "who".equals(label) ? "minecraft.command.list" : null);
+
+        assertNotNull(result);
+        assertEquals(RiskPreClassifier.READ_ONLY_LEVEL, result.level);
+    }
+
+    @Test
+    @DisplayName("命令模板应按位数抽象数字并保留选择器参数")
+    void testTemplate() {
+        assertEquals("give @p[distance=..#1,limit=1] minecraft:diamond #2",
+                RiskPreClassifier.template("/give @p[limit=1, distance=..5] minecraft:diamond 64"));
+        assertEquals(RiskPreClassifier.template("tp @s ~ ~10 ~-35"),
+                RiskPreClassifier.template("minecraft:tp @s ~ ~20 ~70"));
+        assertNotEquals(RiskPreClassifier.template("give @p diamond 1"), RiskPreClassifier.template("give @p diamond 64"));
+        assertNotEquals(RiskPreClassifier.template("kill @e"), RiskPreClassifier.template("kill @p"));
+        assertNotEquals(RiskPreClassifier.template("give @p diamond 1"), RiskPreClassifier.template("give @p tnt 1"));
+    }
+
+    @Test
+    @DisplayName("不同选择器参数（类型、取反、数量）不应共用模板")
+    void testTemplate_SelectorArgumentsKept() {
+        assertNotEquals(RiskPreClassifier.template("kill @e[type=item]"),
+                RiskPreClassifier.template("kill @e[type=!player]"));
+        assertNotEquals(RiskPreClassifier.template("kill @e[type=zombie,limit=1]"),
+                RiskPreClassifier.template("kill @e[type=zombie,limit=100]"));
+        assertEquals(RiskPreClassifier.template("kill @e[type=item, distance=..10]"),
+                RiskPreClassifier.template("kill @e[distance=..20,type=item]"));
+    }
+
+    @Test
+    @DisplayName("区域命令应按体积分桶，坐标系混用时不合并")
+    void testTemplate_RegionVolume() {
+        assertEquals("fill <区域#1> air", RiskPreClassifier.template("fill ~ ~-1 ~ ~ ~-1 ~ air"));
+        assertNotEquals(RiskPreClassifier.template("fill ~ ~-1 ~ ~ ~-1 ~ air"),
+                RiskPreClassifier.template("fill ~-50 ~-1 ~-50 ~50 ~-1 ~50 air"));
+        assertEquals(RiskPreClassifier.template("fill 0 64 0 9 64 9 stone"),
+                RiskPreClassifier.template("fill 100 70 100 109 70 109 stone"));
+        assertEquals("fill ~ ~ ~ 100 64 100 air", RiskPreClassifier.template("fill ~ ~ ~ 100 64 100 air"));
+    }
+
+    @Test
+    @DisplayName("切分时应保留 NBT 与引号内的空白")
+    void testTokenize() {
+        List<String> tokens = RiskPreClassifier.tokenize("summon zombie ~ ~ ~ {CustomName:'\"Big Bob\"', Tags:[a, b]} say don't stop");
+
+        assertEquals(Arrays.asList("summon", "zombie", "~", "~", "~",
+                "{CustomName:'\"Big Bob\"', Tags:[a, b]}", "say", "don't", "stop"), tokens);
+    }
+}
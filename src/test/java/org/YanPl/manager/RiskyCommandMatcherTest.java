@@ -0,0 +1,150 @@
+package org.YanPl.manager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RiskyCommandMatcher 单元测试")
+class RiskyCommandMatcherTest {
+
+    /** 默认配置中的风险命令列表 */
+    private static final List<String> DEFAULT_RISK_COMMANDS = Arrays.asList(
+            "op", "deop", "stop", "reload", "restart", "kill", "nbt", "ban", "unban",
+            "plugman", "plm", "whitelist", "lp");
+
+    /** AI 常用的普通命令 */
+    private static final List<String> SAFE_CORPUS = Arrays.asList(
+            "gamemode creative",
+            "/gamemode survival Steve",
+            "tp @s 0 64 0",
+            "minecraft:tp Steve ~ ~10 ~",
+            "give @p minecraft:diamond_sword{Enchantments:[{id:\"minecraft:sharpness\",lvl:5}]} 1",
+            "time set day",
+            "weather clear 6000",
+            "effect give @a minecraft:speed 30 1",
+            "execute as @a at @s run particle minecraft:heart ~ ~2 ~",
+            "execute if entity @e[type=minecraft:zombie] run say zombies!",
+            "summon minecraft:zombie ~ ~ ~ {CustomName:'\"kill me\"'}",
+            "say kill the dragon",
+            "tellraw @a {\"text\":\"op is here\"}",
+            "list",
+            "opme",
+            "killall",
+            "lpx",
+            "bans",
+            "scoreboard objectives add kills playerKillCount",
+            "fill ~-5 ~-1 ~-5 ~5 ~-1 ~5 minecraft:stone",
+            "");
+
+    /** 应当命中的风险命令 */
+    private static final List<String> RISKY_CORPUS = Arrays.asList(
+            "op Steve",
+            "/op Steve",
+            "OP Steve",
+            "minecraft:op Steve",
+            "/minecraft:deop Alex",
+            "stop",
+            "  stop  ",
+            "reload confirm",
+            "kill @e[type=!minecraft:player]",
+            "execute as @a run kill @s",
+            "execute   as @a  at @s   run   minecraft:kill @s",
+            "execute as @a run execute at @s run ban Steve griefing",
+            "essentials:ban Steve",
+            "lp user Steve permission set *",
+            "plugman unload FancyHelper",
+            "whitelist off");
+
+    private final RiskyCommandMatcher matcher = RiskyCommandMatcher.compile(DEFAULT_RISK_COMMANDS, null);
+
+    @Test
+    @DisplayName("普通命令语料不应被判为风险命令")
+    void testMatch_SafeCorpus() {
+        for (String command : SAFE_CORPUS) {
+            assertNull(matcher.match(command), command);
+        }
+    }
+
+    @Test
+    @DisplayName("风险命令语料应全部命中")
+    void testMatch_RiskyCorpus() {
+        for (String command : RISKY_CORPUS) {
+            assertTrue(matcher.isRisky(command), command);
+        }
+    }
+
+    @Test
+    @DisplayName("对不含别名与其它命名空间的命令，结果应与逐条前缀比较一致")
+    void testMatch_AgreesWithReference() {
+        for (List<String> corpus : Arrays.asList(SAFE_CORPUS, RISKY_CORPUS)) {
+            for (String command : corpus) {
+                if (command.contains("essentials:")) continue;
+                assertEquals(reference(command, DEFAULT_RISK_COMMANDS), matcher.isRisky(command), command);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("应返回命中的条目，多词条目需整体匹配")
+    void testMatch_MultiWordEntries() {
+        RiskyCommandMatcher multi = RiskyCommandMatcher.compile(Arrays.asList("lp user", "/LP  group"), null);
+
+        assertEquals("lp user", multi.match("lp   user Steve info"));
+        assertEquals("lp group", multi.match("minecraft:lp group admin info"));
+        assertNull(multi.match("lp"));
+        assertNull(multi.match("lp users"));
+        assertNull(multi.match("lp track list"));
+        assertEquals(Arrays.asList("lp user", "lp group"), multi.getEntries());
+    }
+
+    @ParameterizedTest
+    @DisplayName("命令表中的别名应与原命令一样命中")
+    @ValueSource(strings = {"eban Steve", "essentials:eban Steve", "execute as @a run tempban Steve 1d", "plm reload"})
+    void testMatch_Aliases(String command) {
+        RiskyCommandMatcher withAliases = RiskyCommandMatcher.compile(Arrays.asList("ban", "plugman"), Arrays.asList(
+                Arrays.asList("ban", "eban"),
+                Arrays.asList("tempban", "etempban", "ban"),
+                Arrays.asList("plugman", "plm"),
+                Arrays.asList("gamemode", "gm")));
+
+        assertTrue(withAliases.isRisky(command), command);
+        assertFalse(withAliases.isRisky("gm creative"));
+    }
+
+    @Test
+    @DisplayName("空列表与 null 输入不应命中")
+    void testMatch_Empty() {
+        assertNull(RiskyCommandMatcher.EMPTY.match("op Steve"));
+        assertNull(RiskyCommandMatcher.compile(null, null).match("op Steve"));
+        assertNull(RiskyCommandMatcher.compile(Collections.singletonList(" / "), null).match("/"));
+        assertNull(matcher.match(null));
+        assertNull(matcher.match("execute as @a run"));
+    }
+
+    /**
+     * 原先的逐条比较实现：去掉 /、minecraft: 与 execute ... run 后做前缀匹配
+     */
+    private static boolean reference(String cmd, List<String> risky) {
+        String clean = cmd.trim().replaceAll("\\s+", " ");
+        if (clean.startsWith("/")) clean = clean.substring(1).trim();
+        if (clean.toLowerCase(Locale.ROOT).startsWith("minecraft:")) clean = clean.substring(10).trim();
+        String lc = clean.toLowerCase(Locale.ROOT);
+        if (lc.startsWith("execute")) {
+            int run = lc.indexOf(" run ");
+            if (run != -1) return reference(clean.substring(run + 5), risky);
+        }
+        for (String r : risky) {
+            String rr = r.trim().toLowerCase(Locale.ROOT);
+            if (lc.equals(rr) || lc.startsWith(rr + " ")) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,297 @@
+package org.YanPl.manager;
+
+import org.YanPl.FancyHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@DisplayName("SearchGateway 单元测试")
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SearchGatewayTest {
+
+    private static final String WIKI_RESULT = "Minecraft Wiki 搜索结果：\n- 工作台: 用于合成\n";
+
+    @Mock
+    private FancyHelper plugin;
+
+    @Mock
+    private ConfigManager configManager;
+
+    @TempDir
+    Path tempDir;
+
+    private File cacheFile;
+
+    @BeforeEach
+    void setUp() {
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("TestLogger"));
+        when(plugin.getConfigManager()).thenReturn(configManager);
+        when(configManager.isSearchCacheEnabled()).thenReturn(true);
+        when(configManager.isSearchCachePersist()).thenReturn(true);
+        when(configManager.getSearchCacheMaxEntries()).thenReturn(100);
+        when(configManager.getSearchCacheTtlMinutes(anyString())).thenReturn(60);
+        when(configManager.getSearchCacheNegativeTtlMinutes()).thenReturn(10);
+        cacheFile = tempDir.resolve("search_cache.json").toFile();
+    }
+
+    @Test
+    @DisplayName("规范化后相同的查询应命中缓存")
+    void testSearch_NormalizedQueryHitsCache() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        AtomicInteger calls = new AtomicInteger();
+
+        gateway.search(SearchGateway.WIKI, "如何合成 工作台？", () -> { calls.incrementAndGet(); return WIKI_RESULT; });
+        String second = gateway.search(SearchGateway.WIKI, "  如何合成   工作台 ", () -> { calls.incrementAndGet(); return "x"; });
+
+        assertEquals(WIKI_RESULT, second);
+        assertEquals(1, calls.get());
+        assertEquals(1, gateway.getStats().getHits());
+        assertEquals(1, gateway.getStats().getMisses());
+    }
+
+    @Test
+    @DisplayName("出错结果不应被缓存")
+    void testSearch_ErrorNotCached() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        AtomicInteger calls = new AtomicInteger();
+
+        gateway.search(SearchGateway.TAVILY, "q", () -> { calls.incrementAndGet(); return "Tavily 搜索出错: timeout"; });
+        gateway.search(SearchGateway.TAVILY, "q", () -> { calls.incrementAndGet(); return "【搜索结果】(q)\n1. a\n"; });
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("不同提供商的相同查询应分别缓存")
+    void testSearch_ProvidersSeparated() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+
+        gateway.search(SearchGateway.WIKI, "q", () -> "未找到相关 Wiki 条目。");
+        String result = gateway.search(SearchGateway.METASO, "q", () -> "【Metaso AI 搜索结果】\n内容");
+
+        assertTrue(result.startsWith("【Metaso"));
+    }
+
+    @Test
+    @DisplayName("同时发起的相同查询只应请求一次")
+    void testSearch_SingleFlight() throws Exception {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] futures = new Future<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = pool.submit(() -> gateway.search(SearchGateway.WIKI, "tnt", () -> {
+                    calls.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {}
+                    return WIKI_RESULT;
+                }));
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<?> f : futures) {
+                assertEquals(WIKI_RESULT, f.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("保存后重新创建应恢复缓存")
+    void testSaveAndLoad() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        gateway.search(SearchGateway.WIKI, "tnt", () -> WIKI_RESULT);
+        gateway.save();
+
+        SearchGateway reloaded = new SearchGateway(plugin, cacheFile);
+        String result = reloaded.search(SearchGateway.WIKI, "TNT", () -> "x");
+
+        assertEquals(WIKI_RESULT, result);
+    }
+
+    @Test
+    @DisplayName("fanOut 应在更靠前的来源无结果时返回后面的有效结果")
+    void testFanOut_FallsThroughEmptyPreferred() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.WIKI, 1000, () -> "未找到相关 Wiki 条目。"),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 1000, () -> "【搜索结果】(q)\n1. a\n")), false);
+
+        assertTrue(result.startsWith("【搜索结果】"));
+    }
+
+    @Test
+    @DisplayName("fanOut 应等待更靠前的来源而不是直接返回最快的结果")
+    void testFanOut_RespectsPreference() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.WIKI, 2000, () -> {
+                    sleep(200);
+                    return WIKI_RESULT;
+                }),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 2000, () -> "【搜索结果】(q)\n1. a\n")), false);
+
+        assertEquals(WIKI_RESULT, result);
+    }
+
+    @Test
+    @DisplayName("fanOut 超过时限的来源应被放弃")
+    void testFanOut_DeadlineCancelsSlowProvider() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        long start = System.currentTimeMillis();
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.WIKI, 100, () -> {
+                    sleep(5000);
+                    return WIKI_RESULT;
+                }),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 2000, () -> "【搜索结果】(q)\n1. a\n")), false);
+
+        assertTrue(result.startsWith("【搜索结果】"));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertEquals(1, gateway.getStats().getTimeouts());
+    }
+
+    @Test
+    @DisplayName("fanOut 合并模式应按顺序拼接并去掉重复行")
+    void testFanOut_MergeDeduplicates() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.METASO, 1000,
+                        () -> "【Metaso AI 搜索结果】\n参考: https://example.com/kits\n"),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 1000,
+                        () -> "【搜索结果】(q)\n   链接: https://example.com/other\n参考: https://example.com/kits\n")), true);
+
+        assertTrue(result.indexOf("【Metaso") < result.indexOf("【搜索结果】"));
+        assertEquals(result.indexOf("参考: https://example.com/kits"), result.lastIndexOf("参考: https://example.com/kits"));
+        assertTrue(result.contains("https://example.com/other"));
+    }
+
+    @Test
+    @DisplayName("fanOut 偏好来源已缓存有效结果时不应调用其他来源")
+    void testFanOut_CachedPreferredSkipsOthers() {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        gateway.search(SearchGateway.WIKI, "q", () -> WIKI_RESULT);
+        AtomicInteger paid = new AtomicInteger();
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.WIKI, 1000, () -> "x"),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 1000,
+                        () -> { paid.incrementAndGet(); return "【搜索结果】(q)\n1. a\n"; })), false);
+
+        assertEquals(WIKI_RESULT, result);
+        assertEquals(0, paid.get());
+    }
+
+    @Test
+    @DisplayName("fanOut 对冲模式下偏好来源及时返回有效结果时不应启动后面的来源")
+    void testFanOut_HedgeSkipsPaidProviderOnGoodResult() {
+        when(configManager.getSearchHedgeMillis()).thenReturn(1000);
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        AtomicInteger paid = new AtomicInteger();
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.WIKI, 2000, () -> {
+                    sleep(100);
+                    return WIKI_RESULT;
+                }),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 2000,
+                        () -> { paid.incrementAndGet(); return "【搜索结果】(q)\n1. a\n"; })), false);
+
+        assertEquals(WIKI_RESULT, result);
+        assertEquals(0, paid.get());
+    }
+
+    @Test
+    @DisplayName("fanOut 对冲模式下偏好来源运行过久时应启动下一个来源")
+    void testFanOut_HedgeStartsNextAfterDelay() {
+        when(configManager.getSearchHedgeMillis()).thenReturn(100);
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        long start = System.currentTimeMillis();
+
+        String result = gateway.fanOut("q", List.of(
+                new SearchGateway.ProviderCall(SearchGateway.WIKI, 600, () -> {
+                    sleep(5000);
+                    return WIKI_RESULT;
+                }),
+                new SearchGateway.ProviderCall(SearchGateway.TAVILY, 2000, () -> "【搜索结果】(q)\n1. a\n")), false);
+
+        assertTrue(result.startsWith("【搜索结果】"));
+        assertTrue(System.currentTimeMillis() - start < 2000);
+    }
+
+    @Test
+    @DisplayName("相同查询的发起者被中断时，等待者应重新发起而不是收到失败")
+    void testSearch_WaiterRetriesWhenOwnerInterrupted() throws Exception {
+        SearchGateway gateway = new SearchGateway(plugin, cacheFile);
+        CountDownLatch ownerStarted = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> owner = pool.submit(() -> gateway.search(SearchGateway.WIKI, "q", () -> {
+                ownerStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                    return WIKI_RESULT;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return "Wiki 搜索出错: interrupted";
+                }
+            }));
+            assertTrue(ownerStarted.await(5, TimeUnit.SECONDS));
+            Future<String> waiter = pool.submit(() -> gateway.search(SearchGateway.WIKI, "q", () -> WIKI_RESULT));
+            Thread.sleep(200);
+            owner.cancel(true);
+
+            assertEquals(WIKI_RESULT, waiter.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    @DisplayName("classify 应区分有效结果、空结果与错误")
+    void testClassify() {
+        assertEquals(SearchGateway.Verdict.GOOD, SearchGateway.classify(WIKI_RESULT));
+        assertEquals(SearchGateway.Verdict.EMPTY, SearchGateway.classify("未找到相关搜索结果。"));
+        assertEquals(SearchGateway.Verdict.ERROR, SearchGateway.classify("Metaso 搜索失败 (HTTP 500): x"));
+    }
+}
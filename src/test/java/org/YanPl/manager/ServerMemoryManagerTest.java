@@ -56,11 +56,12 @@ class ServerMemoryManagerTest {
     }
 
     @Test
-    @DisplayName("addMemory 应写盘到 runtime/server_memories.json")
-    void testAddMemory_Success_SavesToFile() throws Exception {
+    @DisplayName("addMemory 应追加写入 runtime/server_memories.journal")
+    void testAddMemory_Success_AppendsToJournal() throws Exception {
         serverMemoryManager.addMemory("测试规则", "rule", "Admin");
+        serverMemoryManager.flush();
 
-        Path file = tempDir.resolve("runtime").resolve("server_memories.json");
+        Path file = tempDir.resolve("runtime").resolve("server_memories.journal");
         assertTrue(Files.exists(file));
         String json = new String(Files.readAllBytes(file), java.nio.charset.StandardCharsets.UTF_8);
         assertTrue(json.contains("测试规则"));
@@ -292,6 +293,7 @@ class ServerMemoryManagerTest {
     void testPersistence_RoundTrip() throws Exception {
         serverMemoryManager.addMemory("规则一", "rule", "Admin");
         serverMemoryManager.addMemory("规则二", "config", "OtherAdmin");
+        serverMemoryManager.flush();
 
         ServerMemoryManager reloaded = new ServerMemoryManager(plugin);
 
@@ -333,4 +335,75 @@ class ServerMemoryManagerTest {
         assertTrue(Files.exists(tempDir.resolve("runtime").resolve("server_memories.json")));
         assertTrue(serverMemoryManager.getMemories().isEmpty());
     }
+
+    @Test
+    @DisplayName("删除与修改操作重放后应与内存状态一致")
+    void testPersistence_ReplaysRemoveAndUpdate() {
+        serverMemoryManager.addMemory("规则一", "rule", "Admin");
+        serverMemoryManager.addMemory("规则二", "rule", "Admin");
+        serverMemoryManager.addMemory("规则三", "rule", "Admin");
+        serverMemoryManager.removeMemory(1);
+        serverMemoryManager.updateMemory(2, "规则三（修订）", "config");
+        serverMemoryManager.flush();
+
+        List<ServerMemoryManager.ServerMemory> memories = new ServerMemoryManager(plugin).getMemories();
+
+        assertEquals(2, memories.size());
+        assertEquals("规则二", memories.get(0).getContent());
+        assertEquals("规则三（修订）", memories.get(1).getContent());
+        assertEquals("config", memories.get(1).getCategory());
+    }
+
+    @Test
+    @DisplayName("getMemoriesForPrompt 刷新的 lastUsed 应持久化")
+    void testPersistence_LastUsedSurvivesReload() {
+        serverMemoryManager.addMemory("周五晚高峰", "rule", "Admin");
+        serverMemoryManager.getMemoriesForPrompt("周五", 4, 1);
+        serverMemoryManager.flush();
+
+        ServerMemoryManager reloaded = new ServerMemoryManager(plugin);
+
+        assertNotNull(reloaded.getMemories().get(0).getLastUsed());
+    }
+
+    @Test
+    @DisplayName("操作日志末行被截断时应忽略该行并恢复其余数据")
+    void testPersistence_TruncatedJournalTail_Ignored() throws Exception {
+        serverMemoryManager.addMemory("规则一", "rule", "Admin");
+        serverMemoryManager.flush();
+        Path journal = tempDir.resolve("runtime").resolve("server_memories.journal");
+        Files.write(journal, "{\"s\":99,\"op\":\"ADD\",\"v\":{\"content\":\"半".getBytes(java.nio.charset.StandardCharsets.UTF_8),
+                java.nio.file.StandardOpenOption.APPEND);
+
+        List<ServerMemoryManager.ServerMemory> memories = new ServerMemoryManager(plugin).getMemories();
+
+        assertEquals(1, memories.size());
+        assertEquals("规则一", memories.get(0).getContent());
+        assertFalse(Files.exists(journal));
+    }
+
+    @Test
+    @DisplayName("应兼容旧版纯数组格式的快照文件")
+    void testPersistence_LegacyArraySnapshot_Loaded() throws Exception {
+        Path file = tempDir.resolve("runtime").resolve("server_memories.json");
+        Files.write(file, "[{\"content\":\"旧规则\",\"category\":\"rule\",\"author\":\"Admin\"}]"
+                .getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        List<ServerMemoryManager.ServerMemory> memories = new ServerMemoryManager(plugin).getMemories();
+
+        assertEquals(1, memories.size());
+        assertEquals("旧规则", memories.get(0).getContent());
+    }
+
+    @Test
+    @DisplayName("shutdown 应压缩为快照并删除操作日志")
+    void testShutdown_CompactsJournal() {
+        serverMemoryManager.addMemory("规则一", "rule", "Admin");
+        serverMemoryManager.flush();
+
+        serverMemoryManager.shutdown();
+
+        assertFalse(Files.exists(tempDir.resolve("runtime").resolve("server_memories.journal")));
+        assertEquals(1, new ServerMemoryManager(plugin).getMemories().size());
+    }
 }
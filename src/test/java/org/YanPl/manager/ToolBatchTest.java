@@ -0,0 +1,64 @@
+package org.YanPl.manager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ToolBatch 单元测试")
+class ToolBatchTest {
+
+    @Test
+    @DisplayName("乱序回填的结果应按调用顺序合并")
+    void testRender_InCallOrder() {
+        ToolBatch batch = new ToolBatch(List.of("#read:a.yml", "#webfetch:https://example.com"));
+
+        assertFalse(batch.complete(1, "#webfetch_result: 页面"));
+        assertTrue(batch.complete(0, "#read_result: 文件"));
+
+        String rendered = batch.render();
+        assertTrue(rendered.startsWith("[Batch Results] 2 个只读工具"));
+        assertTrue(rendered.indexOf("[1] #read:a.yml\n#read_result: 文件")
+                < rendered.indexOf("[2] #webfetch:https://example.com\n#webfetch_result: 页面"));
+    }
+
+    @Test
+    @DisplayName("分发期间同步回填应进入当前槽位")
+    void testCurrentSlot() {
+        ToolBatch batch = new ToolBatch(List.of("#list:.", "#read:a.yml"));
+        assertEquals(-1, batch.currentSlot());
+
+        batch.beginDispatch(1);
+        assertEquals(1, batch.currentSlot());
+        batch.complete(batch.currentSlot(), "#read_result: 文件");
+        batch.endDispatch();
+
+        assertEquals(-1, batch.currentSlot());
+        assertFalse(batch.isComplete());
+        assertTrue(batch.render().contains("[2] #read:a.yml\n#read_result: 文件"));
+    }
+
+    @Test
+    @DisplayName("未捕获槽位的回填应放进第一个空槽")
+    void testComplete_UnknownSlot() {
+        ToolBatch batch = new ToolBatch(List.of("#list:.", "#read:a.yml"));
+        batch.complete(0, "#list_result: 目录");
+
+        assertTrue(batch.complete(-1, "#read_result: 文件"));
+        assertTrue(batch.render().contains("[2] #read:a.yml\n#read_result: 文件"));
+    }
+
+    @Test
+    @DisplayName("同一槽位多次回填应追加且不重复计数；未回填的工具标注没有结果")
+    void testComplete_SameSlotTwice() {
+        ToolBatch batch = new ToolBatch(List.of("#list:.", "#read:a.yml"));
+        batch.complete(0, "第一段");
+        assertFalse(batch.complete(0, "第二段"));
+
+        String rendered = batch.render();
+        assertTrue(rendered.contains("第一段\n第二段"));
+        assertTrue(rendered.contains("[2] #read:a.yml\n(超时，没有结果)"));
+    }
+}
@@ -26,6 +26,17 @@ class ToolExecutorTest {
         assertEquals(expectedArgs, result.args);
     }
 
+    @ParameterizedTest
+    @CsvSource({
+        "#list, true", "#read, true", "#search, true", "#webfetch, true", "#skill, true",
+        "#mcp_tools, true", "#mcp_page, true", "#MCP, true",
+        "#run, false", "#edit, false", "#write, false", "#todo, false", "#remember, false", "#end, false"
+    })
+    @DisplayName("只读工具才可并行执行，有副作用的工具不可")
+    void testIsReadOnlyTool(String toolName, boolean expected) {
+        assertEquals(expected, ToolExecutor.isReadOnlyTool(toolName));
+    }
+
     @Test
     @DisplayName("无分隔符应整体作为工具名，参数为空")
     void testParseToolCall_NoSeparator() {
@@ -0,0 +1,84 @@
+package org.YanPl.manager;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ToolPrefetch 单元测试")
+class ToolPrefetchTest {
+
+    private final UUID player = UUID.randomUUID();
+    private final Executor direct = Runnable::run;
+
+    @Test
+    @DisplayName("确认后的调用应取用预执行结果，不再现场计算")
+    void testTake_UsesPrefetched() throws Exception {
+        ToolPrefetch prefetch = new ToolPrefetch(4);
+        assertTrue(prefetch.start(player, "read:a.yml", () -> "预取内容", direct));
+
+        CompletableFuture<String> taken = prefetch.take(player, "read:a.yml");
+
+        assertEquals("预取内容", ToolPrefetch.resolve(taken, () -> fail("不应现场计算")));
+        assertNull(prefetch.take(player, "read:a.yml"));
+    }
+
+    @Test
+    @DisplayName("操作键不同的调用不应取到预执行结果")
+    void testTake_KeyMismatch() throws Exception {
+        ToolPrefetch prefetch = new ToolPrefetch(4);
+        prefetch.start(player, "read:a.yml", () -> "a", direct);
+
+        assertNull(prefetch.take(player, "read:b.yml"));
+        assertNull(prefetch.take(UUID.randomUUID(), "read:a.yml"));
+        assertEquals("现场", ToolPrefetch.resolve(null, () -> "现场"));
+    }
+
+    @Test
+    @DisplayName("预执行失败时应回退到现场计算")
+    void testResolve_FallsBackOnFailure() throws Exception {
+        ToolPrefetch prefetch = new ToolPrefetch(4);
+        prefetch.start(player, "search:x", () -> {
+            throw new IllegalStateException("网络错误");
+        }, direct);
+
+        assertEquals("重试结果", ToolPrefetch.resolve(prefetch.take(player, "search:x"), () -> "重试结果"));
+    }
+
+    @Test
+    @DisplayName("discard 应取消未被取走的结果，尚未开始的任务不再执行")
+    void testDiscard() {
+        ToolPrefetch prefetch = new ToolPrefetch(4);
+        List<Runnable> queued = new ArrayList<>();
+        boolean[] ran = {false};
+        prefetch.start(player, "read:a.yml", () -> {
+            ran[0] = true;
+            return "a";
+        }, queued::add);
+
+        assertEquals(1, prefetch.discard(player));
+        queued.forEach(Runnable::run);
+
+        assertFalse(ran[0]);
+        assertNull(prefetch.take(player, "read:a.yml"));
+        assertEquals(0, prefetch.discard(player));
+    }
+
+    @Test
+    @DisplayName("重复的操作与超过上限的预执行应被拒绝")
+    void testStart_Limits() {
+        ToolPrefetch prefetch = new ToolPrefetch(2);
+
+        assertTrue(prefetch.start(player, "read:a.yml", () -> "a", direct));
+        assertFalse(prefetch.start(player, "read:a.yml", () -> "a", direct));
+        assertTrue(prefetch.start(player, "read:b.yml", () -> "b", direct));
+        assertFalse(prefetch.start(player, "read:c.yml", () -> "c", direct));
+        assertTrue(prefetch.start(UUID.randomUUID(), "read:c.yml", () -> "c", direct));
+    }
+}
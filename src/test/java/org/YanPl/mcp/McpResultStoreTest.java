@@ -0,0 +1,98 @@
+package org.YanPl.mcp;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("McpResultStore 单元测试")
+class McpResultStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final UUID player = UUID.randomUUID();
+
+    private static String digits(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('0' + i % 10));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    @DisplayName("不超过一页的结果应原样返回且不落盘")
+    void testToFeedback_Small() throws IOException {
+        McpResultStore store = new McpResultStore(tempDir.toFile(), 100, 4);
+
+        assertEquals("hello", store.toFeedback(player, "hello"));
+        assertFalse(new File(tempDir.toFile(), player.toString()).exists());
+    }
+
+    @Test
+    @DisplayName("过大的结果应落盘，回填预览与句柄")
+    void testToFeedback_Spills() throws IOException {
+        McpResultStore store = new McpResultStore(tempDir.toFile(), 100, 4);
+        String text = digits(250);
+
+        String feedback = store.toFeedback(player, text);
+
+        assertTrue(feedback.contains("共 250 字符"));
+        assertTrue(feedback.contains(text.substring(0, 100)));
+        assertFalse(feedback.contains(text.substring(0, 101)));
+        assertTrue(feedback.endsWith("#mcp_page: r1|100 读取后续内容"));
+        assertTrue(new File(new File(tempDir.toFile(), player.toString()), "r1.txt").isFile());
+    }
+
+    @Test
+    @DisplayName("readPage 应按窗口读取并在最后一页标注结尾")
+    void testReadPage() throws IOException {
+        McpResultStore store = new McpResultStore(tempDir.toFile(), 100, 4);
+        String text = digits(250);
+        store.toFeedback(player, text);
+
+        String second = store.readPage(player, "r1", 100);
+        assertTrue(second.startsWith("[r1 第 101-200 字符，共 250]\n" + text.substring(100, 200)));
+        assertTrue(second.endsWith("#mcp_page: r1|200 继续读取"));
+
+        String last = store.readPage(player, "r1", 200);
+        assertTrue(last.contains(text.substring(200)));
+        assertTrue(last.endsWith("(已到结尾)"));
+
+        assertThrows(IllegalArgumentException.class, () -> store.readPage(player, "r1", 250));
+        assertThrows(IllegalArgumentException.class, () -> store.readPage(player, "r9", 0));
+        assertThrows(IllegalArgumentException.class, () -> store.readPage(UUID.randomUUID(), "r1", 0));
+    }
+
+    @Test
+    @DisplayName("超过会话保留数量时应删除最早的结果")
+    void testEvictsOldest() throws IOException {
+        McpResultStore store = new McpResultStore(tempDir.toFile(), 100, 2);
+        for (int i = 0; i < 3; i++) {
+            store.toFeedback(player, digits(150));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> store.readPage(player, "r1", 0));
+        assertFalse(new File(new File(tempDir.toFile(), player.toString()), "r1.txt").exists());
+        assertTrue(store.readPage(player, "r3", 0).startsWith("[r3 "));
+    }
+
+    @Test
+    @DisplayName("clear 应删除该会话的全部结果")
+    void testClear() throws IOException {
+        McpResultStore store = new McpResultStore(tempDir.toFile(), 100, 4);
+        store.toFeedback(player, digits(150));
+
+        store.clear(player);
+
+        assertFalse(new File(tempDir.toFile(), player.toString()).exists());
+        assertThrows(IllegalArgumentException.class, () -> store.readPage(player, "r1", 0));
+    }
+}
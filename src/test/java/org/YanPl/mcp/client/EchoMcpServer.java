@@ -0,0 +1,71 @@
+package org.YanPl.mcp.client;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 测试用的最小 stdio MCP 服务器：echo 原样返回参数，slow 延迟返回（用于验证流水线），
+ * big 返回 value 个字符的结果，crash 直接退出进程。
+ */
+public class EchoMcpServer {
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = new PrintStream(System.out, true, "UTF-8");
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        System.err.println("echo server started");
+        out.println("not json: startup banner");
+        String line;
+        while ((line = in.readLine()) != null) {
+            JsonObject request = JsonParser.parseString(line).getAsJsonObject();
+            if (!request.has("id")) continue;
+            String method = request.get("method").getAsString();
+            JsonObject params = request.has("params") && request.get("params").isJsonObject()
+                    ? request.getAsJsonObject("params") : new JsonObject();
+            switch (method) {
+                case "initialize":
+                    reply(out, request, "{\"protocolVersion\":\"2024-11-05\"}");
+                    break;
+                case "tools/list":
+                    reply(out, request, "{\"tools\":[{\"name\":\"echo\"},{\"name\":\"slow\"},{\"name\":\"big\"},{\"name\":\"crash\"}]}");
+                    break;
+                case "tools/call":
+                    String tool = params.get("name").getAsString();
+                    String value = params.getAsJsonObject("arguments").has("value")
+                            ? params.getAsJsonObject("arguments").get("value").getAsString() : "";
+                    if ("crash".equals(tool)) {
+                        System.exit(3);
+                    }
+                    if ("big".equals(tool)) {
+                        value = "x".repeat(Integer.parseInt(value));
+                    }
+                    String result = "{\"content\":[{\"type\":\"text\",\"text\":\"" + tool + ":" + value + "\"}]}";
+                    if ("slow".equals(tool)) {
+                        new Thread(() -> {
+                            try {
+                                Thread.sleep(400);
+                            } catch (InterruptedException ignored) {
+                            }
+                            reply(out, request, result);
+                        }).start();
+                    } else {
+                        reply(out, request, result);
+                    }
+                    break;
+                default:
+                    reply(out, request, "{}");
+                    break;
+            }
+        }
+    }
+
+    private static void reply(PrintStream out, JsonObject request, String result) {
+        synchronized (out) {
+            out.println("{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id") + ",\"result\":" + result + "}");
+        }
+    }
+}
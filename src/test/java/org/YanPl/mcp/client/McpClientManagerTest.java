@@ -0,0 +1,151 @@
+package org.YanPl.mcp.client;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("McpClientManager 连接调度测试")
+class McpClientManagerTest {
+
+    private HttpServer server;
+    private ExecutorService serverPool;
+    private String base;
+    /** 释放卡住的 stuck 服务器 */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverPool = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverPool);
+        server.createContext("/", exchange -> {
+            if (exchange.getRequestURI().getPath().startsWith("/stuck")) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            JsonObject request = JsonParser.parseString(
+                    new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+            if (!request.has("id")) {
+                exchange.sendResponseHeaders(202, -1);
+                exchange.close();
+                return;
+            }
+            String result = "tools/list".equals(request.get("method").getAsString())
+                    ? "{\"tools\":[{\"name\":\"echo\"}]}" : "{}";
+            byte[] body = ("{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id") + ",\"result\":" + result + "}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            try {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (IOException ignored) {
+                // 客户端已放弃
+            }
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        serverPool.shutdownNow();
+    }
+
+    private static McpClientConfig server(String name, String url) {
+        McpClientConfig config = new McpClientConfig();
+        config.setName(name);
+        config.setUrl(url);
+        config.setTransport("http");
+        config.setCallTimeout(10);
+        return config;
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static McpClientManager.ServerStatus status(McpClientManager manager, String name) {
+        return manager.getServerStatuses().stream().filter(s -> s.serverName.equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    @DisplayName("卡住的服务器不应拖慢其它服务器，启动等待不超过截止时间")
+    void testConnectAll_ParallelWithDeadline() throws Exception {
+        List<McpClientConfig> configs = Arrays.asList(
+                server("stuck", base + "/stuck"),
+                server("good", base + "/good"),
+                server("dead", "http://127.0.0.1:" + unusedPort() + "/mcp"));
+        McpClientManager manager = new McpClientManager(configs, 2, Logger.getLogger("TestLogger"));
+        manager.setEnabled(true);
+        manager.setStartupDeadlineSeconds(1);
+        manager.setReconnectBackoff(60_000, 300_000);
+        try {
+            long start = System.currentTimeMillis();
+            manager.connectAll();
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertTrue(elapsed < 5_000, "connectAll took " + elapsed + "ms");
+            assertEquals(McpClientManager.ConnectionState.CONNECTED, status(manager, "good").state);
+            assertEquals(McpClientManager.ConnectionState.CONNECTING, status(manager, "stuck").state);
+
+            McpClientManager.ServerStatus dead = status(manager, "dead");
+            assertEquals(McpClientManager.ConnectionState.BACKOFF, dead.state);
+            assertEquals(1, dead.failures);
+            assertNotNull(dead.lastError);
+            assertTrue(dead.nextRetryAt - System.currentTimeMillis() > 20_000);
+            assertEquals(1, manager.getAllEnabledTools().size());
+
+            // 卡住的服务器恢复后应在后台完成连接
+            release.countDown();
+            for (int i = 0; i < 50 && status(manager, "stuck").state != McpClientManager.ConnectionState.CONNECTED; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(McpClientManager.ConnectionState.CONNECTED, status(manager, "stuck").state);
+            assertEquals(2, manager.getAllEnabledTools().size());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("未开启自动重连时失败的服务器应停在 FAILED")
+    void testConnectAll_NoReconnect() throws Exception {
+        McpClientManager manager = new McpClientManager(
+                List.of(server("dead", "http://127.0.0.1:" + unusedPort() + "/mcp")), 2, Logger.getLogger("TestLogger"));
+        manager.setEnabled(true);
+        try {
+            manager.connectAll();
+            assertEquals(McpClientManager.ConnectionState.FAILED, status(manager, "dead").state);
+        } finally {
+            manager.shutdown();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package org.YanPl.mcp.client;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.YanPl.mcp.core.McpTypes;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("McpClient 异步传输测试")
+class McpClientTest {
+
+    private HttpServer server;
+    private ExecutorService serverPool;
+    private String url;
+    /** 释放阻塞中的 hang 调用 */
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> cancelledIds = new CopyOnWriteArrayList<>();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final AtomicInteger toolsListRequests = new AtomicInteger();
+    /** 为 true 时 tools/list 多返回一个工具 */
+    private volatile boolean extraTool = false;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverPool = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverPool);
+        server.createContext("/mcp", this::handle);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/mcp";
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        server.stop(0);
+        serverPool.shutdownNow();
+    }
+
+    /**
+     * 最小的可流式 HTTP MCP 服务器：slow 工具延迟响应，hang 工具一直等到测试结束
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonObject request = JsonParser.parseString(
+                new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8)).getAsJsonObject();
+        String method = request.get("method").getAsString();
+        if (!request.has("id")) {
+            if ("notifications/cancelled".equals(method)) {
+                cancelledIds.add(request.getAsJsonObject("params").get("requestId").getAsString());
+                cancelled.countDown();
+            }
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+            return;
+        }
+
+        JsonObject result = new JsonObject();
+        switch (method) {
+            case "initialize":
+                result.addProperty("protocolVersion", "2024-11-05");
+                break;
+            case "tools/list":
+                toolsListRequests.incrementAndGet();
+                result = JsonParser.parseString("{\"tools\":[{\"name\":\"slow\"},{\"name\":\"fast\"},{\"name\":\"hang\"}"
+                        + (extraTool ? ",{\"name\":\"extra\"}" : "") + "]}").getAsJsonObject();
+                break;
+            case "tools/call":
+                JsonObject params = request.getAsJsonObject("params");
+                String tool = params.get("name").getAsString();
+                try {
+                    if ("slow".equals(tool)) Thread.sleep(400);
+                    if ("hang".equals(tool)) release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String value = params.getAsJsonObject("arguments").get("value").getAsString();
+                String text = tool + ":" + ("big".equals(tool) ? "x".repeat(Integer.parseInt(value)) : value);
+                result = JsonParser.parseString("{\"content\":[{\"type\":\"text\",\"text\":\"" + text + "\"}]}")
+                        .getAsJsonObject();
+                break;
+            default:
+                break;
+        }
+
+        JsonObject response = new JsonObject();
+        response.addProperty("jsonrpc", "2.0");
+        response.add("id", request.get("id"));
+        response.add("result", result);
+        byte[] body;
+        if ("tools/call".equals(method) && extraTool) {
+            // 以 SSE 格式响应，并在结果前推送工具列表变化通知
+            body = ("event: message\ndata: {\"jsonrpc\":\"2.0\",\"method\":\"notifications/tools/list_changed\"}\n\n"
+                    + "event: message\ndata: " + response + "\n\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        } else {
+            body = response.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+        }
+        try {
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException ignored) {
+            // 客户端已取消请求
+        }
+    }
+
+    private McpClient connect(int maxConcurrentCalls) {
+        return connect(maxConcurrentCalls, null);
+    }
+
+    private McpClient connect(int maxConcurrentCalls, List<McpTypes.McpTool> cachedTools) {
+        return connect(maxConcurrentCalls, cachedTools, McpClientConfig.DEFAULT_MAX_MESSAGE_BYTES);
+    }
+
+    private McpClient connect(int maxConcurrentCalls, List<McpTypes.McpTool> cachedTools, int maxMessageBytes) {
+        McpClientConfig config = new McpClientConfig();
+        config.setName("test");
+        config.setUrl(url);
+        config.setTransport("http");
+        config.setCallTimeout(10);
+        config.setMaxConcurrentCalls(maxConcurrentCalls);
+        config.setMaxMessageBytes(maxMessageBytes);
+        McpClient client = new McpClient(config, 5, Logger.getLogger("TestLogger"));
+        client.setToolCatalogTtlMillis(60_000);
+        if (cachedTools != null) {
+            client.seedTools(cachedTools, System.currentTimeMillis(), 1);
+        }
+        assertTrue(client.connect());
+        return client;
+    }
+
+    private static JsonObject args(String value) {
+        JsonObject args = new JsonObject();
+        args.addProperty("value", value);
+        return args;
+    }
+
+    private static String text(McpTypes.McpToolCallResult result) {
+        return result.content.get(0).text;
+    }
+
+    @Test
+    @DisplayName("并发调用应各自按 id 拿到自己的结果，快调用不被慢调用阻塞")
+    void testCallToolAsync_CorrelatesConcurrentCalls() throws Exception {
+        McpClient client = connect(8);
+        try {
+            CompletableFuture<McpTypes.McpToolCallResult> slow = client.callToolAsync("slow", args("a"));
+            CompletableFuture<McpTypes.McpToolCallResult> fast = client.callToolAsync("fast", args("b"));
+
+            assertEquals("fast:b", text(fast.get(5, TimeUnit.SECONDS)));
+            assertFalse(slow.isDone());
+            assertEquals("slow:a", text(slow.get(5, TimeUnit.SECONDS)));
+            assertEquals(0, client.getInFlightCount());
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("进行中的调用达到上限时应直接返回错误")
+    void testCallToolAsync_RejectsOverLimit() throws Exception {
+        McpClient client = connect(1);
+        try {
+            CompletableFuture<McpTypes.McpToolCallResult> hang = client.callToolAsync("hang", args("a"));
+            McpTypes.McpToolCallResult rejected = client.callToolAsync("fast", args("b")).get(5, TimeUnit.SECONDS);
+
+            assertTrue(rejected.isError);
+            assertTrue(text(rejected).contains("上限"));
+
+            release.countDown();
+            assertEquals("hang:a", text(hang.get(5, TimeUnit.SECONDS)));
+            assertEquals("fast:c", text(client.callToolAsync("fast", args("c")).get(5, TimeUnit.SECONDS)));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("并发额度占满时 ping 仍应成功，且记录最近收到消息的时间")
+    void testPing_NotLimitedByConcurrentCalls() throws Exception {
+        McpClient client = connect(1);
+        try {
+            CompletableFuture<McpTypes.McpToolCallResult> hang = client.callToolAsync("hang", args("a"));
+            long before = System.currentTimeMillis();
+
+            assertTrue(client.ping().get(5, TimeUnit.SECONDS));
+            assertTrue(client.getLastMessageAt() >= before);
+
+            release.countDown();
+            assertEquals("hang:a", text(hang.get(5, TimeUnit.SECONDS)));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("取消调用应通知服务器并释放并发额度")
+    void testCallToolAsync_CancelNotifiesServer() throws Exception {
+        McpClient client = connect(1);
+        try {
+            CompletableFuture<McpTypes.McpToolCallResult> hang = client.callToolAsync("hang", args("a"));
+            assertTrue(hang.cancel(true));
+
+            assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+            assertEquals(1, cancelledIds.size());
+            assertEquals(0, client.getInFlightCount());
+            assertEquals("fast:b", text(client.callToolAsync("fast", args("b")).get(5, TimeUnit.SECONDS)));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("超过大小上限的响应体应中止读取并让调用失败")
+    void testCallToolAsync_RejectsOversizedResponse() throws Exception {
+        McpClient client = connect(8, null, 64 * 1024);
+        try {
+            McpTypes.McpToolCallResult result = client.callToolAsync("big", args("200000")).get(5, TimeUnit.SECONDS);
+            assertTrue(result.isError);
+            assertTrue(text(result).contains("上限"), text(result));
+
+            assertEquals("fast:b", text(client.callToolAsync("fast", args("b")).get(5, TimeUnit.SECONDS)));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("未过期的缓存目录应跳过 tools/list，过期后才重新拉取")
+    void testConnect_WarmStartFromCachedCatalog() {
+        McpClient client = connect(8, List.of(new McpTypes.McpTool("cached", null, null)));
+        try {
+            assertEquals(0, toolsListRequests.get());
+            assertEquals("cached", client.getTools().get(0).name);
+            assertFalse(client.isToolCatalogStale(System.currentTimeMillis()));
+            assertTrue(client.isToolCatalogStale(System.currentTimeMillis() + 60_000));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("收到 tools/list_changed 通知后应刷新目录、递增版本并回调")
+    void testListChanged_RefreshesCatalog() throws Exception {
+        McpClient client = connect(8);
+        try {
+            assertEquals(1, toolsListRequests.get());
+            long version = client.getToolsVersion();
+            CountDownLatch changed = new CountDownLatch(1);
+            client.setStateListener(changed::countDown);
+
+            extraTool = true;
+            assertEquals("fast:a", text(client.callToolAsync("fast", args("a")).get(5, TimeUnit.SECONDS)));
+
+            assertTrue(changed.await(5, TimeUnit.SECONDS));
+            assertEquals(4, client.getTools().size());
+            assertEquals(version + 1, client.getToolsVersion());
+            assertEquals(2, toolsListRequests.get());
+        } finally {
+            client.disconnect();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.YanPl.mcp.client;
+
+import com.google.gson.JsonObject;
+import org.YanPl.mcp.core.JsonRpcMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PendingRequests 单元测试")
+class PendingRequestsTest {
+
+    @Test
+    @DisplayName("响应应按 id 完成对应请求，乱序到达也不串")
+    void testComplete_ById() throws Exception {
+        PendingRequests pending = new PendingRequests();
+        CompletableFuture<JsonRpcMessage.Response> first = pending.register("1");
+        CompletableFuture<JsonRpcMessage.Response> second = pending.register("2");
+
+        assertTrue(pending.complete(JsonRpcMessage.Response.success("2", new JsonObject())));
+        assertFalse(first.isDone());
+        assertEquals("2", second.get().id);
+
+        assertTrue(pending.complete(JsonRpcMessage.Response.error("1", JsonRpcMessage.INTERNAL_ERROR, "boom")));
+        assertEquals("boom", first.get().error.message);
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    @DisplayName("未知 id 或重复响应应被忽略")
+    void testComplete_UnknownId() {
+        PendingRequests pending = new PendingRequests();
+        pending.register("1");
+
+        assertFalse(pending.complete(JsonRpcMessage.Response.success("9", new JsonObject())));
+        assertTrue(pending.complete(JsonRpcMessage.Response.success("1", new JsonObject())));
+        assertFalse(pending.complete(JsonRpcMessage.Response.success("1", new JsonObject())));
+        assertFalse(pending.complete(null));
+    }
+
+    @Test
+    @DisplayName("取消的请求应移出表，连接断开时其余请求全部失败")
+    void testCancelAndFailAll() {
+        PendingRequests pending = new PendingRequests();
+        CompletableFuture<JsonRpcMessage.Response> cancelled = pending.register("1");
+        CompletableFuture<JsonRpcMessage.Response> waiting = pending.register("2");
+
+        cancelled.cancel(true);
+        assertFalse(pending.isPending("1"));
+        assertTrue(pending.isPending("2"));
+
+        pending.failAll(new IOException("closed"));
+        assertTrue(waiting.isCompletedExceptionally());
+        assertEquals(0, pending.size());
+    }
+}
@@ -0,0 +1,46 @@
+package org.YanPl.mcp.client;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ReconnectBackoff 单元测试")
+class ReconnectBackoffTest {
+
+    @Test
+    @DisplayName("等待时间应逐次翻倍、落在 [d/2, d] 内并封顶")
+    void testDelay_ExponentialWithJitter() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1_000, 60_000);
+        Random random = new Random(42);
+
+        long[] expected = {1_000, 2_000, 4_000, 8_000, 16_000, 32_000, 60_000, 60_000};
+        for (int failures = 1; failures <= expected.length; failures++) {
+            for (int i = 0; i < 50; i++) {
+                long delay = backoff.delayMillis(failures, random);
+                long max = expected[failures - 1];
+                assertTrue(delay >= max / 2 && delay <= max, failures + " -> " + delay);
+            }
+        }
+        assertTrue(backoff.delayMillis(1_000, random) <= 60_000);
+    }
+
+    @Test
+    @DisplayName("抖动应让同一失败次数得到不同的等待时间")
+    void testDelay_Jitters() {
+        ReconnectBackoff backoff = new ReconnectBackoff(10_000, 600_000);
+        Random random = new Random(7);
+
+        assertNotEquals(backoff.delayMillis(3, random), backoff.delayMillis(3, random));
+    }
+
+    @Test
+    @DisplayName("上限为 0 时不应自动重连")
+    void testDisabled() {
+        assertFalse(ReconnectBackoff.DISABLED.isEnabled());
+        assertEquals(-1, ReconnectBackoff.DISABLED.delayMillis(1, new Random()));
+        assertEquals(-1, new ReconnectBackoff(5_000, 0).delayMillis(1, new Random()));
+    }
+}
@@ -0,0 +1,141 @@
+package org.YanPl.mcp.client;
+
+import com.google.gson.JsonObject;
+import org.YanPl.mcp.core.McpTypes;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("stdio 传输测试")
+class StdioTransportTest {
+
+    private static final Logger LOGGER = Logger.getLogger("TestLogger");
+
+    private static McpClientConfig echoServer() {
+        McpClientConfig config = new McpClientConfig();
+        config.setName("echo");
+        config.setTransport("stdio");
+        config.setCommand(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        config.setArgs(Arrays.asList("-cp", System.getProperty("java.class.path"), EchoMcpServer.class.getName()));
+        config.setCallTimeout(10);
+        return config;
+    }
+
+    private static JsonObject args(String value) {
+        JsonObject args = new JsonObject();
+        args.addProperty("value", value);
+        return args;
+    }
+
+    private static String text(McpTypes.McpToolCallResult result) {
+        return result.content.get(0).text;
+    }
+
+    @Test
+    @DisplayName("应通过 stdin/stdout 完成握手与工具调用，并忽略非 JSON 输出")
+    void testConnectAndCall() {
+        McpClient client = new McpClient(echoServer(), 5, LOGGER);
+        try {
+            assertTrue(client.connect());
+            assertEquals(4, client.getTools().size());
+            assertEquals("echo:你好", text(client.callTool("echo", args("你好"))));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("同一进程上的请求应流水线执行，按 id 取回各自结果")
+    void testPipelinedCalls() throws Exception {
+        McpClient client = new McpClient(echoServer(), 5, LOGGER);
+        try {
+            assertTrue(client.connect());
+            CompletableFuture<McpTypes.McpToolCallResult> slow = client.callToolAsync("slow", args("a"));
+            CompletableFuture<McpTypes.McpToolCallResult> fast = client.callToolAsync("echo", args("b"));
+
+            assertEquals("echo:b", text(fast.get(5, TimeUnit.SECONDS)));
+            assertFalse(slow.isDone());
+            assertEquals("slow:a", text(slow.get(5, TimeUnit.SECONDS)));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("超过大小上限的响应行应在读取时丢弃，对应调用失败而连接保持可用")
+    void testOversizedLine() throws Exception {
+        McpClientConfig config = echoServer();
+        config.setMaxMessageBytes(64 * 1024);
+        McpClient client = new McpClient(config, 5, LOGGER);
+        try {
+            assertTrue(client.connect());
+
+            McpTypes.McpToolCallResult result = client.callToolAsync("big", args("200000")).get(5, TimeUnit.SECONDS);
+            assertTrue(result.isError);
+            assertTrue(text(result).contains("上限"), text(result));
+
+            assertEquals("big:" + "x".repeat(1000), text(client.callTool("big", args("1000"))));
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("进程崩溃时进行中的调用应失败，客户端标记断线并回调")
+    void testCrash() throws Exception {
+        McpClient client = new McpClient(echoServer(), 5, LOGGER);
+        try {
+            assertTrue(client.connect());
+            CountDownLatch lost = new CountDownLatch(1);
+            client.setStateListener(lost::countDown);
+
+            McpTypes.McpToolCallResult result = client.callToolAsync("crash", args("x")).get(5, TimeUnit.SECONDS);
+
+            assertTrue(result.isError);
+            assertTrue(text(result).contains("退出码 3"), text(result));
+            assertTrue(lost.await(5, TimeUnit.SECONDS));
+            assertFalse(client.isConnected());
+        } finally {
+            client.disconnect();
+        }
+    }
+
+    @Test
+    @DisplayName("关闭时应先关 stdin 让进程自行退出")
+    void testStop() throws Exception {
+        CountDownLatch exited = new CountDownLatch(1);
+        McpClientConfig config = echoServer();
+        StdioProcess process = StdioProcess.start("echo", config.getCommandLine(), Collections.emptyMap(), null,
+                1024, (line, truncated) -> { }, code -> exited.countDown(), LOGGER);
+        assertTrue(process.isAlive());
+
+        long start = System.currentTimeMillis();
+        process.stop(5_000);
+
+        assertFalse(process.isAlive());
+        assertTrue(System.currentTimeMillis() - start < 5_000);
+        assertTrue(exited.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("缺少 command 时连接应失败并给出原因")
+    void testMissingCommand() {
+        McpClientConfig config = echoServer();
+        config.setCommand(null);
+        config.setArgs(null);
+        McpClient client = new McpClient(config, 5, LOGGER);
+
+        assertFalse(client.connect());
+        assertTrue(client.getLastError().contains("command"));
+        client.disconnect();
+    }
+}
@@ -0,0 +1,54 @@
+package org.YanPl.mcp.client;
+
+import org.YanPl.mcp.core.McpTypes;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ToolCatalog 单元测试")
+class ToolCatalogTest {
+
+    private static McpClientManager.ExternalToolInfo tool(String server, String name, boolean enabled) {
+        return new McpClientManager.ExternalToolInfo(server, new McpTypes.McpTool(name, name + " 说明", null), enabled, true);
+    }
+
+    @Test
+    @DisplayName("快照应只把已连接且启用的工具列为可用")
+    void testEnabledTools() {
+        ToolCatalog catalog = new ToolCatalog(3, Arrays.asList(
+                tool("web", "search", true),
+                tool("web", "fetch", false),
+                new McpClientManager.ExternalToolInfo("offline", null, false, false)));
+
+        assertEquals(3, catalog.version);
+        assertEquals(3, catalog.withState.size());
+        assertEquals(1, catalog.enabled.size());
+        assertEquals("web.search", catalog.enabled.get(0).getFullName());
+        assertThrows(UnsupportedOperationException.class, () -> catalog.enabled.clear());
+    }
+
+    @Test
+    @DisplayName("预渲染文本应按服务器分组并标注禁用与未连接")
+    void testRender() {
+        ToolCatalog catalog = new ToolCatalog(1, Arrays.asList(
+                tool("web", "search", true),
+                tool("web", "fetch", false),
+                new McpClientManager.ExternalToolInfo("offline", null, false, false)));
+
+        assertTrue(catalog.rendered.startsWith("[MCP Tools Status]"));
+        assertTrue(catalog.rendered.contains("web (已连接):\n  ☑ search - search 说明\n  ☐ fetch - fetch 说明 (已禁用)\n"));
+        assertTrue(catalog.rendered.contains("offline (未连接)\n"));
+        assertTrue(catalog.rendered.endsWith("Format: #mcp: serverName.toolName|{\"arg1\":\"value1\"}"));
+    }
+
+    @Test
+    @DisplayName("没有服务器时应给出提示")
+    void testRender_Empty() {
+        assertTrue(ToolCatalog.EMPTY.rendered.contains("没有配置的 MCP 服务器"));
+        assertTrue(new ToolCatalog(2, Collections.emptyList()).enabled.isEmpty());
+    }
+}
@@ -0,0 +1,136 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DirectoryIndex 单元测试")
+class DirectoryIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File root;
+    private DirectoryIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = tempDir.toFile();
+        Files.createDirectories(tempDir.resolve("plugins/EssentialsX"));
+        Files.write(tempDir.resolve("plugins/EssentialsX/Config.yml"), "a: 1\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(tempDir.resolve("server.properties"), "motd=hi\n".getBytes(StandardCharsets.UTF_8));
+        index = new DirectoryIndex();
+    }
+
+    @AfterEach
+    void tearDown() {
+        index.shutdown();
+    }
+
+    @Test
+    @DisplayName("resolve 应大小写不敏感地逐层匹配")
+    void testResolve_CaseInsensitive() {
+        File resolved = index.resolve(root, "PLUGINS/essentialsx/config.yml");
+
+        assertEquals(new File(root, "plugins/EssentialsX/Config.yml"), resolved);
+    }
+
+    @Test
+    @DisplayName("resolve 找不到的部分应按原样拼接")
+    void testResolve_MissingTailKeptAsIs() {
+        File resolved = index.resolve(root, "Plugins/NewPlugin/data.yml");
+
+        assertEquals(new File(new File(root, "plugins"), "NewPlugin/data.yml"), resolved);
+    }
+
+    @Test
+    @DisplayName("list 应目录在前并按名称排序")
+    void testList_SortedDirectoriesFirst() {
+        List<String> names = index.list(root).stream()
+                .map(DirectoryIndex.Child::getName)
+                .collect(Collectors.toList());
+
+        assertEquals(List.of("plugins", "server.properties"), names);
+    }
+
+    @Test
+    @DisplayName("invalidate 后应看到新建的文件")
+    void testInvalidate_SeesNewFile() throws IOException {
+        index.list(new File(root, "plugins"));
+        File created = new File(root, "plugins/Fresh/Nested.yml");
+        Files.createDirectories(created.getParentFile().toPath());
+        Files.write(created.toPath(), "x\n".getBytes(StandardCharsets.UTF_8));
+        index.invalidate(created);
+
+        assertEquals(created, index.resolve(root, "plugins/fresh/nested.yml"));
+    }
+
+    @Test
+    @DisplayName("isWithin 应拒绝越出根目录的路径")
+    void testIsWithin() {
+        assertTrue(index.isWithin(root, new File(root, "plugins/EssentialsX/Config.yml")));
+        assertTrue(index.isWithin(root, new File(root, "plugins/NotYet/file.yml")));
+        assertFalse(index.isWithin(root, new File(root, "../outside.txt")));
+        assertFalse(index.isWithin(root, new File(root, "plugins/../../outside.txt")));
+    }
+
+    @Test
+    @DisplayName("isWithin 应识别指向根目录外的符号链接")
+    void testIsWithin_SymlinkEscape() throws IOException {
+        Path outside = Files.createTempDirectory("fh-outside");
+        try {
+            Path link = tempDir.resolve("link");
+            try {
+                Files.createSymbolicLink(link, outside);
+            } catch (UnsupportedOperationException | IOException e) {
+                return; // 平台不支持符号链接时跳过
+            }
+            assertFalse(index.isWithin(root, new File(root, "link/secret.txt")));
+        } finally {
+            Files.deleteIfExists(outside);
+        }
+    }
+
+    @Test
+    @DisplayName("isRealPathWithin 应识别缓存之后才替换成符号链接的目录")
+    void testIsRealPathWithin_SymlinkCreatedAfterIndexing() throws IOException {
+        Path outside = Files.createTempDirectory("fh-outside");
+        try {
+            Path dir = tempDir.resolve("data");
+            Files.createDirectories(dir);
+            assertTrue(index.isWithin(root, new File(root, "data/secret.txt")));
+
+            Files.delete(dir);
+            try {
+                Files.createSymbolicLink(dir, outside);
+            } catch (UnsupportedOperationException | IOException e) {
+                return; // 平台不支持符号链接时跳过
+            }
+            assertFalse(DirectoryIndex.isRealPathWithin(root, new File(root, "data/secret.txt")));
+            assertFalse(DirectoryIndex.isRealPathWithin(root, new File(root, "data/new/deep.txt")));
+        } finally {
+            Files.deleteIfExists(outside);
+        }
+    }
+
+    @Test
+    @DisplayName("isRealPathWithin 应允许根目录内尚不存在的目标，拒绝不存在部分中的 ..")
+    void testIsRealPathWithin_MissingTarget() {
+        assertTrue(DirectoryIndex.isRealPathWithin(root, new File(root, "plugins/EssentialsX/Config.yml")));
+        assertTrue(DirectoryIndex.isRealPathWithin(root, new File(root, "plugins/New/config.yml")));
+        assertFalse(DirectoryIndex.isRealPathWithin(root, new File(root, "plugins/New/../../../outside.txt")));
+        assertFalse(DirectoryIndex.isRealPathWithin(root, new File(root, "../outside.txt")));
+    }
+}
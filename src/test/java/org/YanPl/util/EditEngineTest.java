@@ -0,0 +1,138 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EditEngine 单元测试")
+class EditEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String... lines) throws IOException {
+        Path file = tempDir.resolve("config.yml");
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+
+    @Test
+    @DisplayName("scan 应按行子串包含匹配多行内容")
+    void testScan_MultiLineContains() throws IOException {
+        Path file = write("settings:", "  pvp: false", "  enabled: true", "other:", "  enabled: true");
+
+        EditEngine.Scan scan = new EditEngine(new String[]{"pvp: false", "enabled: true"}).scan(file, 0, 0, 0);
+
+        assertEquals(List.of(1), scan.getMatchStarts());
+        assertEquals(5, scan.getTotalLines());
+    }
+
+    @Test
+    @DisplayName("scan 应返回所有匹配位置并收集指定区间内容")
+    void testScan_AllMatchesAndRange() throws IOException {
+        Path file = write("a: 1", "enabled: true", "b: 2", "enabled: true");
+
+        EditEngine.Scan scan = new EditEngine(new String[]{"enabled"}).scan(file, 0, 1, 3);
+
+        assertEquals(List.of(1, 3), scan.getMatchStarts());
+        assertEquals(List.of("enabled: true", "b: 2"), scan.getRangeLines());
+    }
+
+    @Test
+    @DisplayName("超过 64 行的查找内容也应正确匹配")
+    void testScan_LongPattern() throws IOException {
+        String[] lines = new String[100];
+        String[] pattern = new String[70];
+        for (int i = 0; i < lines.length; i++) lines[i] = "line-" + i;
+        for (int j = 0; j < pattern.length; j++) pattern[j] = "line-" + (20 + j);
+        Path file = write(lines);
+
+        EditEngine.Scan scan = new EditEngine(pattern).scan(file, 0, 0, 0);
+
+        assertEquals(List.of(20), scan.getMatchStarts());
+    }
+
+    @Test
+    @DisplayName("apply 应行内替换并追加多出的行")
+    void testApply_InlineReplaceAndExtraLines() throws IOException {
+        Path file = write("a:", "  enabled: true # 注释", "b:");
+        StringBuilder before = new StringBuilder();
+        StringBuilder after = new StringBuilder();
+
+        EditEngine.apply(file, 1, new String[]{"enabled: true"},
+                new String[]{"enabled: false", "  extra: 1"}, null, before, after);
+
+        assertEquals("a:\n  enabled: true # 注释\nb:", before.toString());
+        assertEquals("a:\n  enabled: false # 注释\n  extra: 1\nb:", after.toString());
+    }
+
+    @Test
+    @DisplayName("rewrite 应原子替换文件内容且不留临时文件")
+    void testRewrite_ReplacesFile() throws IOException {
+        Path file = write("a: 1", "b: 2");
+
+        EditEngine.rewrite(file, 1, new String[]{"b: 2"}, new String[]{"b: 3"});
+
+        assertEquals(List.of("a: 1", "b: 3"), Files.readAllLines(file, StandardCharsets.UTF_8));
+        try (java.util.stream.Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("rewrite 应保留原文件的 POSIX 权限")
+    void testRewrite_KeepsPermissions() throws IOException {
+        Path file = write("a: 1");
+        if (Files.getFileAttributeView(file, PosixFileAttributeView.class) == null) {
+            return; // 非 POSIX 文件系统时跳过
+        }
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r--r--");
+        Files.setPosixFilePermissions(file, permissions);
+
+        EditEngine.rewrite(file, 0, new String[]{"a: 1"}, new String[]{"a: 2"});
+
+        assertEquals(permissions, Files.getPosixFilePermissions(file));
+    }
+
+    @Test
+    @DisplayName("rewrite 应改写符号链接指向的文件并保留链接")
+    void testRewrite_FollowsSymlink() throws IOException {
+        Path real = write("a: 1");
+        Path link = tempDir.resolve("link.yml");
+        try {
+            Files.createSymbolicLink(link, real);
+        } catch (UnsupportedOperationException | IOException e) {
+            return; // 平台不支持符号链接时跳过
+        }
+
+        EditEngine.rewrite(link, 0, new String[]{"a: 1"}, new String[]{"a: 2"});
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals(List.of("a: 2"), Files.readAllLines(real, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("isCurrent 在文件被修改后应返回 false")
+    void testScan_IsCurrent() throws IOException {
+        Path file = write("a: 1");
+        EditEngine.Scan scan = new EditEngine(new String[]{"a"}).scan(file, 0, 0, 0);
+        assertTrue(scan.isCurrent(file));
+
+        Files.write(file, List.of("a: 1", "b: 2"), StandardCharsets.UTF_8);
+
+        assertFalse(scan.isCurrent(file));
+    }
+}
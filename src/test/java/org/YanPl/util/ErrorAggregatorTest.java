@@ -0,0 +1,110 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ErrorAggregator 单元测试")
+class ErrorAggregatorTest {
+
+    private static final long WINDOW = 60_000L;
+
+    private static Throwable failAt(String message, int line) {
+        IOException e = new IOException(message);
+        e.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("org.YanPl.api.LLMClient", "lambda$callOpenAI$3", "LLMClient.java", line),
+                new StackTraceElement("org.YanPl.manager.CLIManager$1", "run", "CLIManager.java", line + 10)
+        });
+        return e;
+    }
+
+    @Test
+    @DisplayName("消息、行号与 lambda 编号不同的同类异常应得到相同指纹")
+    void testFingerprint_IgnoresVolatileParts() {
+        String a = ErrorAggregator.fingerprint(failAt("HTTP 502 from provider A", 100));
+        String b = ErrorAggregator.fingerprint(failAt("HTTP 503 after 12034ms", 140));
+
+        assertEquals(a, b);
+        assertEquals(16, a.length());
+    }
+
+    @Test
+    @DisplayName("异常类型或 cause 不同时指纹应不同")
+    void testFingerprint_DistinguishesTypeAndCause() {
+        Throwable io = failAt("x", 1);
+        IllegalStateException state = new IllegalStateException("x");
+        state.setStackTrace(io.getStackTrace());
+        RuntimeException wrapped = new RuntimeException("wrap", io);
+        wrapped.setStackTrace(io.getStackTrace());
+
+        assertNotEquals(ErrorAggregator.fingerprint(io), ErrorAggregator.fingerprint(state));
+        assertNotEquals(ErrorAggregator.fingerprint(io), ErrorAggregator.fingerprint(wrapped));
+    }
+
+    @Test
+    @DisplayName("类名与方法名规范化应抹去编号")
+    void testNormalize() {
+        assertEquals("org.YanPl.Foo$$Lambda", ErrorAggregator.normalizeClass("org.YanPl.Foo$$Lambda$123/0x0000000801234"));
+        assertEquals("org.YanPl.Foo$$Inner", ErrorAggregator.normalizeClass("org.YanPl.Foo$2$Inner"));
+        assertEquals("lambda$handleChat", ErrorAggregator.normalizeMethod("lambda$handleChat$17"));
+        assertEquals("run", ErrorAggregator.normalizeMethod("run"));
+    }
+
+    @Test
+    @DisplayName("窗口内首次立即上报，重复只计数并在窗口结束时合并")
+    void testRecord_OneUploadPerWindow() {
+        ErrorAggregator aggregator = new ErrorAggregator(16);
+        Throwable error = failAt("boom", 1);
+
+        assertEquals(ErrorAggregator.Action.UPLOAD_NOW, aggregator.record("fp", error, 0, WINDOW));
+        ErrorAggregator.Batch first = aggregator.drain("fp", 0, WINDOW);
+        assertEquals(1, first.occurrences);
+
+        assertEquals(ErrorAggregator.Action.SCHEDULE_FLUSH, aggregator.record("fp", error, 1_000, WINDOW));
+        assertEquals(ErrorAggregator.Action.COUNTED, aggregator.record("fp", error, 2_000, WINDOW));
+        assertEquals(ErrorAggregator.Action.COUNTED, aggregator.record("fp", error, 3_000, WINDOW));
+        assertEquals(WINDOW, aggregator.windowEnd("fp"));
+
+        ErrorAggregator.Batch merged = aggregator.drain("fp", WINDOW, WINDOW);
+        assertEquals(3, merged.occurrences);
+        assertEquals(4, merged.total);
+        assertEquals(0, merged.firstSeen);
+        assertEquals(3_000, merged.lastSeen);
+        assertNull(aggregator.drain("fp", WINDOW, WINDOW));
+
+        // 合并上报后开启新窗口，窗口内的再次出现仍只计数
+        assertEquals(ErrorAggregator.Action.SCHEDULE_FLUSH, aggregator.record("fp", error, WINDOW + 1, WINDOW));
+        assertEquals(ErrorAggregator.Action.UPLOAD_NOW, aggregator.record("other", error, WINDOW + 1, WINDOW));
+    }
+
+    @Test
+    @DisplayName("窗口过期后再次出现应立即上报")
+    void testRecord_NewWindowAfterExpiry() {
+        ErrorAggregator aggregator = new ErrorAggregator(16);
+        Throwable error = failAt("boom", 1);
+
+        aggregator.record("fp", error, 0, WINDOW);
+        aggregator.drain("fp", 0, WINDOW);
+
+        assertEquals(ErrorAggregator.Action.UPLOAD_NOW, aggregator.record("fp", error, WINDOW * 2, WINDOW));
+    }
+
+    @Test
+    @DisplayName("指纹数超过上限时应淘汰最久未出现且无待上报的指纹")
+    void testRecord_Evicts() {
+        ErrorAggregator aggregator = new ErrorAggregator(2);
+        Throwable error = failAt("boom", 1);
+
+        aggregator.record("a", error, 0, WINDOW);
+        aggregator.record("a", error, 1, WINDOW); // a 等待合并上报，不应被淘汰
+        aggregator.record("b", error, 2, WINDOW);
+        aggregator.record("c", error, 3, WINDOW);
+
+        assertEquals(2, aggregator.size());
+        assertNotNull(aggregator.drain("a", 4, WINDOW));
+        assertNull(aggregator.drain("b", 4, WINDOW));
+    }
+}
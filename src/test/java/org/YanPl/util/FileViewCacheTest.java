@@ -0,0 +1,164 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FileViewCache 单元测试")
+class FileViewCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File write(String name, String content) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file.toFile();
+    }
+
+    @Test
+    @DisplayName("read 应返回指定行区间并统计总行数")
+    void testRead_Range() throws IOException {
+        File file = write("a.yml", "one\ntwo\nthree\nfour\n");
+        FileViewCache cache = new FileViewCache();
+
+        FileViewCache.Window window = cache.read(file, 2, 3, 100, 1024);
+
+        assertEquals(2, window.getFirstLine());
+        assertEquals(java.util.List.of("two", "three"), window.getLines());
+        assertEquals(4, window.getTotalLines());
+        assertFalse(window.isTruncated());
+    }
+
+    @Test
+    @DisplayName("read 应去掉 CRLF 行尾并保留空行")
+    void testRead_CrlfAndEmptyLines() throws IOException {
+        File file = write("b.yml", "a\r\n\r\nb");
+        FileViewCache cache = new FileViewCache();
+
+        FileViewCache.Window window = cache.read(file, 1, -1, 100, 1024);
+
+        assertEquals(java.util.List.of("a", "", "b"), window.getLines());
+        assertEquals(3, window.getTotalLines());
+    }
+
+    @Test
+    @DisplayName("read 超出行数上限时应截断并标记")
+    void testRead_TruncatedByLines() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= 50; i++) sb.append("line").append(i).append('\n');
+        File file = write("c.log", sb.toString());
+        FileViewCache cache = new FileViewCache();
+
+        FileViewCache.Window window = cache.read(file, 41, -1, 5, 1024);
+
+        assertEquals(5, window.getLines().size());
+        assertEquals("line41", window.getLines().get(0));
+        assertTrue(window.isTruncated());
+    }
+
+    @Test
+    @DisplayName("read 超出字节上限时应停在整行处")
+    void testRead_TruncatedByBytes() throws IOException {
+        File file = write("d.txt", "0123456789\nabcdefghij\n");
+        FileViewCache cache = new FileViewCache();
+
+        FileViewCache.Window window = cache.read(file, 1, -1, 100, 15);
+
+        assertEquals(java.util.List.of("0123456789"), window.getLines());
+        assertTrue(window.isTruncated());
+        assertEquals(0, window.getCutLineBytes());
+    }
+
+    @Test
+    @DisplayName("第一行单独超过字节上限时应只读取前缀并截在字符边界")
+    void testRead_SingleLongLineIsCut() throws IOException {
+        StringBuilder sb = new StringBuilder("{\"data\":\"");
+        // 约 3MB 没有换行的一行，混入三字节的中文字符
+        while (sb.length() < 2 * 1024 * 1024) sb.append("值abc");
+        sb.append("\"}\nnext\n");
+        File file = write("min.json", sb.toString());
+        FileViewCache cache = new FileViewCache();
+
+        FileViewCache.Window window = cache.read(file, 1, -1, 100, 1000);
+
+        assertEquals(1, window.getLines().size());
+        assertTrue(window.isTruncated());
+        assertTrue(window.getCutLineBytes() <= 1000 && window.getCutLineBytes() > 990);
+        String line = window.getLines().get(0);
+        assertEquals(window.getCutLineBytes(), line.getBytes(StandardCharsets.UTF_8).length);
+        assertFalse(line.contains("\uFFFD"));
+        assertEquals(2, window.getTotalLines());
+        assertEquals(java.util.List.of("next"), cache.read(file, 2, 2, 100, 1000).getLines());
+    }
+
+    @Test
+    @DisplayName("invalidate 后应重新建立索引")
+    void testInvalidate_RebuildsIndex() throws IOException {
+        File file = write("e.yml", "old\n");
+        FileViewCache cache = new FileViewCache();
+        cache.read(file, 1, -1, 100, 1024);
+
+        long mtime = file.lastModified();
+        Files.write(file.toPath(), "new\n".getBytes(StandardCharsets.UTF_8));
+        file.setLastModified(mtime);
+        cache.invalidate(file);
+
+        assertEquals("new", cache.read(file, 1, -1, 100, 1024).getLines().get(0));
+    }
+
+    @Test
+    @DisplayName("大文件应能读取尾部区间")
+    void testRead_LargeFileTail() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int lines = 120_000;
+        for (int i = 1; i <= lines; i++) sb.append("[12:00:00 INFO]: log line ").append(i).append('\n');
+        File file = write("latest.log", sb.toString());
+        FileViewCache cache = new FileViewCache();
+
+        FileViewCache.Window window = cache.read(file, lines - 1, lines, 100, 1024);
+
+        assertEquals(lines, window.getTotalLines());
+        assertEquals("[12:00:00 INFO]: log line " + lines, window.getLines().get(1));
+    }
+
+    @Test
+    @DisplayName("文件追加增长后应续建索引，包括旧末尾未换行的半行")
+    void testRead_AppendedFile() throws IOException {
+        File file = write("grow.log", "a\nb");
+        FileViewCache cache = new FileViewCache();
+        assertEquals(2, cache.read(file, 1, -1, 100, 1024).getTotalLines());
+
+        Files.write(file.toPath(), "c\nd\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        FileViewCache.Window window = cache.read(file, 1, -1, 100, 1024);
+        assertEquals(List.of("a", "bc", "d"), window.getLines());
+
+        Files.write(file.toPath(), "e\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        window = cache.read(file, 1, -1, 100, 1024);
+        assertEquals(List.of("a", "bc", "d", "e"), window.getLines());
+        assertEquals(4, window.getTotalLines());
+    }
+
+    @Test
+    @DisplayName("文件变长但旧内容被改写时应重建索引")
+    void testRead_RewrittenLongerFile() throws IOException {
+        File file = write("rotate.log", "old1\nold2\n");
+        FileViewCache cache = new FileViewCache();
+        cache.read(file, 1, -1, 100, 1024);
+
+        Files.write(file.toPath(), "x\ny\nz\nnew-longer\n".getBytes(StandardCharsets.UTF_8));
+        FileViewCache.Window window = cache.read(file, 1, -1, 100, 1024);
+
+        assertEquals(List.of("x", "y", "z", "new-longer"), window.getLines());
+    }
+}
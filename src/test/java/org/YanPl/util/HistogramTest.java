@@ -0,0 +1,68 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Histogram 单元测试")
+class HistogramTest {
+
+    @Test
+    @DisplayName("观测值应按小于等于上界落入对应的桶，累积计数单调递增")
+    void testObserve_Buckets() {
+        Histogram histogram = new Histogram(new double[]{1, 2, 5});
+        histogram.observe(0.5);
+        histogram.observe(1);
+        histogram.observe(1.5);
+        histogram.observe(10);
+
+        long[] cumulative = histogram.cumulativeCounts();
+        assertEquals(4, cumulative.length);
+        assertEquals(2, cumulative[0]);
+        assertEquals(3, cumulative[1]);
+        assertEquals(3, cumulative[2]);
+        assertEquals(4, cumulative[3]);
+        assertEquals(4, histogram.getCount());
+        assertEquals(13.0, histogram.getSum(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("分位数应在桶内线性插值，落在 +Inf 桶时取最大有限上界")
+    void testQuantile() {
+        Histogram histogram = new Histogram(new double[]{1, 2, 4});
+        assertEquals(0.0, histogram.quantile(0.5), 1e-9);
+
+        for (int i = 0; i < 10; i++) histogram.observe(1.5);
+        assertEquals(1.5, histogram.quantile(0.5), 1e-9);
+        assertEquals(2.0, histogram.quantile(1.0), 1e-9);
+
+        for (int i = 0; i < 90; i++) histogram.observe(100);
+        assertEquals(4.0, histogram.quantile(0.95), 1e-9);
+    }
+
+    @Test
+    @DisplayName("桶上界为空或不递增时应拒绝创建")
+    void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> new Histogram(new double[]{1, 1, 2}));
+    }
+
+    @Test
+    @DisplayName("多线程并发记录不应丢失计数")
+    void testConcurrentObserve() throws Exception {
+        Histogram histogram = new Histogram(MetricsRegistry.LATENCY_SECONDS);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) histogram.observe(i % 7 * 0.01);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        long[] cumulative = histogram.cumulativeCounts();
+        assertEquals(40000, histogram.getCount());
+        assertEquals(40000, cumulative[cumulative.length - 1]);
+    }
+}
@@ -0,0 +1,112 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MetricsRegistry 单元测试")
+class MetricsRegistryTest {
+
+    @Test
+    @DisplayName("同名同标签应返回同一个序列")
+    void testSeriesReused() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram a = registry.histogram("t_seconds", "h", new double[]{1}, "stage", "x");
+        Histogram b = registry.histogram("t_seconds", "h", new double[]{1}, "stage", "x");
+        Histogram c = registry.histogram("t_seconds", "h", new double[]{1}, "stage", "y");
+
+        assertSame(a, b);
+        assertNotEquals(a, c);
+    }
+
+    @Test
+    @DisplayName("输出应符合 Prometheus 文本格式：HELP/TYPE、累积桶、_sum 与 _count")
+    void testToPrometheus_Histogram() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("t_seconds", "耗时", new double[]{0.1, 1}, "stage", "prompt_build");
+        histogram.observe(0.05);
+        histogram.observe(0.5);
+        histogram.observe(3);
+
+        String text = registry.toPrometheus();
+        assertTrue(text.contains("# HELP t_seconds 耗时\n"));
+        assertTrue(text.contains("# TYPE t_seconds histogram\n"));
+        assertTrue(text.contains("t_seconds_bucket{stage=\"prompt_build\",le=\"0.1\"} 1\n"));
+        assertTrue(text.contains("t_seconds_bucket{stage=\"prompt_build\",le=\"1\"} 2\n"));
+        assertTrue(text.contains("t_seconds_bucket{stage=\"prompt_build\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("t_seconds_sum{stage=\"prompt_build\"} 3.55\n"));
+        assertTrue(text.contains("t_seconds_count{stage=\"prompt_build\"} 3\n"));
+    }
+
+    @Test
+    @DisplayName("计数器与取值函数应输出当前值，标签值中的引号需转义")
+    void testToPrometheus_CounterAndGauge() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("calls_total", "调用", "tool", "read", "result", "success").add(3);
+        registry.counterFunction("legacy_total", "已有计数", () -> 7);
+        registry.gauge("sessions", "会话", () -> 2, "model", "a\"b");
+
+        String text = registry.toPrometheus();
+        assertTrue(text.contains("# TYPE calls_total counter\n"));
+        assertTrue(text.contains("calls_total{tool=\"read\",result=\"success\"} 3\n"));
+        assertTrue(text.contains("legacy_total 7\n"));
+        assertTrue(text.contains("# TYPE sessions gauge\n"));
+        assertTrue(text.contains("sessions{model=\"a\\\"b\"} 2\n"));
+    }
+
+    @Test
+    @DisplayName("标签不成对或同名不同类型时应报错")
+    void testInvalidRegistration() {
+        MetricsRegistry registry = new MetricsRegistry();
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("x_total", "h", "tool"));
+        registry.counter("x_total", "h");
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.histogram("x_total", "h", MetricsRegistry.LATENCY_SECONDS));
+    }
+
+    @Test
+    @DisplayName("forEachHistogram 应按标签遍历并提供标签值")
+    void testForEachHistogram() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.histogram("d_seconds", "h", new double[]{1}, "provider", "openai", "model", "m1").observe(0.2);
+        registry.histogram("d_seconds", "h", new double[]{1}, "provider", "fancy", "model", "m2").observe(0.4);
+
+        List<String> seen = new ArrayList<>();
+        registry.forEachHistogram("d_seconds", (labels, h) -> seen.add(labels.get(0) + "/" + labels.get(1) + ":" + h.getCount()));
+        registry.forEachHistogram("missing", (labels, h) -> fail("不存在的指标不应被遍历"));
+
+        assertEquals(List.of("fancy/m2:1", "openai/m1:1"), seen);
+    }
+
+    @Test
+    @DisplayName("抓取端点应在 /metrics 返回文本格式，其他路径返回 404")
+    void testHttpServer() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("up_total", "h").increment();
+        MetricsHttpServer server = MetricsHttpServer.start("127.0.0.1", 0, registry::toPrometheus);
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:" + server.getPort();
+
+            HttpResponse<String> ok = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, ok.statusCode());
+            assertTrue(ok.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+            assertTrue(ok.body().contains("up_total 1\n"));
+
+            HttpResponse<String> missing = client.send(HttpRequest.newBuilder(URI.create(base + "/metrics/x")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, missing.statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OperationJournal 单元测试")
+class OperationJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Object lock = new Object();
+    private final List<String> items = new ArrayList<>();
+    private ScheduledExecutorService writer;
+    private OperationJournal<String> journal;
+
+    @BeforeEach
+    void setUp() {
+        writer = Executors.newSingleThreadScheduledExecutor();
+        journal = new OperationJournal<>(new File(tempDir.toFile(), "items.json"), String.class, writer,
+                lock, () -> items, null, Logger.getLogger("TestLogger"), "Test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("写入完成后不再有待落盘操作，重新加载能恢复")
+    void testFlushClearsPending() {
+        synchronized (lock) {
+            items.add("a");
+            journal.recordAdd("a");
+            assertTrue(journal.hasPending());
+        }
+        journal.flush();
+        assertFalse(journal.hasPending());
+
+        OperationJournal<String> reloaded = new OperationJournal<>(new File(tempDir.toFile(), "items.json"),
+                String.class, writer, lock, () -> items, null, Logger.getLogger("TestLogger"), "Test");
+        assertEquals(List.of("a"), reloaded.load());
+    }
+
+    @Test
+    @DisplayName("写线程已取出但尚未写完的批次仍视为待落盘")
+    void testInFlightBatchCountsAsPending() throws Exception {
+        synchronized (lock) {
+            items.add("a");
+            journal.recordAdd("a");
+        }
+        journal.flush();
+        CompletableFuture<Void> compacting;
+        synchronized (lock) {
+            assertFalse(journal.hasPending());
+            // 压缩在写线程上等待 stateLock：队列为空，但写线程正在处理，仍不能视为已落盘
+            compacting = CompletableFuture.runAsync(journal::compact);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!writerBusy() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(journal.hasPending());
+        }
+        compacting.get(10, TimeUnit.SECONDS);
+        assertFalse(journal.hasPending());
+    }
+
+    /** 写线程是否已开始执行任务（提交一个空任务，未在短时间内完成说明写线程被占用） */
+    private boolean writerBusy() throws Exception {
+        try {
+            writer.submit(() -> { }).get(50, TimeUnit.MILLISECONDS);
+            return false;
+        } catch (TimeoutException e) {
+            return true;
+        }
+    }
+}
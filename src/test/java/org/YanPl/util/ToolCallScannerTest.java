@@ -0,0 +1,97 @@
+package org.YanPl.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ToolCallScanner 单元测试")
+class ToolCallScannerTest {
+
+    private static String parse(String text) {
+        return ToolCallScanner.parseAt(text, text.indexOf('#'), ToolCallScanner.KNOWN_TOOLS);
+    }
+
+    @Test
+    @DisplayName("普通参数应提取到行尾")
+    void testParseAt_ToLineEnd() {
+        assertEquals("#read:plugins/a.yml", parse("#read: plugins/a.yml\n后续说明"));
+    }
+
+    @Test
+    @DisplayName("位于末行的调用应原样返回，由 parseToolCall 再行拆分")
+    void testParseAt_LastLine() {
+        assertEquals("#read: plugins/a.yml", parse("说明\n#read: plugins/a.yml"));
+    }
+
+    @Test
+    @DisplayName("JSON 参数应提取到匹配的闭合括号，可跨行")
+    void testParseAt_JsonArgs() {
+        assertEquals("#todo:[{\"id\":\"1\",\n\"task\":\"a\"}]", parse("#todo: [{\"id\":\"1\",\n\"task\":\"a\"}] 多余"));
+    }
+
+    @Test
+    @DisplayName("长工具名不应被前缀相同的短工具名劫持")
+    void testParseAt_LongerNameFirst() {
+        assertEquals("#edit_global:1|新内容", parse("#edit_global: 1|新内容\n其他"));
+        assertEquals("#mcp_page:r1|8000", parse("#mcp_page: r1|8000\n其他"));
+        assertEquals("#mcp_tools", parse("#mcp_tools"));
+    }
+
+    @Test
+    @DisplayName("未知工具应返回 null")
+    void testParseAt_Unknown() {
+        assertNull(parse("#unknown: x"));
+    }
+
+    @Test
+    @DisplayName("extractAll 应按顺序提取所有行首调用，忽略正文中的 #")
+    void testExtractAll() {
+        String response = "先看看这几个文件，顺便说一下 #read 是只读的\n"
+                + "#list: plugins\n"
+                + "#read: plugins/a.yml\n"
+                + "#search: 领地插件";
+
+        List<String> calls = ToolCallScanner.extractAll(response, ToolCallScanner.KNOWN_TOOLS);
+
+        assertEquals(List.of("#list:plugins", "#read:plugins/a.yml", "#search: 领地插件"), calls);
+    }
+
+    @Test
+    @DisplayName("没有工具调用时返回空列表")
+    void testExtractAll_None() {
+        assertTrue(ToolCallScanner.extractAll("只是普通回复", ToolCallScanner.KNOWN_TOOLS).isEmpty());
+    }
+
+    @Test
+    @DisplayName("scanCompletedLines 只提取已经完整的行，并返回未完成行的行首")
+    void testScanCompletedLines() {
+        List<String> calls = new ArrayList<>();
+        StringBuilder text = new StringBuilder("先读一下配置\n#read: plugins/a.yml\n#sea");
+
+        int pos = ToolCallScanner.scanCompletedLines(text, 0, ToolCallScanner.KNOWN_TOOLS, calls);
+        assertEquals(List.of("#read: plugins/a.yml"), calls);
+        assertEquals(text.indexOf("#sea"), pos);
+
+        text.append("rch: 领地插件\n#run: say hi");
+        calls.clear();
+        pos = ToolCallScanner.scanCompletedLines(text, pos, ToolCallScanner.KNOWN_TOOLS, calls);
+        assertEquals(List.of("#search: 领地插件"), calls);
+        assertEquals(text.indexOf("#run"), pos);
+    }
+
+    @Test
+    @DisplayName("scanCompletedLines 应忽略行中的 # 与未知工具")
+    void testScanCompletedLines_IgnoresInline() {
+        List<String> calls = new ArrayList<>();
+        String text = "提到 #read 不算\n#unknown: x\r\n#list: plugins\r\n";
+
+        int pos = ToolCallScanner.scanCompletedLines(text, 0, ToolCallScanner.KNOWN_TOOLS, calls);
+
+        assertEquals(List.of("#list: plugins"), calls);
+        assertEquals(text.length(), pos);
+    }
+}
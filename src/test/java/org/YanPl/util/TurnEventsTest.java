@@ -0,0 +1,108 @@
+package org.YanPl.util;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+@DisplayName("TurnEvents 单元测试")
+class TurnEventsTest {
+
+    @Test
+    @DisplayName("utf8Length 应与实际 UTF-8 编码长度一致")
+    void testUtf8Length() {
+        for (String text : new String[]{"", "abc", "你好，世界", "é", "表情😀结尾", "\uD800孤立代理"}) {
+            assertEquals(text.getBytes(StandardCharsets.UTF_8).length, TurnEvents.utf8Length(text), text);
+        }
+        assertEquals(0, TurnEvents.utf8Length(null));
+    }
+
+    @Test
+    @DisplayName("录制开启时应写入带玩家与会话字段的事件")
+    void testRecordedEvent() throws Exception {
+        Path file = Files.createTempFile("turn-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("fancyhelper.Persistence");
+            recording.start();
+
+            TurnEvents.Persistence event = new TurnEvents.Persistence();
+            event.begin();
+            event.bytes = 2048;
+            event.success = true;
+            assertTrue(event.shouldCommit());
+            event.player = "Steve";
+            event.sessionId = "s-1";
+            event.messages = 12;
+            event.commit();
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            RecordedEvent recorded = events.stream()
+                    .filter(e -> e.getEventType().getName().equals("fancyhelper.Persistence"))
+                    .findFirst().orElseThrow();
+            assertEquals("Steve", recorded.getString("player"));
+            assertEquals("s-1", recorded.getString("sessionId"));
+            assertEquals(12, recorded.getInt("messages"));
+            assertEquals(2048, recorded.getLong("bytes"));
+            assertTrue(recorded.getBoolean("success"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("提示词构建与流式事件应带会话 UUID")
+    void testStreamEventsCarrySession() throws Exception {
+        Path file = Files.createTempFile("turn-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("fancyhelper.PromptBuild");
+            recording.enable("fancyhelper.StreamFirstToken");
+            recording.enable("fancyhelper.StreamComplete");
+            recording.start();
+
+            TurnEvents.PromptBuild prompt = new TurnEvents.PromptBuild();
+            prompt.sessionId = "s-2";
+            prompt.commit();
+            TurnEvents.StreamFirstToken firstToken = new TurnEvents.StreamFirstToken();
+            firstToken.sessionId = "s-2";
+            firstToken.commit();
+            TurnEvents.StreamComplete complete = new TurnEvents.StreamComplete();
+            complete.sessionId = "s-2";
+            complete.commit();
+
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            for (String name : new String[]{"fancyhelper.PromptBuild", "fancyhelper.StreamFirstToken", "fancyhelper.StreamComplete"}) {
+                RecordedEvent recorded = events.stream()
+                        .filter(e -> e.getEventType().getName().equals(name))
+                        .findFirst().orElseThrow();
+                assertEquals("s-2", recorded.getString("sessionId"), name);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("未录制时事件不应提交")
+    void testDisabledEvent() {
+        TurnEvents.Tool event = new TurnEvents.Tool();
+        // JVM 可能带着 -XX:StartFlightRecording 等外部录制运行，此时事件已启用，测试前提不成立
+        assumeFalse(event.isEnabled(), "外部 JFR 录制已启用 fancyhelper.Tool");
+        event.begin();
+        assertFalse(event.shouldCommit());
+    }
+}